@@ -24,6 +24,7 @@ import org.etools.j1939_84.bus.Bus;
 import org.etools.j1939_84.bus.BusException;
 import org.etools.j1939_84.bus.MultiQueue;
 import org.etools.j1939_84.bus.Packet;
+import org.etools.j1939_84.bus.PacketFilter;
 import org.etools.j1939_84.bus.j1939.J1939;
 import org.etools.j1939_84.bus.j1939.J1939DaRepository;
 import org.etools.j1939_84.bus.j1939.J1939TP;
@@ -170,6 +171,11 @@ public class FileBus implements Bus {
         return queue.duplicate(stream, time, unit);
     }
 
+    @Override
+    public Stream<Packet> duplicate(Stream<Packet> stream, int time, TimeUnit unit, PacketFilter filter) {
+        return queue.duplicate(stream, time, unit, filter);
+    }
+
     @Override
     public int getAddress() {
         return address;
@@ -185,6 +191,11 @@ public class FileBus implements Bus {
         return queue.stream(timeout, unit);
     }
 
+    @Override
+    public Stream<Packet> read(long timeout, TimeUnit unit, PacketFilter filter) throws BusException {
+        return queue.stream(timeout, unit, filter);
+    }
+
     @Override
     public void resetTimeout(Stream<Packet> stream, int time, TimeUnit unit) {
         queue.resetTimeout(stream, time, unit);
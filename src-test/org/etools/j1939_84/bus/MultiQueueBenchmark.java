@@ -0,0 +1,67 @@
+/*
+ * Copyright 2021 Equipment & Tool Institute
+ */
+package org.etools.j1939_84.bus;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+
+/**
+ * Timing benchmarks for the {@link MultiQueue} class, run by the
+ * run.benchmarks target rather than with the unit tests
+ */
+public class MultiQueueBenchmark {
+
+    /**
+     * 64 idle subscribers must not consume CPU while waiting, and each must
+     * receive every published item.
+     */
+    @Test(timeout = 10000)
+    public void testIdleSubscribers() throws Exception {
+        final int SUBSCRIBERS = 64;
+        final int ITEMS = 100;
+        ThreadMXBean mxBean = ManagementFactory.getThreadMXBean();
+        try (MultiQueue<Long> queue = new MultiQueue<>()) {
+            CountDownLatch started = new CountDownLatch(SUBSCRIBERS);
+            CountDownLatch done = new CountDownLatch(SUBSCRIBERS);
+            AtomicLong received = new AtomicLong();
+            List<Thread> threads = new ArrayList<>();
+            for (int i = 0; i < SUBSCRIBERS; i++) {
+                Stream<Long> stream = queue.stream(5, TimeUnit.SECONDS).limit(ITEMS);
+                Thread thread = new Thread(() -> {
+                    started.countDown();
+                    stream.forEach(t -> received.incrementAndGet());
+                    done.countDown();
+                });
+                threads.add(thread);
+                thread.start();
+            }
+            started.await();
+
+            // let all of the subscribers block on an idle queue
+            long idleStart = threads.stream().mapToLong(t -> mxBean.getThreadCpuTime(t.getId())).sum();
+            Thread.sleep(500);
+            long idleCpu = threads.stream().mapToLong(t -> mxBean.getThreadCpuTime(t.getId())).sum() - idleStart;
+
+            for (int i = 0; i < ITEMS; i++) {
+                queue.add(System.nanoTime());
+                Thread.sleep(1);
+            }
+            done.await();
+
+            assertEquals(SUBSCRIBERS * ITEMS, received.get());
+            assertTrue("Idle subscribers used " + idleCpu + " ns", idleCpu < TimeUnit.MILLISECONDS.toNanos(50));
+        }
+    }
+}
@@ -5,10 +5,16 @@ package org.etools.j1939_84.bus;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.util.Iterator;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import org.etools.testdoc.TestDoc;
@@ -75,6 +81,15 @@ public class MultiQueueTest {
         }
     }
 
+    @Test(expected = IllegalArgumentException.class)
+    @TestDoc(description = "Verify that resetting the timeout of a derived stream is rejected.")
+    public void testResetTimeoutOfDerivedStream() {
+        try (MultiQueue<Integer> queue = new MultiQueue<>()) {
+            Stream<Integer> stream = queue.stream(10, TimeUnit.MILLISECONDS);
+            queue.resetTimeout(stream.filter(i -> i > 1), 1, TimeUnit.DAYS);
+        }
+    }
+
     @Test
     @TestDoc(description = "Verify that duplicate streams are of the same size.")
     public void testDuplicate() throws Exception {
@@ -151,4 +166,208 @@ public class MultiQueueTest {
             exe.awaitTermination(1, TimeUnit.MINUTES);
         }
     }
+
+
+    @Test(timeout = 1000)
+    @TestDoc(description = "Verify that closing a queue releases a subscriber blocked on an idle queue.")
+    public void testCloseWakesSubscriber() throws Exception {
+        try (MultiQueue<Integer> queue = new MultiQueue<>()) {
+            Stream<Integer> stream = queue.stream(1, TimeUnit.DAYS);
+            ExecutorService exe = Executors.newSingleThreadExecutor();
+            exe.submit(() -> {
+                Thread.sleep(50);
+                queue.close();
+                return null;
+            });
+            assertEquals(0, stream.count());
+            exe.shutdown();
+        }
+    }
+
+    @Test
+    @TestDoc(description = "Verify that a bounded queue supports multiple items, findFirst(), skip(), duplicate() and an empty stream.")
+    public void testBounded() {
+        try (MultiQueue<Integer> q = new MultiQueue<>(4, MultiQueue.OverrunPolicy.DROP_OLDEST)) {
+            Stream<Integer> stream = q.stream(100, TimeUnit.MILLISECONDS);
+            Stream<Integer> stream1 = q.stream(200, TimeUnit.MILLISECONDS);
+            Stream<Integer> stream3 = q.stream(200, TimeUnit.MILLISECONDS);
+            Stream<Integer> streamn = q.stream(300, TimeUnit.MILLISECONDS);
+            q.add(1);
+            Stream<Integer> duplicate = q.duplicate(streamn, 300, TimeUnit.MILLISECONDS);
+            q.add(2);
+            q.add(3);
+            assertEquals(3, stream.count());
+            assertEquals(1, (int) stream1.findFirst().get());
+            assertEquals(3, (int) stream3.skip(2).findFirst().get());
+            assertEquals(3, duplicate.limit(3).count());
+            assertFalse(streamn.skip(3).findFirst().isPresent());
+        }
+    }
+
+    @Test
+    @TestDoc(description = "Verify that a stream that falls behind a bounded queue loses the oldest items, throws an OverrunException to the reader and continues with the oldest item held.")
+    public void testBoundedDropOldest() {
+        try (MultiQueue<Integer> q = new MultiQueue<>(4, MultiQueue.OverrunPolicy.DROP_OLDEST)) {
+            Stream<Integer> slow = q.stream(1, TimeUnit.SECONDS);
+            for (int i = 0; i < 10; i++) {
+                q.add(i);
+            }
+            assertEquals(10, q.getLag(slow));
+            assertEquals(0, q.getDropped(slow));
+
+            Iterator<Integer> it = slow.iterator();
+            try {
+                it.next();
+                fail("Expected an overrun");
+            } catch (MultiQueue.OverrunException e) {
+                assertEquals(6, e.getDropped());
+            }
+            assertEquals(6, q.getDropped(slow));
+            assertEquals(6, (int) it.next());
+            assertEquals(7, (int) it.next());
+            assertEquals(8, (int) it.next());
+            assertEquals(9, (int) it.next());
+            assertEquals(0, q.getLag(slow));
+        }
+    }
+
+    @Test(timeout = 2000)
+    @TestDoc(description = "Verify that a bounded queue with the BLOCK policy holds the producer until the slowest stream reads.")
+    public void testBoundedBlock() throws Exception {
+        try (MultiQueue<Integer> q = new MultiQueue<>(2, MultiQueue.OverrunPolicy.BLOCK)) {
+            Stream<Integer> stream = q.stream(1, TimeUnit.SECONDS);
+            ExecutorService exe = Executors.newSingleThreadExecutor();
+            Future<?> producer = exe.submit(() -> {
+                for (int i = 0; i < 5; i++) {
+                    q.add(i);
+                }
+            });
+            Thread.sleep(100);
+            assertFalse(producer.isDone());
+            assertEquals(2, q.getLag(stream));
+
+            assertEquals(List.of(0, 1, 2, 3, 4), stream.limit(5).collect(Collectors.toList()));
+            producer.get();
+            assertEquals(0, q.getDropped(stream));
+            exe.shutdown();
+        }
+    }
+
+    @Test(timeout = 2000)
+    @TestDoc(description = "Verify that a stream that times out no longer blocks the producer of a bounded queue.")
+    public void testBoundedBlockTimeout() throws Exception {
+        try (MultiQueue<Integer> q = new MultiQueue<>(2, MultiQueue.OverrunPolicy.BLOCK)) {
+            q.stream(100, TimeUnit.MILLISECONDS);
+            long start = System.currentTimeMillis();
+            for (int i = 0; i < 5; i++) {
+                q.add(i);
+            }
+            long duration = System.currentTimeMillis() - start;
+            assertTrue("Producer blocked for " + duration + " ms", duration >= 50 && duration < 1000);
+        }
+    }
+
+    /** Filter on the last digit of an Integer, indexed by that digit. */
+    private static MultiQueue.Filter<Integer> lastDigit(int digit) {
+        return new MultiQueue.Filter<>() {
+            @Override
+            public int[] getKeys() {
+                return new int[] { digit };
+            }
+
+            @Override
+            public boolean test(Integer v) {
+                return v % 10 == digit;
+            }
+        };
+    }
+
+    @Test
+    @TestDoc(description = "Verify that a filtered stream only sees matching items, from both an indexed and an unindexed queue.")
+    public void testFiltered() {
+        try (MultiQueue<Integer> indexed = new MultiQueue<>(v -> v % 10);
+             MultiQueue<Integer> unindexed = new MultiQueue<>()) {
+            for (MultiQueue<Integer> q : List.of(indexed, unindexed)) {
+                Stream<Integer> threes = q.stream(1, TimeUnit.SECONDS, lastDigit(3));
+                Stream<Integer> all = q.stream(1, TimeUnit.SECONDS);
+                for (int i = 0; i < 30; i++) {
+                    q.add(i);
+                }
+                assertEquals(3, q.getLag(threes));
+                assertEquals(List.of(3, 13, 23), threes.limit(3).collect(Collectors.toList()));
+                assertEquals(30, all.limit(30).count());
+            }
+        }
+    }
+
+    @Test
+    @TestDoc(description = "Verify that a filtered stream of a bounded queue reads the ring buffer, so it overruns like any other stream.")
+    public void testBoundedFiltered() {
+        try (MultiQueue<Integer> q = new MultiQueue<>(4, MultiQueue.OverrunPolicy.DROP_OLDEST)) {
+            Stream<Integer> threes = q.stream(1, TimeUnit.SECONDS, lastDigit(3));
+            Stream<Integer> fours = q.stream(1, TimeUnit.SECONDS, lastDigit(4));
+            for (int i = 0; i < 4; i++) {
+                q.add(i);
+            }
+            assertEquals(3, (int) threes.findFirst().get());
+            for (int i = 4; i < 10; i++) {
+                q.add(i);
+            }
+            q.add(14);
+            Iterator<Integer> it = fours.iterator();
+            try {
+                it.next();
+                fail("Expected an overrun");
+            } catch (MultiQueue.OverrunException e) {
+                assertEquals(7, e.getDropped());
+            }
+            assertEquals(14, (int) it.next());
+        }
+    }
+
+    @Test
+    @TestDoc(description = "Verify that a filtered duplicate includes the matching items not yet read from the original stream.")
+    public void testFilteredDuplicate() {
+        try (MultiQueue<Integer> q = new MultiQueue<>(8, MultiQueue.OverrunPolicy.DROP_OLDEST)) {
+            Stream<Integer> stream = q.stream(1, TimeUnit.SECONDS);
+            for (int i = 0; i < 4; i++) {
+                q.add(i * 5);
+            }
+            Stream<Integer> fives = q.duplicate(stream, 1, TimeUnit.SECONDS, lastDigit(5));
+            q.add(35);
+            q.add(40);
+            assertEquals(List.of(5, 15, 35), fives.limit(3).collect(Collectors.toList()));
+        }
+        try (MultiQueue<Integer> q = new MultiQueue<>(v -> v % 10)) {
+            Stream<Integer> stream = q.stream(1, TimeUnit.SECONDS);
+            q.add(0);
+            q.add(5);
+            q.add(10);
+            q.add(15);
+            Iterator<Integer> it = stream.iterator();
+            assertEquals(0, (int) it.next());
+            assertEquals(5, (int) it.next());
+            Stream<Integer> zeros = q.duplicate(stream, 1, TimeUnit.SECONDS, lastDigit(0));
+            q.add(20);
+            assertEquals(List.of(10, 20), zeros.limit(2).collect(Collectors.toList()));
+        }
+    }
+
+    @Test(timeout = 1000)
+    @TestDoc(description = "Verify that a filtered stream is woken by a matching item and not by other items.")
+    public void testFilteredWakeUp() throws Exception {
+        try (MultiQueue<Integer> q = new MultiQueue<>(v -> v % 10)) {
+            Stream<Integer> sevens = q.stream(500, TimeUnit.MILLISECONDS, lastDigit(7));
+            ExecutorService exe = Executors.newSingleThreadExecutor();
+            Future<Integer> first = exe.submit(() -> sevens.findFirst().orElse(-1));
+            for (int i = 0; i < 7; i++) {
+                q.add(i);
+            }
+            Thread.sleep(50);
+            assertFalse(first.isDone());
+            q.add(17);
+            assertEquals(17, (int) first.get());
+            exe.shutdown();
+        }
+    }
 }
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2021 Equipment & Tool Institute
+ */
+package org.etools.j1939_84.bus;
+
+import static org.etools.j1939_84.bus.PacketTest.formatPacket;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.Test;
+
+import com.sun.management.ThreadMXBean;
+
+/**
+ * Allocation benchmarks for the {@link Packet} class, run by the
+ * run.benchmarks target rather than with the unit tests
+ */
+public class PacketBenchmark {
+
+    private static long allocatedBytes() {
+        ThreadMXBean bean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * The payload of a single frame packet is held as a byte[8], which is
+     * smaller than the int[8] it used to be.
+     */
+    @Test
+    public void testFootprint() {
+        final int COUNT = 100_000;
+        Object[] retained = new Object[COUNT];
+
+        long before = allocatedBytes();
+        for (int i = 0; i < COUNT; i++) {
+            retained[i] = Packet.create(0xF004, i & 0xFF, i, i >> 8, i >> 16, 0, 1, 2, 3, 4);
+        }
+        long packetBytes = (allocatedBytes() - before) / COUNT;
+
+        // the payload alone, stored as int[] as it used to be and as byte[]
+        before = allocatedBytes();
+        for (int i = 0; i < COUNT; i++) {
+            retained[i] = new int[8];
+        }
+        long intPayloadBytes = (allocatedBytes() - before) / COUNT;
+        before = allocatedBytes();
+        for (int i = 0; i < COUNT; i++) {
+            retained[i] = new byte[8];
+        }
+        long bytePayloadBytes = (allocatedBytes() - before) / COUNT;
+
+        assertTrue("packet " + packetBytes + " bytes, int[8] " + intPayloadBytes + " bytes, byte[8] "
+                + bytePayloadBytes + " bytes", bytePayloadBytes < intPayloadBytes);
+    }
+
+    /**
+     * toString() allocates less than the String.format rendering, and
+     * appendTo() less than toString().
+     */
+    @Test
+    public void testToStringAllocation() {
+        Packet[] packets = new Packet[1024];
+        for (int i = 0; i < packets.length; i++) {
+            byte[] data = { (byte) i, 1, 2, 3, 4, 5, 6, 7 };
+            packets[i] = Packet.create(6, 0xF004 + (i & 0xF), i & 0xFF, (i & 1) == 0, data);
+        }
+
+        final int ROUNDS = 100;
+        long chars = 0;
+        StringBuilder sb = new StringBuilder(64);
+        // warm up
+        for (int round = 0; round < ROUNDS; round++) {
+            for (Packet packet : packets) {
+                sb.setLength(0);
+                chars += formatPacket(packet).length() + packet.toString().length() + packet.appendTo(sb).length();
+            }
+        }
+
+        long before = allocatedBytes();
+        for (int round = 0; round < ROUNDS; round++) {
+            for (Packet packet : packets) {
+                chars += formatPacket(packet).length();
+            }
+        }
+        long formatBytes = allocatedBytes() - before;
+
+        before = allocatedBytes();
+        for (int round = 0; round < ROUNDS; round++) {
+            for (Packet packet : packets) {
+                chars += packet.toString().length();
+            }
+        }
+        long toStringBytes = allocatedBytes() - before;
+
+        before = allocatedBytes();
+        for (int round = 0; round < ROUNDS; round++) {
+            for (Packet packet : packets) {
+                sb.setLength(0);
+                chars += packet.appendTo(sb).length();
+            }
+        }
+        long appendBytes = allocatedBytes() - before;
+
+        assertTrue(chars > 0);
+        assertTrue("toString " + toStringBytes + " bytes, String.format " + formatBytes + " bytes",
+                   toStringBytes < formatBytes);
+        assertTrue("appendTo " + appendBytes + " bytes, toString " + toStringBytes + " bytes",
+                   appendBytes < toStringBytes);
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2021 Equipment & Tool Institute
+ */
+package org.etools.j1939_84.bus;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.etools.testdoc.TestDoc;
+import org.junit.Test;
+
+@TestDoc(description = "Verifies the header filters used to route packets to streams.")
+public class PacketFilterTest {
+
+    @Test
+    @TestDoc(description = "Verify that a filter matches on PGN, source, destination and TX/RX.")
+    public void testHeader() {
+        Packet request = Packet.create(0xEA00, 0xF9, true, 0xEC, 0xFE, 0x00);
+        Packet vin = Packet.create(0xFEEC, 0x00, 1, 2, 3, 4, 5, 6, 7, 8);
+
+        assertTrue(PacketFilter.ALL.test(request));
+        assertNull(PacketFilter.ALL.getKeys());
+
+        PacketFilter filter = PacketFilter.pgns(0xEA00, 0xFEEC);
+        assertArrayEquals(new int[] { 0xEA00, 0xFEEC }, filter.getKeys());
+        assertTrue(filter.test(request));
+        assertTrue(filter.test(vin));
+
+        assertTrue(filter.sources(0x00).test(vin));
+        assertFalse(filter.sources(0x00).test(request));
+        assertTrue(filter.destinations(0xFF).test(vin));
+        assertTrue(filter.destinations(0x00).test(request));
+        assertFalse(filter.destinations(0xFF).test(request));
+        assertTrue(filter.transmitted().test(request));
+        assertFalse(filter.transmitted().test(vin));
+        assertTrue(filter.received().test(vin));
+        assertFalse(PacketFilter.pgns(0xEA00).test(vin));
+    }
+
+    @Test
+    @TestDoc(description = "Verify that an EchoBus only delivers the packets that match a filtered read.")
+    public void testEchoBus() throws Exception {
+        try (EchoBus bus = new EchoBus(0xF9)) {
+            Stream<Packet> stream = bus.read(1, TimeUnit.SECONDS, PacketFilter.pgns(0xFEEC).sources(0x00));
+            bus.send(Packet.create(0xFEEC, 0x01, 1, 2, 3, 4, 5, 6, 7, 8));
+            bus.send(Packet.create(0xF004, 0x00, 1, 2, 3, 4, 5, 6, 7, 8));
+            bus.send(Packet.create(0xFEEC, 0x00, 1, 2, 3, 4, 5, 6, 7, 8));
+            assertEquals(List.of(0x00),
+                         stream.limit(1).map(Packet::getSource).collect(Collectors.toList()));
+        }
+    }
+}
@@ -7,6 +7,17 @@ import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.etools.j1939_84.modules.DateTimeModule;
 import org.etools.j1939_84.modules.TestDateTimeModule;
@@ -230,4 +241,133 @@ public class PacketTest {
         assertEquals(expected, actual);
     }
 
+    @Test
+    public void testTimestampNanos() {
+        LocalDateTime time = LocalDateTime.of(2021, 3, 4, 10, 15, 30, 123_456_789);
+        long nanos = Packet.toEpochNanos(time);
+        Packet instance = Packet.create(nanos, 6, 0x1234, 0x56, false, (byte) 1, (byte) 2, (byte) 3);
+        assertEquals(nanos, instance.getTimestampNanos());
+        assertEquals(time, instance.getTimestamp());
+
+        // sub-millisecond differences are kept
+        instance.setTimestampNanos(nanos + 500);
+        assertEquals(500, instance.getTimestampNanos() - nanos);
+        assertEquals(time.plusNanos(500), instance.getTimestamp());
+
+        instance.setTimestamp(time.plusSeconds(1));
+        assertEquals(nanos + 1_000_000_000L, instance.getTimestampNanos());
+
+        Packet created = Packet.create(time, 6, 0x1234, 0x56, false, 1, 2, 3);
+        assertEquals(nanos, created.getTimestampNanos());
+    }
+
+    @Test
+    public void testGetUnsigned() {
+        Packet instance = Packet.create(0x1234, 56, 0x80, 0x81, 0xFE, 0xFF, 0x01, 0x02, 0x03, 0x04);
+        assertEquals(0x80, instance.get(0));
+        assertEquals(0x8180, instance.get16(0));
+        assertEquals(0x8081, instance.get16Big(0));
+        assertEquals(0xFE8180, instance.get24(0));
+        assertEquals(0x8081FE, instance.get24Big(0));
+        assertEquals(0xFFFE8180L, instance.get32(0));
+        assertEquals(0x8081FEFFL, instance.get32Big(0));
+        assertEquals(0x04030201L, instance.get32(4));
+        assertArrayEquals(new int[] { 0xFE, 0xFF, 0x01 }, instance.getData(2, 5));
+    }
+
+    @Test
+    public void testGetDataPastEnd() {
+        Packet instance = Packet.create(0x1234, 56, 1, 2, 3);
+        assertArrayEquals(new int[] { 2, 3, 0, 0 }, instance.getData(1, 5));
+        assertArrayEquals(new int[0], instance.getData(3, 3));
+    }
+
+    @Test
+    public void testCopyToAndByteBuffer() {
+        byte[] bytes = { 1, 2, 3, (byte) 0xFF, 5, 6, 7, 8 };
+        Packet instance = Packet.create(0x1234, 56, bytes);
+        // the packet owns a copy of the data
+        bytes[0] = 9;
+        assertEquals(1, instance.get(0));
+
+        byte[] buf = new byte[4];
+        instance.copyTo(2, buf, 1, 3);
+        assertArrayEquals(new byte[] { 0, 3, (byte) 0xFF, 5 }, buf);
+
+        ByteBuffer all = instance.asByteBuffer();
+        assertTrue(all.isReadOnly());
+        assertEquals(8, all.remaining());
+        assertEquals(instance.get32(0), all.getInt(0) & 0xFFFFFFFFL);
+
+        ByteBuffer view = instance.asByteBuffer(3, 6);
+        assertEquals(3, view.remaining());
+        assertEquals(0xFF, view.get(0) & 0xFF);
+        assertEquals(instance.get16(4), view.getShort(1) & 0xFFFF);
+    }
+
+    @Test(timeout = 2000)
+    public void testAwaitComplete() throws Exception {
+        Packet complete = Packet.create(0x1234, 56, 1, 2, 3);
+        assertTrue(complete.isComplete());
+        assertTrue(complete.awaitComplete(0, TimeUnit.MILLISECONDS));
+
+        // a TP message that is still being received
+        Packet pending = Packet.create(0x1234, 56, (int[]) null);
+        assertFalse(pending.isComplete());
+        assertFalse(pending.awaitComplete(10, TimeUnit.MILLISECONDS));
+
+        ExecutorService exec = Executors.newSingleThreadExecutor();
+        try {
+            Future<Integer> reader = exec.submit(() -> pending.get16(1));
+            Thread.sleep(50);
+            assertFalse(reader.isDone());
+            pending.setData(new byte[] { 1, 2, 3 });
+            assertTrue(pending.awaitComplete(1, TimeUnit.SECONDS));
+            assertEquals(0x0302, (int) reader.get());
+        } finally {
+            exec.shutdown();
+        }
+
+        Packet failed = Packet.create(0x1234, 56, (int[]) null);
+        failed.fail();
+        assertTrue(failed.awaitComplete(0, TimeUnit.MILLISECONDS));
+        try {
+            failed.get(0);
+            fail("Failed packets have no data.");
+        } catch (Packet.PacketException e) {
+            // expected
+        }
+    }
+
+    /** The String.format rendering that Packet.toString used to do. */
+    static String formatPacket(Packet packet) {
+        byte[] data = packet.getBytes();
+        return String.format("%06X%02X [%s] %s",
+                             packet.getPriority() << 18 | packet.getId(0xFFFFFF),
+                             packet.getSource(),
+                             data.length,
+                             IntStream.range(0, data.length)
+                                      .mapToObj(i -> String.format("%02X", data[i] & 0xFF))
+                                      .collect(Collectors.joining(" "))
+                                     + (packet.isTransmitted() ? Packet.TX : Packet.RX));
+    }
+
+    @Test
+    public void testAppendTo() throws Exception {
+        Packet packet = Packet.create(3, 0xEA00, 0xF9, true, (byte) 0x00, (byte) 0xA5, (byte) 0xFF);
+        StringWriter writer = new StringWriter();
+        packet.appendTo((Appendable) writer);
+        assertEquals("0CEA00F9 [3] 00 A5 FF (TX)", writer.toString());
+        assertEquals("x 0CEA00F9 [3] 00 A5 FF (TX)", packet.appendTo(new StringBuilder("x ")).toString());
+
+        byte[] big = new byte[1785];
+        for (int i = 0; i < big.length; i++) {
+            big[i] = (byte) i;
+        }
+        for (Packet p : new Packet[] { packet,
+                Packet.create(0xFEEC, 0, big),
+                Packet.create(63, 0x3FFFF, 0xFF, false, big) }) {
+            assertEquals(formatPacket(p), p.toString());
+        }
+    }
 }
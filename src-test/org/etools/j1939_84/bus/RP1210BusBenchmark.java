@@ -0,0 +1,91 @@
+/*
+ * Copyright 2021 Equipment & Tool Institute
+ */
+package org.etools.j1939_84.bus;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import org.junit.Test;
+
+/**
+ * Timing benchmarks for the {@link RP1210Bus} class against
+ * {@link StubRP1210Library}, run by the run.benchmarks target rather than
+ * with the unit tests
+ */
+public class RP1210BusBenchmark {
+
+    /**
+     * An idle bus is read about every 10 ms, not in a tight loop, and calls
+     * on the polling thread do not wait for the idle back off.
+     */
+    @Test
+    public void testIdlePoll() throws Exception {
+        StubRP1210Library library = new StubRP1210Library();
+        ExecutorService decoder = Executors.newSingleThreadExecutor();
+        RP1210Bus bus = new RP1210Bus(library,
+                                      decoder,
+                                      Executors.newSingleThreadExecutor(),
+                                      new MultiQueue<>(),
+                                      new Adapter("Testing Adapter", "TST_ADPTR", (short) 42),
+                                      "J1939:Baud=Auto",
+                                      0xA5,
+                                      true,
+                                      Logger.getLogger(RP1210BusBenchmark.class.getName()));
+        try {
+            Thread.sleep(200);
+            int idleReads = library.getReads();
+            assertTrue("idle reads: " + idleReads, idleReads < 100);
+
+            assertEquals(500000, bus.getConnectionSpeed());
+            Thread.sleep(20);
+            long start = System.nanoTime();
+            assertEquals(500000, bus.getConnectionSpeed());
+            long callNanos = System.nanoTime() - start;
+            assertTrue("call while idle " + callNanos + " ns", callNanos < TimeUnit.MILLISECONDS.toNanos(5));
+        } finally {
+            bus.stop();
+            decoder.shutdown();
+        }
+    }
+
+    /**
+     * After an idle period, the echo of a send is read about when it arrives,
+     * not after the longest idle wait.
+     */
+    @Test
+    public void testResponseAfterIdle() throws Exception {
+        StubRP1210Library library = new StubRP1210Library();
+        library.setEchoDelay(1, TimeUnit.MILLISECONDS);
+        ExecutorService decoder = Executors.newSingleThreadExecutor();
+        RP1210Bus bus = new RP1210Bus(library,
+                                      decoder,
+                                      Executors.newSingleThreadExecutor(),
+                                      new MultiQueue<>(),
+                                      new Adapter("Testing Adapter", "TST_ADPTR", (short) 42),
+                                      "J1939:Baud=Auto",
+                                      0xA5,
+                                      true,
+                                      Logger.getLogger(RP1210BusBenchmark.class.getName()));
+        try {
+            Packet request = Packet.create(0xEA00, 0xA5, 0xE3, 0xFE, 0x00);
+            // the first send also loads the classes it uses
+            bus.send(request);
+            for (int i = 0; i < 5; i++) {
+                Thread.sleep(200);
+                long start = System.nanoTime();
+                bus.send(request);
+                long sendNanos = System.nanoTime() - start;
+                assertTrue("send after idle " + sendNanos + " ns", sendNanos < TimeUnit.MILLISECONDS.toNanos(5));
+            }
+        } finally {
+            bus.stop();
+            decoder.shutdown();
+        }
+    }
+}
@@ -5,12 +5,12 @@ package org.etools.j1939_84.bus;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.AdditionalMatchers.aryEq;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.atLeast;
@@ -21,12 +21,19 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
-import java.util.Optional;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Stream;
@@ -385,37 +392,6 @@ public class RP1210BusTest {
         verify(rp1210Library).RP1210_SendCommand(eq((short) 45), eq((short) 1), any(), eq((short) 128));
     }
 
-    @Test
-    public void testNoEchoFails() throws Exception {
-        Packet packet = Packet.create(0x1234, 0x56, 0x77, 0x88, 0x99, 0xAA, 0xBB, 0xCC, 0xDD, 0xEE);
-        byte[] encodedPacket = new byte[] { (byte) 0x34, (byte) 0x12, (byte) 0x00, (byte) 0x06, (byte) 0x56,
-                (byte) 0x34, (byte) 0x77, (byte) 0x88, (byte) 0x99, (byte) 0xAA, (byte) 0xBB, (byte) 0xCC, (byte) 0xDD,
-                (byte) 0xEE };
-
-        ArgumentCaptor<Callable<Short>> submitCaptor = ArgumentCaptor.forClass(Callable.class);
-
-        Future<Short> future = mock(Future.class);
-        when(future.get()).thenReturn((short) 0);
-        when(rp1210Executor.submit(submitCaptor.capture())).thenReturn(future);
-
-        startInstance();
-        try {
-            assertNull(instance.send(packet));
-        } catch (BusException e) {
-            assertEquals("Failed to send: 18123456 [8] 77 88 99 AA BB CC DD EE", e.getMessage());
-        }
-        Callable<Short> callable = submitCaptor.getValue();
-        callable.call();
-
-        verify(rp1210Executor).submit(any(Callable.class));
-        verify(rp1210Library).RP1210_SendMessage(eq((short) 1),
-                                                 aryEq(encodedPacket),
-                                                 eq((short) 14),
-                                                 eq((short) 0),
-                                                 eq((short) 0));
-        verify(queue).stream(anyLong(), any());
-    }
-
     @Test
     public void testPoll() throws Exception {
         Packet packet = Packet.create(0x1234, 0x56, 0x77, 0x88, 0x99, 0xAA, 0xBB, 0xCC, 0xDD, 0xEE);
@@ -444,7 +420,7 @@ public class RP1210BusTest {
         Packet actual = packetCaptor.getValue();
         assertEquals(packet, actual);
 
-        verify(logger).log(eq(Level.FINE), anyString());
+        verify(logger).log(eq(Level.FINE), ArgumentMatchers.<Supplier<String>>any());
         verify(logger).log(eq(Level.INFO), anyString());
         verify(rp1210Library, atLeast(2)).RP1210_ReadMessage(eq((short) 1),
                                                              any(byte[].class),
@@ -516,7 +492,7 @@ public class RP1210BusTest {
         Packet actual = packetCaptor.getValue();
 
         assertEquals(packet, actual);
-        verify(logger).log(eq(Level.FINE), anyString());
+        verify(logger).log(eq(Level.FINE), ArgumentMatchers.<Supplier<String>>any());
         verify(logger).log(eq(Level.INFO), anyString());
         verify(rp1210Library, atLeast(2)).RP1210_ReadMessage(eq((short) 1),
                                                              any(byte[].class),
@@ -526,6 +502,61 @@ public class RP1210BusTest {
         verify(decodingExecutor).submit(any(Runnable.class));
     }
 
+    /**
+     * Feeds {@link StubRP1210Library} at 4000 frames/s, a fully loaded 500 kbps
+     * bus, then as fast as possible, checking every frame arrives in order.
+     */
+    @Test
+    public void testDecodeThroughput() throws Exception {
+        StubRP1210Library library = new StubRP1210Library();
+        RP1210Bus bus = new RP1210Bus(library,
+                                      Executors.newSingleThreadExecutor(),
+                                      Executors.newSingleThreadExecutor(),
+                                      new MultiQueue<>(),
+                                      adapter,
+                                      "J1939:Baud=Auto",
+                                      ADDRESS,
+                                      true,
+                                      Logger.getLogger(RP1210BusTest.class.getName()));
+        try {
+            // 1 s at 4 frames per ms
+            final int PACED = 4000;
+            Stream<Packet> stream = bus.read(5, TimeUnit.SECONDS);
+            Thread producer = new Thread(() -> {
+                long start = System.nanoTime();
+                for (int i = 0; i < PACED; i++) {
+                    if (i % 4 == 0) {
+                        LockSupport.parkNanos(start + TimeUnit.MILLISECONDS.toNanos(i / 4) - System.nanoTime());
+                    }
+                    library.receive(0xF004, 0x56, i, i >> 8, 0, 0, 0, 0, 0, 0);
+                }
+            });
+            producer.start();
+            Iterator<Packet> it = stream.iterator();
+            for (int i = 0; i < PACED; i++) {
+                assertTrue("missing frame " + i, it.hasNext());
+                assertEquals(i & 0xFFFF, it.next().get16(0));
+            }
+            producer.join();
+            stream.close();
+
+            // unpaced
+            final int BURST = 40_000;
+            stream = bus.read(5, TimeUnit.SECONDS);
+            for (int i = 0; i < BURST; i++) {
+                library.receive(0xF004, 0x56, i, i >> 8, 0, 0, 0, 0, 0, 0);
+            }
+            it = stream.iterator();
+            for (int i = 0; i < BURST; i++) {
+                assertTrue("missing frame " + i, it.hasNext());
+                assertEquals(i & 0xFFFF, it.next().get16(0));
+            }
+            stream.close();
+        } finally {
+            bus.stop();
+        }
+    }
+
     @Test
     public void testRead() throws Exception {
         startInstance();
@@ -544,33 +575,82 @@ public class RP1210BusTest {
         verify(queue).stream(99, TimeUnit.NANOSECONDS);
     }
 
+    @Test
+    public void testNoEchoFails() throws Exception {
+        Packet packet = Packet.create(0x1234, 0x56, 0x77, 0x88, 0x99, 0xAA, 0xBB, 0xCC, 0xDD, 0xEE);
+        byte[] encodedPacket = new byte[] { (byte) 0x34, (byte) 0x12, (byte) 0x00, (byte) 0x06, (byte) 0x56,
+                (byte) 0x34, (byte) 0x77, (byte) 0x88, (byte) 0x99, (byte) 0xAA, (byte) 0xBB, (byte) 0xCC, (byte) 0xDD,
+                (byte) 0xEE };
+
+        ArgumentCaptor<Callable<Void>> submitCaptor = ArgumentCaptor.forClass(Callable.class);
+        when(rp1210Executor.submit(submitCaptor.capture())).thenReturn(null);
+
+        startInstance();
+        CompletableFuture<Packet> echo = instance.sendAsync(packet);
+        submitCaptor.getValue().call();
+        try {
+            echo.get();
+            fail("An exception should have been thrown");
+        } catch (ExecutionException e) {
+            assertEquals("Failed to send: 18123456 [8] 77 88 99 AA BB CC DD EE", e.getCause().getMessage());
+        }
+
+        verify(rp1210Executor).submit(any(Callable.class));
+        verify(rp1210Library).RP1210_SendMessage(eq((short) 1),
+                                                 aryEq(encodedPacket),
+                                                 eq((short) 14),
+                                                 eq((short) 0),
+                                                 eq((short) 0));
+    }
+
     @Test
     public void testSend() throws Exception {
         Packet packet = Packet.create(0x1234, 0x56, true, 0x77, 0x88, 0x99, 0xAA, 0xBB, 0xCC, 0xDD, 0xEE);
         byte[] encodedPacket = new byte[] { (byte) 0x34, (byte) 0x12, (byte) 0x00, (byte) 0x06, (byte) 0x56,
                 (byte) 0x34, (byte) 0x77, (byte) 0x88, (byte) 0x99, (byte) 0xAA, (byte) 0xBB, (byte) 0xCC, (byte) 0xDD,
                 (byte) 0xEE };
-        ArgumentCaptor<Callable<Optional<String>>> submitCaptor = ArgumentCaptor.forClass(Callable.class);
-
-        Future<Optional<String>> future = mock(Future.class);
-        when(future.get()).thenReturn(Optional.empty());
-        when(rp1210Executor.submit(submitCaptor.capture())).thenReturn(future);
-        // implement echo
-        when(queue.stream(ArgumentMatchers.anyLong(), ArgumentMatchers.any())).thenReturn(Stream.of(packet));
+        byte[] echoedPacket = new byte[] { 0x00, 0x00, 0x00, 0x00, 0x01, (byte) 0x34, (byte) 0x12, (byte) 0x00,
+                (byte) 0x06, (byte) 0x56, (byte) 0x34, (byte) 0x77, (byte) 0x88, (byte) 0x99, (byte) 0xAA, (byte) 0xBB,
+                (byte) 0xCC, (byte) 0xDD, (byte) 0xEE };
+        ArgumentCaptor<Callable<Void>> submitCaptor = ArgumentCaptor.forClass(Callable.class);
+        when(rp1210Executor.submit(submitCaptor.capture())).thenReturn(null);
+        when(rp1210Library.RP1210_ReadMessage(eq((short) 1), any(byte[].class), eq((short) 32), eq((short) 0)))
+                                                                                                               .thenAnswer(arg0 -> {
+                                                                                                                   byte[] data = arg0.getArgument(1);
+                                                                                                                   System.arraycopy(echoedPacket,
+                                                                                                                                    0,
+                                                                                                                                    data,
+                                                                                                                                    0,
+                                                                                                                                    echoedPacket.length);
+                                                                                                                   return (short) echoedPacket.length;
+                                                                                                               })
+                                                                                                               .thenReturn((short) 0);
 
         startInstance();
-        instance.send(packet);
+        CompletableFuture<Packet> echo = instance.sendAsync(packet);
+        submitCaptor.getValue().call();
+        assertFalse(echo.isDone());
 
-        Callable<Optional<String>> callable = submitCaptor.getValue();
-        assertEquals(callable.call(), Optional.empty());
+        // the echo is read and decoded
+        rp1210Captor.getValue().run();
+        decodingCaptor.getValue().run();
+        assertEquals(packet, echo.get());
 
         verify(rp1210Executor).submit(any(Callable.class));
+        verify(rp1210Executor, times(2)).submit(any(Runnable.class));
+        verify(decodingExecutor).submit(any(Runnable.class));
         verify(rp1210Library).RP1210_SendMessage(eq((short) 1),
                                                  aryEq(encodedPacket),
                                                  eq((short) 14),
                                                  eq((short) 0),
                                                  eq((short) 0));
-        verify(queue).stream(anyLong(), any());
+        verify(rp1210Library, times(2)).RP1210_ReadMessage(eq((short) 1),
+                                                           any(byte[].class),
+                                                           eq((short) 32),
+                                                           eq((short) 0));
+        verify(queue).add(echo.get());
+        verify(logger).log(eq(Level.FINE), ArgumentMatchers.<Supplier<String>>any());
+        verify(logger).log(eq(Level.INFO), anyString());
     }
 
     @Test
@@ -587,10 +667,8 @@ public class RP1210BusTest {
                                               (short) 0))
                                                          .thenReturn((short) -99);
 
-        ArgumentCaptor<Callable<Optional<String>>> submitCaptor = ArgumentCaptor.forClass(Callable.class);
-        Future<Optional<String>> future = mock(Future.class);
-        when(future.get()).thenReturn(Optional.of("Failed to send: 18123456 [8] 77 88 99 AA BB CC DD EE (TX)"));
-        when(rp1210Executor.submit(submitCaptor.capture())).thenReturn(future);
+        ArgumentCaptor<Callable<Void>> submitCaptor = ArgumentCaptor.forClass(Callable.class);
+        when(rp1210Executor.submit(submitCaptor.capture())).thenReturn(null);
 
         when(rp1210Library.RP1210_GetErrorMsg(eq((short) 99), any())).thenAnswer(arg0 -> {
             byte[] dest = arg0.getArgument(1);
@@ -600,14 +678,14 @@ public class RP1210BusTest {
         });
 
         startInstance();
+        CompletableFuture<Packet> echo = instance.sendAsync(packet);
+        submitCaptor.getValue().call();
         try {
-            instance.send(packet);
+            echo.get();
             fail("An exception should have been thrown");
-        } catch (BusException e) {
-            assertEquals("Failed to send: 18123456 [8] 77 88 99 AA BB CC DD EE (TX)", e.getMessage());
+        } catch (ExecutionException e) {
+            assertEquals("Error (99): Testing Failure", e.getCause().getMessage());
         }
-        Callable<Optional<String>> callable = submitCaptor.getValue();
-        assertEquals(Optional.of("Error (99): Testing Failure"), callable.call());
 
         verify(rp1210Executor).submit(any(Callable.class));
         verify(rp1210Library).RP1210_SendMessage(eq((short) 1),
@@ -616,7 +694,49 @@ public class RP1210BusTest {
                                                  eq((short) 0),
                                                  eq((short) 0));
         verify(rp1210Library).RP1210_GetErrorMsg(eq((short) 99), any());
-        verify(queue).stream(anyLong(), any());
+    }
+
+    /**
+     * Many sends in flight at once against {@link StubRP1210Library}, which
+     * echoes every message.
+     */
+    @Test
+    public void testSendAsync() throws Exception {
+        StubRP1210Library library = new StubRP1210Library();
+        RP1210Bus bus = new RP1210Bus(library,
+                                      Executors.newSingleThreadExecutor(),
+                                      Executors.newSingleThreadExecutor(),
+                                      new MultiQueue<>(),
+                                      adapter,
+                                      "J1939:Baud=Auto",
+                                      ADDRESS,
+                                      true,
+                                      Logger.getLogger(RP1210BusTest.class.getName()));
+        try {
+            final int COUNT = 1000;
+            // identical packets are matched to their sends in order
+            Packet same = Packet.create(0xEA00, ADDRESS, 0xEC, 0xFE, 0x00);
+            CompletableFuture<Packet> first = bus.sendAsync(same);
+            CompletableFuture<Packet> second = bus.sendAsync(same);
+            assertTrue(first.get().getTimestampNanos() < second.get().getTimestampNanos());
+
+            for (int i = 0; i < COUNT; i++) {
+                bus.send(Packet.create(0xEA00, ADDRESS, i, i >> 8, 0));
+            }
+
+            List<CompletableFuture<Packet>> echoes = new ArrayList<>();
+            for (int i = 0; i < COUNT; i++) {
+                echoes.add(bus.sendAsync(Packet.create(0xEA00, ADDRESS, i, i >> 8, 0)));
+            }
+            for (int i = 0; i < COUNT; i++) {
+                Packet echo = echoes.get(i).get();
+                assertTrue(echo.isTransmitted());
+                assertEquals(i, echo.get16(0));
+            }
+            assertEquals(2 + 2 * COUNT, library.getSends());
+        } finally {
+            bus.stop();
+        }
     }
 
     @Test
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2021 Equipment & Tool Institute
+ */
+package org.etools.j1939_84.bus;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An in memory {@link RP1210Library} for exercising {@link RP1210Bus} without
+ * an adapter. Frames added with {@link #receive(int, int, int...)} are
+ * returned by non-blocking reads, and sent messages are echoed back.
+ */
+public class StubRP1210Library implements RP1210Library {
+
+    /** A frame and the System.nanoTime() it can be read from */
+    private static class Frame {
+        final byte[] data;
+        final long readable;
+
+        Frame(byte[] data, long readable) {
+            this.data = data;
+            this.readable = readable;
+        }
+    }
+
+    private final Queue<Frame> frames = new ConcurrentLinkedQueue<>();
+
+    /** How long after a send its echo can be read */
+    private volatile long echoDelayNanos;
+
+    private final AtomicInteger reads = new AtomicInteger();
+
+    private final AtomicInteger sends = new AtomicInteger();
+
+    /** Adapter time, one tick per frame */
+    private int time;
+
+    /**
+     * Queues a frame to be read, stamped with the current adapter time
+     *
+     * @param pgn
+     *                   the PGN, including the destination for PDU1 PGNs
+     * @param source
+     *                   the source address
+     * @param data
+     *                   the payload
+     */
+    public void receive(int pgn, int source, int... data) {
+        byte[] frame = new byte[11 + data.length];
+        frame[5] = (byte) pgn;
+        frame[6] = (byte) (pgn >> 8);
+        frame[7] = (byte) (pgn >> 16);
+        frame[8] = 6;
+        frame[9] = (byte) source;
+        frame[10] = pgn < 0xF000 ? (byte) pgn : 0;
+        for (int i = 0; i < data.length; i++) {
+            frame[11 + i] = (byte) data[i];
+        }
+        add(frame, 0);
+    }
+
+    private synchronized void add(byte[] frame, long delayNanos) {
+        int t = time++;
+        frame[0] = (byte) (t >> 24);
+        frame[1] = (byte) (t >> 16);
+        frame[2] = (byte) (t >> 8);
+        frame[3] = (byte) t;
+        frames.add(new Frame(frame, System.nanoTime() + delayNanos));
+    }
+
+    /**
+     * Delays the echo of every later send, as an adapter does while the frame
+     * is on the bus. The default is no delay.
+     */
+    public void setEchoDelay(long time, TimeUnit unit) {
+        echoDelayNanos = unit.toNanos(time);
+    }
+
+    /** @return the number of calls to RP1210_ReadMessage */
+    public int getReads() {
+        return reads.get();
+    }
+
+    /** @return the number of calls to RP1210_SendMessage */
+    public int getSends() {
+        return sends.get();
+    }
+
+    @Override
+    public short RP1210_ClientConnect(int hwndClient,
+                                      short nDeviceID,
+                                      String fpchProtocol,
+                                      int lTxBufferSize,
+                                      int lRcvBufferSize,
+                                      short nIsAppPacketizingIncomingMsgs) {
+        return 1;
+    }
+
+    @Override
+    public short RP1210_ClientDisconnect(short nClientID) {
+        return 0;
+    }
+
+    @Override
+    public short RP1210_GetErrorMsg(short errCode, byte[] fpchMessage) {
+        byte[] message = ("Stub error " + errCode).getBytes(UTF_8);
+        System.arraycopy(message, 0, fpchMessage, 0, Math.min(message.length, fpchMessage.length));
+        return 0;
+    }
+
+    @Override
+    public short RP1210_GetHardwareStatus(short nClientID,
+                                          String fpchClientInfo,
+                                          short nInfoSize,
+                                          short nBlockOnRequest) {
+        return 0;
+    }
+
+    @Override
+    public short RP1210_GetLastErrorMsg(short errCode, int[] subErrorCode, String fpchMessage) {
+        return 0;
+    }
+
+    @Override
+    public short RP1210_ReadDetailedVersion(short nClientID,
+                                            String fpchAPIVersionInfo,
+                                            String fpchDLLVersionInfo,
+                                            String fpchFWVersionInfo) {
+        return 0;
+    }
+
+    @Override
+    public short RP1210_ReadMessage(short nClientID, byte[] fpchAPIMessage, short nBufferSize, short nBlockOnSend) {
+        reads.incrementAndGet();
+        Frame frame = frames.peek();
+        if (frame == null || frame.readable - System.nanoTime() > 0) {
+            return 0;
+        }
+        frames.poll();
+        System.arraycopy(frame.data, 0, fpchAPIMessage, 0, frame.data.length);
+        return (short) frame.data.length;
+    }
+
+    @Override
+    public void RP1210_ReadVersion(String fpchDLLMajorVersion,
+                                   String fpchDLLMinorVersion,
+                                   String fpchAPIMajorVersion,
+                                   String fpchAPIMinorVersion) {
+    }
+
+    @Override
+    public short RP1210_SendCommand(short nCommandNumber, short nClientID, byte[] fpchClientCommand, short nMessageSize) {
+        if (nCommandNumber == CMD_GET_PROTOCOL_CONNECTION_SPEED) {
+            byte[] speed = "500000".getBytes(UTF_8);
+            System.arraycopy(speed, 0, fpchClientCommand, 0, speed.length);
+        }
+        return 0;
+    }
+
+    @Override
+    public short RP1210_SendMessage(short nClientID,
+                                    byte[] fpchClientMessage,
+                                    short nMessageSize,
+                                    short nNotifyStatusOnTx,
+                                    short nBlockOnSend) {
+        sends.incrementAndGet();
+        // echo: the message as read, with the echo flag set
+        byte[] frame = new byte[5 + nMessageSize];
+        frame[4] = 1;
+        System.arraycopy(fpchClientMessage, 0, frame, 5, nMessageSize);
+        add(frame, echoDelayNanos);
+        return 0;
+    }
+}
@@ -0,0 +1,128 @@
+/**
+ * Copyright 2021 Equipment & Tool Institute
+ */
+package org.etools.j1939_84.bus.j1939;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import org.etools.j1939_84.bus.Packet;
+import org.etools.j1939_84.bus.j1939.packets.SupportedSPN;
+import org.etools.j1939_84.bus.j1939.packets.model.PgnDefinition;
+import org.etools.j1939_84.controllers.BroadcastValidator;
+import org.etools.j1939_84.controllers.DataRepository;
+import org.etools.j1939_84.model.OBDModuleInformation;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link BroadcastCollector} class
+ */
+public class BroadcastCollectorTest {
+
+    private static final int EEC1 = 0xF004;
+
+    private static final int CCVS1 = 0xFEF1;
+
+    private static final int HOURS = 0xFEE5;
+
+    private static Packet packet(int pgn, int source) {
+        return Packet.create(pgn, source, 1, 2, 3, 4, 5, 6, 7, 8);
+    }
+
+    private static PgnDefinition pgnDefinition(int pgn, int broadcastPeriod) {
+        PgnDefinition pgnDefinition = mock(PgnDefinition.class);
+        when(pgnDefinition.getId()).thenReturn(pgn);
+        when(pgnDefinition.getBroadcastPeriod()).thenReturn(broadcastPeriod);
+        return pgnDefinition;
+    }
+
+    /**
+     * A module sends a supported SPN in two PGNs at different rates. Enough
+     * samples of both are needed, not just of the faster one.
+     */
+    @Test
+    public void testEveryPgnOfAnSpn() {
+        SupportedSPN supportedSPN = mock(SupportedSPN.class);
+        when(supportedSPN.getSpn()).thenReturn(84);
+        OBDModuleInformation module = mock(OBDModuleInformation.class);
+        when(module.getSourceAddress()).thenReturn(0x00);
+        when(module.getFilteredDataStreamSPNs()).thenReturn(List.of(supportedSPN));
+        DataRepository dataRepository = mock(DataRepository.class);
+        when(dataRepository.getObdModules()).thenReturn(List.of(module));
+
+        J1939DaRepository j1939DaRepository = mock(J1939DaRepository.class);
+        when(j1939DaRepository.getPgnIdsForSpn(84)).thenAnswer(a -> IntStream.of(EEC1, CCVS1, HOURS));
+        PgnDefinition eec1 = pgnDefinition(EEC1, 20);
+        when(j1939DaRepository.findPgnDefinition(EEC1)).thenReturn(eec1);
+        PgnDefinition ccvs1 = pgnDefinition(CCVS1, 100);
+        when(j1939DaRepository.findPgnDefinition(CCVS1)).thenReturn(ccvs1);
+        // on request, so not needed
+        PgnDefinition hours = pgnDefinition(HOURS, -1);
+        when(j1939DaRepository.findPgnDefinition(HOURS)).thenReturn(hours);
+
+        BroadcastValidator validator = new BroadcastValidator(dataRepository, j1939DaRepository);
+        BroadcastCollector instance = validator.createBroadcastCollector();
+        assertTrue(instance.hasExpected());
+
+        // EEC1 five times as often as CCVS1
+        for (int i = 0; i < 3; i++) {
+            assertFalse(instance.isComplete());
+            assertTrue(instance.add(packet(CCVS1, 0x00)));
+            for (int j = 0; j < 5; j++) {
+                instance.add(packet(EEC1, 0x00));
+            }
+        }
+        assertTrue(instance.isComplete());
+    }
+
+    @Test
+    public void testAnyPgn() {
+        BroadcastCollector instance = new BroadcastCollector(1, TimeUnit.SECONDS, 3);
+        instance.expect(0x00, List.of(EEC1, CCVS1));
+        instance.expect(0x17, List.of(CCVS1));
+        assertFalse(instance.isComplete());
+
+        // any one of the PGNs is enough
+        assertTrue(instance.add(packet(CCVS1, 0x00)));
+        assertTrue(instance.add(packet(CCVS1, 0x00)));
+        assertTrue(instance.add(packet(CCVS1, 0x00)));
+        assertFalse(instance.isComplete());
+        // more samples are not new
+        assertFalse(instance.add(packet(CCVS1, 0x00)));
+
+        // the first packet from a PGN is new
+        assertTrue(instance.add(packet(EEC1, 0x00)));
+        assertFalse(instance.add(packet(EEC1, 0x00)));
+
+        assertTrue(instance.add(packet(CCVS1, 0x17)));
+        assertTrue(instance.add(packet(CCVS1, 0x17)));
+        assertFalse(instance.isComplete());
+        assertTrue(instance.add(packet(CCVS1, 0x17)));
+        assertTrue(instance.isComplete());
+    }
+
+    @Test
+    public void testExpectAfterReceived() {
+        BroadcastCollector instance = new BroadcastCollector(1, TimeUnit.SECONDS, 1);
+        instance.add(packet(HOURS, 0x00));
+        instance.expect(0x00, List.of(HOURS));
+        assertTrue(instance.hasExpected());
+        assertTrue(instance.isComplete());
+    }
+
+    @Test
+    public void testNothingExpected() {
+        BroadcastCollector instance = new BroadcastCollector(1, TimeUnit.SECONDS, 3);
+        instance.expect(0x00, List.of());
+        assertFalse(instance.hasExpected());
+        assertTrue(instance.isComplete());
+        assertTrue(instance.add(packet(HOURS, 0x00)));
+        assertFalse(instance.add(packet(HOURS, 0x00)));
+    }
+}
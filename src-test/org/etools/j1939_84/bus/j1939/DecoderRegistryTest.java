@@ -0,0 +1,124 @@
+/**
+ * Copyright 2021 Equipment & Tool Institute
+ */
+package org.etools.j1939_84.bus.j1939;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.etools.j1939_84.bus.Packet;
+import org.etools.j1939_84.bus.j1939.packets.AcknowledgmentPacket;
+import org.etools.j1939_84.bus.j1939.packets.DM5DiagnosticReadinessPacket;
+import org.etools.j1939_84.bus.j1939.packets.EngineHoursPacket;
+import org.etools.j1939_84.bus.j1939.packets.GenericPacket;
+import org.etools.j1939_84.bus.j1939.packets.ParsedPacket;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link DecoderRegistry} class
+ */
+public class DecoderRegistryTest {
+
+    /** A packet that isn't registered by default */
+    public static class TestPacket extends GenericPacket {
+        public static final int PGN = 0xFD7C;
+
+        public TestPacket(Packet packet) {
+            super(packet);
+        }
+    }
+
+    /** Not registered and without a PGN field */
+    private static class UnknownPacket extends GenericPacket {
+        private UnknownPacket(Packet packet) {
+            super(packet);
+        }
+    }
+
+    private final DecoderRegistry instance = new DecoderRegistry();
+
+    @Test
+    public void testDecode() {
+        ParsedPacket hours = instance.decode(Packet.create(EngineHoursPacket.PGN, 0x00, 1, 2, 3, 4, 5, 6, 7, 8));
+        assertSame(EngineHoursPacket.class, hours.getClass());
+
+        ParsedPacket ack = instance.decode(Packet.create(0xE8FF, 0x00, 1, 0xFF, 0xFF, 0xFF, 0xA5, 0xE5, 0xFE, 0x00));
+        assertSame(AcknowledgmentPacket.class, ack.getClass());
+
+        ParsedPacket generic = instance.decode(Packet.create(0xFEF1, 0x00, 1, 2, 3, 4, 5, 6, 7, 8));
+        assertSame(GenericPacket.class, generic.getClass());
+    }
+
+    @Test
+    public void testDecodeCounts() {
+        instance.decode(Packet.create(EngineHoursPacket.PGN, 0x00, 1, 2, 3, 4, 5, 6, 7, 8));
+        instance.decode(Packet.create(EngineHoursPacket.PGN, 0x17, 1, 2, 3, 4, 5, 6, 7, 8));
+        instance.decode(Packet.create(0xFEF1, 0x00, 1, 2, 3, 4, 5, 6, 7, 8));
+
+        var counts = instance.getDecodeCounts();
+        assertEquals(2, counts.size());
+        assertEquals(2L, (long) counts.get(EngineHoursPacket.PGN));
+        assertEquals(1L, (long) counts.get(0xFEF1));
+    }
+
+    @Test
+    public void testGenericCountsFromManyThreads() throws Exception {
+        final int threads = 4;
+        final int pgns = 100;
+        ExecutorService exec = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(exec.submit(() -> {
+                    // every thread sees each PGN for the first time together
+                    for (int pgn = 0; pgn < pgns; pgn++) {
+                        instance.decode(Packet.create(0xFF00 | pgn, 0x00, 1, 2, 3, 4, 5, 6, 7, 8));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            exec.shutdown();
+        }
+
+        var counts = instance.getDecodeCounts();
+        assertEquals(pgns, counts.size());
+        for (int pgn = 0; pgn < pgns; pgn++) {
+            assertEquals(threads, (long) counts.get(0xFF00 | pgn));
+        }
+    }
+
+    @Test
+    public void testGetPgn() {
+        assertEquals(DM5DiagnosticReadinessPacket.PGN, instance.getPgn(DM5DiagnosticReadinessPacket.class));
+        // from the PGN field, when it isn't registered
+        assertEquals(TestPacket.PGN, instance.getPgn(TestPacket.class));
+        assertEquals(-1, instance.getPgn(UnknownPacket.class));
+    }
+
+    @Test
+    public void testRegister() {
+        assertFalse(instance.isRegistered(TestPacket.PGN));
+        assertTrue(instance.isRegistered(DM5DiagnosticReadinessPacket.PGN));
+
+        instance.register(0xFD7D, UnknownPacket.class, UnknownPacket::new);
+        instance.register(TestPacket.PGN, TestPacket.class, TestPacket::new);
+
+        assertTrue(instance.isRegistered(TestPacket.PGN));
+        assertEquals(0xFD7D, instance.getPgn(UnknownPacket.class));
+        ParsedPacket packet = instance.decode(Packet.create(TestPacket.PGN, 0x00, 1, 2, 3, 4, 5, 6, 7, 8));
+        assertSame(TestPacket.class, packet.getClass());
+        // the defaults are still there
+        assertTrue(instance.isRegistered(DM5DiagnosticReadinessPacket.PGN));
+    }
+}
@@ -0,0 +1,107 @@
+/**
+ * Copyright 2021 Equipment & Tool Institute
+ */
+package org.etools.j1939_84.bus.j1939;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link IntervalStatistics} class
+ */
+public class IntervalStatisticsTest {
+
+    private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static double percentile(long[] sorted, double p) {
+        return sorted[(int) Math.round(p * (sorted.length - 1))];
+    }
+
+    @Test
+    public void testEmpty() {
+        IntervalStatistics instance = new IntervalStatistics();
+        instance.add(1000);
+        assertEquals(0, instance.getCount());
+        assertEquals(-1, instance.getMin());
+        assertEquals(-1, instance.getMax());
+        assertTrue(Double.isNaN(instance.getMean()));
+        assertTrue(Double.isNaN(instance.getP50()));
+    }
+
+    @Test
+    public void testFewIntervals() {
+        IntervalStatistics instance = new IntervalStatistics();
+        instance.add(0);
+        instance.add(100 * MILLIS);
+        instance.add(190 * MILLIS);
+        instance.add(300 * MILLIS);
+
+        assertEquals(3, instance.getCount());
+        assertEquals(90 * MILLIS, instance.getMin());
+        assertEquals(110 * MILLIS, instance.getMax());
+        assertEquals(100 * MILLIS, instance.getMean(), 0.001);
+        assertEquals(90 * MILLIS, instance.getP5(), 0.0);
+        assertEquals(100 * MILLIS, instance.getP50(), 0.0);
+        assertEquals(110 * MILLIS, instance.getP95(), 0.0);
+    }
+
+    @Test
+    public void testNearestInterval() {
+        IntervalStatistics instance = new IntervalStatistics();
+        long time = 0;
+        instance.add(time);
+        for (int i = 0; i < 10; i++) {
+            time += (i == 0 ? 50 : i == 9 ? 150 : 100) * MILLIS;
+            instance.add(time);
+        }
+        // with ten, the 5th and 95th are the shortest and the longest
+        assertEquals(50 * MILLIS, instance.getP5(), 0.0);
+        assertEquals(150 * MILLIS, instance.getP95(), 0.0);
+
+        // after that, one interval no longer decides them
+        for (int i = 0; i < 2; i++) {
+            time += 100 * MILLIS;
+            instance.add(time);
+        }
+        assertEquals(100 * MILLIS, instance.getP5(), 0.0);
+        assertEquals(100 * MILLIS, instance.getP95(), 0.0);
+        assertEquals(50 * MILLIS, instance.getMin());
+        assertEquals(150 * MILLIS, instance.getMax());
+    }
+
+    /**
+     * A 100 ms broadcast with jitter; the estimated percentiles must be close
+     * to the ones from all the intervals.
+     */
+    @Test
+    public void testPercentiles() {
+        Random random = new Random(1939);
+        IntervalStatistics instance = new IntervalStatistics();
+        long[] intervals = new long[10000];
+        long time = 0;
+        instance.add(time);
+        for (int i = 0; i < intervals.length; i++) {
+            intervals[i] = 100 * MILLIS + (long) (random.nextGaussian() * 5 * MILLIS);
+            time += intervals[i];
+            instance.add(time);
+        }
+
+        long[] sorted = intervals.clone();
+        Arrays.sort(sorted);
+        assertEquals(intervals.length, instance.getCount());
+        assertEquals(sorted[0], instance.getMin());
+        assertEquals(sorted[sorted.length - 1], instance.getMax());
+        assertEquals(Arrays.stream(intervals).average().orElseThrow(), instance.getMean(), 1.0);
+
+        // within 0.5 ms
+        assertEquals(percentile(sorted, 0.05), instance.getP5(), MILLIS / 2.0);
+        assertEquals(percentile(sorted, 0.50), instance.getP50(), MILLIS / 2.0);
+        assertEquals(percentile(sorted, 0.95), instance.getP95(), MILLIS / 2.0);
+    }
+}
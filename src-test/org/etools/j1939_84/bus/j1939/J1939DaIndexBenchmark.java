@@ -0,0 +1,53 @@
+/**
+ * Copyright 2021 Equipment & Tool Institute
+ */
+package org.etools.j1939_84.bus.j1939;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+/**
+ * Startup time benchmark for the {@link J1939DaIndex} class, run by the
+ * run.benchmarks target rather than with the unit tests
+ */
+public class J1939DaIndexBenchmark {
+
+    /**
+     * Compares loading the tables from the CSV files with reading the index.
+     * The index must be faster.
+     */
+    @Test
+    public void testStartupTime() throws IOException {
+        long checksum = J1939DaIndex.checksum();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        J1939DaIndex.write(out, new J1939DaRepository(false), J1939DaIndex.loadLookupsFromCsv(), checksum);
+        byte[] bytes = out.toByteArray();
+
+        // warm up both paths
+        new J1939DaRepository(false).getPgnDefinitions();
+        J1939DaIndex.read(new ByteArrayInputStream(bytes), J1939DaIndex.checksum());
+
+        final int runs = 3;
+        long csvNanos = Long.MAX_VALUE;
+        long indexNanos = Long.MAX_VALUE;
+        for (int i = 0; i < runs; i++) {
+            long start = System.nanoTime();
+            J1939DaRepository csv = new J1939DaRepository(false);
+            csv.getPgnDefinitions();
+            csv.getSlots();
+            J1939DaIndex.loadLookupsFromCsv();
+            csvNanos = Math.min(csvNanos, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            assertNotNull(J1939DaIndex.read(new ByteArrayInputStream(bytes), J1939DaIndex.checksum()));
+            indexNanos = Math.min(indexNanos, System.nanoTime() - start);
+        }
+        assertTrue("index " + indexNanos + " ns, CSV " + csvNanos + " ns", indexNanos < csvNanos);
+    }
+}
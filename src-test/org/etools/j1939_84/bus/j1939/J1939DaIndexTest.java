@@ -0,0 +1,114 @@
+/**
+ * Copyright 2021 Equipment & Tool Institute
+ */
+package org.etools.j1939_84.bus.j1939;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Map;
+
+import org.etools.j1939_84.bus.j1939.packets.Slot;
+import org.etools.j1939_84.bus.j1939.packets.model.PgnDefinition;
+import org.etools.j1939_84.bus.j1939.packets.model.SpnDefinition;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link J1939DaIndex} class
+ */
+public class J1939DaIndexTest {
+
+    private static byte[] bytes;
+
+    private static long checksum;
+
+    private static Map<String, Map<Integer, String>> lookups;
+
+    private static J1939DaRepository repository;
+
+    private static void assertSpnEquals(SpnDefinition expected, SpnDefinition actual) {
+        assertEquals(expected.getSpnId(), actual.getSpnId());
+        assertEquals(expected.getLabel(), actual.getLabel());
+        assertEquals(expected.getStartByte(), actual.getStartByte());
+        assertEquals(expected.getStartBit(), actual.getStartBit());
+        assertEquals(expected.getSlotNumber(), actual.getSlotNumber());
+    }
+
+    @BeforeClass
+    public static void setUpClass() throws IOException {
+        repository = new J1939DaRepository(false);
+        lookups = J1939DaIndex.loadLookupsFromCsv();
+        checksum = J1939DaIndex.checksum();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        J1939DaIndex.write(out, repository, lookups, checksum);
+        bytes = out.toByteArray();
+    }
+
+    @Test
+    public void testChecksumChanged() throws IOException {
+        assertNull(J1939DaIndex.read(new ByteArrayInputStream(bytes), checksum + 1));
+    }
+
+    @Test
+    public void testNotAnIndex() throws IOException {
+        assertNull(J1939DaIndex.read(new ByteArrayInputStream(new byte[16]), checksum));
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        J1939DaIndex index = J1939DaIndex.read(new ByteArrayInputStream(bytes), checksum);
+        assertNotNull(index);
+
+        assertEquals(repository.getSlots().keySet(), index.getSlots().asMap().keySet());
+        for (Slot expected : repository.getSlots().values()) {
+            Slot actual = index.getSlots().get(expected.getId());
+            assertEquals(expected.getName(), actual.getName());
+            assertEquals(expected.getType(), actual.getType());
+            assertEquals(expected.getScaling(), actual.getScaling());
+            assertEquals(expected.getOffset(), actual.getOffset());
+            assertEquals(expected.getUnit(), actual.getUnit());
+            assertEquals(expected.getLength(), actual.getLength());
+        }
+
+        assertEquals(repository.getSpnDefinitions().keySet(), index.getSpnDefinitions().asMap().keySet());
+        repository.getSpnDefinitions().forEach((id, spn) -> assertSpnEquals(spn, index.getSpnDefinitions().get(id)));
+
+        assertEquals(repository.getPgnDefinitions().keySet(), index.getPgnDefinitions().asMap().keySet());
+        for (PgnDefinition expected : repository.getPgnDefinitions().values()) {
+            PgnDefinition actual = index.getPgnDefinitions().get(expected.getId());
+            assertEquals(expected.getLabel(), actual.getLabel());
+            assertEquals(expected.getAcronym(), actual.getAcronym());
+            assertEquals(expected.isOnRequest(), actual.isOnRequest());
+            assertEquals(expected.isVariableBroadcast(), actual.isVariableBroadcast());
+            assertEquals(expected.getBroadcastPeriod(), actual.getBroadcastPeriod());
+            assertEquals(expected.getSpnDefinitions().size(), actual.getSpnDefinitions().size());
+            for (int i = 0; i < expected.getSpnDefinitions().size(); i++) {
+                assertSpnEquals(expected.getSpnDefinitions().get(i), actual.getSpnDefinitions().get(i));
+            }
+        }
+
+        for (String name : J1939DaIndex.LOOKUP_FILES) {
+            assertEquals(name, lookups.get(name), index.getLookup(name));
+        }
+        assertNull(index.getLookup("unknown.csv"));
+    }
+
+    @Test
+    public void testSharedDefinitionsStayShared() throws IOException {
+        J1939DaIndex index = J1939DaIndex.read(new ByteArrayInputStream(bytes), checksum);
+        // the engine speed definition in EEC1 is the one in the SPN table
+        PgnDefinition eec1 = index.getPgnDefinitions().get(61444);
+        SpnDefinition spn190 = eec1.getSpnDefinitions()
+                                   .stream()
+                                   .filter(s -> s.getSpnId() == 190)
+                                   .findFirst()
+                                   .orElseThrow();
+        assertSame(index.getSpnDefinitions().get(190), spn190);
+    }
+}
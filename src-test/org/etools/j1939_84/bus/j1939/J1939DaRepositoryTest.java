@@ -4,24 +4,106 @@ import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 import org.etools.j1939_84.bus.Packet;
 import org.etools.j1939_84.bus.j1939.packets.GenericPacket;
 import org.etools.j1939_84.bus.j1939.packets.Slot;
 import org.etools.j1939_84.bus.j1939.packets.model.PgnDefinition;
+import org.etools.j1939_84.bus.j1939.packets.model.SpnDefinition;
 import org.junit.Test;
 
 public class J1939DaRepositoryTest {
 
     private static final String[] variableLengthDMs = new String[] { "DM19", "DM24", "DM25", "DM30", "DM31", "DM33" };
 
+    /**
+     * The int keyed maps must give what the boxed HashMaps they replaced gave,
+     * for the lookups {@link GenericPacket#getSpns()} and the validators make:
+     * the definition, SLOT and PGNs of every SPN in every PGN.
+     */
+    @Test
+    public void testLookupsMatchBoxedMaps() {
+        J1939DaRepository j1939da = J1939DaRepository.getInstance();
+        Map<Integer, PgnDefinition> boxedPgns = new HashMap<>(j1939da.getPgnDefinitions());
+        Map<Integer, SpnDefinition> boxedSpns = new HashMap<>(j1939da.getSpnDefinitions());
+        Map<Integer, Slot> boxedSlots = new HashMap<>(j1939da.getSlots());
+        Map<Integer, Set<Integer>> boxedSpnToPgns = new HashMap<>();
+        for (PgnDefinition pgn : boxedPgns.values()) {
+            for (SpnDefinition spn : pgn.getSpnDefinitions()) {
+                boxedSpnToPgns.computeIfAbsent(spn.getSpnId(), k -> new HashSet<>()).add(pgn.getId());
+            }
+        }
+        // the SPNs with SLOTs, so missing SLOTs aren't logged
+        List<SpnDefinition> spns = boxedPgns.values()
+                                            .stream()
+                                            .flatMap(p -> p.getSpnDefinitions().stream())
+                                            .filter(s -> boxedSlots.containsKey(s.getSlotNumber()))
+                                            .collect(Collectors.toList());
+        assertFalse(spns.isEmpty());
+
+        for (SpnDefinition spn : spns) {
+            int id = spn.getSpnId();
+            assertSame(boxedSpns.get(id), j1939da.findSpnDefinition(id));
+            assertEquals(boxedSlots.get(spn.getSlotNumber()).getLength(),
+                         j1939da.findSLOT(spn.getSlotNumber(), id).getLength());
+            assertEquals(boxedSpnToPgns.get(id),
+                         j1939da.getPgnIdsForSpn(id).boxed().collect(Collectors.toSet()));
+        }
+    }
+
+    @Test
+    public void testFindSlotFromManyThreads() throws Exception {
+        J1939DaRepository j1939da = new J1939DaRepository(true);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Slot>> slots = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                slots.add(executor.submit(() -> j1939da.findSLOT(j1939da.findSpnDefinition(190).getSlotNumber(),
+                                                                 190)));
+            }
+            for (Future<Slot> slot : slots) {
+                assertSame(slots.get(0).get(), slot.get());
+                assertEquals("SAEvr01", slot.get().getName());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testGetPgnForSpn() {
+        J1939DaRepository j1939da = J1939DaRepository.getInstance();
+        assertTrue(j1939da.getPgnForSpn(190).contains(61444));
+        int[] pgns = j1939da.getPgnIdsForSpn(190).toArray();
+        assertEquals(j1939da.getPgnForSpn(190), Arrays.stream(pgns).boxed().collect(Collectors.toSet()));
+        int[] sorted = pgns.clone();
+        Arrays.sort(sorted);
+        assertArrayEquals(sorted, pgns);
+
+        // changing what a caller gets does not change the table
+        pgns[0] = -1;
+        assertArrayEquals(sorted, j1939da.getPgnIdsForSpn(190).toArray());
+
+        assertNull(j1939da.getPgnForSpn(-5));
+        assertEquals(0, j1939da.getPgnIdsForSpn(-5).count());
+    }
+
     @Test
     public void test3069() {
         final int SPN = 3069;
@@ -6,6 +6,7 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
@@ -23,6 +24,7 @@ import org.etools.j1939_84.bus.BusException;
 import org.etools.j1939_84.bus.EchoBus;
 import org.etools.j1939_84.bus.Packet;
 import org.etools.j1939_84.bus.j1939.J1939TP.CtsBusException;
+import org.etools.j1939_84.bus.simulated.Sim;
 import org.etools.testdoc.TestDoc;
 import org.etools.testdoc.TestItem;
 import org.junit.Assert;
@@ -101,16 +103,18 @@ public class J1939TPTest {
             // verify test without abort passes
             {
                 Stream<Packet> stream = tpIn.read(2 * J1939TP.T1, TimeUnit.MILLISECONDS);
+                // open before the RTS, so that the CTS is not missed
+                Stream<Packet> ctsStream = bus.read((long) (1.2 * J1939TP.T1), TimeUnit.MILLISECONDS);
 
                 // send RTS
                 bus.send(Packet.parse("18ECF900 10 15 00 03 FF 00 EA 00"));
 
                 // wait for up to 120% o T1 for CTS
                 assertPacketsEquals(Packet.parse("18EC00F9 11 03 01 FF FF 00 EA 00"),
-                                    bus.read((long) (1.2 * J1939TP.T1), TimeUnit.MILLISECONDS)
-                                       .filter(p -> p.getSource() == 0xF9)
-                                       .findFirst()
-                                       .orElse(null));
+                                    ctsStream
+                                             .filter(p -> p.getSource() == 0xF9)
+                                             .findFirst()
+                                             .orElse(null));
 
                 // send 3 packets
                 Packet.parseCollection(
@@ -134,16 +138,18 @@ public class J1939TPTest {
             // now run test with abort
             {
                 Stream<Packet> stream = tpIn.read(2 * J1939TP.T1, TimeUnit.MILLISECONDS);
+                // open before the RTS, so that the CTS is not missed
+                Stream<Packet> ctsStream = bus.read((long) (1.2 * J1939TP.T1), TimeUnit.MILLISECONDS);
 
                 // send RTS
                 bus.send(Packet.parse("18ECF900 10 15 00 03 FF 00 EA 00"));
 
                 // wait for up to 120% o T1 for CTS
                 assertPacketsEquals(Packet.parse("18EC00F9 11 03 01 FF FF 00 EA 00"),
-                                    bus.read((long) (1.2 * J1939TP.T1), TimeUnit.MILLISECONDS)
-                                       .filter(p -> p.getSource() == 0xF9)
-                                       .findFirst()
-                                       .orElse(null));
+                                    ctsStream
+                                             .filter(p -> p.getSource() == 0xF9)
+                                             .findFirst()
+                                             .orElse(null));
 
                 // send 2 packets, abort, then 3rd packet
                 Packet.parseCollection("18EBF900 01 01 02 03 04 05 06 07\n"
@@ -446,12 +452,13 @@ public class J1939TPTest {
             sleep(50);
             // send full TP
             Packet p = Packet.parse("18FFFF00 00 01 02 03 04 05 06 07 08 09 0A 0B 0C 0D");
+            // keep tpOut open until the result is read, closing it closes bus
             try (J1939TP tpOut = new J1939TP(bus)) {
                 tpOut.send(p);
+                // verify that exactly one packet is received.
+                assertPacketsEquals(Collections.singletonList(p),
+                                    tpStream.filter(VALID_FILTER).collect(Collectors.toList()));
             }
-            // verify that exactly one packet is received.
-            assertPacketsEquals(Collections.singletonList(p),
-                                tpStream.filter(VALID_FILTER).collect(Collectors.toList()));
         }
     }
 
@@ -473,12 +480,13 @@ public class J1939TPTest {
             sleep(50);
             // send full TP
             Packet p = Packet.parse("1812F900 00 01 02 03 04 05 06 07 08 09 0A 0B 0C 0D");
+            // keep tpOut open until the result is read, closing it closes bus
             try (J1939TP tpOut = new J1939TP(bus)) {
                 tpOut.send(p);
+                // verify that exactly one packet is received.
+                assertPacketsEquals(Collections.singletonList(p),
+                                    tpStream.filter(VALID_FILTER).collect(Collectors.toList()));
             }
-            // verify that exactly one packet is received.
-            assertPacketsEquals(Collections.singletonList(p),
-                                tpStream.filter(VALID_FILTER).collect(Collectors.toList()));
         }
     }
 
@@ -825,6 +833,221 @@ public class J1939TPTest {
         }
     }
 
+    /**
+     * Verify that many BAM sessions can be received at once, interleaved frame
+     * by frame, without a thread per session.
+     */
+    @Test
+    @TestDoc(value = @TestItem(verifies = "J1939-21 5.10.3.5", description = "Verify that concurrent BAM from many sources are reassembled without a thread per session."))
+    public void testConcurrentBam() throws BusException {
+        final int sessions = 200;
+        try (EchoBus bus = new EchoBus(0);
+             J1939TP tp = new J1939TP(bus, 0xF9)) {
+            Stream<Packet> tpStream = tp.read(J1939TP.T2, TimeUnit.MILLISECONDS);
+            int threads = Thread.activeCount();
+
+            for (int source = 1; source <= sessions; source++) {
+                bus.send(Packet.create(J1939TP.CM | 0xFF, source, 0x20, 20, 0, 3, 0xFF, 0xEC, 0xFE, 0x00));
+            }
+            int openThreads = Thread.activeCount();
+            for (int sequence = 1; sequence <= 3; sequence++) {
+                for (int source = 1; source <= sessions; source++) {
+                    int[] data = new int[8];
+                    data[0] = sequence;
+                    for (int i = 1; i < 8; i++) {
+                        data[i] = source + sequence * 7 + i;
+                    }
+                    bus.send(Packet.create(J1939TP.DT | 0xFF, source, data));
+                }
+            }
+
+            List<Packet> packets = tpStream.limit(sessions).collect(Collectors.toList());
+            packets.forEach(p -> p.awaitComplete(J1939TP.T1, TimeUnit.MILLISECONDS));
+
+            assertEquals(threads, openThreads);
+            assertEquals(sessions, packets.size());
+            for (int i = 0; i < sessions; i++) {
+                Packet packet = packets.get(i);
+                int source = i + 1;
+                assertEquals(source, packet.getSource());
+                assertEquals(0xFEEC, packet.getPgn());
+                assertEquals(20, packet.getLength());
+                assertEquals(1, packet.getFragments().size());
+                assertEquals(0xFF & (source + 7 + 1), packet.get(0));
+                assertEquals(0xFF & (source + 3 * 7 + 6), packet.get(19));
+            }
+        }
+    }
+
+    /** Verify that the BAM DT are paced by the configured interval. */
+    @Test
+    @TestDoc(value = @TestItem(verifies = "J1939-21 5.10.3.5", description = "Verify that BAM DT are sent at the configured interval."))
+    public void testBamInterval() throws BusException {
+        byte[] data = new byte[100];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        Packet packet = Packet.create(0xFEEC, 0, data);
+        try (EchoBus bus = new EchoBus(0);
+             J1939TP tp = new J1939TP(bus);
+             J1939TP receiver = new J1939TP(bus, 0xF9)) {
+            tp.setBamInterval(10, TimeUnit.MILLISECONDS);
+            Stream<Packet> frames = bus.read(1, TimeUnit.SECONDS);
+            Stream<Packet> tpStream = receiver.read(1, TimeUnit.SECONDS);
+
+            tp.send(packet);
+
+            List<Packet> dts = frames.filter(p -> p.getPgn() == J1939TP.DT).limit(15).collect(Collectors.toList());
+            assertEquals(15, dts.size());
+            // never less than the interval
+            for (int i = 1; i < dts.size(); i++) {
+                long gap = dts.get(i).getTimestampNanos() - dts.get(i - 1).getTimestampNanos();
+                assertTrue("DT " + i + " " + gap, gap >= TimeUnit.MILLISECONDS.toNanos(9));
+            }
+            long span = dts.get(14).getTimestampNanos() - dts.get(0).getTimestampNanos();
+            assertEquals(140, TimeUnit.NANOSECONDS.toMillis(span), 40);
+            // the last DT is padded
+            assertPacketsEquals(Packet.parsePacket("18EBFF00 0F 62 63 FF FF FF FF FF"), dts.get(14));
+            assertPacketsEquals(packet, tpStream.findFirst().orElse(null));
+        }
+    }
+
+    /**
+     * Verify that only the DT requested by a CTS are sent, with the data for
+     * those sequence numbers.
+     */
+    @Test
+    @TestDoc(value = @TestItem(verifies = "J1939-21 5.10.3", description = "Verify that a CTS window that does not start at packet 1 is honored."))
+    public void testCtsWindow() throws BusException {
+        try (EchoBus bus = new EchoBus(0xF9);
+             J1939TP tp = new J1939TP(bus, 0)) {
+            Stream<Packet> stream = bus.read(J1939TP.T1, TimeUnit.MILLISECONDS);
+            Stream<Packet> dtStream = bus.read(J1939TP.T1, TimeUnit.MILLISECONDS).filter(p -> p.getPgn() == J1939TP.DT);
+            CompletableFuture<Void> response = run(() -> {
+                // wait for RTS, 21 bytes is exactly 3 DT
+                assertPacketsEquals(Packet.parsePacket("18ECF900 10 15 00 03 FF 00 EA 00"),
+                                    stream.findFirst().orElse(null));
+                // ask for packets 2 and 3 only
+                bus.send(Packet.parse("18EC00F9 11 02 02 FF FF 00 EA 00"));
+                assertPacketsEquals(Packet.parseCollection("18EBF900 02 08 09 0A 0B 0C 0D 0E\n" +
+                        "18EBF900 03 0F 10 11 12 13 14 15"),
+                                    dtStream.limit(2).collect(Collectors.toList()));
+                bus.send(Packet.parse("18EC00F9 13 15 00 03 FF 00 EA 00"));
+            });
+
+            tp.send(Packet.parse("18EAF900 01 02 03 04 05 06 07 08 09 0A 0B 0C 0D 0E 0F 10 11 12 13 14 15"));
+            response.join();
+        }
+    }
+
+    /** Verify that the DT in a CTS window are paced for a destination. */
+    @Test
+    @TestDoc(value = @TestItem(verifies = "J1939-21 5.10.3", description = "Verify that the DT in a CTS window are paced for a destination."))
+    public void testPacketInterval() throws BusException {
+        try (EchoBus bus = new EchoBus(0xF9);
+             J1939TP tpIn = new J1939TP(bus, 0);
+             J1939TP tpOut = new J1939TP(bus, 0xF9)) {
+            tpOut.setPacketInterval(0, 20, TimeUnit.MILLISECONDS);
+            Stream<Packet> dtStream = bus.read(1, TimeUnit.SECONDS).filter(p -> p.getPgn() == J1939TP.DT);
+            Stream<Packet> tpStream = tpIn.read(1, TimeUnit.SECONDS);
+
+            Packet packet = Packet.parse("18EA00F9 01 02 03 04 05 06 07 08 09 0A 0B 0C 0D 0E 0F 10 11 12 13 14 15 16");
+            tpOut.send(packet);
+
+            List<Packet> dts = dtStream.limit(4).collect(Collectors.toList());
+            assertEquals(4, dts.size());
+            for (int i = 1; i < dts.size(); i++) {
+                long gap = dts.get(i).getTimestampNanos() - dts.get(i - 1).getTimestampNanos();
+                assertTrue("DT " + i + " " + gap, gap >= TimeUnit.MILLISECONDS.toNanos(19));
+            }
+            long span = dts.get(3).getTimestampNanos() - dts.get(0).getTimestampNanos();
+            assertEquals(60, TimeUnit.NANOSECONDS.toMillis(span), 40);
+            assertPacketsEquals(packet, tpStream.findFirst().orElse(null));
+        }
+    }
+
+    /** Verify a 100 kB ETP transfer in both directions of a connection. */
+    @Test
+    @TestDoc(value = @TestItem(verifies = "J1939-21 5.10.5", description = "Verify ETP send and receive of a 100 kB message."))
+    public void testEtp() throws BusException {
+        byte[] data = new byte[100_000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i * 31 + i / 256);
+        }
+        Packet packet = Packet.create(0xDA00, 0xF9, data);
+        try (EchoBus bus = new EchoBus(0xF9);
+             J1939TP tpIn = new J1939TP(bus, 0);
+             J1939TP tpOut = new J1939TP(bus, 0xF9)) {
+            Stream<Packet> tpStream = tpIn.read(5, TimeUnit.SECONDS);
+            Stream<Packet> eomaStream = bus.read(5, TimeUnit.SECONDS)
+                                           .filter(p -> p.getPgn() == J1939TP.ETP_CM && p.get(0) == J1939TP.ETP_CM_EOMA);
+
+            tpOut.send(packet);
+
+            Packet result = tpStream.findFirst().orElseThrow();
+            assertEquals(0xDA00, result.getPgn());
+            assertEquals(0, result.getDestination());
+            assertEquals(0xF9, result.getSource());
+            assertTrue(Arrays.equals(data, result.getBytes()));
+            // only the RTS, the DT are not kept
+            assertEquals(1, result.getFragments().size());
+            assertPacketsEquals(Packet.parsePacket("18C8F900 17 A0 86 01 00 00 DA 00"), eomaStream.findFirst().get());
+        }
+    }
+
+    /** Verify the ETP frames for a message just over the TP limit. */
+    @Test
+    @TestDoc(value = @TestItem(verifies = "J1939-21 5.10.5", description = "Verify the ETP RTS, CTS, DPO, DT and EOMA."))
+    public void testEtpFrames() throws BusException {
+        byte[] data = new byte[1786];
+        Arrays.fill(data, (byte) 0x55);
+        Packet packet = Packet.create(0xDA00, 0xF9, data);
+        try (EchoBus bus = new EchoBus(0xF9);
+             J1939TP tpIn = new J1939TP(bus, 0);
+             J1939TP tpOut = new J1939TP(bus, 0xF9)) {
+            Stream<Packet> stream = bus.read(1, TimeUnit.SECONDS).filter(p -> p.getPgn() == J1939TP.ETP_CM);
+            Stream<Packet> dtStream = bus.read(1, TimeUnit.SECONDS).filter(p -> p.getPgn() == J1939TP.ETP_DT);
+            Stream<Packet> tpStream = tpIn.read(1, TimeUnit.SECONDS);
+
+            tpOut.send(packet);
+
+            // 256 packets, so two windows
+            assertPacketsEquals(Packet.parseCollection("18C800F9 14 FA 06 00 00 00 DA 00\n" +
+                    "18C8F900 15 FF 01 00 00 00 DA 00\n" +
+                    "18C800F9 16 FF 00 00 00 00 DA 00\n" +
+                    "18C8F900 15 01 00 01 00 00 DA 00\n" +
+                    "18C800F9 16 01 FF 00 00 00 DA 00\n" +
+                    "18C8F900 17 FA 06 00 00 00 DA 00"),
+                                stream.limit(6).collect(Collectors.toList()));
+            List<Packet> dts = dtStream.limit(256).collect(Collectors.toList());
+            assertPacketsEquals(Packet.parsePacket("18C700F9 01 55 55 55 55 55 55 55"), dts.get(0));
+            assertPacketsEquals(Packet.parsePacket("18C700F9 FF 55 55 55 55 55 55 55"), dts.get(254));
+            // the last packet is number 256, sequence 1 after the second DPO
+            assertPacketsEquals(Packet.parsePacket("18C700F9 01 55 FF FF FF FF FF FF"), dts.get(255));
+            assertPacketsEquals(packet, tpStream.findFirst().orElse(null));
+        }
+    }
+
+    /** Verify that a simulated module can answer a request with ETP. */
+    @Test
+    @TestDoc(value = @TestItem(verifies = "J1939-21 5.10.5", description = "Verify that a simulated module can answer a request with ETP."))
+    public void testEtpFromSim() throws BusException {
+        byte[] data = new byte[100_000];
+        Arrays.fill(data, (byte) 0xA5);
+        try (EchoBus bus = new EchoBus(0xF9);
+             J1939TP tool = new J1939TP(bus, 0xF9);
+             Sim sim = new Sim(new J1939TP(bus, 0))) {
+            sim.response(p -> p.getId(0xFFFF) == 0xEA00 && p.get24(0) == 0xDA00,
+                         p -> Packet.create(0xDA00 | p.getSource(), 0, data));
+            Stream<Packet> stream = tool.read(5, TimeUnit.SECONDS).filter(p -> p.getPgn() == 0xDA00);
+
+            tool.send(Packet.create(0xEA00, 0xF9, 0x00, 0xDA, 0x00));
+            Packet result = stream.findFirst().orElseThrow();
+            assertEquals(data.length, result.getLength());
+            assertTrue(Arrays.equals(data, result.getBytes()));
+        }
+    }
+
     /** Verify constants are correct. */
     @Test
     @TestDoc(value = @TestItem(verifies = "J1939-21 5.10.2.4", description = "Verify constants T1, T2, T3, T3 match specification."))
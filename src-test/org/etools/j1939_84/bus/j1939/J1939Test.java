@@ -12,6 +12,7 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -19,7 +20,9 @@ import static org.mockito.Mockito.when;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -29,6 +32,7 @@ import org.etools.j1939_84.bus.BusException;
 import org.etools.j1939_84.bus.EchoBus;
 import org.etools.j1939_84.bus.Either;
 import org.etools.j1939_84.bus.Packet;
+import org.etools.j1939_84.bus.PacketFilter;
 import org.etools.j1939_84.bus.j1939.packets.AcknowledgmentPacket;
 import org.etools.j1939_84.bus.j1939.packets.ComponentIdentificationPacket;
 import org.etools.j1939_84.bus.j1939.packets.DM11ClearActiveDTCsPacket;
@@ -324,8 +328,14 @@ public class J1939Test {
     }
 
     @Before
-    public void setup() {
+    public void setup() throws BusException {
         when(bus.getAddress()).thenReturn(BUS_ADDR);
+        // filtered reads behave like the real default method
+        lenient().when(bus.read(ArgumentMatchers.anyLong(),
+                                ArgumentMatchers.any(TimeUnit.class),
+                                ArgumentMatchers.any(PacketFilter.class)))
+                 .thenAnswer(i -> bus.read(i.getArgument(0), i.getArgument(1))
+                                     .filter(i.<PacketFilter>getArgument(2)));
 
         sendPacketCaptor = ArgumentCaptor.forClass(Packet.class);
         instance = new J1939(bus);
@@ -377,6 +387,324 @@ public class J1939Test {
         assertEquals(600 * 3, System.currentTimeMillis() - start, 40);
     }
 
+    /**
+     * Loads the J1939DA, so parsing the first packet is not part of a timing.
+     */
+    private static void loadJ1939Da() {
+        J1939DaRepository.getInstance().findPgnDefinition(EngineHoursPacket.PGN);
+    }
+
+    /**
+     * Answers the next request on the bus with the given packets, sleeping
+     * between packets for the given number of milliseconds.
+     */
+    private static void respond(EchoBus echoBus, Object... responses) {
+        loadJ1939Da();
+        Stream<Packet> requests = echoBus.read(1, TimeUnit.SECONDS, PacketFilter.pgns(0xEA00));
+        new Thread(() -> {
+            requests.findFirst();
+            try {
+                for (Object response : responses) {
+                    if (response instanceof Packet) {
+                        echoBus.send((Packet) response);
+                    } else {
+                        Thread.sleep((Integer) response);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }).start();
+    }
+
+    @Test
+    public void testRequestPlan() throws Exception {
+        try (EchoBus echoBus = new EchoBus(BUS_ADDR)) {
+            loadJ1939Da();
+            J1939 j1939 = new J1939(echoBus);
+            int hours = EngineHoursPacket.PGN;
+            int dm5 = DM5DiagnosticReadinessPacket.PGN;
+            Stream<Packet> requests = echoBus.read(3, TimeUnit.SECONDS, PacketFilter.pgns(0xEA00));
+            new Thread(() -> {
+                boolean busy = true;
+                for (Packet request : (Iterable<Packet>) requests::iterator) {
+                    int pgn = request.get24(0);
+                    int address = request.getDestination();
+                    if (address == 0x00) {
+                        // answers each request after 300 ms
+                        new Thread(() -> {
+                            try {
+                                Thread.sleep(300);
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                            echoBus.send(Packet.create(pgn, 0x00, 1, 2, 3, 4, 5, 6, 7, 8));
+                        }).start();
+                    } else if (address == 0x17 && busy) {
+                        busy = false;
+                        echoBus.send(Packet.create(0xE8FF, 0x17, 3, 0xFF, 0xFF, 0xFF, BUS_ADDR, pgn, pgn >> 8, pgn >> 16));
+                    } else if (address == 0x17) {
+                        echoBus.send(Packet.create(pgn, 0x17, 1, 2, 3, 4, 5, 6, 7, 8));
+                    }
+                    // 0x21 never answers
+                }
+            }).start();
+
+            QueryPlan plan = new QueryPlan();
+            QueryPlan.Query<EngineHoursPacket> hours0 = plan.add("Hours 0", hours, 0x00);
+            QueryPlan.Query<DM5DiagnosticReadinessPacket> dm50 = plan.add("DM5 0", dm5, 0x00);
+            QueryPlan.Query<EngineHoursPacket> hours17 = plan.add("Hours 17", hours, 0x17);
+            QueryPlan.Query<EngineHoursPacket> hours21 = plan.add("Hours 21", hours, 0x21);
+            TestResultsListener listener = new TestResultsListener();
+
+            long start = System.currentTimeMillis();
+            j1939.request(plan, listener);
+            long duration = System.currentTimeMillis() - start;
+
+            assertEquals(0x00, hours0.getBusResult().requestResult().getPackets().get(0).getSourceAddress());
+            assertEquals(dm5, dm50.getBusResult().requestResult().getPackets().get(0).getPacket().getPgn());
+            assertTrue(hours17.getBusResult().isRetryUsed());
+            assertEquals(0x17, hours17.getBusResult().requestResult().getPackets().get(0).getSourceAddress());
+            assertTrue(hours21.getBusResult().getPacket().isEmpty());
+
+            // reported in the order of the plan
+            String results = listener.getResults();
+            assertTrue(results.indexOf("Hours 0") < results.indexOf("DM5 0"));
+            assertTrue(results.indexOf("DM5 0") < results.indexOf("Hours 17"));
+            assertTrue(results.indexOf("Hours 17") < results.indexOf("Hours 21"));
+
+            // one DS timeout and the busy retry, instead of 300 + 300 + 600 ms
+            // and the retry
+            assertTrue("Took " + duration, duration < 1100);
+        }
+    }
+
+    @Test
+    public void testRequestPlanRetriesEveryBusyQuery() throws Exception {
+        try (EchoBus echoBus = new EchoBus(BUS_ADDR)) {
+            loadJ1939Da();
+            J1939 j1939 = new J1939(echoBus);
+            int hours = EngineHoursPacket.PGN;
+            Map<Integer, Integer> requestCounts = new ConcurrentHashMap<>();
+            Stream<Packet> requests = echoBus.read(3, TimeUnit.SECONDS, PacketFilter.pgns(0xEA00));
+            new Thread(() -> {
+                for (Packet request : (Iterable<Packet>) requests::iterator) {
+                    int address = request.getDestination();
+                    int count = requestCounts.merge(address, 1, Integer::sum);
+                    if (address == 0x21 && count > 1) {
+                        echoBus.send(Packet.create(hours, 0x21, 1, 2, 3, 4, 5, 6, 7, 8));
+                    } else {
+                        // 0x17 is always busy, 0x21 only the first time
+                        echoBus.send(Packet.create(0xE8FF,
+                                                   address,
+                                                   3,
+                                                   0xFF,
+                                                   0xFF,
+                                                   0xFF,
+                                                   BUS_ADDR,
+                                                   hours,
+                                                   hours >> 8,
+                                                   hours >> 16));
+                    }
+                }
+            }).start();
+
+            QueryPlan plan = new QueryPlan();
+            QueryPlan.Query<EngineHoursPacket> hours17 = plan.add("Hours 17", hours, 0x17);
+            QueryPlan.Query<EngineHoursPacket> hours21 = plan.add("Hours 21", hours, 0x21);
+            j1939.request(plan, new TestResultsListener());
+
+            // the retries of 0x17 do not use up the retry time of 0x21
+            assertTrue(hours17.getBusResult().isRetryUsed());
+            assertTrue(hours17.getBusResult().getPacket().isEmpty());
+            assertTrue(requestCounts.get(0x17) > 2);
+            assertTrue(hours21.getBusResult().isRetryUsed());
+            assertEquals(0x21, hours21.getBusResult().requestResult().getPackets().get(0).getSourceAddress());
+            assertEquals(2, (int) requestCounts.get(0x21));
+        }
+    }
+
+    @Test
+    public void testRequestPlanHoldsReports() throws Exception {
+        try (EchoBus echoBus = new EchoBus(BUS_ADDR)) {
+            J1939 j1939 = new J1939(echoBus);
+            int hours = EngineHoursPacket.PGN;
+            respond(echoBus, 50, Packet.create(hours, 0x00, 1, 2, 3, 4, 5, 6, 7, 8));
+
+            QueryPlan plan = new QueryPlan();
+            QueryPlan.Query<EngineHoursPacket> hours0 = plan.add("Hours 0", hours, 0x00);
+            QueryPlan.Query<EngineHoursPacket> hours21 = plan.add("Hours 21", hours, 0x21);
+            j1939.request(plan);
+
+            // each report is written where it is asked for, and only once
+            TestResultsListener listener = new TestResultsListener();
+            hours21.report(listener);
+            hours0.report(listener);
+            hours21.report(listener);
+            String results = listener.getResults();
+            assertTrue(results.indexOf("Hours 21") < results.indexOf("Hours 0"));
+            assertTrue(results.indexOf("Timeout - No Response") < results.indexOf("Hours 0"));
+            assertEquals(results.indexOf("Hours 21"), results.lastIndexOf("Hours 21"));
+            assertEquals(0x00, hours0.getBusResult().getPacket().orElseThrow().left.orElseThrow().getSourceAddress());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRequestPlanRejectsDuplicates() {
+        QueryPlan plan = new QueryPlan();
+        plan.add("Hours", EngineHoursPacket.PGN, 0x00);
+        plan.add("Hours again", EngineHoursPacket.PGN, 0x00);
+    }
+
+    @Test
+    public void testRequestGlobalCompletesWhenExpectedRespond() throws Exception {
+        try (EchoBus echoBus = new EchoBus(BUS_ADDR)) {
+            J1939 j1939 = new J1939(echoBus);
+            j1939.setExpectedResponders(() -> List.of(0x00, 0x17));
+            int pgn = EngineHoursPacket.PGN;
+            respond(echoBus,
+                    Packet.create(pgn, 0x00, 1, 2, 3, 4, 5, 6, 7, 8),
+                    50,
+                    Packet.create(0xE8FF, 0x17, 1, 0xFF, 0xFF, 0xFF, BUS_ADDR, pgn, pgn >> 8, pgn >> 16));
+
+            long start = System.currentTimeMillis();
+            RequestResult<EngineHoursPacket> result = j1939.requestGlobal("Test",
+                                                                          pgn,
+                                                                          j1939.createRequestPacket(pgn, GLOBAL_ADDR),
+                                                                          NOOP);
+            long duration = System.currentTimeMillis() - start;
+
+            assertEquals(1, result.getPackets().size());
+            assertEquals(1, result.getAcks().size());
+            // the response and the grace period, not the full 600 ms
+            assertTrue("Took " + duration, duration >= 150 && duration < 550);
+        }
+    }
+
+    @Test
+    public void testRequestGlobalCollectsUnexpectedDuringGracePeriod() throws Exception {
+        try (EchoBus echoBus = new EchoBus(BUS_ADDR)) {
+            J1939 j1939 = new J1939(echoBus);
+            j1939.setExpectedResponders(() -> List.of(0x00));
+            j1939.setGlobalGracePeriod(200, MILLISECONDS);
+            int pgn = EngineHoursPacket.PGN;
+            respond(echoBus,
+                    Packet.create(pgn, 0x00, 1, 2, 3, 4, 5, 6, 7, 8),
+                    50,
+                    Packet.create(pgn, 0x21, 1, 2, 3, 4, 5, 6, 7, 8));
+
+            long start = System.currentTimeMillis();
+            RequestResult<EngineHoursPacket> result = j1939.requestGlobal("Test",
+                                                                          pgn,
+                                                                          j1939.createRequestPacket(pgn, GLOBAL_ADDR),
+                                                                          NOOP);
+            long duration = System.currentTimeMillis() - start;
+
+            assertEquals(List.of(0x00, 0x21),
+                         result.getPackets().stream().map(p -> p.getSourceAddress()).collect(Collectors.toList()));
+            assertTrue("Took " + duration, duration >= 200 && duration < 550);
+        }
+    }
+
+    @Test
+    public void testRequestGlobalWaitsWithoutExpectedResponders() throws Exception {
+        try (EchoBus echoBus = new EchoBus(BUS_ADDR)) {
+            J1939 j1939 = new J1939(echoBus);
+            j1939.setExpectedResponders(List::of);
+            int pgn = EngineHoursPacket.PGN;
+            respond(echoBus, Packet.create(pgn, 0x00, 1, 2, 3, 4, 5, 6, 7, 8));
+
+            long start = System.currentTimeMillis();
+            RequestResult<EngineHoursPacket> result = j1939.requestGlobal("Test",
+                                                                          pgn,
+                                                                          j1939.createRequestPacket(pgn, GLOBAL_ADDR),
+                                                                          NOOP);
+            long duration = System.currentTimeMillis() - start;
+
+            assertEquals(1, result.getPackets().size());
+            assertTrue("Took " + duration, duration >= 590);
+        }
+    }
+
+    @Test
+    public void testReadBroadcastsCompletes() throws Exception {
+        try (EchoBus echoBus = new EchoBus(BUS_ADDR)) {
+            loadJ1939Da();
+            J1939 j1939 = new J1939(echoBus);
+            BroadcastCollector collector = new BroadcastCollector(500, MILLISECONDS, 3);
+            collector.expect(0x00, List.of(EngineSpeedPacket.PGN));
+
+            long start = System.currentTimeMillis();
+            Stream<GenericPacket> stream = j1939.read(GenericPacket.class, 5, TimeUnit.SECONDS, collector)
+                                                .flatMap(e -> e.left.stream());
+            for (int i = 0; i < 3; i++) {
+                echoBus.send(Packet.create(EngineSpeedPacket.PGN, 0x00, 1, 2, 3, 4, 5, 6, 7, 8));
+            }
+            echoBus.send(Packet.create(EngineHoursPacket.PGN, 0x17, 1, 2, 3, 4, 5, 6, 7, 8));
+            List<GenericPacket> packets = stream.collect(Collectors.toList());
+            long duration = System.currentTimeMillis() - start;
+
+            assertEquals(4, packets.size());
+            // one period, to hear from all modules, not the full timeout
+            assertTrue("Took " + duration, duration >= 490 && duration < 2000);
+        }
+    }
+
+    @Test
+    public void testReadBroadcastsStopsWhenIdle() throws Exception {
+        try (EchoBus echoBus = new EchoBus(BUS_ADDR)) {
+            loadJ1939Da();
+            J1939 j1939 = new J1939(echoBus);
+            BroadcastCollector collector = new BroadcastCollector(500, MILLISECONDS, 3);
+            collector.expect(0x00, List.of(EngineSpeedPacket.PGN));
+            collector.expect(0x17, List.of(EngineSpeedPacket.PGN));
+
+            long start = System.currentTimeMillis();
+            Stream<GenericPacket> stream = j1939.read(GenericPacket.class, 5, TimeUnit.SECONDS, collector)
+                                                .flatMap(e -> e.left.stream());
+            for (int i = 0; i < 3; i++) {
+                echoBus.send(Packet.create(EngineSpeedPacket.PGN, 0x00, 1, 2, 3, 4, 5, 6, 7, 8));
+            }
+            List<GenericPacket> packets = stream.collect(Collectors.toList());
+            long duration = System.currentTimeMillis() - start;
+
+            assertEquals(3, packets.size());
+            assertFalse(collector.isComplete());
+            // 0x17 never sent, so the read ends two periods after the last new
+            // packet
+            assertTrue("Took " + duration, duration >= 990 && duration < 2000);
+        }
+    }
+
+    @Test
+    public void testReadBroadcastsWaitsForLateSample() throws Exception {
+        try (EchoBus echoBus = new EchoBus(BUS_ADDR)) {
+            loadJ1939Da();
+            J1939 j1939 = new J1939(echoBus);
+            BroadcastCollector collector = new BroadcastCollector(200, MILLISECONDS, 3);
+            collector.expect(0x00, List.of(EngineSpeedPacket.PGN));
+
+            Stream<GenericPacket> stream = j1939.read(GenericPacket.class, 5, TimeUnit.SECONDS, collector)
+                                                .flatMap(e -> e.left.stream());
+            new Thread(() -> {
+                try {
+                    echoBus.send(Packet.create(EngineSpeedPacket.PGN, 0x00, 1, 2, 3, 4, 5, 6, 7, 8));
+                    Thread.sleep(200);
+                    echoBus.send(Packet.create(EngineSpeedPacket.PGN, 0x00, 1, 2, 3, 4, 5, 6, 7, 8));
+                    // 30% late, so its interval can fail the 110% check
+                    Thread.sleep(260);
+                    echoBus.send(Packet.create(EngineSpeedPacket.PGN, 0x00, 1, 2, 3, 4, 5, 6, 7, 8));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }).start();
+            List<GenericPacket> packets = stream.collect(Collectors.toList());
+
+            assertEquals(3, packets.size());
+            assertTrue(collector.isComplete());
+        }
+    }
+
     /**
      * The purpose of this test is to verify that processing doesn't hang on any
      * possible PGN
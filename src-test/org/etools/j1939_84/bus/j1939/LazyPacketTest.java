@@ -0,0 +1,65 @@
+/**
+ * Copyright 2021 Equipment & Tool Institute
+ */
+package org.etools.j1939_84.bus.j1939;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.etools.j1939_84.bus.Packet;
+import org.etools.j1939_84.bus.j1939.packets.AcknowledgmentPacket;
+import org.etools.j1939_84.bus.j1939.packets.EngineHoursPacket;
+import org.etools.j1939_84.bus.j1939.packets.ParsedPacket;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link LazyPacket} class
+ */
+public class LazyPacketTest {
+
+    @Test
+    public void testAcknowledgment() {
+        Packet packet = Packet.create(0xE8FF, 0x17, 1, 0xFF, 0xFF, 0xFF, 0xA5, 0xE5, 0xFE, 0x00);
+        LazyPacket instance = new LazyPacket(packet, AcknowledgmentPacket::new);
+
+        assertTrue(instance.toEither().right.isPresent());
+        assertTrue(instance.getGenericPacket().isEmpty());
+    }
+
+    @Test
+    public void testDecodedOnce() {
+        Packet packet = Packet.create(EngineHoursPacket.PGN, 0x00, 1, 2, 3, 4, 5, 6, 7, 8);
+        AtomicInteger decoded = new AtomicInteger();
+        LazyPacket instance = new LazyPacket(packet, p -> {
+            decoded.incrementAndGet();
+            return new EngineHoursPacket(p);
+        });
+
+        // the header doesn't need decoding
+        assertEquals(EngineHoursPacket.PGN, instance.getPgn());
+        assertEquals(0x00, instance.getSource());
+        assertEquals(0xFF, instance.getDestination());
+        assertSame(packet, instance.getPacket());
+        assertEquals(0, decoded.get());
+
+        ParsedPacket parsedPacket = instance.getParsedPacket();
+        assertTrue(parsedPacket instanceof EngineHoursPacket);
+        assertSame(parsedPacket, instance.getGenericPacket().orElseThrow());
+        assertSame(parsedPacket, instance.toEither().left.orElseThrow());
+        assertEquals(1, decoded.get());
+    }
+
+    @Test
+    public void testOf() {
+        EngineHoursPacket parsedPacket = new EngineHoursPacket(Packet.create(EngineHoursPacket.PGN,
+                                                                             0x00,
+                                                                             1, 2, 3, 4, 5, 6, 7, 8));
+        LazyPacket instance = LazyPacket.of(parsedPacket);
+
+        assertSame(parsedPacket.getPacket(), instance.getPacket());
+        assertSame(parsedPacket, instance.getParsedPacket());
+    }
+}
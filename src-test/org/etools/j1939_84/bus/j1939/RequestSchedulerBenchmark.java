@@ -0,0 +1,49 @@
+/**
+ * Copyright 2021 Equipment & Tool Institute
+ */
+package org.etools.j1939_84.bus.j1939;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.etools.j1939_84.controllers.ResultsListener;
+import org.junit.Test;
+
+/**
+ * Timing benchmark for the {@link RequestScheduler} class, run by the
+ * run.benchmarks target rather than with the unit tests
+ */
+public class RequestSchedulerBenchmark {
+
+    /**
+     * Four requests to each of three modules, each answered in 50 ms, take
+     * about as long as the four to one module.
+     */
+    @Test
+    public void testConcurrentModules() {
+        List<int[]> requests = new ArrayList<>();
+        for (int address : new int[] { 0x00, 0x17, 0x3D }) {
+            for (int spn = 1; spn <= 4; spn++) {
+                requests.add(new int[] { address, spn });
+            }
+        }
+
+        long start = System.nanoTime();
+        new RequestScheduler().request(requests, r -> r[0], (r, listener) -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return r[1];
+        }, ResultsListener.NOOP, (r, response) -> {
+        });
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // sequentially this would be over 600 ms
+        assertTrue("took " + millis + " ms", millis < 450);
+    }
+}
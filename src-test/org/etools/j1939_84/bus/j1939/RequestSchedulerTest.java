@@ -0,0 +1,212 @@
+/**
+ * Copyright 2021 Equipment & Tool Institute
+ */
+package org.etools.j1939_84.bus.j1939;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.etools.j1939_84.controllers.QuestionListener;
+import org.etools.j1939_84.controllers.QuestionListener.AnswerType;
+import org.etools.j1939_84.controllers.ResultsListener;
+import org.etools.j1939_84.controllers.ResultsListener.MessageType;
+import org.etools.j1939_84.model.Outcome;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link RequestScheduler} class
+ */
+public class RequestSchedulerTest {
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private final RequestScheduler instance = new RequestScheduler();
+
+    @Test
+    public void testException() {
+        IllegalStateException expected = new IllegalStateException();
+        List<String> results = new ArrayList<>();
+        try {
+            instance.request(List.of(0, 1, 2),
+                             r -> r,
+                             (r, listener) -> {
+                                 listener.onResult("request " + r);
+                                 if (r == 1) {
+                                     throw expected;
+                                 }
+                                 return r;
+                             },
+                             new ResultsListener() {
+                                 @Override
+                                 public void onResult(String result) {
+                                     results.add(result);
+                                 }
+                             },
+                             (r, response) -> results.add("response " + response));
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals(expected, e);
+        }
+        // the requests before the failure are reported
+        assertEquals(List.of("request 0", "response 0"), results);
+    }
+
+    @Test
+    public void testEveryCallbackHeld() {
+        List<String> calls = new ArrayList<>();
+        instance.request(List.of(0, 1),
+                         r -> r,
+                         (r, listener) -> {
+                             if (r == 0) {
+                                 // the second request is reported second, however quick
+                                 sleep(50);
+                             }
+                             listener.onProgress(r, 2, "progress " + r);
+                             listener.onResult("result " + r);
+                             listener.onMessage("message " + r, "title", MessageType.WARNING);
+                             listener.addOutcome(1, 2, Outcome.WARN, "outcome " + r);
+                             listener.onProgress("progress " + r);
+                             return r;
+                         },
+                         new ResultsListener() {
+                             @Override
+                             public void addOutcome(int partNumber, int stepNumber, Outcome outcome, String message) {
+                                 calls.add(message);
+                             }
+
+                             @Override
+                             public void onMessage(String message, String title, MessageType type) {
+                                 calls.add(message);
+                             }
+
+                             @Override
+                             public void onProgress(int currentStep, int totalSteps, String message) {
+                                 calls.add(currentStep + "/" + totalSteps + " " + message);
+                             }
+
+                             @Override
+                             public void onProgress(String message) {
+                                 calls.add(message);
+                             }
+
+                             @Override
+                             public void onResult(String result) {
+                                 calls.add(result);
+                             }
+                         },
+                         (r, response) -> calls.add("response " + response));
+
+        assertEquals(List.of("0/2 progress 0",
+                             "result 0",
+                             "message 0",
+                             "outcome 0",
+                             "progress 0",
+                             "response 0",
+                             "1/2 progress 1",
+                             "result 1",
+                             "message 1",
+                             "outcome 1",
+                             "progress 1",
+                             "response 1"),
+                     calls);
+    }
+
+    @Test(timeout = 2000)
+    public void testQuestionNotHeld() {
+        List<String> calls = new ArrayList<>();
+        instance.request(List.of(0),
+                         r -> r,
+                         (r, listener) -> {
+                             listener.onResult("result " + r);
+                             CompletableFuture<AnswerType> answer = new CompletableFuture<>();
+                             listener.onUrgentMessage("question " + r, "title", MessageType.QUESTION, answer::complete);
+                             // the request waits for the answer before it returns
+                             return answer.join();
+                         },
+                         new ResultsListener() {
+                             @Override
+                             public void onResult(String result) {
+                                 calls.add(result);
+                             }
+
+                             @Override
+                             public void onUrgentMessage(String message,
+                                                         String title,
+                                                         MessageType type,
+                                                         QuestionListener listener) {
+                                 calls.add(message);
+                                 listener.answered(AnswerType.YES);
+                             }
+                         },
+                         (r, response) -> calls.add("response " + response));
+
+        assertEquals(List.of("question 0", "result 0", "response YES"), calls);
+    }
+
+    @Test
+    public void testOrderAndConcurrency() {
+        // three modules with four requests each, listed module by module
+        List<int[]> requests = new ArrayList<>();
+        for (int address : new int[] { 0x00, 0x17, 0x3D }) {
+            for (int spn = 1; spn <= 4; spn++) {
+                requests.add(new int[] { address, spn });
+            }
+        }
+
+        Map<Integer, AtomicInteger> outstanding = new ConcurrentHashMap<>();
+        AtomicInteger maxOutstanding = new AtomicInteger();
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<String> results = new ArrayList<>();
+        Thread caller = Thread.currentThread();
+
+        instance.request(requests,
+                         r -> r[0],
+                         (r, listener) -> {
+                             int n = outstanding.computeIfAbsent(r[0], k -> new AtomicInteger()).incrementAndGet();
+                             maxOutstanding.accumulateAndGet(n, Math::max);
+                             maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                             listener.onResult("request " + r[0] + "/" + r[1]);
+                             // the later modules answer faster
+                             sleep(60 - r[0] / 2);
+                             listener.onResult("response " + r[0] + "/" + r[1]);
+                             running.decrementAndGet();
+                             outstanding.get(r[0]).decrementAndGet();
+                             return r[1];
+                         },
+                         new ResultsListener() {
+                             @Override
+                             public void onResult(String result) {
+                                 results.add(result);
+                             }
+                         },
+                         (r, response) -> {
+                             assertEquals(caller, Thread.currentThread());
+                             assertEquals(r[1], (int) response);
+                             results.add("handled " + r[0] + "/" + r[1]);
+                         });
+
+        List<String> expected = new ArrayList<>();
+        for (int[] r : requests) {
+            expected.add("request " + r[0] + "/" + r[1]);
+            expected.add("response " + r[0] + "/" + r[1]);
+            expected.add("handled " + r[0] + "/" + r[1]);
+        }
+        assertEquals(expected, results);
+        assertEquals(1, maxOutstanding.get());
+        assertEquals(3, maxRunning.get());
+    }
+}
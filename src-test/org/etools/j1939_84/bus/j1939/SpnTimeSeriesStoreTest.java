@@ -0,0 +1,130 @@
+/**
+ * Copyright 2021 Equipment & Tool Institute
+ */
+package org.etools.j1939_84.bus.j1939;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.OptionalDouble;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.etools.j1939_84.bus.Packet;
+import org.etools.j1939_84.bus.j1939.packets.GenericPacket;
+import org.etools.j1939_84.bus.j1939.packets.Slot;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link SpnTimeSeriesStore} class
+ */
+public class SpnTimeSeriesStoreTest {
+
+    private static final int EEC1 = 0xF004;
+
+    private static final int ENGINE_SPEED = 190;
+
+    private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static final long START = 1_600_000_000_000_000_000L;
+
+    /** EEC1 with the engine speed in rpm, or Not Available if negative */
+    private static GenericPacket eec1(long timestamp, int source, int rpm) {
+        int raw = rpm < 0 ? 0xFFFF : rpm * 8;
+        return new GenericPacket(Packet.create(timestamp,
+                                               6,
+                                               EEC1,
+                                               source,
+                                               false,
+                                               (byte) 0,
+                                               (byte) 0,
+                                               (byte) 0,
+                                               (byte) raw,
+                                               (byte) (raw >> 8),
+                                               (byte) 0,
+                                               (byte) 0,
+                                               (byte) 0));
+    }
+
+    @Test
+    public void testAdd() {
+        SpnTimeSeriesStore instance = new SpnTimeSeriesStore(2);
+        instance.add(eec1(START, 0, 1000));
+        instance.add(eec1(START + 100 * MILLIS, 0, 1100));
+        instance.add(eec1(START + 250 * MILLIS, 0, -1));
+
+        assertEquals(3, instance.getCount(0, EEC1));
+        assertEquals(100 * MILLIS, instance.getMinInterval(0, EEC1));
+        assertEquals(150 * MILLIS, instance.getMaxInterval(0, EEC1));
+        assertEquals(2, instance.getIntervals(0, EEC1).getCount());
+        assertEquals(125 * MILLIS, instance.getIntervals(0, EEC1).getMean(), 0.001);
+        assertEquals(START + 250 * MILLIS, instance.getLatestTimestamp(0, EEC1));
+        assertEquals(Slot.Status.NOT_AVAILABLE, instance.getLatestStatus(0, EEC1, ENGINE_SPEED));
+        assertEquals(OptionalDouble.empty(), instance.getLatestValue(0, EEC1, ENGINE_SPEED));
+
+        // the first packets are kept for the report
+        List<Packet> samples = instance.getSamples(0, EEC1);
+        assertEquals(2, samples.size());
+        assertEquals(START, samples.get(0).getTimestampNanos());
+        assertEquals(START + 100 * MILLIS, samples.get(1).getTimestampNanos());
+
+        assertTrue(instance.isNotAvailableSeen(0, ENGINE_SPEED));
+        assertTrue(instance.getNotAvailableSpns(0).contains(ENGINE_SPEED));
+        assertTrue(instance.getProvidedSpns(0).contains(ENGINE_SPEED));
+        assertEquals(Set.of(0), instance.getProviders(ENGINE_SPEED));
+    }
+
+    @Test
+    public void testEmpty() {
+        SpnTimeSeriesStore instance = new SpnTimeSeriesStore(3);
+        assertEquals(0, instance.getCount(0, EEC1));
+        assertEquals(-1, instance.getLatestTimestamp(0, EEC1));
+        assertEquals(-1, instance.getMinInterval(0, EEC1));
+        assertEquals(-1, instance.getMaxInterval(0, EEC1));
+        assertEquals(0, instance.getIntervals(0, EEC1).getCount());
+        assertNull(instance.getLatestStatus(0, EEC1, ENGINE_SPEED));
+        assertEquals(OptionalDouble.empty(), instance.getLatestValue(0, EEC1, ENGINE_SPEED));
+        assertEquals(List.of(), instance.getSamples(0, EEC1));
+        assertEquals(Set.of(), instance.getPgns());
+        assertEquals(Set.of(), instance.getProviders(ENGINE_SPEED));
+        assertFalse(instance.isNotAvailableSeen(0, ENGINE_SPEED));
+    }
+
+    @Test
+    public void testGrows() {
+        SpnTimeSeriesStore instance = new SpnTimeSeriesStore(3);
+        for (int i = 0; i < 1000; i++) {
+            instance.add(eec1(START + i * 10 * MILLIS, 0, i));
+        }
+        assertEquals(1000, instance.getCount(0, EEC1));
+        assertEquals(10 * MILLIS, instance.getMinInterval(0, EEC1));
+        assertEquals(10 * MILLIS, instance.getMaxInterval(0, EEC1));
+        assertEquals(999.0, instance.getLatestValue(0, EEC1, ENGINE_SPEED).getAsDouble(), 0.0);
+        assertEquals(Slot.Status.VALID, instance.getLatestStatus(0, EEC1, ENGINE_SPEED));
+        assertEquals(3, instance.getSamples(0, EEC1).size());
+        assertFalse(instance.isNotAvailableSeen(0, ENGINE_SPEED));
+    }
+
+    @Test
+    public void testSources() {
+        SpnTimeSeriesStore instance = new SpnTimeSeriesStore(3);
+        instance.add(eec1(START, 0, 1000));
+        instance.add(eec1(START, 1, 1000));
+        instance.add(eec1(START, 0x17, -1));
+
+        assertEquals(Set.of(EEC1), instance.getPgns());
+        assertEquals(Set.of(EEC1), instance.getPgns(1));
+        assertEquals(Set.of(), instance.getPgns(2));
+        assertEquals(List.of(0, 1, 0x17), List.copyOf(instance.getSources(EEC1)));
+
+        // sent as Not Available isn't provided
+        assertEquals(List.of(0, 1), List.copyOf(instance.getProviders(ENGINE_SPEED)));
+        assertTrue(instance.getProvidedSpns().contains(ENGINE_SPEED));
+        assertFalse(instance.getProvidedSpns(0x17).contains(ENGINE_SPEED));
+        assertTrue(instance.isNotAvailableSeen(0x17, ENGINE_SPEED));
+        assertFalse(instance.isNotAvailableSeen(0, ENGINE_SPEED));
+    }
+}
@@ -0,0 +1,126 @@
+/**
+ * Copyright 2021 Equipment & Tool Institute
+ */
+package org.etools.j1939_84.bus.j1939;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link TimerWheel} class
+ */
+public class TimerWheelTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static class TestTimer extends TimerWheel.Timer {
+        final String name;
+
+        TestTimer(String name) {
+            this.name = name;
+        }
+    }
+
+    private final List<String> expired = new ArrayList<>();
+
+    private long now;
+
+    private TimerWheel<TestTimer> instance;
+
+    @Before
+    public void setUp() {
+        instance = new TimerWheel<>(5, TimeUnit.MILLISECONDS, 64, t -> expired.add(t.name));
+        now = System.nanoTime();
+    }
+
+    @Test
+    public void testCancel() {
+        TestTimer timer = new TestTimer("a");
+        instance.schedule(timer, now + 10 * MS);
+        instance.cancel(timer);
+        assertEquals(0, instance.size());
+        assertEquals(Long.MAX_VALUE, instance.nanosToNextTick(now));
+
+        instance.advance(now + 100 * MS);
+        assertTrue(expired.isEmpty());
+    }
+
+    @Test
+    public void testExpiresInOrder() {
+        instance.schedule(new TestTimer("b"), now + 20 * MS);
+        instance.schedule(new TestTimer("a"), now + 10 * MS);
+        instance.schedule(new TestTimer("c"), now + 30 * MS);
+
+        instance.advance(now + 5 * MS);
+        assertTrue(expired.isEmpty());
+        instance.advance(now + 25 * MS);
+        assertEquals(List.of("a", "b"), expired);
+        instance.advance(now + 35 * MS);
+        assertEquals(List.of("a", "b", "c"), expired);
+        assertEquals(0, instance.size());
+    }
+
+    @Test
+    public void testMovedEarlier() {
+        TestTimer timer = new TestTimer("a");
+        instance.schedule(timer, now + 200 * MS);
+        instance.schedule(timer, now + 10 * MS);
+        assertEquals(1, instance.size());
+
+        instance.advance(now + 20 * MS);
+        assertEquals(List.of("a"), expired);
+        // the stale entry does not fire again
+        instance.advance(now + 300 * MS);
+        assertEquals(List.of("a"), expired);
+    }
+
+    @Test
+    public void testMovedLater() {
+        TestTimer timer = new TestTimer("a");
+        instance.schedule(timer, now + 10 * MS);
+        instance.advance(now + 5 * MS);
+        instance.schedule(timer, now + 50 * MS);
+
+        instance.advance(now + 20 * MS);
+        assertTrue(expired.isEmpty());
+        assertEquals(1, instance.size());
+        instance.advance(now + 55 * MS);
+        assertEquals(List.of("a"), expired);
+    }
+
+    @Test
+    public void testPastOneLap() {
+        // 64 slots of 5 ms is 320 ms
+        instance.schedule(new TestTimer("a"), now + 1000 * MS);
+
+        instance.advance(now + 500 * MS);
+        assertTrue(expired.isEmpty());
+        instance.advance(now + 990 * MS);
+        assertTrue(expired.isEmpty());
+        instance.advance(now + 1010 * MS);
+        assertEquals(List.of("a"), expired);
+    }
+
+    @Test
+    public void testRescheduleFromExpiry() {
+        List<Long> fired = new ArrayList<>();
+        List<TimerWheel<TestTimer>> wheel = new ArrayList<>();
+        wheel.add(new TimerWheel<>(5, TimeUnit.MILLISECONDS, 64, t -> {
+            fired.add(t.deadline);
+            if (fired.size() < 3) {
+                wheel.get(0).schedule(t, t.deadline + 10 * MS);
+            }
+        }));
+        wheel.get(0).schedule(new TestTimer("a"), now + 10 * MS);
+        wheel.get(0).advance(now + 100 * MS);
+        assertEquals(List.of(now + 10 * MS, now + 20 * MS, now + 30 * MS), fired);
+        assertEquals(0, wheel.get(0).size());
+    }
+}
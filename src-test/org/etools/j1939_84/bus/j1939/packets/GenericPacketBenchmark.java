@@ -0,0 +1,87 @@
+package org.etools.j1939_84.bus.j1939.packets;
+
+import static org.etools.j1939_84.bus.j1939.packets.GenericPacketTest.parseSpns;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.etools.j1939_84.bus.Packet;
+import org.etools.j1939_84.bus.j1939.J1939DaRepository;
+import org.etools.j1939_84.bus.j1939.packets.model.PgnDefinition;
+import org.etools.j1939_84.bus.j1939.packets.model.Spn;
+import org.etools.j1939_84.modules.DateTimeModule;
+import org.etools.j1939_84.modules.TestDateTimeModule;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Timing benchmark for {@link GenericPacket#getSpns()}, run by the
+ * run.benchmarks target rather than with the unit tests
+ */
+public class GenericPacketBenchmark {
+
+    @Before
+    public void setUp() {
+        DateTimeModule.setInstance(new TestDateTimeModule());
+    }
+
+    @After
+    public void tearDown() {
+        DateTimeModule.setInstance(null);
+    }
+
+    /**
+     * getSpns() and a getSpn(id) of each SPN on the 20 PGNs with the most
+     * SPNs must be faster than parsing each SPN as before.
+     */
+    @Test
+    public void testGetSpns() {
+        J1939DaRepository j1939da = J1939DaRepository.getInstance();
+        List<PgnDefinition> largest = j1939da.getPgnDefinitions()
+                                             .values()
+                                             .stream()
+                                             .filter(p -> p.getSpnDefinitions().stream().allMatch(s -> s.getStartByte() > 0))
+                                             .sorted(Comparator.comparing(p -> -p.getSpnDefinitions().size()))
+                                             .limit(20)
+                                             .collect(Collectors.toList());
+        Random random = new Random(1939);
+        List<Packet> packets = new ArrayList<>();
+        for (PgnDefinition pgnDefinition : largest) {
+            byte[] data = new byte[64];
+            random.nextBytes(data);
+            packets.add(Packet.create(pgnDefinition.getId(), 0, data));
+        }
+
+        long parserNanos = Long.MAX_VALUE;
+        long planNanos = Long.MAX_VALUE;
+        for (int run = 0; run < 200; run++) {
+            long start = System.nanoTime();
+            int parsed = 0;
+            for (int i = 0; i < packets.size(); i++) {
+                List<Spn> spns = parseSpns(largest.get(i), packets.get(i).getBytes());
+                for (Spn spn : spns) {
+                    parsed += spns.stream().filter(s -> s.getId() == spn.getId()).findAny().isPresent() ? 1 : 0;
+                }
+            }
+            parserNanos = Math.min(parserNanos, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            int planned = 0;
+            for (Packet packet : packets) {
+                GenericPacket genericPacket = new GenericPacket(packet);
+                for (Spn spn : genericPacket.getSpns()) {
+                    planned += genericPacket.getSpn(spn.getId()).isPresent() ? 1 : 0;
+                }
+            }
+            planNanos = Math.min(planNanos, System.nanoTime() - start);
+            assertEquals(parsed, planned);
+        }
+        assertTrue("planned " + planNanos + " ns, parsed " + parserNanos + " ns", planNanos < parserNanos);
+    }
+}
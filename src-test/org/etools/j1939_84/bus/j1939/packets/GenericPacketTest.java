@@ -2,11 +2,17 @@ package org.etools.j1939_84.bus.j1939.packets;
 
 import static org.etools.j1939_84.J1939_84.NL;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import org.etools.j1939_84.bus.Packet;
+import org.etools.j1939_84.bus.j1939.J1939DaRepository;
+import org.etools.j1939_84.bus.j1939.packets.model.PgnDefinition;
 import org.etools.j1939_84.bus.j1939.packets.model.Spn;
+import org.etools.j1939_84.bus.j1939.packets.model.SpnDataParser;
+import org.etools.j1939_84.bus.j1939.packets.model.SpnDefinition;
 import org.etools.j1939_84.modules.DateTimeModule;
 import org.etools.j1939_84.modules.TestDateTimeModule;
 import org.junit.After;
@@ -25,6 +31,35 @@ public class GenericPacketTest {
         DateTimeModule.setInstance(null);
     }
 
+    /** How getSpns() read the SPNs before the extraction plans */
+    static List<Spn> parseSpns(PgnDefinition pgnDefinition, byte[] bytes) {
+        J1939DaRepository j1939da = J1939DaRepository.getInstance();
+        SpnDataParser parser = new SpnDataParser();
+        List<Spn> spns = new ArrayList<>();
+        for (SpnDefinition definition : pgnDefinition.getSpnDefinitions()) {
+            Slot slot = j1939da.findSLOT(definition.getSlotNumber(), definition.getSpnId());
+            if (slot.getLength() != 0) {
+                spns.add(new Spn(definition.getSpnId(), definition.getLabel(), slot, parser.parse(bytes,
+                                                                                                   definition,
+                                                                                                   slot.getLength())));
+            }
+        }
+        return spns;
+    }
+
+    @Test
+    public void testGetSpnsMatchesParser() {
+        Packet packet = Packet.create(61444, 0, 0x11, 0x22, 0x33, 0x44, 0x55, 0x66, 0x77, 0x88);
+        GenericPacket instance = new GenericPacket(packet);
+        List<Spn> expected = parseSpns(instance.getPgnDefinition(), packet.getBytes());
+        assertEquals(expected.size(), instance.getSpns().size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).toString(), instance.getSpns().get(i).toString());
+            assertEquals(expected.get(i).toString(), instance.getSpn(expected.get(i).getId()).get().toString());
+        }
+        assertFalse(instance.getSpn(-1).isPresent());
+    }
+
     @Test
     public void testPgn0() {
         byte[] data = new byte[] { 0x11, 0x22, 0x33, 0x44, 0x55, 0x66, 0x77, (byte) 0x88 };
@@ -28,6 +28,43 @@ public class SlotTest {
         assertFalse(slot.isError(data));
     }
 
+    @Test
+    public void testDecode() {
+        Slot slot = J1939DaRepository.findSlot(205, 0);
+
+        Slot.Decoded decoded = slot.decode(new byte[] { (byte) 0x5A, (byte) 0xA5 });
+        assertEquals(Slot.Status.VALID, decoded.getStatus());
+        assertTrue(decoded.hasValue());
+        assertEquals(34.6, decoded.getValue(), 0.0001);
+        assertEquals(decoded.getValue(), slot.decode(0x15A).getValue(), 0.0);
+
+        assertEquals(Slot.Status.NOT_AVAILABLE, slot.decode(new byte[] { (byte) 0xFF, (byte) 0x03 }).getStatus());
+        assertEquals(Slot.Status.ERROR, slot.decode(new byte[] { (byte) 0xF8, (byte) 0x03 }).getStatus());
+        assertEquals(Slot.Status.FB, slot.decode(new byte[] { (byte) 0xEC, (byte) 0x03 }).getStatus());
+        assertFalse(slot.decode(0x3EC).hasValue());
+        assertEquals(Slot.Status.NOT_AVAILABLE, slot.decode(new byte[0]).getStatus());
+        assertFalse(slot.decode(new byte[0]).hasValue());
+    }
+
+    @Test
+    public void testDecodeAsciiAndBitField() {
+        Slot ascii = J1939DaRepository.findSlot(273, 0);
+        Slot.Decoded decoded = ascii.decode("12345".getBytes(UTF_8));
+        assertEquals(Slot.Status.VALID, decoded.getStatus());
+        assertFalse(decoded.hasValue());
+
+        // bit fields always have a value, even when it is ERROR
+        Slot bitField = J1939DaRepository.findSlot(218, 0);
+        decoded = bitField.decode(new byte[] { (byte) 0xFE, (byte) 0xFF });
+        assertEquals(Slot.Status.ERROR, decoded.getStatus());
+        assertEquals(0x7FE, decoded.getValue(), 0.0);
+
+        // one bit is never NA or ERROR
+        Slot bit = J1939DaRepository.findSlot(86, 0);
+        assertEquals(Slot.Status.VALID, bit.decode(new byte[] { 1 }).getStatus());
+        assertEquals(Slot.Status.VALID, bit.decode(new byte[0]).getStatus());
+    }
+
     @Test
     public void test10BitsAsPercent() {
         Slot slot = J1939DaRepository.findSlot(205, 0);
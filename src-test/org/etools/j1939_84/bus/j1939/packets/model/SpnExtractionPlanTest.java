@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2021. Equipment & Tool Institute
+ */
+package org.etools.j1939_84.bus.j1939.packets.model;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.List;
+import java.util.Random;
+
+import org.etools.j1939_84.bus.Packet;
+import org.etools.j1939_84.bus.j1939.J1939DaRepository;
+import org.etools.j1939_84.bus.j1939.packets.Slot;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link SpnExtractionPlan} class
+ */
+public class SpnExtractionPlanTest {
+
+    /**
+     * Every SPN of every PGN in the J1939DA, taken from random data, must give
+     * the same bytes as {@link SpnDataParser}.
+     */
+    @Test
+    public void testMatchesSpnDataParser() {
+        J1939DaRepository j1939da = J1939DaRepository.getInstance();
+        SpnDataParser parser = new SpnDataParser();
+        Random random = new Random(1939);
+        for (PgnDefinition pgnDefinition : j1939da.getPgnDefinitions().values()) {
+            SpnExtractionPlan plan = pgnDefinition.getExtractionPlan();
+            // long enough for most, too short for some
+            byte[] data = new byte[3 + random.nextInt(62)];
+            random.nextBytes(data);
+            Packet packet = Packet.create(pgnDefinition.getId(), 0, data);
+            long[] values = plan.extract(packet);
+
+            int index = 0;
+            for (SpnDefinition definition : pgnDefinition.getSpnDefinitions()) {
+                Slot slot = j1939da.findSLOT(definition.getSlotNumber(), definition.getSpnId());
+                if (slot.getLength() != 0) {
+                    Spn expected = new Spn(definition.getSpnId(),
+                                           definition.getLabel(),
+                                           slot,
+                                           parser.parse(data, definition, slot.getLength()));
+                    Spn actual = plan.toSpn(index++, packet, values);
+                    String message = pgnDefinition.getId() + " " + definition.getSpnId();
+                    assertEquals(message, expected.getId(), actual.getId());
+                    assertArrayEquals(message, expected.getData(), actual.getData());
+                    assertEquals(message, expected.toString(), actual.toString());
+                }
+            }
+            assertEquals(index, plan.size());
+        }
+    }
+
+    @Test
+    public void testExtract() {
+        // 1 byte at 1, 1 bit at 2.3 and 2 bytes at 3
+        List<SpnDefinition> definitions = List.of(new SpnDefinition(190, "one", 1, 1, 1),
+                                                  new SpnDefinition(191, "two", 2, 3, 86),
+                                                  new SpnDefinition(192, "three", 3, 1, 76),
+                                                  new SpnDefinition(193, "missing", 9, 1, 1));
+        SpnExtractionPlan plan = new SpnExtractionPlan(definitions);
+        Packet packet = Packet.create(0xFF00, 0, 0x11, 0x0C, 0x33, 0x44, 0x55, 0x66, 0x77, 0x88);
+
+        long[] values = plan.extract(packet);
+        assertArrayEquals(new long[] { 0x11, 0x01, 0x4433, SpnExtractionPlan.MISSING }, values);
+
+        assertEquals(2, plan.indexOf(192));
+        assertEquals(-1, plan.indexOf(194));
+        assertEquals(0, plan.toSpn(3, packet, values).getData().length);
+    }
+
+    @Test
+    public void testSharedPlan() {
+        PgnDefinition eec1 = J1939DaRepository.getInstance().findPgnDefinition(61444);
+        assertSame(eec1.getExtractionPlan(), eec1.getExtractionPlan());
+    }
+}
@@ -93,6 +93,7 @@ public class SectionA5VerifierTest extends AbstractControllerTest {
 
         instance.verifyDataErased(listener, SECTION);
 
+        verify(verifier).requestData(0, true);
         verify(verifier).checkDM6(listener, SECTION, 0, true);
         verify(verifier).checkDM12(listener, SECTION, 0, true);
         verify(verifier).checkDM23(listener, SECTION, 0, true);
@@ -124,6 +125,7 @@ public class SectionA5VerifierTest extends AbstractControllerTest {
 
         instance.verifyDataErased(listener, SECTION);
 
+        verify(verifier).requestData(0, true);
         verify(verifier).checkDM6(listener, SECTION, 0, true);
         verify(verifier).checkDM12(listener, SECTION, 0, true);
         verify(verifier).checkDM23(listener, SECTION, 0, true);
@@ -160,6 +162,7 @@ public class SectionA5VerifierTest extends AbstractControllerTest {
 
         instance.verifyDataNotErased(listener, SECTION);
 
+        verify(verifier).requestData(0, false);
         verify(verifier).checkDM6(listener, SECTION, 0, false);
         verify(verifier).checkDM12(listener, SECTION, 0, false);
         verify(verifier).checkDM23(listener, SECTION, 0, false);
@@ -201,6 +204,7 @@ public class SectionA5VerifierTest extends AbstractControllerTest {
 
         instance.verifyDataNotErased(listener, SECTION);
 
+        verify(verifier).requestData(0, false);
         verify(verifier).checkDM6(listener, SECTION, 0, false);
         verify(verifier).checkDM12(listener, SECTION, 0, false);
         verify(verifier).checkDM23(listener, SECTION, 0, false);
@@ -259,6 +263,7 @@ public class SectionA5VerifierTest extends AbstractControllerTest {
 
         instance.verifyDataNotPartialErased(listener, SECTION, "Section2", false);
 
+        verify(verifier).requestData(0, false);
         verify(verifier).checkDM6(listener, SECTION, 0, false);
         verify(verifier).checkDM12(listener, SECTION, 0, false);
         verify(verifier).checkDM23(listener, SECTION, 0, false);
@@ -275,6 +280,7 @@ public class SectionA5VerifierTest extends AbstractControllerTest {
         verify(verifier).checkEngineRunTime(listener, SECTION, 0);
         verify(verifier).checkEngineIdleTime(listener, SECTION, 0);
 
+        verify(verifier).requestData(1, false);
         verify(verifier).checkDM6(listener, SECTION, 1, false);
         verify(verifier).checkDM12(listener, SECTION, 1, false);
         verify(verifier).checkDM23(listener, SECTION, 1, false);
@@ -334,6 +340,7 @@ public class SectionA5VerifierTest extends AbstractControllerTest {
 
         instance.verifyDataNotPartialErased(listener, SECTION, "Section2", false);
 
+        verify(verifier).requestData(0, false);
         verify(verifier).checkDM6(listener, SECTION, 0, false);
         verify(verifier).checkDM12(listener, SECTION, 0, false);
         verify(verifier).checkDM23(listener, SECTION, 0, false);
@@ -350,6 +357,7 @@ public class SectionA5VerifierTest extends AbstractControllerTest {
         verify(verifier).checkEngineRunTime(listener, SECTION, 0);
         verify(verifier).checkEngineIdleTime(listener, SECTION, 0);
 
+        verify(verifier).requestData(1, false);
         verify(verifier).checkDM6(listener, SECTION, 1, false);
         verify(verifier).checkDM12(listener, SECTION, 1, false);
         verify(verifier).checkDM23(listener, SECTION, 1, false);
@@ -392,6 +400,7 @@ public class SectionA5VerifierTest extends AbstractControllerTest {
 
         instance.verifyDataNotPartialErased(listener, SECTION, "Section2", false);
 
+        verify(verifier).requestData(0, false);
         verify(verifier).checkDM6(listener, SECTION, 0, false);
         verify(verifier).checkDM12(listener, SECTION, 0, false);
         verify(verifier).checkDM23(listener, SECTION, 0, false);
@@ -454,6 +463,7 @@ public class SectionA5VerifierTest extends AbstractControllerTest {
 
         instance.verifyDataNotPartialErased(listener, SECTION, "Section2", false);
 
+        verify(verifier).requestData(0, false);
         verify(verifier).checkDM6(listener, SECTION, 0, false);
         verify(verifier).checkDM12(listener, SECTION, 0, false);
         verify(verifier).checkDM23(listener, SECTION, 0, false);
@@ -470,6 +480,7 @@ public class SectionA5VerifierTest extends AbstractControllerTest {
         verify(verifier).checkEngineRunTime(listener, SECTION, 0);
         verify(verifier).checkEngineIdleTime(listener, SECTION, 0);
 
+        verify(verifier).requestData(1, false);
         verify(verifier).checkDM6(listener, SECTION, 1, false);
         verify(verifier).checkDM12(listener, SECTION, 1, false);
         verify(verifier).checkDM23(listener, SECTION, 1, false);
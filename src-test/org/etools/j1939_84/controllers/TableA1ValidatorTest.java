@@ -17,9 +17,12 @@ import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
 
 import org.etools.j1939_84.bus.Packet;
 import org.etools.j1939_84.bus.j1939.J1939DaRepository;
+import org.etools.j1939_84.bus.j1939.SpnTimeSeriesStore;
 import org.etools.j1939_84.bus.j1939.packets.DM19CalibrationInformationPacket;
 import org.etools.j1939_84.bus.j1939.packets.DM24SPNSupportPacket;
 import org.etools.j1939_84.bus.j1939.packets.GenericPacket;
@@ -135,6 +138,25 @@ public class TableA1ValidatorTest {
         assertEquals("", listener.getResults());
     }
 
+    @Test
+    public void testReportDuplicateSPNsFromStore() {
+        SpnTimeSeriesStore store = mock(SpnTimeSeriesStore.class);
+        when(store.getProvidedSpns()).thenReturn(new TreeSet<>(List.of(3, 4, 84, 92, 158, 512)));
+        when(store.getProviders(3)).thenReturn(Set.of(0));
+        when(store.getProviders(4)).thenReturn(Set.of(21));
+        when(store.getProviders(84)).thenReturn(Set.of(0, 21)); // WARN
+        when(store.getProviders(92)).thenReturn(Set.of(0, 21)); // FAIL
+        when(store.getProviders(158)).thenReturn(Set.of(0, 21)); // PASS
+        when(store.getProviders(512)).thenReturn(Set.of(0));
+
+        instance.reportDuplicateSPNs(store, listener, "6.1.26");
+
+        verify(mockListener).addOutcome(1, 26, WARN, "6.1.26 - N.5 SPN 84 provided by more than one ECU");
+        verify(mockListener).addOutcome(1, 26, FAIL, "6.1.26 - N.5 SPN 92 provided by more than one ECU");
+
+        assertEquals("", listener.getResults());
+    }
+
     @Test
     public void testReportImplausibleSPNValues() {
         List<GenericPacket> packets = new ArrayList<>();
@@ -22,12 +22,13 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.etools.j1939_84.bus.Packet;
 import org.etools.j1939_84.bus.j1939.J1939DaRepository;
+import org.etools.j1939_84.bus.j1939.SpnTimeSeriesStore;
 import org.etools.j1939_84.bus.j1939.packets.GenericPacket;
 import org.etools.j1939_84.bus.j1939.packets.SupportedSPN;
 import org.etools.j1939_84.bus.j1939.packets.model.PgnDefinition;
@@ -69,7 +70,7 @@ public class BroadcastValidatorTest {
         Packet packet = mock(Packet.class);
         when(packet.getPgn()).thenReturn(pgn);
         if (timestamp != null) {
-            when(packet.getTimestamp()).thenReturn(timestamp);
+            when(packet.getTimestampNanos()).thenReturn(Packet.toEpochNanos(timestamp));
             when(packet.toTimeString()).thenReturn(format(timestamp) + " - " + pgn);
         }
 
@@ -283,21 +284,25 @@ public class BroadcastValidatorTest {
         expected += "07:30:01.0000 - 33333" + NL;
         expected += "07:30:02.0010 - 33333" + NL;
         expected += "07:30:02.9990 - 33333" + NL;
+        expected += "2 intervals: min 998.0 ms, mean 999.5 ms, max 1001.0 ms; 5% 998.0 ms, 50% 1001.0 ms, 95% 1001.0 ms" + NL;
         expected += NL;
         expected += "PGN 44444 from Engine #1 (0)" + NL;
         expected += "07:30:05.0000 - 44444" + NL;
         expected += "07:30:05.0500 - 44444" + NL;
         expected += "07:30:05.1000 - 44444" + NL;
+        expected += "2 intervals: min 50.0 ms, mean 50.0 ms, max 50.0 ms; 5% 50.0 ms, 50% 50.0 ms, 95% 50.0 ms" + NL;
         expected += NL;
         expected += "PGN 55555 from Engine #1 (0)" + NL;
         expected += "07:30:01.0000 - 55555" + NL;
         expected += "07:30:02.0000 - 55555" + NL;
         expected += "07:30:03.0000 - 55555" + NL;
+        expected += "2 intervals: min 1000.0 ms, mean 1000.0 ms, max 1000.0 ms; 5% 1000.0 ms, 50% 1000.0 ms, 95% 1000.0 ms" + NL;
         expected += NL;
         expected += "PGN 66666 from Engine #1 (0)" + NL;
         expected += "07:30:02.0000 - 66666" + NL;
         expected += "07:30:04.5000 - 66666" + NL;
         expected += "07:30:07.0000 - 66666" + NL;
+        expected += "2 intervals: min 2500.0 ms, mean 2500.0 ms, max 2500.0 ms; 5% 2500.0 ms, 50% 2500.0 ms, 95% 2500.0 ms" + NL;
 
         assertEquals(expected, listener.getResults());
 
@@ -312,6 +317,170 @@ public class BroadcastValidatorTest {
         verifyNoMoreInteractions(mockListener);
     }
 
+    @Test
+    public void reportBroadcastPeriodFromStore() {
+        SpnTimeSeriesStore store = instance.createTimeSeriesStore();
+        store.add(genericPacket(11111, 0, time(0)));
+
+        // Values are ok
+        store.add(genericPacket(33333, 0, time(1000)));
+        store.add(genericPacket(33333, 0, time(2001)));
+        store.add(genericPacket(33333, 0, time(2999)));
+
+        // Too slow, the fourth isn't needed
+        store.add(genericPacket(66666, 0, time(2000)));
+        store.add(genericPacket(66666, 0, time(4500)));
+        store.add(genericPacket(66666, 0, time(7000)));
+        store.add(genericPacket(66666, 0, time(9000)));
+
+        // Not supported
+        store.add(genericPacket(88888, 0, time(8000)));
+
+        PgnDefinition pgnDef1 = pgnDefinition(1000, 111);
+        when(j1939DaRepository.findPgnDefinition(11111)).thenReturn(pgnDef1);
+
+        PgnDefinition pgnDef3 = pgnDefinition(1000, false, 333);
+        when(j1939DaRepository.findPgnDefinition(33333)).thenReturn(pgnDef3);
+
+        PgnDefinition pgnDef6 = pgnDefinition(2000, false, 666);
+        when(j1939DaRepository.findPgnDefinition(66666)).thenReturn(pgnDef6);
+
+        PgnDefinition pgnDef8 = pgnDefinition(1000, 888);
+        when(j1939DaRepository.findPgnDefinition(88888)).thenReturn(pgnDef8);
+
+        ResultsListener mockListener = mock(ResultsListener.class);
+        TestResultsListener listener = new TestResultsListener(mockListener);
+
+        instance.reportBroadcastPeriod(store, List.of(111, 333, 666), listener, 1, 26);
+
+        verify(mockListener).addOutcome(1,
+                                        26,
+                                        INFO,
+                                        "6.1.26 - Unable to determine period for PGN 11111 from Engine #1 (0)");
+
+        verify(mockListener).addOutcome(1,
+                                        26,
+                                        FAIL,
+                                        "6.1.26 - Broadcast period of PGN 66666 (2500 ms) by ECU Engine #1 (0) is beyond 110% specified broadcast period of 2000 ms.");
+
+        String expected = "" + NL;
+        expected += "PGN 11111 from Engine #1 (0)" + NL;
+        expected += "07:30:00.0000 - 11111" + NL;
+        expected += NL;
+        expected += "PGN 33333 from Engine #1 (0)" + NL;
+        expected += "07:30:01.0000 - 33333" + NL;
+        expected += "07:30:02.0010 - 33333" + NL;
+        expected += "07:30:02.9990 - 33333" + NL;
+        expected += "2 intervals: min 998.0 ms, mean 999.5 ms, max 1001.0 ms; 5% 998.0 ms, 50% 1001.0 ms, 95% 1001.0 ms" + NL;
+        expected += NL;
+        expected += "PGN 66666 from Engine #1 (0)" + NL;
+        expected += "07:30:02.0000 - 66666" + NL;
+        expected += "07:30:04.5000 - 66666" + NL;
+        expected += "07:30:07.0000 - 66666" + NL;
+        expected += "3 intervals: min 2000.0 ms, mean 2333.3 ms, max 2500.0 ms; 5% 2000.0 ms, 50% 2500.0 ms, 95% 2500.0 ms" + NL;
+
+        assertEquals(expected, listener.getResults());
+
+        verify(j1939DaRepository).findPgnDefinition(11111);
+        verify(j1939DaRepository).findPgnDefinition(33333);
+        verify(j1939DaRepository).findPgnDefinition(66666);
+        verify(j1939DaRepository).findPgnDefinition(88888);
+
+        verifyNoMoreInteractions(mockListener);
+    }
+
+    @Test
+    public void reportBroadcastPeriodFailsOnAnyInterval() {
+        SpnTimeSeriesStore store = instance.createTimeSeriesStore();
+        // one early and one late packet among 30 intervals fail, whatever the
+        // percentiles
+        int millis = 0;
+        store.add(genericPacket(33333, 0, time(millis)));
+        for (int i = 0; i < 30; i++) {
+            millis += i == 10 ? 50 : i == 20 ? 160 : 100;
+            store.add(genericPacket(33333, 0, time(millis)));
+        }
+
+        // 110.4 ms is 110 ms in whole ms, so within 110% of 100 ms
+        LocalDateTime start = time(0);
+        for (int i = 0; i < 4; i++) {
+            store.add(genericPacket(44444, 0, start.plusNanos(i * 110_400_000L)));
+        }
+
+        PgnDefinition pgnDef3 = pgnDefinition(100, false, 333);
+        when(j1939DaRepository.findPgnDefinition(33333)).thenReturn(pgnDef3);
+
+        PgnDefinition pgnDef4 = pgnDefinition(100, false, 444);
+        when(j1939DaRepository.findPgnDefinition(44444)).thenReturn(pgnDef4);
+
+        ResultsListener mockListener = mock(ResultsListener.class);
+        TestResultsListener listener = new TestResultsListener(mockListener);
+
+        instance.reportBroadcastPeriod(store, List.of(333, 444), listener, 1, 26);
+
+        verify(mockListener).addOutcome(1,
+                                        26,
+                                        FAIL,
+                                        "6.1.26 - Broadcast period of PGN 33333 (50 ms) by ECU Engine #1 (0) is less than 90% specified broadcast period of 100 ms.");
+        verify(mockListener).addOutcome(1,
+                                        26,
+                                        FAIL,
+                                        "6.1.26 - Broadcast period of PGN 33333 (160 ms) by ECU Engine #1 (0) is beyond 110% specified broadcast period of 100 ms.");
+
+        String expected = "" + NL;
+        expected += "PGN 33333 from Engine #1 (0)" + NL;
+        expected += "07:30:00.0000 - 33333" + NL;
+        expected += "07:30:00.1000 - 33333" + NL;
+        expected += "07:30:00.2000 - 33333" + NL;
+        expected += "30 intervals: min 50.0 ms, mean 100.3 ms, max 160.0 ms; 5% 100.0 ms, 50% 100.0 ms, 95% 100.0 ms" + NL;
+        expected += NL;
+        expected += "PGN 44444 from Engine #1 (0)" + NL;
+        expected += "07:30:00.0000 - 44444" + NL;
+        expected += "07:30:00.1104 - 44444" + NL;
+        expected += "07:30:00.2208 - 44444" + NL;
+        expected += "3 intervals: min 110.4 ms, mean 110.4 ms, max 110.4 ms; 5% 110.4 ms, 50% 110.4 ms, 95% 110.4 ms" + NL;
+
+        assertEquals(expected, listener.getResults());
+
+        verifyNoMoreInteractions(mockListener);
+    }
+
+    @Test
+    public void reportBroadcastPeriodAfterTheFirstSamples() {
+        SpnTimeSeriesStore store = instance.createTimeSeriesStore();
+        // the first three are fine, but the fourth is late
+        store.add(genericPacket(99999, 0, time(10000)));
+        store.add(genericPacket(99999, 0, time(11000)));
+        store.add(genericPacket(99999, 0, time(12000)));
+        store.add(genericPacket(99999, 0, time(15000)));
+        store.add(genericPacket(99999, 0, time(16000)));
+
+        PgnDefinition pgnDef = pgnDefinition(1000, false, 999);
+        when(j1939DaRepository.findPgnDefinition(99999)).thenReturn(pgnDef);
+
+        ResultsListener mockListener = mock(ResultsListener.class);
+        TestResultsListener listener = new TestResultsListener(mockListener);
+
+        instance.reportBroadcastPeriod(store, List.of(999), listener, 1, 26);
+
+        verify(mockListener).addOutcome(1,
+                                        26,
+                                        FAIL,
+                                        "6.1.26 - Broadcast period of PGN 99999 (3000 ms) by ECU Engine #1 (0) is beyond 110% specified broadcast period of 1000 ms.");
+
+        String expected = "" + NL;
+        expected += "PGN 99999 from Engine #1 (0)" + NL;
+        expected += "07:30:10.0000 - 99999" + NL;
+        expected += "07:30:11.0000 - 99999" + NL;
+        expected += "07:30:12.0000 - 99999" + NL;
+        expected += "4 intervals: min 1000.0 ms, mean 1500.0 ms, max 3000.0 ms; 5% 1000.0 ms, 50% 1000.0 ms, 95% 3000.0 ms"
+                + NL;
+        assertEquals(expected, listener.getResults());
+
+        verify(j1939DaRepository).findPgnDefinition(99999);
+        verifyNoMoreInteractions(mockListener);
+    }
+
     @Before
     public void setUp() throws Exception {
         instance = new BroadcastValidator(dataRepository, j1939DaRepository);
@@ -336,10 +505,10 @@ public class BroadcastValidatorTest {
         when(module2.getFilteredDataStreamSPNs()).thenReturn(supportedSPNs2);
         modules.add(module2);
 
-        when(j1939DaRepository.getPgnForSpn(111)).thenReturn(Set.of(11111));
-        when(j1939DaRepository.getPgnForSpn(222)).thenReturn(Set.of(22222));
-        when(j1939DaRepository.getPgnForSpn(333)).thenReturn(null);
-        when(j1939DaRepository.getPgnForSpn(444)).thenReturn(Set.of(44444));
+        when(j1939DaRepository.getPgnIdsForSpn(111)).thenReturn(IntStream.of(11111));
+        when(j1939DaRepository.getPgnIdsForSpn(222)).thenReturn(IntStream.of(22222));
+        when(j1939DaRepository.getPgnIdsForSpn(333)).thenReturn(IntStream.empty());
+        when(j1939DaRepository.getPgnIdsForSpn(444)).thenReturn(IntStream.of(44444));
 
         PgnDefinition pgnDefinition1 = pgnDefinition(1000);
         when(j1939DaRepository.findPgnDefinition(11111)).thenReturn(pgnDefinition1);
@@ -354,10 +523,10 @@ public class BroadcastValidatorTest {
 
         verify(dataRepository).getObdModules();
 
-        verify(j1939DaRepository).getPgnForSpn(111);
-        verify(j1939DaRepository).getPgnForSpn(222);
-        verify(j1939DaRepository).getPgnForSpn(333);
-        verify(j1939DaRepository).getPgnForSpn(444);
+        verify(j1939DaRepository).getPgnIdsForSpn(111);
+        verify(j1939DaRepository).getPgnIdsForSpn(222);
+        verify(j1939DaRepository).getPgnIdsForSpn(333);
+        verify(j1939DaRepository).getPgnIdsForSpn(444);
 
         verify(j1939DaRepository).findPgnDefinition(11111);
         verify(j1939DaRepository).findPgnDefinition(22222);
@@ -22,11 +22,14 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import org.etools.j1939_84.bus.j1939.BroadcastCollector;
 import org.etools.j1939_84.bus.j1939.J1939;
 import org.etools.j1939_84.bus.j1939.J1939DaRepository;
+import org.etools.j1939_84.bus.j1939.SpnTimeSeriesStore;
 import org.etools.j1939_84.bus.j1939.packets.GenericPacket;
 import org.etools.j1939_84.bus.j1939.packets.SupportedSPN;
 import org.etools.j1939_84.bus.j1939.packets.model.PgnDefinition;
@@ -203,18 +206,18 @@ public class Part01Step26ControllerTest extends AbstractControllerTest {
         when(obdModule.getFilteredDataStreamSPNs()).thenReturn(supportedSPNList);
 
         when(broadcastValidator.getMaximumBroadcastPeriod()).thenReturn(3);
+        BroadcastCollector collector = new BroadcastCollector(3, TimeUnit.SECONDS, 3);
+        when(broadcastValidator.createBroadcastCollector()).thenReturn(collector);
 
         List<GenericPacket> packets = new ArrayList<>();
         GenericPacket packet1 = packet(111, false);
         packets.add(packet1);
         GenericPacket packet3 = packet(333, true);
         packets.add(packet3);
-        when(busService.readBus(12, "6.1.26.1.a")).thenReturn(packets.stream());
+        when(busService.readBus(12, "6.1.26.1.a", collector)).thenReturn(packets.stream());
 
-        Map<Integer, Map<Integer, List<GenericPacket>>> packetMap = new HashMap<>();
-        packetMap.put(11111, Map.of(0, List.of(packet1)));
-        packetMap.put(33333, Map.of(0, List.of(packet3)));
-        when(broadcastValidator.buildPGNPacketsMap(packets)).thenReturn(packetMap);
+        SpnTimeSeriesStore store = new SpnTimeSeriesStore(3);
+        when(broadcastValidator.createTimeSeriesStore()).thenReturn(store);
 
         when(busService.collectNonOnRequestPGNs(supportedSpns))
                                                                .thenReturn(List.of(11111, 22222, 33333));
@@ -269,9 +272,10 @@ public class Part01Step26ControllerTest extends AbstractControllerTest {
         // eq(1),
         // eq(26));
         verify(broadcastValidator).getMaximumBroadcastPeriod();
-        verify(busService).readBus(12, "6.1.26.1.a");
-        verify(broadcastValidator).buildPGNPacketsMap(packets);
-        verify(broadcastValidator).reportBroadcastPeriod(eq(packetMap),
+        verify(broadcastValidator).createBroadcastCollector();
+        verify(busService).readBus(12, "6.1.26.1.a", collector);
+        verify(broadcastValidator).createTimeSeriesStore();
+        verify(broadcastValidator).reportBroadcastPeriod(eq(store),
                                                          any(),
                                                          any(ResultsListener.class),
                                                          eq(1),
@@ -313,7 +317,7 @@ public class Part01Step26ControllerTest extends AbstractControllerTest {
                                                             any(ResultsListener.class),
                                                             eq(false),
                                                             any());
-        verify(tableA1Validator).reportDuplicateSPNs(any(), any(ResultsListener.class), any());
+        verify(tableA1Validator).reportDuplicateSPNs(any(SpnTimeSeriesStore.class), any(ResultsListener.class), any());
 
         String expected = "";
         expected += "FAIL: SPN 222 was not broadcast by Engine #1 (0)" + NL;
@@ -359,15 +363,16 @@ public class Part01Step26ControllerTest extends AbstractControllerTest {
         when(obdModule.getFilteredDataStreamSPNs()).thenReturn(supportedSPNList);
 
         when(broadcastValidator.getMaximumBroadcastPeriod()).thenReturn(3);
+        BroadcastCollector collector = new BroadcastCollector(3, TimeUnit.SECONDS, 3);
+        when(broadcastValidator.createBroadcastCollector()).thenReturn(collector);
 
         List<GenericPacket> packets = new ArrayList<>();
         GenericPacket packet1 = packet(111, false);
         packets.add(packet1);
-        when(busService.readBus(12, "6.1.26.1.a")).thenReturn(packets.stream());
+        when(busService.readBus(12, "6.1.26.1.a", collector)).thenReturn(packets.stream());
 
-        Map<Integer, Map<Integer, List<GenericPacket>>> packetMap = new HashMap<>();
-        packetMap.put(11111, Map.of(0, List.of(packet1)));
-        when(broadcastValidator.buildPGNPacketsMap(packets)).thenReturn(packetMap);
+        SpnTimeSeriesStore store = new SpnTimeSeriesStore(3);
+        when(broadcastValidator.createTimeSeriesStore()).thenReturn(store);
 
         when(busService.collectNonOnRequestPGNs(supportedSpns)).thenReturn(List.of(11111));
         when(busService.collectBroadcastPGNs(List.of(44444))).thenReturn(List.of());
@@ -383,9 +388,10 @@ public class Part01Step26ControllerTest extends AbstractControllerTest {
         verify(dataRepository, atLeastOnce()).getObdModules();
 
         verify(broadcastValidator).getMaximumBroadcastPeriod();
-        verify(busService).readBus(12, "6.1.2.3.a");
-        verify(broadcastValidator).buildPGNPacketsMap(packets);
-        verify(broadcastValidator).reportBroadcastPeriod(eq(packetMap),
+        verify(broadcastValidator).createBroadcastCollector();
+        verify(busService).readBus(12, "6.1.2.3.a", collector);
+        verify(broadcastValidator).createTimeSeriesStore();
+        verify(broadcastValidator).reportBroadcastPeriod(eq(store),
                                                          any(),
                                                          any(ResultsListener.class),
                                                          eq(1),
@@ -404,7 +410,7 @@ public class Part01Step26ControllerTest extends AbstractControllerTest {
                                                             any(ResultsListener.class),
                                                             eq(false),
                                                             any());
-        verify(tableA1Validator).reportDuplicateSPNs(any(), any(ResultsListener.class), any());
+        verify(tableA1Validator).reportDuplicateSPNs(any(SpnTimeSeriesStore.class), any(ResultsListener.class), any());
 
         String expected = "";
         assertEquals(expected, listener.getResults());
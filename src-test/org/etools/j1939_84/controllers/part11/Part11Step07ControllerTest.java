@@ -25,6 +25,7 @@ import java.util.stream.Stream;
 
 import org.etools.j1939_84.bus.j1939.BusResult;
 import org.etools.j1939_84.bus.j1939.J1939;
+import org.etools.j1939_84.bus.j1939.LazyPacket;
 import org.etools.j1939_84.bus.j1939.packets.DM20MonitorPerformanceRatioPacket;
 import org.etools.j1939_84.bus.j1939.packets.DM28PermanentEmissionDTCPacket;
 import org.etools.j1939_84.bus.j1939.packets.DiagnosticTroubleCode;
@@ -181,7 +182,8 @@ public class Part11Step07ControllerTest extends AbstractControllerTest {
         var packet1 = mock(GenericPacket.class);
         var packet2 = mock(GenericPacket.class);
         var packet3 = mock(GenericPacket.class);
-        when(j1939.readGenericPacket(any())).thenReturn(Stream.of(packet1, packet2, packet3));
+        var packets = Stream.of(LazyPacket.of(packet1), LazyPacket.of(packet2), LazyPacket.of(packet3));
+        when(j1939.readLazy(any(), any())).thenReturn(packets);
 
         doAnswer((Answer<Void>) invocation -> {
             ((QuestionListener) invocation.getArguments()[3]).answered(YES);
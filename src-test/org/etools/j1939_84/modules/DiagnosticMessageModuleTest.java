@@ -8,10 +8,13 @@ import static org.etools.j1939_84.J1939_84.NL;
 import static org.etools.j1939_84.bus.j1939.J1939.GLOBAL_ADDR;
 import static org.etools.j1939_84.controllers.ResultsListener.NOOP;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 import java.util.ArrayList;
@@ -22,6 +25,7 @@ import java.util.stream.Stream;
 
 import org.etools.j1939_84.bus.BusException;
 import org.etools.j1939_84.bus.Packet;
+import org.etools.j1939_84.bus.j1939.BroadcastCollector;
 import org.etools.j1939_84.bus.j1939.BusResult;
 import org.etools.j1939_84.bus.j1939.J1939;
 import org.etools.j1939_84.bus.j1939.packets.AcknowledgmentPacket;
@@ -48,6 +52,7 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Spy;
 import org.mockito.junit.MockitoJUnitRunner;
 
@@ -108,7 +113,7 @@ public class DiagnosticMessageModuleTest {
                                                                            0x00));
 
         doReturn(Stream.of(packet.getPacket(), packet.getPacket(), packet.getPacket())).when(j1939)
-                                                                                       .read(anyLong(), any());
+                                                                                       .read(anyLong(), any(), any());
 
         TestResultsListener listener = new TestResultsListener();
 
@@ -127,12 +132,30 @@ public class DiagnosticMessageModuleTest {
 
         assertEquals(expected, listener.getResults());
         verify(j1939).read(DM1ActiveDTCsPacket.class, 3, TimeUnit.SECONDS);
-        verify(j1939).read(anyLong(), any());
+        verify(j1939).read(anyLong(), any(), any());
+    }
+
+    @Test
+    public void testReadDM1ExpectsResponders() throws BusException {
+        doReturn(Stream.empty(), Stream.empty()).when(j1939).read(anyLong(), any(), any());
+
+        ArgumentCaptor<BroadcastCollector> collector = ArgumentCaptor.forClass(BroadcastCollector.class);
+        instance.readDM1(NOOP);
+        verify(j1939).read(eq(DM1ActiveDTCsPacket.class), eq(3L), eq(TimeUnit.SECONDS), collector.capture());
+        assertFalse(collector.getValue().hasExpected());
+
+        j1939.setExpectedResponders(() -> List.of(0x00, 0x17));
+        instance.readDM1(NOOP);
+        verify(j1939, times(2)).read(eq(DM1ActiveDTCsPacket.class),
+                                     eq(3L),
+                                     eq(TimeUnit.SECONDS),
+                                     collector.capture());
+        assertTrue(collector.getValue().hasExpected());
     }
 
     @Test
     public void testReadDM1WithEmptyResponse() throws BusException {
-        doReturn(Stream.empty()).when(j1939).read(anyLong(), any());
+        doReturn(Stream.empty()).when(j1939).read(anyLong(), any(), any());
 
         TestResultsListener listener = new TestResultsListener();
 
@@ -142,7 +165,7 @@ public class DiagnosticMessageModuleTest {
 
         assertEquals(expected, listener.getResults());
         verify(j1939).read(DM1ActiveDTCsPacket.class, 3, TimeUnit.SECONDS);
-        verify(j1939).read(anyLong(), any());
+        verify(j1939).read(anyLong(), any(), any());
     }
 
     @Test
@@ -189,7 +212,7 @@ public class DiagnosticMessageModuleTest {
                            packet2.getPacket(),
                            packet1.getPacket(),
                            packet2.getPacket())).when(j1939)
-                                                .read(anyLong(), any());
+                                                .read(anyLong(), any(), any());
 
         TestResultsListener listener = new TestResultsListener();
 
@@ -214,7 +237,7 @@ public class DiagnosticMessageModuleTest {
                 + NL;
         assertEquals(expected, listener.getResults());
         verify(j1939).read(DM1ActiveDTCsPacket.class, 3, TimeUnit.SECONDS);
-        verify(j1939).read(anyLong(), any());
+        verify(j1939).read(anyLong(), any(), any());
     }
 
     @Test
@@ -238,7 +261,7 @@ public class DiagnosticMessageModuleTest {
                                                                               0xFE,
                                                                               0x00));
 
-        doReturn(Stream.of(packet1.getPacket())).when(j1939).read(anyLong(), any());
+        doReturn(Stream.of(packet1.getPacket())).when(j1939).read(anyLong(), any(), any());
 
         String expected = "" + NL;
         expected += "10:15:30.0000 Global DM11 Request" + NL;
@@ -252,7 +275,7 @@ public class DiagnosticMessageModuleTest {
         assertEquals(expected, listener.getResults());
 
         verify(j1939).createRequestPacket(pgn, GLOBAL_ADDR);
-        verify(j1939).read(anyLong(), any());
+        verify(j1939).read(anyLong(), any(), any());
     }
 
     @Test
@@ -276,7 +299,7 @@ public class DiagnosticMessageModuleTest {
                                                                               0xFE,
                                                                               0x00));
 
-        doReturn(Stream.of(packet1.getPacket())).when(j1939).read(anyLong(), any());
+        doReturn(Stream.of(packet1.getPacket())).when(j1939).read(anyLong(), any(), any());
 
         String expected = "" + NL;
         expected += "10:15:30.0000 Destination Specific DM11 Request to Engine #1 (0)" + NL;
@@ -290,7 +313,7 @@ public class DiagnosticMessageModuleTest {
         assertEquals(expected, listener.getResults());
 
         verify(j1939).createRequestPacket(pgn, 0);
-        verify(j1939).read(anyLong(), any());
+        verify(j1939).read(anyLong(), any(), any());
     }
 
     @Test
@@ -312,7 +335,7 @@ public class DiagnosticMessageModuleTest {
                                                                                           0x00,
                                                                                           0x00,
                                                                                           0x00));
-        doReturn(Stream.of(packet1.getPacket())).when(j1939).read(anyLong(), any());
+        doReturn(Stream.of(packet1.getPacket())).when(j1939).read(anyLong(), any(), any());
 
         String expected = "" + NL;
         expected += "10:15:30.0000 Destination Specific DM12 Request to Engine #1 (0)" + NL;
@@ -327,7 +350,7 @@ public class DiagnosticMessageModuleTest {
         assertEquals(expected, listener.getResults());
 
         verify(j1939).createRequestPacket(pgn, 0x00);
-        verify(j1939).read(anyLong(), any());
+        verify(j1939).read(anyLong(), any(), any());
     }
 
     @Test
@@ -354,7 +377,7 @@ public class DiagnosticMessageModuleTest {
                                                                                           0x10,
                                                                                           0x04,
                                                                                           0x00));
-        doReturn(Stream.of(packet1.getPacket())).when(j1939).read(anyLong(), any());
+        doReturn(Stream.of(packet1.getPacket())).when(j1939).read(anyLong(), any(), any());
 
         String expected = "" + NL;
         expected += "10:15:30.0000 Destination Specific DM12 Request to Engine #1 (0)" + NL;
@@ -373,7 +396,7 @@ public class DiagnosticMessageModuleTest {
         assertEquals(expected, listener.getResults());
 
         verify(j1939).createRequestPacket(pgn, 0x00);
-        verify(j1939).read(anyLong(), any());
+        verify(j1939).read(anyLong(), any(), any());
     }
 
     @Test
@@ -383,7 +406,7 @@ public class DiagnosticMessageModuleTest {
         Packet requestPacket = Packet.create(REQUEST_PGN | 0x17, BUS_ADDR, true, pgn, pgn >> 8, pgn >> 16);
         doReturn(requestPacket).when(j1939).createRequestPacket(pgn, 0x17);
 
-        doReturn(Stream.empty(), Stream.empty(), Stream.empty()).when(j1939).read(anyLong(), any());
+        doReturn(Stream.empty(), Stream.empty(), Stream.empty()).when(j1939).read(anyLong(), any(), any());
 
         String expected = "" + NL;
         expected += "10:15:30.0000 Destination Specific DM12 Request to Instrument Cluster #1 (23)" + NL;
@@ -396,7 +419,7 @@ public class DiagnosticMessageModuleTest {
         assertEquals(expected, listener.getResults());
 
         verify(j1939).createRequestPacket(pgn, 0x17);
-        verify(j1939).read(anyLong(), any());
+        verify(j1939).read(anyLong(), any(), any());
     }
 
     @Test
@@ -440,6 +463,7 @@ public class DiagnosticMessageModuleTest {
         TestResultsListener listener = new TestResultsListener();
         doReturn(Stream.of(packet1.getPacket(), packet2.getPacket(), packet3.getPacket())).when(j1939)
                                                                                           .read(anyLong(),
+                                                                                                any(),
                                                                                                 any());
 
         String expected = "" + NL;
@@ -460,7 +484,7 @@ public class DiagnosticMessageModuleTest {
         assertEquals(expected, listener.getResults());
 
         verify(j1939).createRequestPacket(pgn, GLOBAL_ADDR);
-        verify(j1939).read(anyLong(), any());
+        verify(j1939).read(anyLong(), any(), any());
     }
 
     @Test
@@ -487,7 +511,7 @@ public class DiagnosticMessageModuleTest {
                                                                                           0x04,
                                                                                           0x00));
         TestResultsListener listener = new TestResultsListener();
-        doReturn(Stream.of(packet1.getPacket())).when(j1939).read(anyLong(), any());
+        doReturn(Stream.of(packet1.getPacket())).when(j1939).read(anyLong(), any(), any());
 
         String expected = "" + NL;
         expected += "10:15:30.0000 Global DM12 Request" + NL;
@@ -507,7 +531,7 @@ public class DiagnosticMessageModuleTest {
         assertEquals(expected, listener.getResults());
 
         verify(j1939).createRequestPacket(pgn, GLOBAL_ADDR);
-        verify(j1939).read(anyLong(), any());
+        verify(j1939).read(anyLong(), any(), any());
     }
 
     @Test
@@ -515,7 +539,7 @@ public class DiagnosticMessageModuleTest {
         final int pgn = DM12MILOnEmissionDTCPacket.PGN;
 
         TestResultsListener listener = new TestResultsListener();
-        doReturn(Stream.empty(), Stream.empty(), Stream.empty()).when(j1939).read(anyLong(), any());
+        doReturn(Stream.empty(), Stream.empty(), Stream.empty()).when(j1939).read(anyLong(), any(), any());
 
         String expected = "" + NL;
         expected += "10:15:30.0000 Global DM12 Request" + NL;
@@ -526,7 +550,7 @@ public class DiagnosticMessageModuleTest {
         assertEquals(expected, listener.getResults());
 
         verify(j1939).createRequestPacket(pgn, GLOBAL_ADDR);
-        verify(j1939).read(anyLong(), any());
+        verify(j1939).read(anyLong(), any(), any());
     }
 
     @Test
@@ -535,7 +559,7 @@ public class DiagnosticMessageModuleTest {
         Packet requestPacket = Packet.create(REQUEST_PGN, BUS_ADDR, true, pgn, pgn >> 8, pgn >> 16);
         doReturn(requestPacket).when(j1939).createRequestPacket(pgn, 0x00);
 
-        doReturn(Stream.empty()).when(j1939).read(anyLong(), any());
+        doReturn(Stream.empty()).when(j1939).read(anyLong(), any(), any());
 
         String expected = NL;
         expected += "10:15:30.0000 Destination Specific DM21 Request to Engine #1 (0)" + NL;
@@ -550,7 +574,7 @@ public class DiagnosticMessageModuleTest {
         assertEquals("", listener.getMessages());
 
         verify(j1939).createRequestPacket(pgn, 0x00);
-        verify(j1939).read(anyLong(), any());
+        verify(j1939).read(anyLong(), any(), any());
     }
 
     @Test
@@ -562,7 +586,7 @@ public class DiagnosticMessageModuleTest {
         Packet packet = Packet.create(pgn | BUS_ADDR, 0, 0x10, 0x27, 0x20, 0x4E, 0x30, 0x75, 0x40, 0x9C);
         DM21DiagnosticReadinessPacket packet1 = new DM21DiagnosticReadinessPacket(packet);
 
-        doReturn(Stream.of(packet1.getPacket())).when(j1939).read(anyLong(), any());
+        doReturn(Stream.of(packet1.getPacket())).when(j1939).read(anyLong(), any(), any());
 
         TestResultsListener listener = new TestResultsListener();
         BusResult<DM21DiagnosticReadinessPacket> result = new BusResult<>(false, packet1);
@@ -582,7 +606,7 @@ public class DiagnosticMessageModuleTest {
         assertEquals("", listener.getMessages());
 
         verify(j1939).createRequestPacket(pgn, 0x00);
-        verify(j1939).read(anyLong(), any());
+        verify(j1939).read(anyLong(), any(), any());
     }
 
     @Test
@@ -592,7 +616,7 @@ public class DiagnosticMessageModuleTest {
         Packet packet = Packet.create(pgn | BUS_ADDR, 0, 0x10, 0x27, 0x20, 0x4E, 0x30, 0x75, 0x40, 0x9C);
         DM21DiagnosticReadinessPacket packet1 = new DM21DiagnosticReadinessPacket(packet);
 
-        doReturn(Stream.of(packet1.getPacket())).when(j1939).read(anyLong(), any());
+        doReturn(Stream.of(packet1.getPacket())).when(j1939).read(anyLong(), any(), any());
 
         TestResultsListener listener = new TestResultsListener();
         RequestResult<DM21DiagnosticReadinessPacket> result = new RequestResult<>(false,
@@ -614,7 +638,7 @@ public class DiagnosticMessageModuleTest {
         assertEquals("", listener.getMessages());
 
         verify(j1939).createRequestPacket(pgn, GLOBAL_ADDR);
-        verify(j1939).read(anyLong(), any());
+        verify(j1939).read(anyLong(), any(), any());
     }
 
     @Test
@@ -626,7 +650,7 @@ public class DiagnosticMessageModuleTest {
         Packet packet = Packet.create(pgn | BUS_ADDR, 0, 0x10, 0x27, 0x20, 0x4E, 0x30, 0x75, 0x40, 0x9C);
         DM21DiagnosticReadinessPacket packet1 = new DM21DiagnosticReadinessPacket(packet);
 
-        doReturn(Stream.of(packet1.getPacket())).when(j1939).read(anyLong(), any());
+        doReturn(Stream.of(packet1.getPacket())).when(j1939).read(anyLong(), any(), any());
 
         TestResultsListener listener = new TestResultsListener();
         RequestResult<DM21DiagnosticReadinessPacket> result = new RequestResult<>(false,
@@ -648,7 +672,7 @@ public class DiagnosticMessageModuleTest {
         assertEquals("", listener.getMessages());
 
         verify(j1939).createRequestPacket(pgn, GLOBAL_ADDR);
-        verify(j1939).read(anyLong(), any());
+        verify(j1939).read(anyLong(), any(), any());
     }
 
     @Test
@@ -669,7 +693,7 @@ public class DiagnosticMessageModuleTest {
                                                                                                               0x00,
                                                                                                               0x00,
                                                                                                               0x00));
-        doReturn(Stream.of(packet1.getPacket())).when(j1939).read(anyLong(), any());
+        doReturn(Stream.of(packet1.getPacket())).when(j1939).read(anyLong(), any(), any());
 
         String expected = "" + NL;
         expected += "10:15:30.0000 Destination Specific DM23 Request to Body Controller (33)" + NL;
@@ -684,7 +708,7 @@ public class DiagnosticMessageModuleTest {
         assertEquals(expected, listener.getResults());
 
         verify(j1939).createRequestPacket(pgn, 0x21);
-        verify(j1939).read(anyLong(), any());
+        verify(j1939).read(anyLong(), any(), any());
     }
 
     @Test
@@ -710,7 +734,7 @@ public class DiagnosticMessageModuleTest {
                                                                                                               0x10,
                                                                                                               0x04,
                                                                                                               0x00));
-        doReturn(Stream.of(packet1.getPacket())).when(j1939).read(anyLong(), any());
+        doReturn(Stream.of(packet1.getPacket())).when(j1939).read(anyLong(), any(), any());
 
         String expected = "" + NL;
         expected += "10:15:30.0000 Destination Specific DM23 Request to Engine #1 (0)" + NL;
@@ -728,7 +752,7 @@ public class DiagnosticMessageModuleTest {
         assertEquals(expected, listener.getResults());
 
         verify(j1939).createRequestPacket(pgn, 0x00);
-        verify(j1939).read(anyLong(), any());
+        verify(j1939).read(anyLong(), any(), any());
     }
 
     @Test
@@ -737,7 +761,7 @@ public class DiagnosticMessageModuleTest {
 
         Packet requestPacket = Packet.create(REQUEST_PGN | 0x17, BUS_ADDR, true, pgn, pgn >> 8, pgn >> 16);
         doReturn(requestPacket).when(j1939).createRequestPacket(pgn, 0x17);
-        doReturn(Stream.empty()).when(j1939).read(anyLong(), any());
+        doReturn(Stream.empty()).when(j1939).read(anyLong(), any(), any());
 
         String expected = "" + NL;
         expected += "10:15:30.0000 Destination Specific DM23 Request to Instrument Cluster #1 (23)" + NL;
@@ -750,7 +774,7 @@ public class DiagnosticMessageModuleTest {
         assertEquals(expected, listener.getResults());
 
         verify(j1939).createRequestPacket(pgn, 0x17);
-        verify(j1939).read(anyLong(), any());
+        verify(j1939).read(anyLong(), any(), any());
     }
 
     @Test
@@ -795,6 +819,7 @@ public class DiagnosticMessageModuleTest {
                                                                                                               0x00));
         doReturn(Stream.of(packet1.getPacket(), packet2.getPacket(), packet3.getPacket())).when(j1939)
                                                                                           .read(anyLong(),
+                                                                                                any(),
                                                                                                 any());
 
         String expected = "" + NL;
@@ -817,7 +842,7 @@ public class DiagnosticMessageModuleTest {
         assertEquals(expected, listener.getResults());
 
         verify(j1939).createRequestPacket(pgn, GLOBAL_ADDR);
-        verify(j1939).read(anyLong(), any());
+        verify(j1939).read(anyLong(), any(), any());
     }
 
     @Test
@@ -840,7 +865,7 @@ public class DiagnosticMessageModuleTest {
                                                                                                               0x10,
                                                                                                               0x04,
                                                                                                               0x00));
-        doReturn(Stream.of(packet1.getPacket())).when(j1939).read(anyLong(), any());
+        doReturn(Stream.of(packet1.getPacket())).when(j1939).read(anyLong(), any(), any());
 
         String expected = "" + NL;
         expected += "10:15:30.0000 Global DM23 Request" + NL;
@@ -860,7 +885,7 @@ public class DiagnosticMessageModuleTest {
         assertEquals(expected, listener.getResults());
 
         verify(j1939).createRequestPacket(pgn, GLOBAL_ADDR);
-        verify(j1939).read(anyLong(), any());
+        verify(j1939).read(anyLong(), any(), any());
     }
 
     @Test
@@ -870,7 +895,7 @@ public class DiagnosticMessageModuleTest {
         Packet requestPacket = Packet.create(REQUEST_PGN | GLOBAL_ADDR, BUS_ADDR, true, pgn, pgn >> 8, pgn >> 16);
         doReturn(requestPacket).when(j1939).createRequestPacket(pgn, GLOBAL_ADDR);
 
-        doReturn(Stream.empty(), Stream.empty(), Stream.empty()).when(j1939).read(anyLong(), any());
+        doReturn(Stream.empty(), Stream.empty(), Stream.empty()).when(j1939).read(anyLong(), any(), any());
 
         String expected = "" + NL;
         expected += "10:15:30.0000 Global DM23 Request" + NL;
@@ -883,7 +908,7 @@ public class DiagnosticMessageModuleTest {
         assertEquals("", listener.getMessages());
 
         verify(j1939).createRequestPacket(pgn, GLOBAL_ADDR);
-        verify(j1939).read(anyLong(), any());
+        verify(j1939).read(anyLong(), any(), any());
     }
 
     @Test
@@ -904,7 +929,7 @@ public class DiagnosticMessageModuleTest {
                                                                               0xFD,
                                                                               0x00));
 
-        doReturn(Stream.of(packet1.getPacket())).when(j1939).read(anyLong(), any());
+        doReturn(Stream.of(packet1.getPacket())).when(j1939).read(anyLong(), any(), any());
 
         String expected = NL;
         expected += "10:15:30.0000 Destination Specific DM25 Request to Engine #1 (0)" + NL;
@@ -920,7 +945,7 @@ public class DiagnosticMessageModuleTest {
         assertEquals("", listener.getMessages());
 
         verify(j1939).createRequestPacket(pgn, 0x00);
-        verify(j1939).read(anyLong(), any());
+        verify(j1939).read(anyLong(), any(), any());
     }
 
     @Test
@@ -929,7 +954,7 @@ public class DiagnosticMessageModuleTest {
         Packet requestPacket = Packet.create(REQUEST_PGN, BUS_ADDR, true, pgn, pgn >> 8, pgn >> 16);
         doReturn(requestPacket).when(j1939).createRequestPacket(pgn, 0x00);
 
-        doReturn(Stream.empty(), Stream.empty(), Stream.empty()).when(j1939).read(anyLong(), any());
+        doReturn(Stream.empty(), Stream.empty(), Stream.empty()).when(j1939).read(anyLong(), any(), any());
         String expected = NL;
         expected += "10:15:30.0000 Destination Specific DM25 Request to Engine #1 (0)" + NL;
         expected += "10:15:30.0000 18EA00A5 [3] B7 FD 00 (TX)" + NL;
@@ -942,7 +967,7 @@ public class DiagnosticMessageModuleTest {
         assertEquals("", listener.getMessages());
 
         verify(j1939).createRequestPacket(pgn, 0x00);
-        verify(j1939).read(anyLong(), any());
+        verify(j1939).read(anyLong(), any(), any());
     }
 
     @Test
@@ -965,7 +990,7 @@ public class DiagnosticMessageModuleTest {
                 0xD0, 0x07, 0x00, 0x7D, 0x04, 0xFF, 0xFA };
 
         DM25ExpandedFreezeFrame packet = new DM25ExpandedFreezeFrame(Packet.create(pgn, 0x00, realData));
-        doReturn(Stream.of(packet.getPacket())).when(j1939).read(anyLong(), any());
+        doReturn(Stream.of(packet.getPacket())).when(j1939).read(anyLong(), any(), any());
 
         String expected = NL;
         expected += "10:15:30.0000 Destination Specific DM25 Request to Engine #1 (0)" + NL;
@@ -990,7 +1015,7 @@ public class DiagnosticMessageModuleTest {
         assertEquals("", listener.getMessages());
 
         verify(j1939).createRequestPacket(pgn, 0x00);
-        verify(j1939).read(anyLong(), any());
+        verify(j1939).read(anyLong(), any(), any());
     }
 
     @Test
@@ -1011,7 +1036,7 @@ public class DiagnosticMessageModuleTest {
                                                                                                         0,
                                                                                                         0,
                                                                                                         0));
-        doReturn(Stream.of(packet1.getPacket())).when(j1939).read(anyLong(), any());
+        doReturn(Stream.of(packet1.getPacket())).when(j1939).read(anyLong(), any(), any());
 
         String expected = "" + NL;
         expected += "10:15:30.0000 Destination Specific DM26 Request to Body Controller (33)" + NL;
@@ -1027,7 +1052,7 @@ public class DiagnosticMessageModuleTest {
         assertEquals(expected, listener.getResults());
 
         verify(j1939).createRequestPacket(pgn, 0x21);
-        verify(j1939).read(anyLong(), any());
+        verify(j1939).read(anyLong(), any(), any());
     }
 
     @Test
@@ -1054,7 +1079,7 @@ public class DiagnosticMessageModuleTest {
                                                                                                         0x04,
                                                                                                         0x00));
 
-        doReturn(Stream.of(packet1.getPacket())).when(j1939).read(anyLong(), any());
+        doReturn(Stream.of(packet1.getPacket())).when(j1939).read(anyLong(), any(), any());
 
         String expected = "" + NL;
         expected += "10:15:30.0000 Destination Specific DM26 Request to Engine #1 (0)" + NL;
@@ -1072,7 +1097,7 @@ public class DiagnosticMessageModuleTest {
         assertEquals("", listener.getMessages());
 
         verify(j1939).createRequestPacket(pgn, 0x00);
-        verify(j1939).read(anyLong(), any());
+        verify(j1939).read(anyLong(), any(), any());
     }
 
     @Test
@@ -1082,7 +1107,7 @@ public class DiagnosticMessageModuleTest {
         Packet requestPacket = Packet.create(REQUEST_PGN | 0x17, BUS_ADDR, true, pgn, pgn >> 8, pgn >> 16);
         doReturn(requestPacket).when(j1939).createRequestPacket(pgn, 0x17);
 
-        doReturn(Stream.empty(), Stream.empty(), Stream.empty(), Stream.empty()).when(j1939).read(anyLong(), any());
+        doReturn(Stream.empty(), Stream.empty(), Stream.empty(), Stream.empty()).when(j1939).read(anyLong(), any(), any());
 
         String expected = "" + NL;
         expected += "10:15:30.0000 Destination Specific DM26 Request to Instrument Cluster #1 (23)" + NL;
@@ -1098,7 +1123,7 @@ public class DiagnosticMessageModuleTest {
         assertEquals("", listener.getMessages());
 
         verify(j1939).createRequestPacket(pgn, 0x17);
-        verify(j1939).read(anyLong(), any());
+        verify(j1939).read(anyLong(), any(), any());
     }
 
     @Test
@@ -1143,6 +1168,7 @@ public class DiagnosticMessageModuleTest {
                                                                                                         0));
         doReturn(Stream.of(packet1.getPacket(), packet2.getPacket(), packet3.getPacket())).when(j1939)
                                                                                           .read(anyLong(),
+                                                                                                any(),
                                                                                                 any());
 
         String expected = "" + NL;
@@ -1167,7 +1193,7 @@ public class DiagnosticMessageModuleTest {
         assertEquals("", listener.getMessages());
 
         verify(j1939).createRequestPacket(pgn, GLOBAL_ADDR);
-        verify(j1939).read(anyLong(), any());
+        verify(j1939).read(anyLong(), any(), any());
     }
 
     @Test
@@ -1191,6 +1217,7 @@ public class DiagnosticMessageModuleTest {
         doReturn(Stream.of(packet1.getPacket()), Stream.of(packet1.getPacket()), Stream.of(packet1.getPacket())).when(
                                                                                                                       j1939)
                                                                                                                 .read(anyLong(),
+                                                                                                                      any(),
                                                                                                                       any());
 
         String expected = "" + NL;
@@ -1206,7 +1233,7 @@ public class DiagnosticMessageModuleTest {
         assertEquals("", listener.getMessages());
 
         verify(j1939).createRequestPacket(pgn, GLOBAL_ADDR);
-        verify(j1939).read(anyLong(), any());
+        verify(j1939).read(anyLong(), any(), any());
     }
 
     @Test
@@ -1215,7 +1242,7 @@ public class DiagnosticMessageModuleTest {
 
         Packet requestPacket = Packet.create(REQUEST_PGN | GLOBAL_ADDR, BUS_ADDR, true, pgn, pgn >> 8, pgn >> 16);
         doReturn(requestPacket).when(j1939).createRequestPacket(pgn, 0xFF);
-        doReturn(Stream.empty(), Stream.empty(), Stream.empty()).when(j1939).read(anyLong(), any());
+        doReturn(Stream.empty(), Stream.empty(), Stream.empty()).when(j1939).read(anyLong(), any(), any());
         String expected = "" + NL;
         expected += "10:15:30.0000 Global DM26 Request" + NL;
         expected += "10:15:30.0000 18EAFFA5 [3] B8 FD 00 (TX)" + NL;
@@ -1227,7 +1254,7 @@ public class DiagnosticMessageModuleTest {
         assertEquals("", listener.getMessages());
 
         verify(j1939).createRequestPacket(pgn, 0xFF);
-        verify(j1939).read(anyLong(), any());
+        verify(j1939).read(anyLong(), any(), any());
     }
 
     @Test
@@ -1248,7 +1275,7 @@ public class DiagnosticMessageModuleTest {
                                                                                       0x00,
                                                                                       0x00,
                                                                                       0x00));
-        doReturn(Stream.of(packet1.getPacket())).when(j1939).read(anyLong(), any());
+        doReturn(Stream.of(packet1.getPacket())).when(j1939).read(anyLong(), any(), any());
 
         String expected = "" + NL;
         expected += "10:15:30.0000 Destination Specific DM27 Request to Engine #1 (0)" + NL;
@@ -1264,7 +1291,7 @@ public class DiagnosticMessageModuleTest {
         assertEquals("", listener.getMessages());
 
         verify(j1939).createRequestPacket(pgn, 0x00);
-        verify(j1939).read(anyLong(), any());
+        verify(j1939).read(anyLong(), any(), any());
     }
 
     @Test
@@ -1290,7 +1317,7 @@ public class DiagnosticMessageModuleTest {
                                                                                       0x10,
                                                                                       0x04,
                                                                                       0x00));
-        doReturn(Stream.of(packet1.getPacket())).when(j1939).read(anyLong(), any());
+        doReturn(Stream.of(packet1.getPacket())).when(j1939).read(anyLong(), any(), any());
 
         String expected = "" + NL;
         expected += "10:15:30.0000 Destination Specific DM27 Request to Engine #1 (0)" + NL;
@@ -1310,7 +1337,7 @@ public class DiagnosticMessageModuleTest {
         assertEquals("", listener.getMessages());
 
         verify(j1939).createRequestPacket(pgn, 0x00);
-        verify(j1939).read(anyLong(), any());
+        verify(j1939).read(anyLong(), any(), any());
     }
 
     @Test
@@ -1320,7 +1347,7 @@ public class DiagnosticMessageModuleTest {
         Packet requestPacket = Packet.create(REQUEST_PGN | 0x17, BUS_ADDR, true, pgn, pgn >> 8, pgn >> 16);
         doReturn(requestPacket).when(j1939).createRequestPacket(pgn, 0x17);
 
-        doReturn(Stream.empty()).when(j1939).read(anyLong(), any());
+        doReturn(Stream.empty()).when(j1939).read(anyLong(), any(), any());
 
         String expected = "" + NL;
         expected += "10:15:30.0000 Destination Specific DM27 Request to Instrument Cluster #1 (23)" + NL;
@@ -1334,7 +1361,7 @@ public class DiagnosticMessageModuleTest {
         assertEquals("", listener.getMessages());
 
         verify(j1939).createRequestPacket(pgn, 0x17);
-        verify(j1939).read(anyLong(), any());
+        verify(j1939).read(anyLong(), any(), any());
     }
 
     @Test
@@ -1376,6 +1403,7 @@ public class DiagnosticMessageModuleTest {
                                                                                       0x00));
         doReturn(Stream.of(packet1.getPacket(), packet2.getPacket(), packet3.getPacket())).when(j1939)
                                                                                           .read(anyLong(),
+                                                                                                any(),
                                                                                                 any());
 
         String expected = "" + NL;
@@ -1403,7 +1431,7 @@ public class DiagnosticMessageModuleTest {
         assertEquals(expected, listener.getResults());
 
         verify(j1939).createRequestPacket(pgn, GLOBAL_ADDR);
-        verify(j1939).read(anyLong(), any());
+        verify(j1939).read(anyLong(), any(), any());
     }
 
     @Test
@@ -1429,7 +1457,7 @@ public class DiagnosticMessageModuleTest {
                                                                                       0x10,
                                                                                       0x04,
                                                                                       0x00));
-        doReturn(Stream.of(packet1.getPacket())).when(j1939).read(anyLong(), any());
+        doReturn(Stream.of(packet1.getPacket())).when(j1939).read(anyLong(), any(), any());
 
         String expected = "" + NL;
         expected += "10:15:30.0000 Global DM27 Request" + NL;
@@ -1450,7 +1478,7 @@ public class DiagnosticMessageModuleTest {
         assertEquals(expected, listener.getResults());
 
         verify(j1939).createRequestPacket(pgn, GLOBAL_ADDR);
-        verify(j1939).read(anyLong(), any());
+        verify(j1939).read(anyLong(), any(), any());
     }
 
     @Test
@@ -1460,7 +1488,7 @@ public class DiagnosticMessageModuleTest {
         Packet requestPacket = Packet.create(REQUEST_PGN | GLOBAL_ADDR, BUS_ADDR, true, pgn, pgn >> 8, pgn >> 16);
         doReturn(requestPacket).when(j1939).createRequestPacket(pgn, GLOBAL_ADDR);
 
-        doReturn(Stream.empty(), Stream.empty(), Stream.empty()).when(j1939).read(anyLong(), any());
+        doReturn(Stream.empty(), Stream.empty(), Stream.empty()).when(j1939).read(anyLong(), any(), any());
 
         String expected = "" + NL;
         expected += "10:15:30.0000 Global DM27 Request" + NL;
@@ -1472,7 +1500,7 @@ public class DiagnosticMessageModuleTest {
         assertEquals(expected, listener.getResults());
 
         verify(j1939).createRequestPacket(pgn, GLOBAL_ADDR);
-        verify(j1939).read(anyLong(), any());
+        verify(j1939).read(anyLong(), any(), any());
     }
 
     @Test
@@ -1499,7 +1527,7 @@ public class DiagnosticMessageModuleTest {
                                                                                                   0x04,
                                                                                                   0x00));
 
-        doReturn(Stream.of(packet1.getPacket())).when(j1939).read(anyLong(), any());
+        doReturn(Stream.of(packet1.getPacket())).when(j1939).read(anyLong(), any(), any());
 
         String expected = "" + NL;
         expected += "10:15:30.0000 Global DM28 Request" + NL;
@@ -1520,7 +1548,7 @@ public class DiagnosticMessageModuleTest {
         assertEquals("", listener.getMessages());
 
         verify(j1939).createRequestPacket(pgn, GLOBAL_ADDR);
-        verify(j1939).read(anyLong(), any());
+        verify(j1939).read(anyLong(), any(), any());
     }
 
     @Test
@@ -1535,7 +1563,7 @@ public class DiagnosticMessageModuleTest {
         expected += "10:15:30.0000 Timeout - No Response"
                 + NL;
 
-        doReturn(Stream.empty(), Stream.empty(), Stream.empty()).when(j1939).read(anyLong(), any());
+        doReturn(Stream.empty(), Stream.empty(), Stream.empty()).when(j1939).read(anyLong(), any(), any());
 
         TestResultsListener listener = new TestResultsListener();
         assertEquals(BusResult.empty(), instance.requestDM29(listener, 0x00));
@@ -1543,7 +1571,7 @@ public class DiagnosticMessageModuleTest {
         assertEquals("", listener.getMessages());
 
         verify(j1939).createRequestPacket(pgn, 0x00);
-        verify(j1939).read(anyLong(), any());
+        verify(j1939).read(anyLong(), any(), any());
     }
 
     @Test
@@ -1574,7 +1602,7 @@ public class DiagnosticMessageModuleTest {
                                                                 0xFF,
                                                                 0xFF,
                                                                 0xFF));
-        doReturn(Stream.of(packet1.getPacket())).when(j1939).read(anyLong(), any());
+        doReturn(Stream.of(packet1.getPacket())).when(j1939).read(anyLong(), any(), any());
 
         TestResultsListener listener = new TestResultsListener();
         BusResult<DM29DtcCounts> expectedResult = new BusResult<>(false, packet1);
@@ -1583,7 +1611,7 @@ public class DiagnosticMessageModuleTest {
         assertEquals("", listener.getMessages());
 
         verify(j1939).createRequestPacket(pgn, 0x00);
-        verify(j1939).read(anyLong(), any());
+        verify(j1939).read(anyLong(), any(), any());
     }
 
     @Test
@@ -1595,7 +1623,7 @@ public class DiagnosticMessageModuleTest {
         expected += "10:15:30.0000 18EAFFA5 [3] 00 9E 00 (TX)" + NL;
         expected += "10:15:30.0000 Timeout - No Response" + NL;
 
-        doReturn(Stream.empty(), Stream.empty(), Stream.empty()).when(j1939).read(anyLong(), any());
+        doReturn(Stream.empty(), Stream.empty(), Stream.empty()).when(j1939).read(anyLong(), any(), any());
 
         TestResultsListener listener = new TestResultsListener();
         assertEquals(RequestResult.empty(false), instance.requestDM29(listener));
@@ -1603,7 +1631,7 @@ public class DiagnosticMessageModuleTest {
         assertEquals("", listener.getMessages());
 
         verify(j1939).createRequestPacket(pgn, GLOBAL_ADDR);
-        verify(j1939).read(anyLong(), any());
+        verify(j1939).read(anyLong(), any(), any());
     }
 
     @Test
@@ -1632,7 +1660,7 @@ public class DiagnosticMessageModuleTest {
                                                                 0xFF,
                                                                 0xFF,
                                                                 0xFF));
-        doReturn(Stream.of(packet1.getPacket())).when(j1939).read(anyLong(), any());
+        doReturn(Stream.of(packet1.getPacket())).when(j1939).read(anyLong(), any(), any());
 
         TestResultsListener listener = new TestResultsListener();
         RequestResult<DM29DtcCounts> expectedResult = new RequestResult<>(false,
@@ -1643,7 +1671,7 @@ public class DiagnosticMessageModuleTest {
         assertEquals("", listener.getMessages());
 
         verify(j1939).createRequestPacket(pgn, GLOBAL_ADDR);
-        verify(j1939).read(anyLong(), any());
+        verify(j1939).read(anyLong(), any(), any());
     }
 
     @Test
@@ -1653,7 +1681,7 @@ public class DiagnosticMessageModuleTest {
         Packet requestPacket = Packet.create(REQUEST_PGN | 0x17, BUS_ADDR, true, pgn, pgn >> 8, pgn >> 16);
         doReturn(requestPacket).when(j1939).createRequestPacket(pgn, 0x17);
 
-        doReturn(Stream.empty(), Stream.empty(), Stream.empty(), Stream.empty()).when(j1939).read(anyLong(), any());
+        doReturn(Stream.empty(), Stream.empty(), Stream.empty(), Stream.empty()).when(j1939).read(anyLong(), any(), any());
 
         String expected = "" + NL;
         expected += "10:15:30.0000 Destination Specific DM2 Request to Instrument Cluster #1 (23)" + NL;
@@ -1666,7 +1694,7 @@ public class DiagnosticMessageModuleTest {
         assertEquals("", listener.getMessages());
 
         verify(j1939).createRequestPacket(pgn, 0x17);
-        verify(j1939).read(anyLong(), any());
+        verify(j1939).read(anyLong(), any(), any());
     }
 
     @Test
@@ -1687,7 +1715,7 @@ public class DiagnosticMessageModuleTest {
                                                                                   0x66,
                                                                                   0x77,
                                                                                   0x88));
-        doReturn(Stream.of(packet1.getPacket())).when(j1939).read(anyLong(), any());
+        doReturn(Stream.of(packet1.getPacket())).when(j1939).read(anyLong(), any(), any());
 
         String expected = "" + NL;
         expected += "10:15:30.0000 Destination Specific DM2 Request to Engine #2 (1)" + NL;
@@ -1705,7 +1733,7 @@ public class DiagnosticMessageModuleTest {
         assertEquals("", listener.getMessages());
 
         verify(j1939).createRequestPacket(pgn, 0x01);
-        verify(j1939).read(anyLong(), any());
+        verify(j1939).read(anyLong(), any(), any());
     }
 
     @Test
@@ -1750,6 +1778,7 @@ public class DiagnosticMessageModuleTest {
                                                                                   0x80));
         doReturn(Stream.of(packet1.getPacket(), packet2.getPacket(), packet3.getPacket())).when(j1939)
                                                                                           .read(anyLong(),
+                                                                                                any(),
                                                                                                 any());
 
         String expected = "" + NL;
@@ -1774,7 +1803,7 @@ public class DiagnosticMessageModuleTest {
         assertEquals(expected, listener.getResults());
 
         verify(j1939).createRequestPacket(pgn, GLOBAL_ADDR);
-        verify(j1939).read(anyLong(), any());
+        verify(j1939).read(anyLong(), any(), any());
     }
 
     @Test
@@ -1800,7 +1829,7 @@ public class DiagnosticMessageModuleTest {
                                                                                   0x10,
                                                                                   0x04,
                                                                                   0x00));
-        doReturn(Stream.of(packet1.getPacket())).when(j1939).read(anyLong(), any());
+        doReturn(Stream.of(packet1.getPacket())).when(j1939).read(anyLong(), any(), any());
 
         String expected = "" + NL;
         expected += "10:15:30.0000 Global DM2 Request" + NL;
@@ -1822,7 +1851,7 @@ public class DiagnosticMessageModuleTest {
         assertEquals("", listener.getMessages());
 
         verify(j1939).createRequestPacket(pgn, 0xFF);
-        verify(j1939).read(anyLong(), any());
+        verify(j1939).read(anyLong(), any(), any());
     }
 
     @Test
@@ -1831,7 +1860,7 @@ public class DiagnosticMessageModuleTest {
 
         Packet requestPacket = Packet.create(REQUEST_PGN | GLOBAL_ADDR, BUS_ADDR, true, pgn, pgn >> 8, pgn >> 16);
         doReturn(requestPacket).when(j1939).createRequestPacket(pgn, GLOBAL_ADDR);
-        doReturn(Stream.empty(), Stream.empty(), Stream.empty()).when(j1939).read(anyLong(), any());
+        doReturn(Stream.empty(), Stream.empty(), Stream.empty()).when(j1939).read(anyLong(), any(), any());
 
         String expected = "" + NL;
         expected += "10:15:30.0000 Global DM2 Request" + NL;
@@ -1844,7 +1873,7 @@ public class DiagnosticMessageModuleTest {
         assertEquals("", listener.getMessages());
 
         verify(j1939).createRequestPacket(pgn, GLOBAL_ADDR);
-        verify(j1939).read(anyLong(), any());
+        verify(j1939).read(anyLong(), any(), any());
     }
 
     @Test
@@ -1858,7 +1887,7 @@ public class DiagnosticMessageModuleTest {
         expected += "10:15:30.0000 18EA00A5 [3] 00 A3 00 (TX)" + NL;
         expected += "10:15:30.0000 Timeout - No Response" + NL;
 
-        doReturn(Stream.empty(), Stream.empty(), Stream.empty()).when(j1939).read(anyLong(), any());
+        doReturn(Stream.empty(), Stream.empty(), Stream.empty()).when(j1939).read(anyLong(), any(), any());
 
         TestResultsListener listener = new TestResultsListener();
         RequestResult<DM31DtcToLampAssociation> expectedResult = new RequestResult<>(false,
@@ -1869,7 +1898,7 @@ public class DiagnosticMessageModuleTest {
         assertEquals("", listener.getMessages());
 
         verify(j1939).createRequestPacket(pgn, 0x00);
-        verify(j1939).read(anyLong(), any());
+        verify(j1939).read(anyLong(), any(), any());
     }
 
     @Test
@@ -1919,7 +1948,7 @@ public class DiagnosticMessageModuleTest {
                                                                                             // Count
                                                                                       0xAA, // Lamp Status/Support
                                                                                       0x55));// Lamp Status/State
-        doReturn(Stream.of(packet1.getPacket())).when(j1939).read(anyLong(), any());
+        doReturn(Stream.of(packet1.getPacket())).when(j1939).read(anyLong(), any(), any());
 
         TestResultsListener listener = new TestResultsListener();
         RequestResult<DM31DtcToLampAssociation> expectedResult = new RequestResult<>(false,
@@ -1930,7 +1959,7 @@ public class DiagnosticMessageModuleTest {
         assertEquals("", listener.getMessages());
 
         verify(j1939).createRequestPacket(pgn, 0x21);
-        verify(j1939).read(anyLong(), any());
+        verify(j1939).read(anyLong(), any(), any());
     }
 
     @Test
@@ -1942,7 +1971,7 @@ public class DiagnosticMessageModuleTest {
         expected += "10:15:30.0000 18EAFFA5 [3] 00 A3 00 (TX)" + NL;
         expected += "10:15:30.0000 Timeout - No Response" + NL;
 
-        doReturn(Stream.empty(), Stream.empty(), Stream.empty()).when(j1939).read(anyLong(), any());
+        doReturn(Stream.empty(), Stream.empty(), Stream.empty()).when(j1939).read(anyLong(), any(), any());
 
         TestResultsListener listener = new TestResultsListener();
         assertEquals(RequestResult.empty(false), instance.requestDM31(listener));
@@ -1950,7 +1979,7 @@ public class DiagnosticMessageModuleTest {
         assertEquals("", listener.getMessages());
 
         verify(j1939).createRequestPacket(pgn, GLOBAL_ADDR);
-        verify(j1939).read(anyLong(), any());
+        verify(j1939).read(anyLong(), any(), any());
     }
 
     @Test
@@ -1995,7 +2024,7 @@ public class DiagnosticMessageModuleTest {
                                                                                       0x00,
                                                                                       0xAA,
                                                                                       0x55));
-        doReturn(Stream.of(packet1.getPacket())).when(j1939).read(anyLong(), any());
+        doReturn(Stream.of(packet1.getPacket())).when(j1939).read(anyLong(), any(), any());
 
         TestResultsListener listener = new TestResultsListener();
         RequestResult<DM31DtcToLampAssociation> expectedResult = new RequestResult<>(false,
@@ -2006,7 +2035,7 @@ public class DiagnosticMessageModuleTest {
         assertEquals("", listener.getMessages());
 
         verify(j1939).createRequestPacket(pgn, GLOBAL_ADDR);
-        verify(j1939).read(anyLong(), any());
+        verify(j1939).read(anyLong(), any(), any());
     }
 
     @Test
@@ -2024,7 +2053,7 @@ public class DiagnosticMessageModuleTest {
                 (byte) 0xFF };
         var packet1 = new DM33EmissionIncreasingAECDActiveTime(Packet.create(pgn, 0x00, data));
 
-        doReturn(Stream.of(packet1.getPacket())).when(j1939).read(anyLong(), any());
+        doReturn(Stream.of(packet1.getPacket())).when(j1939).read(anyLong(), any(), any());
 
         TestResultsListener listener = new TestResultsListener();
         assertEquals(new RequestResult<>(false, packet1), instance.requestDM33(listener));
@@ -2046,7 +2075,7 @@ public class DiagnosticMessageModuleTest {
         assertEquals("", listener.getMessages());
 
         verify(j1939).createRequestPacket(pgn, GLOBAL_ADDR);
-        verify(j1939).read(anyLong(), any());
+        verify(j1939).read(anyLong(), any(), any());
     }
 
     @Test
@@ -2056,7 +2085,7 @@ public class DiagnosticMessageModuleTest {
         Packet requestPacket = Packet.create(REQUEST_PGN, BUS_ADDR, true, pgn, pgn >> 8, pgn >> 16);
         doReturn(requestPacket).when(j1939).createRequestPacket(pgn, 0x00);
 
-        doReturn(Stream.empty(), Stream.empty(), Stream.empty()).when(j1939).read(anyLong(), any());
+        doReturn(Stream.empty(), Stream.empty(), Stream.empty()).when(j1939).read(anyLong(), any(), any());
 
         String expected = "" + NL;
         expected += "10:15:30.0000 Destination Specific DM33 Request to Engine #1 (0)" + NL;
@@ -2070,7 +2099,7 @@ public class DiagnosticMessageModuleTest {
         assertEquals("", listener.getMessages());
 
         verify(j1939).createRequestPacket(pgn, 0x00);
-        verify(j1939).read(anyLong(), any());
+        verify(j1939).read(anyLong(), any(), any());
     }
 
     @Test
@@ -2086,7 +2115,7 @@ public class DiagnosticMessageModuleTest {
                 0x04, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFE, (byte) 0xFE, (byte) 0xFE, (byte) 0xFE,
                 (byte) 0xFF };
         var packet1 = new DM33EmissionIncreasingAECDActiveTime(Packet.create(pgn, 0, data));
-        doReturn(Stream.of(packet1.getPacket())).when(j1939).read(anyLong(), any());
+        doReturn(Stream.of(packet1.getPacket())).when(j1939).read(anyLong(), any(), any());
 
         String expected = "" + NL;
         expected += "10:15:30.0000 Global DM33 Request" + NL;
@@ -2108,14 +2137,14 @@ public class DiagnosticMessageModuleTest {
         assertEquals("", listener.getMessages());
 
         verify(j1939).createRequestPacket(pgn, GLOBAL_ADDR);
-        verify(j1939).read(anyLong(), any());
+        verify(j1939).read(anyLong(), any(), any());
     }
 
     @Test
     public void testRequestDM33GlobalNoResponse() throws BusException {
         final int pgn = DM33EmissionIncreasingAECDActiveTime.PGN;
 
-        doReturn(Stream.empty(), Stream.empty(), Stream.empty()).when(j1939).read(anyLong(), any());
+        doReturn(Stream.empty(), Stream.empty(), Stream.empty()).when(j1939).read(anyLong(), any(), any());
 
         String expected = "" + NL;
         expected += "10:15:30.0000 Global DM33 Request" + NL;
@@ -2128,7 +2157,7 @@ public class DiagnosticMessageModuleTest {
         assertEquals("", listener.getMessages());
 
         verify(j1939).createRequestPacket(pgn, GLOBAL_ADDR);
-        verify(j1939).read(anyLong(), any());
+        verify(j1939).read(anyLong(), any(), any());
     }
 
     @Test
@@ -2149,7 +2178,7 @@ public class DiagnosticMessageModuleTest {
                                                                                             0x00,
                                                                                             0x00,
                                                                                             0x00));
-        doReturn(Stream.of(packet1.getPacket())).when(j1939).read(anyLong(), any());
+        doReturn(Stream.of(packet1.getPacket())).when(j1939).read(anyLong(), any(), any());
 
         String expected = "" + NL;
         expected += "10:15:30.0000 Destination Specific DM6 Request to Engine #1 (0)" + NL;
@@ -2165,7 +2194,7 @@ public class DiagnosticMessageModuleTest {
         assertEquals("", listener.getMessages());
 
         verify(j1939).createRequestPacket(pgn, 0x00);
-        verify(j1939).read(anyLong(), any());
+        verify(j1939).read(anyLong(), any(), any());
     }
 
     @Test
@@ -2191,7 +2220,7 @@ public class DiagnosticMessageModuleTest {
                                                                                             0x10,
                                                                                             0x04,
                                                                                             0x00));
-        doReturn(Stream.of(packet1.getPacket())).when(j1939).read(anyLong(), any());
+        doReturn(Stream.of(packet1.getPacket())).when(j1939).read(anyLong(), any(), any());
 
         String expected = "" + NL;
         expected += "10:15:30.0000 Destination Specific DM6 Request to Engine #1 (0)" + NL;
@@ -2212,7 +2241,7 @@ public class DiagnosticMessageModuleTest {
         assertEquals("", listener.getMessages());
 
         verify(j1939).createRequestPacket(pgn, 0x00);
-        verify(j1939).read(anyLong(), any());
+        verify(j1939).read(anyLong(), any(), any());
     }
 
     @Test
@@ -2221,7 +2250,7 @@ public class DiagnosticMessageModuleTest {
         Packet requestPacket = Packet.create(REQUEST_PGN | 0x21, BUS_ADDR, true, pgn, pgn >> 8, pgn >> 16);
         doReturn(requestPacket).when(j1939).createRequestPacket(pgn, 0x21);
 
-        doReturn(Stream.empty()).when(j1939).read(anyLong(), any());
+        doReturn(Stream.empty()).when(j1939).read(anyLong(), any(), any());
 
         String expected = "" + NL;
         expected += "10:15:30.0000 Destination Specific DM6 Request to Body Controller (33)" + NL;
@@ -2237,7 +2266,7 @@ public class DiagnosticMessageModuleTest {
         assertEquals("", listener.getMessages());
 
         verify(j1939).createRequestPacket(pgn, 0x21);
-        verify(j1939).read(anyLong(), any());
+        verify(j1939).read(anyLong(), any(), any());
     }
 
     @Test
@@ -2274,6 +2303,7 @@ public class DiagnosticMessageModuleTest {
                                                                                             0x00));
         doReturn(Stream.of(packet1.getPacket(), packet2.getPacket(), packet3.getPacket())).when(j1939)
                                                                                           .read(anyLong(),
+                                                                                                any(),
                                                                                                 any());
 
         String expected = "" + NL;
@@ -2295,7 +2325,7 @@ public class DiagnosticMessageModuleTest {
         assertEquals("", listener.getMessages());
 
         verify(j1939).createRequestPacket(pgn, GLOBAL_ADDR);
-        verify(j1939).read(anyLong(), any());
+        verify(j1939).read(anyLong(), any(), any());
     }
 
     @Test
@@ -2318,7 +2348,7 @@ public class DiagnosticMessageModuleTest {
                                                                                             0x10,
                                                                                             0x04,
                                                                                             0x00));
-        doReturn(Stream.of(packet1.getPacket())).when(j1939).read(anyLong(), any());
+        doReturn(Stream.of(packet1.getPacket())).when(j1939).read(anyLong(), any(), any());
 
         String expected = "" + NL;
         expected += "10:15:30.0000 Global DM6 Request" + NL;
@@ -2339,14 +2369,14 @@ public class DiagnosticMessageModuleTest {
         assertEquals("", listener.getMessages());
 
         verify(j1939).createRequestPacket(pgn, GLOBAL_ADDR);
-        verify(j1939).read(anyLong(), any());
+        verify(j1939).read(anyLong(), any(), any());
     }
 
     @Test
     public void testRequestDM6GlobalWithNoResponses() throws BusException {
         final int pgn = DM6PendingEmissionDTCPacket.PGN;
 
-        doReturn(Stream.empty(), Stream.empty(), Stream.empty()).when(j1939).read(anyLong(), any());
+        doReturn(Stream.empty(), Stream.empty(), Stream.empty()).when(j1939).read(anyLong(), any(), any());
 
         String expected = NL;
         expected += "10:15:30.0000 Global DM6 Request" + NL;
@@ -2359,7 +2389,7 @@ public class DiagnosticMessageModuleTest {
         assertEquals("", listener.getMessages());
 
         verify(j1939).createRequestPacket(pgn, GLOBAL_ADDR);
-        verify(j1939).read(anyLong(), any());
+        verify(j1939).read(anyLong(), any(), any());
     }
 
     @Test
@@ -128,7 +128,7 @@ public class DiagnosticReadinessModuleTest {
         Packet requestPacket = Packet.create(0xEA00 | GLOBAL_ADDR, BUS_ADDR, true, pgn, pgn >> 8, pgn >> 16);
         doReturn(requestPacket).when(j1939).createRequestPacket(pgn, GLOBAL_ADDR);
 
-        doReturn(Stream.empty(), Stream.empty(), Stream.empty()).when(j1939).read(anyLong(), any());
+        doReturn(Stream.empty(), Stream.empty(), Stream.empty()).when(j1939).read(anyLong(), any(), any());
 
         String expected = "" + NL;
         expected += "10:15:30.0000 Global DM20 Request" + NL;
@@ -138,7 +138,7 @@ public class DiagnosticReadinessModuleTest {
         assertEquals(expected, listener.getResults());
 
         verify(j1939).createRequestPacket(pgn, GLOBAL_ADDR);
-        verify(j1939).read(anyLong(), any());
+        verify(j1939).read(anyLong(), any(), any());
     }
 
     @Test
@@ -183,6 +183,7 @@ public class DiagnosticReadinessModuleTest {
                                                                                                         0x80));
         doReturn(Stream.of(packet1.getPacket(), packet2.getPacket(), packet3.getPacket())).when(j1939)
                                                                                           .read(anyLong(),
+                                                                                                any(),
                                                                                                 any());
 
         String expected = "" + NL;
@@ -214,7 +215,7 @@ public class DiagnosticReadinessModuleTest {
         assertEquals(expected, listener.getResults());
 
         verify(j1939).createRequestPacket(pgn, 0xFF);
-        verify(j1939).read(anyLong(), any());
+        verify(j1939).read(anyLong(), any(), any());
     }
 
     @Test
@@ -259,6 +260,7 @@ public class DiagnosticReadinessModuleTest {
                                                                                                         0x80));
         doReturn(Stream.of(packet1.getPacket(), packet2.getPacket(), packet3.getPacket())).when(j1939)
                                                                                           .read(anyLong(),
+                                                                                                any(),
                                                                                                 any());
 
         String expected = "" + NL;
@@ -289,7 +291,7 @@ public class DiagnosticReadinessModuleTest {
         assertEquals(expected, listener.getResults());
 
         verify(j1939).createRequestPacket(pgn, GLOBAL_ADDR);
-        verify(j1939).read(anyLong(), any());
+        verify(j1939).read(anyLong(), any(), any());
     }
 
     @Test
@@ -299,7 +301,7 @@ public class DiagnosticReadinessModuleTest {
         Packet requestPacket = Packet.create(0xEA00 | 0x17, BUS_ADDR, true, pgn, pgn >> 8, pgn >> 16);
         doReturn(requestPacket).when(j1939).createRequestPacket(pgn, 0x17);
 
-        doReturn(Stream.empty(), Stream.empty(), Stream.empty(), Stream.empty()).when(j1939).read(anyLong(), any());
+        doReturn(Stream.empty(), Stream.empty(), Stream.empty(), Stream.empty()).when(j1939).read(anyLong(), any(), any());
 
         String expected = "" + NL;
         expected += "10:15:30.0000 Destination Specific DM21 Request to Instrument Cluster #1 (23)" + NL;
@@ -310,7 +312,7 @@ public class DiagnosticReadinessModuleTest {
         assertEquals(expected, listener.getResults());
 
         verify(j1939).createRequestPacket(pgn, 0x17);
-        verify(j1939).read(anyLong(), any());
+        verify(j1939).read(anyLong(), any(), any());
     }
 
     @Test
@@ -331,7 +333,7 @@ public class DiagnosticReadinessModuleTest {
                                                                                                 0x60,
                                                                                                 0x70,
                                                                                                 0x80));
-        doReturn(Stream.of(packet3.getPacket())).when(j1939).read(anyLong(), any());
+        doReturn(Stream.of(packet3.getPacket())).when(j1939).read(anyLong(), any(), any());
 
         String expected = "" + NL;
         expected += "10:15:30.0000 Destination Specific DM21 Request to Body Controller (33)" + NL;
@@ -348,7 +350,7 @@ public class DiagnosticReadinessModuleTest {
         assertEquals(expected, listener.getResults());
 
         verify(j1939).createRequestPacket(pgn, 0x21);
-        verify(j1939).read(anyLong(), any());
+        verify(j1939).read(anyLong(), any(), any());
     }
 
     @Test
@@ -360,7 +362,7 @@ public class DiagnosticReadinessModuleTest {
 
         doReturn(Stream.empty(), Stream.empty(), Stream.empty(), Stream.empty())
                                                                                 .when(j1939)
-                                                                                .read(anyLong(), any());
+                                                                                .read(anyLong(), any(), any());
 
         String expected = "" + NL;
         expected += "10:15:30.0000 Global DM21 Request" + NL;
@@ -370,7 +372,7 @@ public class DiagnosticReadinessModuleTest {
         assertEquals(expected, listener.getResults());
 
         verify(j1939).createRequestPacket(pgn, 0xFF);
-        verify(j1939).read(anyLong(), any());
+        verify(j1939).read(anyLong(), any(), any());
     }
 
     @Test
@@ -415,6 +417,7 @@ public class DiagnosticReadinessModuleTest {
                                                                                                 0x80));
         doReturn(Stream.of(packet1.getPacket(), packet2.getPacket(), packet3.getPacket())).when(j1939)
                                                                                           .read(anyLong(),
+                                                                                                any(),
                                                                                                 any());
 
         String expected = "" + NL;
@@ -446,7 +449,7 @@ public class DiagnosticReadinessModuleTest {
         assertEquals(expected, listener.getResults());
 
         verify(j1939).createRequestPacket(pgn, 0xFF);
-        verify(j1939).read(anyLong(), any());
+        verify(j1939).read(anyLong(), any(), any());
     }
 
     @Test
@@ -491,6 +494,7 @@ public class DiagnosticReadinessModuleTest {
                                                                                                 0x80));
         doReturn(Stream.of(packet1.getPacket(), packet2.getPacket(), packet3.getPacket())).when(j1939)
                                                                                           .read(anyLong(),
+                                                                                                any(),
                                                                                                 any());
 
         String expected = "" + NL;
@@ -522,7 +526,7 @@ public class DiagnosticReadinessModuleTest {
         assertEquals(expected, listener.getResults());
 
         verify(j1939).createRequestPacket(pgn, 0xFF);
-        verify(j1939).read(anyLong(), any());
+        verify(j1939).read(anyLong(), any(), any());
     }
 
     @Test
@@ -567,6 +571,7 @@ public class DiagnosticReadinessModuleTest {
                                                                                               0x80));
         doReturn(Stream.of(packet1.getPacket(), packet2.getPacket(), packet3.getPacket())).when(j1939)
                                                                                           .read(anyLong(),
+                                                                                                any(),
                                                                                                 any());
 
         String expected = "" + NL;
@@ -586,7 +591,7 @@ public class DiagnosticReadinessModuleTest {
         assertEquals(expected, listener.getResults());
 
         verify(j1939).createRequestPacket(pgn, GLOBAL_ADDR);
-        verify(j1939).read(anyLong(), any());
+        verify(j1939).read(anyLong(), any(), any());
     }
 
     @Test
@@ -595,7 +600,7 @@ public class DiagnosticReadinessModuleTest {
 
         Packet requestPacket = Packet.create(0xEA00 | 0xFF, BUS_ADDR, true, pgn, pgn >> 8, pgn >> 16);
         doReturn(requestPacket).when(j1939).createRequestPacket(pgn, GLOBAL_ADDR);
-        doReturn(Stream.empty(), Stream.empty(), Stream.empty()).when(j1939).read(anyLong(), any());
+        doReturn(Stream.empty(), Stream.empty(), Stream.empty()).when(j1939).read(anyLong(), any(), any());
 
         String expected = "" + NL;
         expected += "10:15:30.0000 Global DM5 Request" + NL;
@@ -605,6 +610,6 @@ public class DiagnosticReadinessModuleTest {
         assertEquals(expected, listener.getResults());
 
         verify(j1939).createRequestPacket(pgn, 0xFF);
-        verify(j1939).read(anyLong(), any());
+        verify(j1939).read(anyLong(), any(), any());
     }
 }
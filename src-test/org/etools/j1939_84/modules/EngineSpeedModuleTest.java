@@ -213,7 +213,7 @@ public class EngineSpeedModuleTest {
             packets.add(pedalPositionPacket(0.4, 0.4)); // Neither pedal is pressed
         }
 
-        when(j1939.readGenericPacket(any())).thenReturn(packets.stream());
+        when(j1939.readGenericPacket(any(), any())).thenReturn(packets.stream());
 
         // Check initial values
         assertEquals(0.0, instance.averagedEngineSpeed(), 0.0);
@@ -230,7 +230,7 @@ public class EngineSpeedModuleTest {
             Thread.sleep(100);
         }
 
-        verify(j1939).readGenericPacket(any());
+        verify(j1939).readGenericPacket(any(), any());
         verify(j1939).read(EngineSpeedPacket.class, 0, 300, MILLISECONDS);
 
         // Check final values
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2021. Equipment & Tool Institute
+ */
+
+package org.etools.j1939_84.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * The unit test for {@link IntMap}
+ */
+public class IntMapTest {
+
+    @Test
+    public void testAsMap() {
+        Map<Integer, String> expected = new HashMap<>();
+        expected.put(0, "zero");
+        expected.put(-190, "negative");
+        expected.put(0xFEE5, "hours");
+        IntMap<String> instance = IntMap.copyOf(expected);
+
+        Map<Integer, String> map = instance.asMap();
+        assertEquals(expected, map);
+        assertEquals(expected.hashCode(), map.hashCode());
+        assertEquals("hours", map.get(0xFEE5));
+        assertNull(map.get("65253"));
+        assertTrue(map.containsKey(-190));
+        assertFalse(map.containsKey(1));
+
+        // a view, not a copy
+        instance.put(1, "one");
+        assertEquals("one", map.get(1));
+        assertEquals(4, map.values().size());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testAsMapIsReadOnly() {
+        new IntMap<String>().asMap().put(1, "one");
+    }
+
+    @Test
+    public void testComputeIfAbsent() {
+        IntMap<String> instance = new IntMap<>();
+        assertEquals("65253", instance.computeIfAbsent(65253, Integer::toString));
+        assertEquals("65253", instance.computeIfAbsent(65253, k -> "other"));
+        assertNull(instance.computeIfAbsent(1, k -> null));
+        assertFalse(instance.containsKey(1));
+        assertEquals(1, instance.size());
+    }
+
+    @Test
+    public void testGrowMatchesHashMap() {
+        // PGNs, SPNs and negative keys, more than the initial capacity
+        IntMap<Integer> instance = new IntMap<>(4);
+        Map<Integer, Integer> expected = new HashMap<>();
+        Random random = new Random(1939);
+        for (int i = 0; i < 5000; i++) {
+            int key = i % 3 == 0 ? random.nextInt() : random.nextInt(0x40000);
+            assertEquals(expected.put(key, i), instance.put(key, i));
+        }
+
+        assertEquals(expected.size(), instance.size());
+        for (var entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), instance.get(entry.getKey()));
+        }
+        int[] keys = instance.keys();
+        Arrays.sort(keys);
+        assertTrue(Arrays.equals(expected.keySet().stream().mapToInt(k -> k).sorted().toArray(), keys));
+        assertEquals(expected.size(), instance.values().size());
+    }
+
+    @Test
+    public void testPutAndGet() {
+        IntMap<String> instance = new IntMap<>();
+        assertNull(instance.get(0));
+        assertEquals("default", instance.getOrDefault(0, "default"));
+
+        assertNull(instance.put(0, "zero"));
+        assertNull(instance.put(0xFEE5, "hours"));
+        assertEquals("zero", instance.put(0, "0"));
+
+        assertEquals("0", instance.get(0));
+        assertEquals("hours", instance.getOrDefault(0xFEE5, "default"));
+        assertTrue(instance.containsKey(0xFEE5));
+        assertFalse(instance.containsKey(0xFEE6));
+        assertEquals(2, instance.size());
+        assertEquals("{0=0, 65253=hours}", instance.toString());
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testPutNull() {
+        new IntMap<String>().put(1, null);
+    }
+}
@@ -3,6 +3,7 @@
  */
 package org.etools.j1939_84.bus;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.stream.Stream;
@@ -25,6 +26,23 @@ public interface Bus extends AutoCloseable {
 
     Stream<Packet> duplicate(Stream<Packet> stream, int time, TimeUnit unit);
 
+    /**
+     * Duplicates a stream, keeping only the {@link Packet}s that match the
+     * filter. Buses backed by a {@link MultiQueue} only wake the new stream for
+     * matching packets.
+     *
+     * @param  stream
+     *                    base stream originally returned from bus.read()
+     * @param  time
+     *                    new timeout for the duplicate
+     * @param  unit
+     *                    the {@link TimeUnit} for the amount of time
+     * @param  filter
+     *                    the {@link PacketFilter} of interest
+     * @return        a {@link Stream} of the matching {@link Packet}s
+     */
+    Stream<Packet> duplicate(Stream<Packet> stream, int time, TimeUnit unit, PacketFilter filter);
+
     /**
      * Returns the source address used by the tool for communications
      *
@@ -67,6 +85,28 @@ public interface Bus extends AutoCloseable {
      */
     Stream<Packet> read(long timeout, TimeUnit unit) throws BusException;
 
+    /**
+     * Reads the {@link Packet}s that match the filter from the bus. Buses
+     * backed by a {@link MultiQueue} evaluate the filter once per packet as it
+     * arrives and index it by PGN, so the stream is only woken up for packets
+     * of interest.
+     *
+     * @param  timeout
+     *                          the amount of time to read packets
+     *
+     * @param  unit
+     *                          the {@link TimeUnit} for the amount of time
+     *
+     * @param  filter
+     *                          the {@link PacketFilter} of interest
+     *
+     * @return              a {@link Stream} of the matching {@link Packet}s
+     *
+     * @throws BusException
+     *                          if there is a problem reading packets
+     */
+    Stream<Packet> read(long timeout, TimeUnit unit, PacketFilter filter) throws BusException;
+
     /**
      * Reset stream timeout for stream created with bus.read(). To be used in a
      * stream call like peek, map or forEach.
@@ -94,6 +134,24 @@ public interface Bus extends AutoCloseable {
      */
     Packet send(Packet packet) throws BusException;
 
+    /**
+     * Sends a {@link Packet} to the vehicle communications bus without waiting
+     * for it to be echoed. Buses that can match echoes keep many sends in
+     * flight; this default sends synchronously.
+     *
+     * @param  packet
+     *                    the {@link Packet} to send
+     * @return        a future completed with the echo of the packet sent, or
+     *                exceptionally with a {@link BusException}
+     */
+    default CompletableFuture<Packet> sendAsync(Packet packet) {
+        try {
+            return CompletableFuture.completedFuture(send(packet));
+        } catch (BusException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
     /**
      * 
      * @return if another module is detected on the CAN bus using this address.
@@ -25,7 +25,7 @@ public class EchoBus implements Bus {
      *                    the address for this connector on the bus
      */
     public EchoBus(int address) {
-        this(address, new MultiQueue<>());
+        this(address, new MultiQueue<>(Packet::getPgn));
     }
 
     /**
@@ -51,6 +51,11 @@ public class EchoBus implements Bus {
         return queue.duplicate(stream, time, unit);
     }
 
+    @Override
+    public Stream<Packet> duplicate(Stream<Packet> stream, int time, TimeUnit unit, PacketFilter filter) {
+        return queue.duplicate(stream, time, unit, filter);
+    }
+
     @Override
     public int getAddress() {
         return address;
@@ -66,6 +71,11 @@ public class EchoBus implements Bus {
         return queue.stream(timeout, unit);
     }
 
+    @Override
+    public Stream<Packet> read(long timeout, TimeUnit unit, PacketFilter filter) {
+        return queue.stream(timeout, unit, filter);
+    }
+
     /**
      * Reset stream timeout for stream created with bus.read(). To be used in a
      * stream call like peek, map or forEach.
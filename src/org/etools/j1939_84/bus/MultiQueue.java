@@ -3,10 +3,22 @@
  */
 package org.etools.j1939_84.bus;
 
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.Spliterator;
 import java.util.WeakHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
@@ -20,19 +32,189 @@ import java.util.stream.StreamSupport;
  * value is added, nothing references the first value, except for any open
  * streams.
  *
+ * When created with a capacity, the MultiQueue is instead backed by a fixed
+ * size ring buffer and each stream only holds a sequence number. A stream
+ * that falls more than capacity items behind either loses the oldest items
+ * ({@link OverrunPolicy#DROP_OLDEST}) or blocks the producer
+ * ({@link OverrunPolicy#BLOCK}), so memory use does not depend on how slow
+ * or forgotten a stream is. A stream that lost items throws an
+ * {@link OverrunException} from its next read.
+ *
+ * In an unbounded MultiQueue, a stream opened with a {@link Filter} has its
+ * own chain of items and is only woken up for items that match. When the
+ * MultiQueue has an index function, the filters are indexed by their keys, so
+ * adding an item only evaluates the filters registered for the key of that
+ * item. In a bounded MultiQueue, a filtered stream reads the ring buffer and
+ * skips the items that do not match, so it is bounded like any other stream.
+ *
  * @param <T> type of MultiQueue to be implemented
  */
 public class MultiQueue<T> implements AutoCloseable {
 
+    /**
+     * What to do when a stream falls more than capacity items behind a
+     * bounded MultiQueue.
+     */
+    public enum OverrunPolicy {
+        /** Overwrite the oldest items and count them as dropped by the stream. */
+        DROP_OLDEST,
+        /** Block add() until the slowest stream catches up, closes or times out. */
+        BLOCK
+    }
+
+    /**
+     * Thrown to the reader of a stream of a bounded MultiQueue that fell more
+     * than capacity items behind. The stream continues with the oldest item
+     * still held, so reading again after the exception is safe.
+     */
+    public static class OverrunException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private final long dropped;
+
+        public OverrunException(long dropped) {
+            super("MultiQueue stream overrun. " + dropped + " items dropped.");
+            this.dropped = dropped;
+        }
+
+        /** @return the number of items the stream lost in this overrun */
+        public long getDropped() {
+            return dropped;
+        }
+    }
+
+    /**
+     * A declarative filter for a stream. Unlike a plain {@link Predicate}, the
+     * filter names the index keys of the items it can match, so that the
+     * MultiQueue does not have to offer it every item.
+     *
+     * @param <T> type of item
+     */
+    public interface Filter<T> extends Predicate<T> {
+        /**
+         * @return the index keys of all items this filter can match or null
+         *         if it may match an item with any key
+         */
+        int[] getKeys();
+    }
+
     private final WeakHashMap<Stream<T>, SpliteratorImplementation<T>> spliterators = new WeakHashMap<>();
-    private MultiQueue.Item<T> list = new MultiQueue.Item<>(null);
+    private volatile MultiQueue.Item<T> list = new MultiQueue.Item<>(null, 0);
+    private final RingBuffer<T> ring;
+    /** function to compute the index key of an item or null for no index */
+    private final ToIntFunction<T> indexFunction;
+    /** filtered subscriptions by index key; only used when unbounded */
+    private final Map<Integer, List<Subscription<T>>> index = new HashMap<>();
+    /** filtered subscriptions that must see every item */
+    private final List<Subscription<T>> unindexed = new ArrayList<>();
+
+    /**
+     * Creates an unbounded MultiQueue.
+     */
+    public MultiQueue() {
+        this((ToIntFunction<T>) null);
+    }
 
-    synchronized public void add(T v) {
-        list = list.add(v);
+    /**
+     * Creates an unbounded MultiQueue that indexes filtered streams.
+     *
+     * @param indexFunction
+     *                          computes the index key of an item, for example
+     *                          {@link Packet#getPgn()}
+     */
+    public MultiQueue(ToIntFunction<T> indexFunction) {
+        ring = null;
+        this.indexFunction = indexFunction;
+    }
+
+    /**
+     * Creates a MultiQueue backed by a ring buffer.
+     *
+     * @param capacity
+     *                     the maximum number of items a stream can fall behind
+     * @param policy
+     *                     what to do when a stream falls further behind
+     */
+    public MultiQueue(int capacity, OverrunPolicy policy) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+        ring = new RingBuffer<>(capacity, policy);
+        indexFunction = null;
+    }
+
+    public void add(T v) {
+        if (ring != null) {
+            // the ring may block, so it is not filled while holding the queue
+            ring.add(v);
+            return;
+        }
+        synchronized (this) {
+            list = list.add(v);
+            publishFiltered(v);
+        }
+    }
+
+    /** Must be called while synchronized on this. */
+    private void publishFiltered(T v) {
+        if (indexFunction != null) {
+            List<Subscription<T>> subscriptions = index.get(indexFunction.applyAsInt(v));
+            if (subscriptions != null) {
+                publish(subscriptions, v);
+            }
+        }
+        if (!unindexed.isEmpty()) {
+            publish(unindexed, v);
+        }
+    }
+
+    /** Add v to every matching subscription, dropping those without readers. */
+    private void publish(List<Subscription<T>> subscriptions, T v) {
+        long now = 0;
+        for (Iterator<Subscription<T>> i = subscriptions.iterator(); i.hasNext();) {
+            Subscription<T> subscription = i.next();
+            if (subscription.filter.test(v)) {
+                if (now == 0) {
+                    now = System.nanoTime();
+                }
+                if (subscription.isActive(now)) {
+                    subscription.tail = subscription.tail.add(v);
+                } else {
+                    i.remove();
+                }
+            }
+        }
+    }
+
+    /** Register a new filtered subscription starting with the given items. */
+    private Subscription<T> subscribe(Filter<T> filter, List<T> pending) {
+        // forget subscriptions whose readers are gone
+        long now = System.nanoTime();
+        index.values().forEach(l -> l.removeIf(s -> !s.isActive(now)));
+        index.values().removeIf(List::isEmpty);
+        unindexed.removeIf(s -> !s.isActive(now));
+
+        Subscription<T> subscription = new Subscription<>(filter);
+        int[] keys = filter.getKeys();
+        if (indexFunction == null || keys == null) {
+            unindexed.add(subscription);
+        } else {
+            for (int key : keys) {
+                index.computeIfAbsent(key, k -> new ArrayList<>()).add(subscription);
+            }
+        }
+        Item<T> head = subscription.tail;
+        for (T v : pending) {
+            if (filter.test(v)) {
+                subscription.tail = subscription.tail.add(v);
+            }
+        }
+        subscription.head = head;
+        return subscription;
     }
 
     @Override
-    public void close() {
+    synchronized public void close() {
         // close all of the spliterators.
         spliterators.values().forEach(SpliteratorImplementation<T>::close);
     }
@@ -47,17 +229,64 @@ public class MultiQueue<T> implements AutoCloseable {
      * @return        The new stream, independent of the original, but starting at the same
      *                location the original is right now.
      */
-    public Stream<T> duplicate(Stream<T> stream, int time, TimeUnit unit) {
+    synchronized public Stream<T> duplicate(Stream<T> stream, int time, TimeUnit unit) {
+        SpliteratorImplementation<T> oldSpliterator = spliterators.get(stream);
+        if (oldSpliterator.isClosed()) {
+            throw new IllegalStateException("stream has already been closed.");
+        }
+        return register(oldSpliterator.copy(), time, unit);
+    }
+
+    /**
+     * Duplicates a stream, keeping only the items that match the filter. The
+     * new stream includes the matching items the original has not read yet.
+     *
+     * @param  stream Original stream.
+     * @param  time   New timeout for this stream.
+     * @param  unit
+     * @param  filter the items of interest
+     * @return        The new stream, independent of the original, but starting at the same
+     *                location the original is right now.
+     */
+    synchronized public Stream<T> duplicate(Stream<T> stream, int time, TimeUnit unit, Filter<T> filter) {
         SpliteratorImplementation<T> oldSpliterator = spliterators.get(stream);
-        if (oldSpliterator.item == null) {
+        if (oldSpliterator.isClosed()) {
             throw new IllegalStateException("stream has already been closed.");
         }
-        SpliteratorImplementation<T> newSpliterator = new SpliteratorImplementation<>(oldSpliterator);
-        Stream<T> newStream = StreamSupport.stream(newSpliterator, false);
-        spliterators.put(newStream, newSpliterator);
-        newSpliterator.setTimeout(time, unit);
-        newStream.onClose(newSpliterator::close);
-        return newStream;
+        return register(oldSpliterator.copy(filter), time, unit);
+    }
+
+    /**
+     * Returns the number of items that were dropped from the given stream
+     * because it fell more than capacity items behind. Always 0 for an
+     * unbounded MultiQueue.
+     *
+     * @param  stream
+     *                    Stream created from stream(timeout, unit) or duplicate()
+     * @return        the number of items the stream will never see
+     */
+    public long getDropped(Stream<T> stream) {
+        return getSpliterator(stream).getDropped();
+    }
+
+    /**
+     * Returns how many items have been added that the given stream has not
+     * read yet.
+     *
+     * @param  stream
+     *                    Stream created from stream(timeout, unit) or duplicate()
+     * @return        the lag of the stream in items
+     */
+    public long getLag(Stream<T> stream) {
+        return getSpliterator(stream).getLag();
+    }
+
+    synchronized private SpliteratorImplementation<T> getSpliterator(Stream<T> stream) {
+        SpliteratorImplementation<T> spliterator = spliterators.get(stream);
+        if (spliterator == null) {
+            throw new IllegalArgumentException("Invalid stream.");
+        }
+        return spliterator;
     }
 
     /**
@@ -65,16 +294,15 @@ public class MultiQueue<T> implements AutoCloseable {
      * from stream(timeout, unit), not some stream derived from stream(timeout,
      * unit).
      *
-     * @param stream Stream created from stream(timeout, unit)
-     * @param time
-     * @param unit
+     * @param  stream
+     *                                      Stream created from stream(timeout, unit)
+     * @param  time
+     * @param  unit
+     * @throws IllegalArgumentException
+     *                                      if the stream was not created by this
      */
     public void resetTimeout(Stream<T> stream, int time, TimeUnit unit) {
-        MultiQueue.SpliteratorImplementation<T> spliterator = spliterators.get(stream);
-        if (spliterator == null) {
-            throw new IllegalArgumentException("Invalid stream.");
-        }
-        spliterator.setTimeout(time, unit);
+        getSpliterator(stream).setTimeout(time, unit);
     }
 
     /**
@@ -87,7 +315,37 @@ public class MultiQueue<T> implements AutoCloseable {
      * @return         the stream
      */
     synchronized public Stream<T> stream(long timeout, TimeUnit unit) {
-        SpliteratorImplementation<T> spliterator = new SpliteratorImplementation<>(list, timeout, unit);
+        return register(ring == null
+                ? new LinkedSpliterator<>(this, null, list)
+                : new RingSpliterator<>(ring, ring.getSequence(), null),
+                        timeout,
+                        unit);
+    }
+
+    /**
+     * Creates a stream of only the items that match the filter. In an unbounded
+     * MultiQueue, the filter is evaluated once per item when it is added, and
+     * the stream is only woken up for items that match.
+     *
+     * @param  timeout
+     *                     The stream will be valid for a period of timeout. If the
+     *                     stream is not read prior to timeout, then it will be empty.
+     * @param  unit
+     *                     the TimeUnit for the timeout
+     * @param  filter
+     *                     the items of interest
+     * @return         the stream
+     */
+    synchronized public Stream<T> stream(long timeout, TimeUnit unit, Filter<T> filter) {
+        if (ring != null) {
+            return register(new RingSpliterator<>(ring, ring.getSequence(), filter), timeout, unit);
+        }
+        Subscription<T> subscription = subscribe(filter, Collections.emptyList());
+        return register(new LinkedSpliterator<>(this, subscription, subscription.head), timeout, unit);
+    }
+
+    private Stream<T> register(SpliteratorImplementation<T> spliterator, long timeout, TimeUnit unit) {
+        spliterator.setTimeout(timeout, unit);
         Stream<T> stream = StreamSupport.stream(spliterator, false);
         spliterators.put(stream, spliterator);
         stream.onClose(spliterator::close);
@@ -96,66 +354,287 @@ public class MultiQueue<T> implements AutoCloseable {
 
     static private class Item<T> {
         final T value;
+        final long sequence;
         MultiQueue.Item<T> next;
 
-        Item(T v) {
+        Item(T v, long sequence) {
             value = v;
+            this.sequence = sequence;
         }
 
         synchronized MultiQueue.Item<T> add(T v) {
-            next = new MultiQueue.Item<>(v);
+            next = new MultiQueue.Item<>(v, sequence + 1);
             notifyAll();
             return next;
         }
 
-        synchronized MultiQueue.Item<T> next(long delay) {
-            if (next == null) {
+        /**
+         * Block until the next item is added or the deadline of the spliterator
+         * passes. The deadline is reread after every wake up, so a
+         * resetTimeout() or close() from another thread is honored immediately.
+         */
+        synchronized MultiQueue.Item<T> next(SpliteratorImplementation<T> spliterator) {
+            while (true) {
+                long remaining = spliterator.end - System.nanoTime();
+                if (remaining <= 0) {
+                    return null;
+                }
+                if (next != null) {
+                    return next;
+                }
                 try {
-                    wait(delay);
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
                 } catch (InterruptedException e) {
                     // no problem
                 }
             }
-            return next;
+        }
+
+        /** Wake up any subscriber waiting on this item. */
+        synchronized void wakeUp() {
+            notifyAll();
+        }
+    }
+
+    /**
+     * The private chain of items for the streams of one filter.
+     */
+    static private class Subscription<T> {
+        final Filter<T> filter;
+        /** first item of the chain; only used while subscribing */
+        Item<T> head;
+        /** the item the next match is added after */
+        Item<T> tail = new Item<>(null, 0);
+        final List<WeakReference<LinkedSpliterator<T>>> readers = new ArrayList<>(1);
+
+        Subscription(Filter<T> filter) {
+            this.filter = filter;
+        }
+
+        /** @return true if any stream of this may still read */
+        boolean isActive(long now) {
+            readers.removeIf(r -> {
+                LinkedSpliterator<T> s = r.get();
+                return s == null || s.isClosed() || s.end - now <= 0;
+            });
+            return !readers.isEmpty();
         }
     }
 
-    private final static class SpliteratorImplementation<T> implements Spliterator<T> {
-        // how often to check for new items
-        private static final int POLLING_PERIOD = 2;
-        // end time of stream
-        private long end;
+    /**
+     * Fixed size storage for a bounded MultiQueue. Items are addressed by an
+     * ever increasing sequence number.
+     */
+    static private class RingBuffer<T> {
+        private final int capacity;
+        private final OverrunPolicy policy;
+        private final Object[] items;
+        /** open streams, so that the producer can find the slowest */
+        private final Set<RingSpliterator<T>> readers = Collections.newSetFromMap(new WeakHashMap<>());
+        private final ReentrantLock lock = new ReentrantLock();
+        /** Signaled when an item is added or a stream is closed or reset. */
+        private final Condition added = lock.newCondition();
+        /** Signaled when a stream reads, closes or times out. */
+        private final Condition consumed = lock.newCondition();
+        /** sequence number of the next item to be added */
+        private volatile long sequence;
+
+        RingBuffer(int capacity, OverrunPolicy policy) {
+            this.capacity = capacity;
+            this.policy = policy;
+            items = new Object[capacity];
+        }
+
+        void add(T v) {
+            lock.lock();
+            try {
+                if (policy == OverrunPolicy.BLOCK) {
+                    long wait;
+                    while ((wait = slowestDeadline()) > 0) {
+                        try {
+                            consumed.awaitNanos(wait);
+                        } catch (InterruptedException e) {
+                            // no problem
+                        }
+                    }
+                }
+                items[(int) (sequence % capacity)] = v;
+                added.signalAll();
+                sequence++;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        long getSequence() {
+            return sequence;
+        }
+
+        void register(RingSpliterator<T> reader) {
+            lock.lock();
+            try {
+                readers.add(reader);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * @return 0 if there is room for another item, otherwise how long until
+         *         the deadline of the slowest full stream in ns
+         */
+        private long slowestDeadline() {
+            long now = System.nanoTime();
+            long wait = 0;
+            for (RingSpliterator<T> s : readers) {
+                long remaining = s.end - now;
+                if (!s.closed && remaining > 0 && sequence - s.sequence >= capacity) {
+                    wait = wait == 0 ? remaining : Math.min(wait, remaining);
+                }
+            }
+            return wait;
+        }
+
+        void wakeUp() {
+            lock.lock();
+            try {
+                added.signalAll();
+                consumed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private abstract static class SpliteratorImplementation<T> implements Spliterator<T> {
+        // end time of stream in System.nanoTime()
+        protected volatile long end;
+
+        public abstract void close();
+
+        abstract SpliteratorImplementation<T> copy();
+
+        /**
+         * @return a new spliterator of the items that match filter, starting
+         *         with those this has not read yet
+         */
+        abstract SpliteratorImplementation<T> copy(Filter<T> filter);
+
+        long getDropped() {
+            return 0;
+        }
+
+        abstract long getLag();
+
+        abstract boolean isClosed();
+
+        public void setTimeout(long timeout, TimeUnit unit) {
+            end = System.nanoTime() + unit.toNanos(timeout);
+            wakeUp();
+        }
+
+        /** Wake up the thread reading this, so that a new end is honored. */
+        abstract void wakeUp();
+
+        @Override
+        public Spliterator<T> trySplit() {
+            // Do not split.
+            return null;
+        }
+
+        @Override
+        public int characteristics() {
+            return IMMUTABLE | ORDERED;
+        }
+    }
+
+    private final static class LinkedSpliterator<T> extends SpliteratorImplementation<T> {
+        private final MultiQueue<T> queue;
+        // the filtered chain read or null for all items
+        private final Subscription<T> subscription;
         // reference to tail
-        private Item<T> item;
+        private volatile Item<T> item;
 
-        private SpliteratorImplementation(Item<T> list, long timeout, TimeUnit unit) {
+        /** Must be called while synchronized on queue. */
+        private LinkedSpliterator(MultiQueue<T> queue, Subscription<T> subscription, Item<T> list) {
+            this.queue = queue;
+            this.subscription = subscription;
             item = list;
-            setTimeout(timeout, unit);
+            if (subscription != null) {
+                subscription.readers.add(new WeakReference<>(this));
+            }
         }
 
+        @Override
         public void close() {
-            end = 0;
+            Item<T> i = item;
+            end = System.nanoTime();
             item = null;
+            if (i != null) {
+                i.wakeUp();
+            }
         }
 
-        public SpliteratorImplementation(MultiQueue.SpliteratorImplementation<T> that) {
-            item = that.item;
-            end = that.end;
+        @Override
+        SpliteratorImplementation<T> copy() {
+            LinkedSpliterator<T> that = new LinkedSpliterator<>(queue, subscription, item);
+            that.end = end;
+            return that;
         }
 
-        public void setTimeout(long timeout, TimeUnit unit) {
-            end = System.currentTimeMillis() + unit.toMillis(timeout);
+        /** Must be called while synchronized on queue. */
+        @Override
+        SpliteratorImplementation<T> copy(Filter<T> filter) {
+            Subscription<T> s = queue.subscribe(filter, pending());
+            LinkedSpliterator<T> that = new LinkedSpliterator<>(queue, s, s.head);
+            that.end = end;
+            return that;
+        }
+
+        @Override
+        long getLag() {
+            Item<T> i = item;
+            if (i == null) {
+                return 0;
+            }
+            synchronized (queue) {
+                return (subscription == null ? queue.list : subscription.tail).sequence - i.sequence;
+            }
+        }
+
+        @Override
+        boolean isClosed() {
+            return item == null;
+        }
+
+        /** @return the items this has not read yet */
+        private List<T> pending() {
+            List<T> pending = new ArrayList<>();
+            Item<T> i = item;
+            while (i != null && (i = i.next) != null) {
+                pending.add(i.value);
+            }
+            return pending;
+        }
+
+        @Override
+        void wakeUp() {
+            Item<T> i = item;
+            if (i != null) {
+                i.wakeUp();
+            }
         }
 
         @Override
         public boolean tryAdvance(Consumer<? super T> action) {
             /*
-             * While not timed out, wait up to POLLING_PERIOD ms for next packet, then loop.
-             * This allows us to check for timeout and next packet in same thread.
+             * Block on the tail until either the next item is added or the timeout
+             * passes. There are no periodic wake ups while the bus is idle.
              */
-            while (System.currentTimeMillis() < end) {
-                Item<T> n = item.next(POLLING_PERIOD);
-                if (n != null) {
+            Item<T> i = item;
+            if (i != null) {
+                Item<T> n = i.next(this);
+                if (n != null && item != null) {
                     item = n;
                     action.accept(n.value);
                     return true;
@@ -166,12 +645,6 @@ public class MultiQueue<T> implements AutoCloseable {
             return false;
         }
 
-        @Override
-        public Spliterator<T> trySplit() {
-            // Do not split.
-            return null;
-        }
-
         @Override
         public long estimateSize() {
             int count = 0;
@@ -182,10 +655,116 @@ public class MultiQueue<T> implements AutoCloseable {
             }
             return count;
         }
+    }
+
+    private final static class RingSpliterator<T> extends SpliteratorImplementation<T> {
+        private final RingBuffer<T> ring;
+        // the items to read or null for all items
+        private final Predicate<T> filter;
+        // sequence number of the next item to read
+        private volatile long sequence;
+        private volatile long dropped;
+        private volatile boolean closed;
+
+        private RingSpliterator(RingBuffer<T> ring, long sequence, Predicate<T> filter) {
+            this.ring = ring;
+            this.sequence = sequence;
+            this.filter = filter;
+            ring.register(this);
+        }
 
         @Override
-        public int characteristics() {
-            return IMMUTABLE | ORDERED;
+        public void close() {
+            end = System.nanoTime();
+            closed = true;
+            ring.wakeUp();
+        }
+
+        @Override
+        SpliteratorImplementation<T> copy() {
+            RingSpliterator<T> that = new RingSpliterator<>(ring, sequence, filter);
+            that.end = end;
+            return that;
+        }
+
+        @Override
+        SpliteratorImplementation<T> copy(Filter<T> filter) {
+            Predicate<T> f = this.filter == null ? filter : this.filter.and(filter);
+            RingSpliterator<T> that = new RingSpliterator<>(ring, sequence, f);
+            that.end = end;
+            return that;
+        }
+
+        @Override
+        long getDropped() {
+            return dropped;
+        }
+
+        @Override
+        long getLag() {
+            return closed ? 0 : ring.getSequence() - sequence;
+        }
+
+        @Override
+        boolean isClosed() {
+            return closed;
+        }
+
+        @Override
+        void wakeUp() {
+            ring.wakeUp();
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            T value;
+            ring.lock.lock();
+            try {
+                while (true) {
+                    long remaining = end - System.nanoTime();
+                    if (closed || remaining <= 0) {
+                        closed = true;
+                        // let a blocked producer reevaluate
+                        ring.consumed.signalAll();
+                        return false;
+                    }
+                    if (sequence < ring.sequence) {
+                        long oldest = ring.sequence - ring.capacity;
+                        if (sequence < oldest) {
+                            // continue with the oldest item on the next read
+                            long overrun = oldest - sequence;
+                            dropped += overrun;
+                            sequence = oldest;
+                            throw new OverrunException(overrun);
+                        }
+                        @SuppressWarnings("unchecked")
+                        T v = (T) ring.items[(int) (sequence % ring.capacity)];
+                        sequence++;
+                        if (ring.policy == OverrunPolicy.BLOCK) {
+                            ring.consumed.signalAll();
+                        }
+                        if (filter == null || filter.test(v)) {
+                            value = v;
+                            break;
+                        }
+                        continue;
+                    }
+                    try {
+                        ring.added.awaitNanos(remaining);
+                    } catch (InterruptedException e) {
+                        // no problem
+                    }
+                }
+            } finally {
+                ring.lock.unlock();
+            }
+            action.accept(value);
+            return true;
+        }
+
+        @Override
+        public long estimateSize() {
+            return Long.MAX_VALUE;
         }
     }
 }
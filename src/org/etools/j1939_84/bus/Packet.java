@@ -3,13 +3,19 @@
  */
 package org.etools.j1939_84.bus;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -18,8 +24,6 @@ import org.etools.j1939_84.J1939_84;
 import org.etools.j1939_84.bus.j1939.J1939;
 import org.etools.j1939_84.modules.DateTimeModule;
 
-import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
-
 /**
  * Sends a Packet containing an id with data from a source onto the bus
  *
@@ -32,13 +36,26 @@ public class Packet {
      * The indication that a packet was transmitted
      */
     public static final String TX = " (TX)";
+
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
     private final int id;
     private final int priority;
     private final int source;
     private final boolean transmitted;
-    private int[] data;
+    /**
+     * The payload; one byte per data byte, read unsigned. It is null while a
+     * TP message is still being received and empty if the TP message failed.
+     * Once set it never changes, so complete packets are read without locking.
+     */
+    private volatile byte[] data;
     private List<Packet> fragments = Collections.singletonList(this);
-    private LocalDateTime timestamp;
+    /**
+     * Nanoseconds since the epoch; the adapter time plus the offset captured
+     * when the adapter was connected. It is rendered as a
+     * {@link LocalDateTime} only when asked for, and may be updated by TP when
+     * the last fragment arrives.
+     */
+    private volatile long timestamp;
 
     /**
      * Creates a Packet
@@ -52,24 +69,57 @@ public class Packet {
      * @param transmitted
      *                        indicates the packet was sent by the application
      * @param data
-     *                        the data of the packet
+     *                        the data of the packet, owned by the packet from
+     *                        now on
      */
-    private Packet(LocalDateTime timestamp, int priority, int id, int source, boolean transmitted, int... data) {
+    private Packet(long timestamp, int priority, int id, int source, boolean transmitted, byte[] data) {
         this.timestamp = timestamp;
         this.priority = priority;
         this.id = id;
         this.source = source;
         this.transmitted = transmitted;
         this.data = data;
-        if (data != null) {
-            for (int i = 0; i < data.length; i++) {
-                data[i] &= 0xFF;
-            }
+    }
+
+    /** Narrow int data to bytes, keeping the low 8 bits of each value. */
+    private static byte[] toBytes(int[] data) {
+        if (data == null) {
+            return null;
+        }
+        byte[] bytes = new byte[data.length];
+        for (int i = 0; i < data.length; i++) {
+            bytes[i] = (byte) data[i];
         }
+        return bytes;
     }
 
     public static Packet create(int id, int source, boolean transmitted, int... data) {
-        return new Packet(LocalDateTime.now(), 6, id, source, transmitted, data);
+        return new Packet(now(), 6, id, source, transmitted, toBytes(data));
+    }
+
+    /** The current time in nanoseconds since the epoch. */
+    private static long now() {
+        Instant now = Instant.now();
+        return now.getEpochSecond() * 1_000_000_000L + now.getNano();
+    }
+
+    /**
+     * Converts a local date and time in the system time zone to nanoseconds
+     * since the epoch, as returned by {@link #getTimestampNanos()}
+     *
+     * @param  time
+     *                  the time to convert
+     * @return      nanoseconds since the epoch
+     */
+    public static long toEpochNanos(LocalDateTime time) {
+        Instant instant = time.atZone(ZoneId.systemDefault()).toInstant();
+        return instant.getEpochSecond() * 1_000_000_000L + instant.getNano();
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochNanos) {
+        Instant instant = Instant.ofEpochSecond(Math.floorDiv(epochNanos, 1_000_000_000L),
+                                                Math.floorMod(epochNanos, 1_000_000_000L));
+        return LocalDateTime.ofInstant(instant, ZoneId.systemDefault());
     }
 
     /**
@@ -118,7 +168,7 @@ public class Packet {
      * @return             Packet
      */
     public static Packet create(int priority, int id, int source, boolean transmitted, byte... bytes) {
-        return create(LocalDateTime.now(), priority, id, source, transmitted, bytes);
+        return create(now(), priority, id, source, transmitted, bytes);
     }
 
     public static Packet create(LocalDateTime time,
@@ -127,15 +177,37 @@ public class Packet {
                                 int source,
                                 boolean transmitted,
                                 byte... bytes) {
+        return create(toEpochNanos(time), priority, id, source, transmitted, bytes);
+    }
+
+    /**
+     * Creates an instance of Packet
+     *
+     * @param  timestamp
+     *                         the time received in nanoseconds since the epoch
+     * @param  priority
+     *                         the priority of the packet
+     * @param  id
+     *                         the ID of the packet
+     * @param  source
+     *                         the source address of the packet
+     * @param  transmitted
+     *                         indicates the packet was sent by the application
+     * @param  bytes
+     *                         the data bytes of the packet
+     * @return             Packet
+     */
+    public static Packet create(long timestamp,
+                                int priority,
+                                int id,
+                                int source,
+                                boolean transmitted,
+                                byte... bytes) {
         if (bytes.length < 3) {
             // a body of 0 length indicates that the packet was a failure.
             throw new IllegalArgumentException("Packets must have a body of at least 3 bytes.");
         }
-        int[] data = new int[bytes.length];
-        for (int i = 0; i < bytes.length; i++) {
-            data[i] = 0xFF & bytes[i];
-        }
-        return new Packet(time, priority, id, source, transmitted, data);
+        return new Packet(timestamp, priority, id, source, transmitted, bytes.clone());
     }
 
     public static Packet create(LocalDateTime time,
@@ -148,7 +220,7 @@ public class Packet {
             // a body of 0 length indicates that the packet was a failure.
             throw new IllegalArgumentException("Packets must have a body of at least 3 bytes.");
         }
-        return new Packet(time, priority, id, source, transmitted, data);
+        return new Packet(toEpochNanos(time), priority, id, source, transmitted, toBytes(data));
     }
 
     /**
@@ -203,20 +275,20 @@ public class Packet {
         if (a.length > 5 && a[1].equals("1") && a[3].equals("Rx")) {
             int id = Integer.parseInt(a[2].substring(0, a[2].length() - 1), 16);
 
-            return new Packet(start.plusNanos((long) (Double.parseDouble(a[0]) * 1000000000)),
+            return new Packet(toEpochNanos(start) + (long) (Double.parseDouble(a[0]) * 1000000000),
                               6,
                               0xFFFFFF & (id >> 8),
                               0xFF & id,
                               false,
-                              Stream.of(Arrays.copyOfRange(a, 6, 6 + Integer.parseInt(a[5]), String[].class))
-                                    .mapToInt(s -> Integer.parseInt(s, 16))
-                                    .toArray());
+                              toBytes(Stream.of(Arrays.copyOfRange(a, 6, 6 + Integer.parseInt(a[5]), String[].class))
+                                            .mapToInt(s -> Integer.parseInt(s, 16))
+                                            .toArray()));
         }
         return null;
     }
 
     synchronized public void fail() {
-        data = new int[0];
+        data = new byte[0];
         notifyAll();
     }
 
@@ -228,7 +300,7 @@ public class Packet {
      * @return   int
      */
     public int get(int i) {
-        return getData()[i];
+        return getData()[i] & 0xFF;
     }
 
     /**
@@ -239,7 +311,8 @@ public class Packet {
      * @return   int
      */
     public int get16(int i) {
-        return (getData()[i + 1] << 8) | getData()[i];
+        byte[] data = getData();
+        return (data[i + 1] & 0xFF) << 8 | (data[i] & 0xFF);
     }
 
     /**
@@ -251,7 +324,8 @@ public class Packet {
      * @return   int
      */
     public int get16Big(int i) {
-        return (getData()[i] << 8) | getData()[i + 1];
+        byte[] data = getData();
+        return (data[i] & 0xFF) << 8 | (data[i + 1] & 0xFF);
     }
 
     /**
@@ -263,7 +337,8 @@ public class Packet {
      * @return   int
      */
     public int get24(int i) {
-        return (getData()[i + 2] << 16) | (getData()[i + 1] << 8) | getData()[i];
+        byte[] data = getData();
+        return (data[i + 2] & 0xFF) << 16 | (data[i + 1] & 0xFF) << 8 | (data[i] & 0xFF);
     }
 
     /**
@@ -275,7 +350,8 @@ public class Packet {
      * @return   int
      */
     public int get24Big(int i) {
-        return (getData()[i] << 16) | (getData()[i + 1] << 8) | getData()[i + 2];
+        byte[] data = getData();
+        return (data[i] & 0xFF) << 16 | (data[i + 1] & 0xFF) << 8 | (data[i + 2] & 0xFF);
     }
 
     /**
@@ -287,8 +363,9 @@ public class Packet {
      * @return   int
      */
     public long get32(int i) {
-        return ((long) (getData()[i + 3] & 0xFF) << 24) | ((getData()[i + 2] & 0xFF) << 16)
-                | ((getData()[i + 1] & 0xFF) << 8) | (getData()[i] & 0xFF);
+        byte[] data = getData();
+        return (long) (data[i + 3] & 0xFF) << 24 | (data[i + 2] & 0xFF) << 16
+                | (data[i + 1] & 0xFF) << 8 | (data[i] & 0xFF);
     }
 
     /**
@@ -300,8 +377,9 @@ public class Packet {
      * @return   int
      */
     public long get32Big(int i) {
-        return ((long) getData()[i] << 24) | ((long) getData()[i + 1] << 16) | ((long) getData()[i + 2] << 8)
-                | getData()[i + 3];
+        byte[] data = getData();
+        return (long) (data[i] & 0xFF) << 24 | (data[i + 1] & 0xFF) << 16 | (data[i + 2] & 0xFF) << 8
+                | (data[i + 3] & 0xFF);
     }
 
     public long get64() {
@@ -309,19 +387,76 @@ public class Packet {
     }
 
     /**
-     * Returns the data as an array of bytes
+     * Returns the data as an array of bytes. The array is a copy; use
+     * {@link #copyTo(int, byte[], int, int)} or {@link #asByteBuffer()} to
+     * avoid the allocation.
      *
      * @return byte[]
      */
     public byte[] getBytes() {
-        byte[] bytes = new byte[getData().length];
-        for (int i = 0; i < bytes.length; i++) {
-            bytes[i] = (byte) getData()[i];
+        return getData().clone();
+    }
+
+    /**
+     * Copies data bytes into an existing array
+     *
+     * @param srcPos
+     *                    the index of the first data byte to copy
+     * @param dest
+     *                    the destination array
+     * @param destPos
+     *                    the index in dest of the first byte
+     * @param length
+     *                    the number of bytes to copy
+     */
+    public void copyTo(int srcPos, byte[] dest, int destPos, int length) {
+        System.arraycopy(getData(), srcPos, dest, destPos, length);
+    }
+
+    /**
+     * Returns a read-only, little-endian view of the data without copying it
+     *
+     * @return {@link ByteBuffer}
+     */
+    public ByteBuffer asByteBuffer() {
+        return ByteBuffer.wrap(getData()).asReadOnlyBuffer().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Returns a read-only, little-endian view of the data from the beginIndex
+     * to the endIndex (exclusive) without copying it
+     *
+     * @param  beginIndex
+     *                        the first data byte of the view
+     * @param  endIndex
+     *                        the index after the last data byte of the view
+     * @return            {@link ByteBuffer}
+     */
+    public ByteBuffer asByteBuffer(int beginIndex, int endIndex) {
+        byte[] data = getData();
+        Objects.checkFromToIndex(beginIndex, endIndex, data.length);
+        return ByteBuffer.wrap(data, beginIndex, endIndex - beginIndex)
+                         .slice()
+                         .asReadOnlyBuffer()
+                         .order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private byte[] getData() {
+        byte[] data = this.data;
+        if (data == null) {
+            // a TP message that is still being received
+            data = awaitData();
         }
-        return bytes;
+        if (data.length == 0) {
+            throw new PacketException(String.format("Failed Packet: %s %06X%02X [?] ...",
+                                                    DateTimeModule.getInstance().getTimeFormatter().format(getTimestamp()),
+                                                    priority << 18 | id,
+                                                    source));
+        }
+        return data;
     }
 
-    synchronized private int[] getData() {
+    synchronized private byte[] awaitData() {
         while (data == null) {
             try {
                 wait();
@@ -329,23 +464,53 @@ public class Packet {
                 // No worries
             }
         }
-        if (data.length == 0) {
-            throw new PacketException(String.format("Failed Packet: %s %06X%02X [?] ...",
-                                                    DateTimeModule.getInstance().getTimeFormatter().format(timestamp),
-                                                    priority << 18 | id,
-                                                    source));
-        }
         return data;
     }
 
+    /**
+     * Waits for a TP message that is still being received to either complete
+     * or fail. Returns immediately for all other packets.
+     *
+     * @param  timeout
+     *                     the maximum time to wait
+     * @param  unit
+     *                     the {@link TimeUnit} of the timeout
+     * @return         true if the packet is complete or has failed
+     */
+    public boolean awaitComplete(long timeout, TimeUnit unit) {
+        if (data != null) {
+            return true;
+        }
+        long end = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (this) {
+            long remaining;
+            while (data == null && (remaining = end - System.nanoTime()) > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                } catch (InterruptedException e) {
+                    // No worries
+                }
+            }
+            return data != null;
+        }
+    }
+
     synchronized public void setData(byte... data) {
+        setDataWithoutCopy(data.clone());
+    }
+
+    /**
+     * Completes the packet with the given array, which the packet keeps
+     * instead of a copy. The caller must not change the array after.
+     *
+     * @param data
+     *                 the payload
+     */
+    synchronized public void setDataWithoutCopy(byte[] data) {
         if (isComplete()) {
             throw new PacketException("Packet already initialized.");
         }
-        this.data = new int[data.length];
-        for (int i = 0; i < data.length; i++) {
-            this.data[i] = (0xFF & data[i]);
-        }
+        this.data = data;
         notifyAll();
     }
 
@@ -358,9 +523,20 @@ public class Packet {
      *                        the last data value to return
      * @return            int[]
      */
-    @SuppressFBWarnings(value = "UG_SYNC_SET_UNSYNC_GET", justification = "This method is not a reciprocal of the setData method")
     public int[] getData(int beginIndex, int endIndex) {
-        return Arrays.copyOfRange(getData(), beginIndex, endIndex);
+        // same contract as Arrays.copyOfRange(); past the end is zero filled
+        byte[] data = getData();
+        if (beginIndex < 0 || beginIndex > data.length) {
+            throw new ArrayIndexOutOfBoundsException(beginIndex);
+        }
+        if (beginIndex > endIndex) {
+            throw new IllegalArgumentException(beginIndex + " > " + endIndex);
+        }
+        int[] result = new int[endIndex - beginIndex];
+        for (int i = beginIndex; i < Math.min(endIndex, data.length); i++) {
+            result[i - beginIndex] = data[i] & 0xFF;
+        }
+        return result;
     }
 
     public int getPgn() {
@@ -432,11 +608,25 @@ public class Packet {
      * @return {@link LocalDateTime}
      */
     public LocalDateTime getTimestamp() {
+        return toLocalDateTime(timestamp);
+    }
+
+    /**
+     * Returns the Time the packet was received in nanoseconds since the epoch.
+     * Use this for timing checks; it does not allocate.
+     *
+     * @return long
+     */
+    public long getTimestampNanos() {
         return timestamp;
     }
 
     public void setTimestamp(LocalDateTime timestamp2) {
-        timestamp = timestamp2;
+        timestamp = toEpochNanos(timestamp2);
+    }
+
+    public void setTimestampNanos(long timestamp) {
+        this.timestamp = timestamp;
     }
 
     @Override
@@ -455,21 +645,84 @@ public class Packet {
 
         Packet that = (Packet) obj;
         return id == that.id && priority == that.priority && source == that.source && transmitted == that.transmitted
-                && Objects.deepEquals(getData(), that.getData());
+                && Arrays.equals(getData(), that.getData());
     }
 
     @Override
     public String toString() {
-        return String.format("%06X%02X [%s] %s",
-                             priority << 18 | id,
-                             source,
-                             getLength(),
-                             Arrays.stream(getData())
-                                   .mapToObj(x -> String.format("%02X", x))
-                                   .collect(Collectors.joining(" "))
-                                     + (transmitted ? TX : RX));
+        return appendTo(new StringBuilder(toStringLength())).toString();
+    }
+
+    /** The length of {@link #toString()}, close enough to size a buffer. */
+    private int toStringLength() {
+        return 16 + 3 * getData().length + TX.length();
+    }
+
+    /**
+     * Appends the same text as {@link #toString()}
+     *
+     * @param  sb
+     *                the {@link StringBuilder} to append to
+     * @return    the given {@link StringBuilder}
+     */
+    public StringBuilder appendTo(StringBuilder sb) {
+        try {
+            appendTo((Appendable) sb);
+        } catch (IOException e) {
+            // StringBuilder does not throw
+            throw new IllegalStateException(e);
+        }
+        return sb;
+    }
+
+    /**
+     * Appends the same text as {@link #toString()} without building
+     * intermediate Strings, so logs and reports can write packets straight to
+     * their sink.
+     *
+     * @param  out
+     *                         where the text is written
+     * @throws IOException
+     *                         if out throws
+     */
+    public void appendTo(Appendable out) throws IOException {
+        byte[] data = getData();
+        // as %06X%02X
+        int header = priority << 18 | id;
+        int digits = Math.max(6, (Integer.SIZE - Integer.numberOfLeadingZeros(header) + 3) / 4);
+        for (int shift = (digits - 1) * 4; shift >= 0; shift -= 4) {
+            out.append(HEX_DIGITS[(header >>> shift) & 0xF]);
+        }
+        appendHex(out, source);
+        out.append(" [");
+        appendDecimal(out, data.length);
+        out.append("] ");
+        for (int i = 0; i < data.length; i++) {
+            if (i > 0) {
+                out.append(' ');
+            }
+            appendHex(out, data[i]);
+        }
+        out.append(transmitted ? TX : RX);
     }
 
+    /** Appends the low byte of value as two upper case hex digits. */
+    private static void appendHex(Appendable out, int value) throws IOException {
+        out.append(HEX_DIGITS[(value >> 4) & 0xF]).append(HEX_DIGITS[value & 0xF]);
+    }
+
+    private static void appendDecimal(Appendable out, int value) throws IOException {
+        if (value >= 10) {
+            appendDecimal(out, value / 10);
+        }
+        out.append((char) ('0' + value % 10));
+    }
+
+    /**
+     * Returns false while a TP message is still being received
+     *
+     * @return true if the data is complete or the TP message failed
+     */
     public boolean isComplete() {
         return data != null;
     }
@@ -495,8 +748,9 @@ public class Packet {
          * Collect data first, because timestamp is dynamic until the data is collected. This will block on the data. We
          * want to report the timestamp of final packet.
          */
-        String dataString = toString();
-        return DateTimeModule.getInstance().getTimeFormatter().format(timestamp) + " " + dataString;
+        StringBuilder sb = new StringBuilder(toStringLength() + 16);
+        DateTimeModule.getInstance().getTimeFormatter().formatTo(getTimestamp(), sb);
+        return appendTo(sb.append(' ')).toString();
     }
 
     static public class PacketException extends RuntimeException {
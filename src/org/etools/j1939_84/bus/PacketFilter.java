@@ -0,0 +1,143 @@
+/*
+ * Copyright 2021 Equipment & Tool Institute
+ */
+package org.etools.j1939_84.bus;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+/**
+ * A declarative filter on the header of a {@link Packet}: PGN, source,
+ * destination and TX/RX. Only the header is examined, so the filter never
+ * blocks on a TP packet that is still being reassembled.
+ *
+ * Because the PGNs are known up front, a {@link MultiQueue} indexed by PGN
+ * only offers a published packet to the streams that are interested in it.
+ * Filters are immutable; each method returns a narrower filter.
+ *
+ * <pre>
+ * bus.read(600, MILLISECONDS, PacketFilter.pgns(pgn, 0xE800).sources(0x00));
+ * </pre>
+ *
+ * @author Joe Batt (joe@soliddesign.net)
+ */
+public final class PacketFilter implements MultiQueue.Filter<Packet> {
+
+    /**
+     * A filter that matches every packet.
+     */
+    public static final PacketFilter ALL = new PacketFilter(null, null, null, null);
+
+    /**
+     * Creates a filter that matches packets with any of the given PGNs. The
+     * PGN is as returned by {@link Packet#getPgn()}, so PDU1 PGNs do not
+     * include the destination address.
+     *
+     * @param  pgns
+     *                  the PGNs of interest
+     * @return      a new PacketFilter
+     */
+    public static PacketFilter pgns(int... pgns) {
+        return ALL.withPgns(pgns);
+    }
+
+    private static boolean contains(int[] values, int value) {
+        if (values == null) {
+            return true;
+        }
+        for (int v : values) {
+            if (v == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String toString(int[] values) {
+        return Arrays.stream(values).mapToObj(v -> String.format("%02X", v)).collect(Collectors.joining(",", "[", "]"));
+    }
+
+    private final int[] destinations;
+
+    private final int[] pgns;
+
+    private final int[] sources;
+
+    /** null for either */
+    private final Boolean transmitted;
+
+    private PacketFilter(int[] pgns, int[] sources, int[] destinations, Boolean transmitted) {
+        this.pgns = pgns;
+        this.sources = sources;
+        this.destinations = destinations;
+        this.transmitted = transmitted;
+    }
+
+    /**
+     * @param  destinations
+     *                          the destination addresses of interest, including
+     *                          {@link org.etools.j1939_84.bus.j1939.J1939#GLOBAL_ADDR}
+     *                          for PDU2 and global packets
+     * @return              a new PacketFilter that also requires one of the
+     *                      destinations
+     */
+    public PacketFilter destinations(int... destinations) {
+        return new PacketFilter(pgns, sources, destinations.clone(), transmitted);
+    }
+
+    @Override
+    public int[] getKeys() {
+        return pgns == null ? null : pgns.clone();
+    }
+
+    /**
+     * @return a new PacketFilter that also requires the packet to be received,
+     *         not transmitted by this application
+     */
+    public PacketFilter received() {
+        return new PacketFilter(pgns, sources, destinations, false);
+    }
+
+    /**
+     * @param  sources
+     *                     the source addresses of interest
+     * @return         a new PacketFilter that also requires one of the sources
+     */
+    public PacketFilter sources(int... sources) {
+        return new PacketFilter(pgns, sources.clone(), destinations, transmitted);
+    }
+
+    @Override
+    public boolean test(Packet packet) {
+        return contains(pgns, packet.getPgn())
+                && contains(sources, packet.getSource())
+                && contains(destinations, packet.getDestination())
+                && (transmitted == null || transmitted == packet.isTransmitted());
+    }
+
+    @Override
+    public String toString() {
+        return "PacketFilter"
+                + (pgns == null ? "" : " pgns=" + toString(pgns))
+                + (sources == null ? "" : " sources=" + toString(sources))
+                + (destinations == null ? "" : " destinations=" + toString(destinations))
+                + (transmitted == null ? "" : transmitted ? " TX" : " RX");
+    }
+
+    /**
+     * @return a new PacketFilter that also requires the packet to be the echo
+     *         of a packet transmitted by this application
+     */
+    public PacketFilter transmitted() {
+        return new PacketFilter(pgns, sources, destinations, true);
+    }
+
+    /**
+     * @param  pgns
+     *                  the PGNs of interest
+     * @return      a new PacketFilter that requires one of the PGNs
+     */
+    public PacketFilter withPgns(int... pgns) {
+        return new PacketFilter(pgns.clone(), sources, destinations, transmitted);
+    }
+}
@@ -12,14 +12,21 @@ import static org.etools.j1939_84.bus.RP1210Library.CMD_SET_ALL_FILTERS_STATES_T
 import static org.etools.j1939_84.bus.RP1210Library.ECHO_ON;
 
 import java.time.Instant;
-import java.time.LocalDateTime;
-import java.time.ZoneId;
+import java.util.ArrayDeque;
 import java.util.Arrays;
-import java.util.Optional;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Stream;
@@ -37,6 +44,28 @@ public class RP1210Bus implements Bus {
 
     private static final long GIGA = 1000000000;
 
+    /**
+     * The most frames read in one poll before other calls get a turn.
+     */
+    private static final int READ_BATCH_SIZE = 64;
+
+    /**
+     * The idle wait after the first empty read. It doubles with every empty
+     * read up to {@link #MAX_IDLE_NANOS}.
+     */
+    private static final long MIN_IDLE_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    /**
+     * The longest wait between reads of an idle bus, about 100 reads a second.
+     * Adapters timestamp frames as they arrive, so this only delays delivery,
+     * never the recorded time, and it is small next to the 200 ms a module
+     * has to respond. A send or command wakes the poller at once.
+     */
+    private static final long MAX_IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    /** How long to wait for the adapter to echo a sent packet */
+    private static final long ECHO_TIMEOUT_MS = 1000;
+
     /**
      * The source address for this tool
      */
@@ -48,7 +77,10 @@ public class RP1210Bus implements Bus {
     private final short clientId;
 
     /**
-     * The thread pool used for polling
+     * Decodes batches of frames off the polling thread. It must be single
+     * threaded: batches are submitted in the order they were read, and a single
+     * decoder keeps them in that order on the queue and is the only user of
+     * {@link #lastTimestamp} and {@link #timestampStartNanoseconds}.
      */
     private final ExecutorService decodingExecutor;
 
@@ -80,13 +112,51 @@ public class RP1210Bus implements Bus {
     // from the .INI file.
     final private long timestampWeight;
 
-    private boolean imposterDetected;
+    private volatile boolean imposterDetected;
+
+    /**
+     * Read buffers that are not in use. A batch is filled by {@link #poll()}
+     * and given back once its frames are decoded.
+     */
+    private final Queue<ReadBatch> readBatches = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The current idle wait; 0 while frames are arriving. A send or command
+     * cuts it back to {@link #MIN_IDLE_NANOS}, as its echo and response are
+     * expected soon.
+     */
+    private volatile long idleNanos;
+
+    /** The polling thread while it is waiting on an idle bus. */
+    private volatile Thread idleThread;
+
+    /** Calls submitted to {@link #rp1210Executor} that have not started. */
+    private final AtomicInteger pendingCalls = new AtomicInteger();
+
+    /**
+     * Sends waiting for their echo, oldest first for identical packets.
+     * Guarded by itself.
+     */
+    private final Map<EchoKey, Queue<CompletableFuture<Packet>>> pendingEchoes = new HashMap<>();
 
     public RP1210Bus(Adapter adapter, String connectionString, int address, boolean appPacketize) throws BusException {
+        this(adapter, connectionString, address, appPacketize, new MultiQueue<>(Packet::getPgn));
+    }
+
+    /**
+     * Creates a bus that publishes the packets read to the given queue, for
+     * example a bounded {@link MultiQueue} so that a stalled stream cannot
+     * hold every packet read.
+     */
+    public RP1210Bus(Adapter adapter,
+                     String connectionString,
+                     int address,
+                     boolean appPacketize,
+                     MultiQueue<Packet> queue) throws BusException {
         this(RP1210Library.load(adapter),
-             Executors.newFixedThreadPool(2),
              Executors.newSingleThreadExecutor(),
-             new MultiQueue<>(),
+             Executors.newSingleThreadExecutor(),
+             queue,
              adapter,
              connectionString,
              address,
@@ -146,6 +216,11 @@ public class RP1210Bus implements Bus {
         return queue.duplicate(stream, time, unit);
     }
 
+    @Override
+    public Stream<Packet> duplicate(Stream<Packet> stream, int time, TimeUnit unit, PacketFilter filter) {
+        return queue.duplicate(stream, time, unit, filter);
+    }
+
     @Override
     public int getAddress() {
         return address;
@@ -154,7 +229,7 @@ public class RP1210Bus implements Bus {
     @Override
     public int getConnectionSpeed() throws BusException {
         try {
-            return rp1210Executor.submit(() -> {
+            return submit(() -> {
                 byte[] bytes = new byte[128];
                 sendCommand(RP1210Library.CMD_GET_PROTOCOL_CONNECTION_SPEED, bytes);
                 return Integer.parseInt(new String(bytes, UTF_8).trim());
@@ -173,6 +248,11 @@ public class RP1210Bus implements Bus {
         return queue.stream(timeout, unit);
     }
 
+    @Override
+    public Stream<Packet> read(long timeout, TimeUnit unit, PacketFilter filter) throws BusException {
+        return queue.stream(timeout, unit, filter);
+    }
+
     /**
      * Reset stream timeout for stream created with bus.read(). To be used in a
      * stream call like peek, map or forEach.
@@ -184,35 +264,80 @@ public class RP1210Bus implements Bus {
 
     @Override
     public Packet send(Packet tx) throws BusException {
+        try {
+            return sendAsync(tx).get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof BusException) {
+                throw (BusException) e.getCause();
+            }
+            throw new BusException("Failed to send: " + tx, e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusException("Failed to send: " + tx, e);
+        }
+    }
+
+    /**
+     * Queues the packet for the adapter and returns at once. The future is
+     * completed by the decoder when the adapter echoes the packet, so any
+     * number of transmits may be in flight.
+     */
+    @Override
+    public CompletableFuture<Packet> sendAsync(Packet tx) {
         byte[] data = encode(tx);
-        try (Stream<Packet> stream = read(1000, TimeUnit.MILLISECONDS)) {
+        EchoKey key = new EchoKey(tx);
+        CompletableFuture<Packet> echo = new CompletableFuture<>();
+        synchronized (pendingEchoes) {
+            pendingEchoes.computeIfAbsent(key, k -> new ArrayDeque<>()).add(echo);
+        }
+        echo.whenComplete((p, t) -> {
+            if (t != null) {
+                synchronized (pendingEchoes) {
+                    Queue<CompletableFuture<Packet>> echoes = pendingEchoes.get(key);
+                    if (echoes != null && echoes.remove(echo) && echoes.isEmpty()) {
+                        pendingEchoes.remove(key);
+                    }
+                }
+            }
+        });
+        CompletableFuture.delayedExecutor(ECHO_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+                         .execute(() -> echo.completeExceptionally(new BusException("Failed to send: " + tx)));
+        try {
             // rp1210 libraries may not be thread safe
-            Optional<String> error = rp1210Executor.submit(() -> {
+            submit(() -> {
                 short rtn = rp1210Library.RP1210_SendMessage(clientId,
                                                              data,
                                                              (short) data.length,
                                                              RP1210Library.NOTIFICATION_NONE,
                                                              BLOCKING_NONE);
                 if (rtn > 127 || rtn < 0) {
-                    return Optional.of(getErrorMessage(rtn));
+                    echo.completeExceptionally(new BusException(getErrorMessage(rtn)));
                 }
-                return Optional.<String>empty();
-            }).get();
-            if (error.isPresent()) {
-                throw new BusException(error.get());
-            }
-            int id = tx.getId(0xFFFF);
-            int source = tx.getSource();
-            return stream
-                         .filter(rx -> rx.isTransmitted() && id == rx.getId(0xFFFF) && rx.getSource() == source)
-                         .findFirst()
-                         .orElseThrow(() -> new BusException("Failed to send: " + tx));
-        } catch (BusException e) {
-            throw e;
-        } catch (Throwable t) {
-            throw new BusException("Failed to send: " + tx, t);
+                return null;
+            });
+        } catch (RuntimeException e) {
+            echo.completeExceptionally(new BusException("Failed to send: " + tx, e));
         }
+        return echo;
+    }
 
+    /**
+     * Completes the oldest pending send of the echoed packet
+     */
+    private void completeEcho(Packet echo) {
+        EchoKey key = new EchoKey(echo);
+        CompletableFuture<Packet> future;
+        synchronized (pendingEchoes) {
+            Queue<CompletableFuture<Packet>> echoes = pendingEchoes.get(key);
+            if (echoes == null) {
+                return;
+            }
+            future = echoes.poll();
+            if (echoes.isEmpty()) {
+                pendingEchoes.remove(key);
+            }
+        }
+        future.complete(echo);
     }
 
     /**
@@ -252,10 +377,7 @@ public class RP1210Bus implements Bus {
         long nanoseconds = timestamp + timestampStartNanoseconds;
         DateTimeModule.getInstance().setNanoTime(nanoseconds);
 
-        // convert to LocalTime for Packet
-        Instant time = Instant.ofEpochSecond( /* seconds */ nanoseconds / GIGA,
-                                             /* nanoseconds */(nanoseconds % GIGA));
-        return Packet.create(LocalDateTime.ofInstant(time, ZoneId.systemDefault()),
+        return Packet.create(nanoseconds,
                              priority,
                              pgn,
                              source,
@@ -280,23 +402,50 @@ public class RP1210Bus implements Bus {
         buf[3] = (byte) packet.getPriority();
         buf[4] = (byte) packet.getSource();
         buf[5] = (id < 0xF000) ? (byte) (id & 0xFF) : 0;
-        for (int i = 0; i < packet.getLength(); i++) {
-            buf[6 + i] = (byte) packet.get(i);
-        }
+        packet.copyTo(0, buf, 6, packet.getLength());
         return buf;
     }
 
     /**
-     * Checks the {@link RP1210Library} for any incoming messages. Any incoming
-     * messages are decoded and added to the queue
+     * Submits a call to the {@link RP1210Library} on the polling thread, waking
+     * the poller if it is waiting on an idle bus.
+     */
+    private <T> Future<T> submit(Callable<T> call) {
+        idleNanos = MIN_IDLE_NANOS;
+        pendingCalls.incrementAndGet();
+        try {
+            Future<T> future = rp1210Executor.submit(() -> {
+                pendingCalls.decrementAndGet();
+                return call.call();
+            });
+            Thread thread = idleThread;
+            if (thread != null) {
+                LockSupport.unpark(thread);
+            }
+            return future;
+        } catch (RuntimeException e) {
+            pendingCalls.decrementAndGet();
+            throw e;
+        }
+    }
+
+    /**
+     * Checks the {@link RP1210Library} for any incoming messages. Everything
+     * queued in the adapter, up to a batch, is read in one burst and handed to
+     * the decoder. When nothing was read, the poller waits a little longer each
+     * time, unless another call is waiting for this thread.
      */
     private void poll() {
         try {
-            while (true) {
-                byte[] data = new byte[32];
+            ReadBatch batch = readBatches.poll();
+            if (batch == null) {
+                batch = new ReadBatch();
+            }
+            while (batch.count < READ_BATCH_SIZE) {
+                byte[] data = batch.frames[batch.count];
                 short rtn = rp1210Library.RP1210_ReadMessage(clientId, data, (short) data.length, BLOCKING_NONE);
                 if (rtn > 0) {
-                    decodeDataAndQueuePacket(data, rtn);
+                    batch.lengths[batch.count++] = rtn;
                 } else if (rtn == -RP1210Library.ERR_RX_QUEUE_FULL) {
                     // RX queue full, remedy is to reread.
                     logger.log(Level.SEVERE, getErrorMessage(rtn));
@@ -305,23 +454,48 @@ public class RP1210Bus implements Bus {
                     break;
                 }
             }
-            // this allows the other calls to have a chance
-            Thread.yield();
+            if (batch.count > 0) {
+                idleNanos = 0;
+                decodeDataAndQueuePackets(batch);
+            } else {
+                readBatches.add(batch);
+                waitForData();
+            }
             rp1210Executor.submit(this::poll);
         } catch (BusException e) {
             logger.log(Level.SEVERE, "Failed to read RP1210", e);
         }
     }
 
-    private void decodeDataAndQueuePacket(byte[] data, short rtn) {
+    /**
+     * Waits before the next read of an idle bus, returning early when a send or
+     * command is submitted.
+     */
+    private void waitForData() {
+        idleNanos = idleNanos == 0 ? MIN_IDLE_NANOS : Math.min(idleNanos * 2, MAX_IDLE_NANOS);
+        idleThread = Thread.currentThread();
+        if (pendingCalls.get() == 0) {
+            LockSupport.parkNanos(this, idleNanos);
+        }
+        idleThread = null;
+    }
+
+    private void decodeDataAndQueuePackets(ReadBatch batch) {
         decodingExecutor.submit(() -> {
-            Packet packet = decode(data, rtn);
-            logger.log(Level.FINE, packet.toTimeString());
-            if (packet.getSource() == getAddress() && !packet.isTransmitted()) {
-                logger.log(Level.WARNING, "Another ECU is using this address: " + packet);
-                imposterDetected = true;
+            for (int i = 0; i < batch.count; i++) {
+                Packet packet = decode(batch.frames[i], batch.lengths[i]);
+                logger.log(Level.FINE, packet::toTimeString);
+                if (packet.getSource() == getAddress() && !packet.isTransmitted()) {
+                    logger.log(Level.WARNING, "Another ECU is using this address: " + packet);
+                    imposterDetected = true;
+                }
+                queue.add(packet);
+                if (packet.isTransmitted()) {
+                    completeEcho(packet);
+                }
             }
-            queue.add(packet);
+            batch.count = 0;
+            readBatches.add(batch);
         });
     }
 
@@ -348,7 +522,7 @@ public class RP1210Bus implements Bus {
      */
     public void stop() throws BusException {
         try {
-            rp1210Executor.submit(() -> rp1210Library.RP1210_ClientDisconnect(clientId)).get();
+            submit(() -> rp1210Library.RP1210_ClientDisconnect(clientId)).get();
         } catch (Exception e) {
             throw new BusException("Failed to stop RP1210.", e);
         } finally {
@@ -383,4 +557,38 @@ public class RP1210Bus implements Bus {
     public boolean imposterDetected() {
         return imposterDetected;
     }
+
+    /** What identifies the echo of a sent packet */
+    private static class EchoKey {
+        private final int id;
+        private final int source;
+        private final byte[] data;
+
+        private EchoKey(Packet packet) {
+            id = packet.getId(0xFFFF);
+            source = packet.getSource();
+            data = packet.getBytes();
+        }
+
+        @Override
+        public int hashCode() {
+            return (id * 31 + source) * 31 + Arrays.hashCode(data);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof EchoKey)) {
+                return false;
+            }
+            EchoKey that = (EchoKey) obj;
+            return id == that.id && source == that.source && Arrays.equals(data, that.data);
+        }
+    }
+
+    /** Frames read from the adapter in one poll */
+    private static class ReadBatch {
+        private final byte[][] frames = new byte[READ_BATCH_SIZE][32];
+        private final short[] lengths = new short[READ_BATCH_SIZE];
+        private int count;
+    }
 }
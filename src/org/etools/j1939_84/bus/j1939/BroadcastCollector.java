@@ -0,0 +1,146 @@
+/**
+ * Copyright 2021 Equipment & Tool Institute
+ */
+package org.etools.j1939_84.bus.j1939;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.etools.j1939_84.bus.Packet;
+
+/**
+ * Tracks the broadcasts expected while reading the bus, so the read can end
+ * as soon as it has what it needs instead of always waiting the full time.
+ *
+ * A read with a collector ends at the first of:
+ * <ul>
+ * <li>every expected broadcast has been received the number of times needed,
+ * and the longest period has passed, so every module broadcasting at that
+ * period or faster has been heard from at least once</li>
+ * <li>twice the longest period has passed without any new information, which
+ * is a first packet from a source and PGN, or a needed sample of an expected
+ * broadcast</li>
+ * <li>the timeout of the read</li>
+ * </ul>
+ *
+ * An expected broadcast is a source address and the PGNs that source may use
+ * to send it, any one of which is enough. A collector without any expected
+ * broadcasts reads for the full timeout.
+ */
+public class BroadcastCollector {
+
+    /** A broadcast that may come in any one of several PGNs */
+    private static class Expected {
+        private boolean received;
+    }
+
+    private static int key(int source, int pgn) {
+        return pgn << 8 | source;
+    }
+
+    /** The number of packets received for each source and PGN */
+    private final Map<Integer, Integer> counts = new HashMap<>();
+
+    /** The expected broadcasts each source and PGN can satisfy */
+    private final Map<Integer, List<Expected>> expected = new HashMap<>();
+
+    private final long periodNanos;
+
+    private final int samples;
+
+    /** The number of expected broadcasts which have not been received */
+    private int waiting;
+
+    /** System.nanoTime() when the read will end */
+    private volatile long deadline = Long.MAX_VALUE;
+
+    /**
+     * @param period
+     *                    the longest broadcast period expected
+     * @param unit
+     *                    the unit of period
+     * @param samples
+     *                    the number of packets needed for each expected
+     *                    broadcast
+     */
+    public BroadcastCollector(long period, TimeUnit unit, int samples) {
+        periodNanos = unit.toNanos(period);
+        this.samples = samples;
+    }
+
+    /**
+     * Adds a broadcast to wait for.
+     *
+     * @param source
+     *                   the source address of the module
+     * @param pgns
+     *                   the PGNs the module may broadcast it in
+     */
+    public synchronized void expect(int source, Collection<Integer> pgns) {
+        if (pgns.isEmpty()) {
+            return;
+        }
+        Expected e = new Expected();
+        for (int pgn : pgns) {
+            int key = key(source, pgn);
+            expected.computeIfAbsent(key, k -> new ArrayList<>()).add(e);
+            if (counts.getOrDefault(key, 0) >= samples) {
+                e.received = true;
+            }
+        }
+        if (!e.received) {
+            waiting++;
+        }
+    }
+
+    /**
+     * Counts a packet read from the bus.
+     *
+     * @return true if the packet is new information
+     */
+    synchronized boolean add(Packet packet) {
+        int key = key(packet.getSource(), packet.getPgn());
+        int count = counts.merge(key, 1, Integer::sum);
+        boolean isNew = count == 1;
+        for (Expected e : expected.getOrDefault(key, List.of())) {
+            if (!e.received) {
+                isNew = true;
+                if (count >= samples) {
+                    e.received = true;
+                    waiting--;
+                }
+            }
+        }
+        return isNew;
+    }
+
+    /**
+     * @return System.nanoTime() when the current read ends, or Long.MAX_VALUE
+     *         if it is not known
+     */
+    public long getDeadline() {
+        return deadline;
+    }
+
+    long getPeriodNanos() {
+        return periodNanos;
+    }
+
+    /** @return true if there are expected broadcasts */
+    public synchronized boolean hasExpected() {
+        return !expected.isEmpty();
+    }
+
+    /** @return true if every expected broadcast has been received */
+    public synchronized boolean isComplete() {
+        return waiting == 0;
+    }
+
+    void setDeadline(long deadline) {
+        this.deadline = deadline;
+    }
+}
@@ -0,0 +1,266 @@
+/**
+ * Copyright 2021 Equipment & Tool Institute
+ */
+package org.etools.j1939_84.bus.j1939;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import org.etools.j1939_84.bus.Packet;
+import org.etools.j1939_84.bus.j1939.packets.AcknowledgmentPacket;
+import org.etools.j1939_84.bus.j1939.packets.AddressClaimPacket;
+import org.etools.j1939_84.bus.j1939.packets.ComponentIdentificationPacket;
+import org.etools.j1939_84.bus.j1939.packets.DM11ClearActiveDTCsPacket;
+import org.etools.j1939_84.bus.j1939.packets.DM12MILOnEmissionDTCPacket;
+import org.etools.j1939_84.bus.j1939.packets.DM19CalibrationInformationPacket;
+import org.etools.j1939_84.bus.j1939.packets.DM1ActiveDTCsPacket;
+import org.etools.j1939_84.bus.j1939.packets.DM20MonitorPerformanceRatioPacket;
+import org.etools.j1939_84.bus.j1939.packets.DM21DiagnosticReadinessPacket;
+import org.etools.j1939_84.bus.j1939.packets.DM22IndividualClearPacket;
+import org.etools.j1939_84.bus.j1939.packets.DM23PreviouslyMILOnEmissionDTCPacket;
+import org.etools.j1939_84.bus.j1939.packets.DM24SPNSupportPacket;
+import org.etools.j1939_84.bus.j1939.packets.DM25ExpandedFreezeFrame;
+import org.etools.j1939_84.bus.j1939.packets.DM26TripDiagnosticReadinessPacket;
+import org.etools.j1939_84.bus.j1939.packets.DM27AllPendingDTCsPacket;
+import org.etools.j1939_84.bus.j1939.packets.DM28PermanentEmissionDTCPacket;
+import org.etools.j1939_84.bus.j1939.packets.DM29DtcCounts;
+import org.etools.j1939_84.bus.j1939.packets.DM2PreviouslyActiveDTC;
+import org.etools.j1939_84.bus.j1939.packets.DM30ScaledTestResultsPacket;
+import org.etools.j1939_84.bus.j1939.packets.DM31DtcToLampAssociation;
+import org.etools.j1939_84.bus.j1939.packets.DM33EmissionIncreasingAECDActiveTime;
+import org.etools.j1939_84.bus.j1939.packets.DM34NTEStatus;
+import org.etools.j1939_84.bus.j1939.packets.DM3DiagnosticDataClearPacket;
+import org.etools.j1939_84.bus.j1939.packets.DM56EngineFamilyPacket;
+import org.etools.j1939_84.bus.j1939.packets.DM5DiagnosticReadinessPacket;
+import org.etools.j1939_84.bus.j1939.packets.DM6PendingEmissionDTCPacket;
+import org.etools.j1939_84.bus.j1939.packets.DM7CommandTestsPacket;
+import org.etools.j1939_84.bus.j1939.packets.EngineHoursPacket;
+import org.etools.j1939_84.bus.j1939.packets.EngineSpeedPacket;
+import org.etools.j1939_84.bus.j1939.packets.GenericPacket;
+import org.etools.j1939_84.bus.j1939.packets.HighResVehicleDistancePacket;
+import org.etools.j1939_84.bus.j1939.packets.ParsedPacket;
+import org.etools.j1939_84.bus.j1939.packets.TotalVehicleDistancePacket;
+import org.etools.j1939_84.bus.j1939.packets.VehicleIdentificationPacket;
+import org.etools.j1939_84.utils.IntMap;
+
+/**
+ * Maps each PGN to the {@link ParsedPacket} class that decodes it, and each
+ * class back to its PGN. PGNs without a decoder are decoded as
+ * {@link GenericPacket}s.
+ *
+ * The packets this tool parses itself are registered when the registry is
+ * created; another packet class can be added with
+ * {@link #register(int, Class, Function)}. Lookups don't lock or box the PGN.
+ * Registering copies the table, so it is meant to be done at startup.
+ *
+ * The registry also counts the packets it decodes for each PGN.
+ */
+public class DecoderRegistry {
+
+    private static class Decoder {
+        private final LongAdder count = new LongAdder();
+        private final Function<Packet, ? extends ParsedPacket> factory;
+
+        private Decoder(Function<Packet, ? extends ParsedPacket> factory) {
+            this.factory = factory;
+        }
+    }
+
+    private static final DecoderRegistry instance = new DecoderRegistry();
+
+    public static DecoderRegistry getInstance() {
+        return instance;
+    }
+
+    /** Read by reflection, only for a class that isn't registered. */
+    private static int readPgnField(Class<?> cls) {
+        try {
+            return cls.getField("PGN").getInt(null);
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    /** Decoders by PGN. Replaced, never changed, when one is registered. */
+    private volatile IntMap<Decoder> decoders = new IntMap<>(64);
+
+    /**
+     * The number of generic packets decoded for each PGN. Replaced, never
+     * changed, the first time a PGN is decoded as a generic packet.
+     */
+    private volatile IntMap<LongAdder> genericCounts = new IntMap<>(64);
+
+    /** PGNs by class. Replaced, never changed, when one is registered. */
+    private volatile Map<Class<?>, Integer> registeredPgns = Map.of();
+
+    private final ClassValue<Integer> pgns = new ClassValue<>() {
+        @Override
+        protected Integer computeValue(Class<?> cls) {
+            Integer pgn = registeredPgns.get(cls);
+            return pgn != null ? pgn : readPgnField(cls);
+        }
+    };
+
+    DecoderRegistry() {
+        register(DM1ActiveDTCsPacket.PGN, DM1ActiveDTCsPacket.class, DM1ActiveDTCsPacket::new);
+        register(DM2PreviouslyActiveDTC.PGN, DM2PreviouslyActiveDTC.class, DM2PreviouslyActiveDTC::new);
+        register(DM3DiagnosticDataClearPacket.PGN,
+                 DM3DiagnosticDataClearPacket.class,
+                 DM3DiagnosticDataClearPacket::new);
+        register(DM5DiagnosticReadinessPacket.PGN,
+                 DM5DiagnosticReadinessPacket.class,
+                 DM5DiagnosticReadinessPacket::new);
+        register(DM6PendingEmissionDTCPacket.PGN,
+                 DM6PendingEmissionDTCPacket.class,
+                 DM6PendingEmissionDTCPacket::new);
+        register(DM7CommandTestsPacket.PGN, DM7CommandTestsPacket.class, DM7CommandTestsPacket::new);
+        register(DM11ClearActiveDTCsPacket.PGN, DM11ClearActiveDTCsPacket.class, DM11ClearActiveDTCsPacket::new);
+        register(DM12MILOnEmissionDTCPacket.PGN, DM12MILOnEmissionDTCPacket.class, DM12MILOnEmissionDTCPacket::new);
+        register(DM19CalibrationInformationPacket.PGN,
+                 DM19CalibrationInformationPacket.class,
+                 DM19CalibrationInformationPacket::new);
+        register(DM20MonitorPerformanceRatioPacket.PGN,
+                 DM20MonitorPerformanceRatioPacket.class,
+                 DM20MonitorPerformanceRatioPacket::new);
+        register(DM21DiagnosticReadinessPacket.PGN,
+                 DM21DiagnosticReadinessPacket.class,
+                 DM21DiagnosticReadinessPacket::new);
+        register(DM22IndividualClearPacket.PGN, DM22IndividualClearPacket.class, DM22IndividualClearPacket::new);
+        register(DM23PreviouslyMILOnEmissionDTCPacket.PGN,
+                 DM23PreviouslyMILOnEmissionDTCPacket.class,
+                 DM23PreviouslyMILOnEmissionDTCPacket::new);
+        register(DM24SPNSupportPacket.PGN, DM24SPNSupportPacket.class, DM24SPNSupportPacket::new);
+        register(DM25ExpandedFreezeFrame.PGN, DM25ExpandedFreezeFrame.class, DM25ExpandedFreezeFrame::new);
+        register(DM26TripDiagnosticReadinessPacket.PGN,
+                 DM26TripDiagnosticReadinessPacket.class,
+                 DM26TripDiagnosticReadinessPacket::new);
+        register(DM27AllPendingDTCsPacket.PGN, DM27AllPendingDTCsPacket.class, DM27AllPendingDTCsPacket::new);
+        register(DM28PermanentEmissionDTCPacket.PGN,
+                 DM28PermanentEmissionDTCPacket.class,
+                 DM28PermanentEmissionDTCPacket::new);
+        register(DM29DtcCounts.PGN, DM29DtcCounts.class, DM29DtcCounts::new);
+        register(DM30ScaledTestResultsPacket.PGN,
+                 DM30ScaledTestResultsPacket.class,
+                 DM30ScaledTestResultsPacket::new);
+        register(DM31DtcToLampAssociation.PGN, DM31DtcToLampAssociation.class, DM31DtcToLampAssociation::new);
+        register(DM33EmissionIncreasingAECDActiveTime.PGN,
+                 DM33EmissionIncreasingAECDActiveTime.class,
+                 DM33EmissionIncreasingAECDActiveTime::new);
+        register(DM34NTEStatus.PGN, DM34NTEStatus.class, DM34NTEStatus::new);
+        register(DM56EngineFamilyPacket.PGN, DM56EngineFamilyPacket.class, DM56EngineFamilyPacket::new);
+        register(AcknowledgmentPacket.PGN, AcknowledgmentPacket.class, AcknowledgmentPacket::new);
+        register(AddressClaimPacket.PGN, AddressClaimPacket.class, AddressClaimPacket::new);
+        register(ComponentIdentificationPacket.PGN,
+                 ComponentIdentificationPacket.class,
+                 ComponentIdentificationPacket::new);
+        register(EngineSpeedPacket.PGN, EngineSpeedPacket.class, EngineSpeedPacket::new);
+        register(EngineHoursPacket.PGN, EngineHoursPacket.class, EngineHoursPacket::new);
+        register(HighResVehicleDistancePacket.PGN,
+                 HighResVehicleDistancePacket.class,
+                 HighResVehicleDistancePacket::new);
+        register(TotalVehicleDistancePacket.PGN, TotalVehicleDistancePacket.class, TotalVehicleDistancePacket::new);
+        register(VehicleIdentificationPacket.PGN,
+                 VehicleIdentificationPacket.class,
+                 VehicleIdentificationPacket::new);
+    }
+
+    /**
+     * Decodes the packet with the decoder registered for its PGN, or as a
+     * {@link GenericPacket} if there isn't one.
+     */
+    public ParsedPacket decode(Packet packet) {
+        int pgn = packet.getPgn();
+        Decoder decoder = decoders.get(pgn);
+        if (decoder == null) {
+            LongAdder count = genericCounts.get(pgn);
+            if (count == null) {
+                count = addGenericCount(pgn);
+            }
+            count.increment();
+            return new GenericPacket(packet);
+        }
+        decoder.count.increment();
+        return decoder.factory.apply(packet);
+    }
+
+    /**
+     * @return the number of packets decoded for each PGN, by PGN
+     */
+    public Map<Integer, Long> getDecodeCounts() {
+        Map<Integer, Long> result = new TreeMap<>();
+        IntMap<LongAdder> counts = genericCounts;
+        for (int pgn : counts.keys()) {
+            result.put(pgn, counts.get(pgn).sum());
+        }
+        IntMap<Decoder> current = decoders;
+        for (int pgn : current.keys()) {
+            long count = current.get(pgn).count.sum();
+            if (count > 0) {
+                result.put(pgn, count);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the PGN of the packet class, or -1 if it isn't registered and
+     *         doesn't have a static PGN field
+     */
+    public int getPgn(Class<?> cls) {
+        return pgns.get(cls);
+    }
+
+    /**
+     * @return true if the PGN is decoded by something other than
+     *         {@link GenericPacket}
+     */
+    public boolean isRegistered(int pgn) {
+        return decoders.containsKey(pgn);
+    }
+
+    /** Adds the count of a PGN first decoded as a generic packet. */
+    private synchronized LongAdder addGenericCount(int pgn) {
+        IntMap<LongAdder> oldCounts = genericCounts;
+        LongAdder count = oldCounts.get(pgn);
+        if (count == null) {
+            IntMap<LongAdder> newCounts = new IntMap<>(oldCounts.size() + 1);
+            for (int key : oldCounts.keys()) {
+                newCounts.put(key, oldCounts.get(key));
+            }
+            count = new LongAdder();
+            newCounts.put(pgn, count);
+            genericCounts = newCounts;
+        }
+        return count;
+    }
+
+    /**
+     * Adds, or replaces, the decoder for a PGN.
+     *
+     * @param pgn
+     *                    the PGN decoded
+     * @param cls
+     *                    the class of the packets decoded
+     * @param factory
+     *                    creates a packet of that class from a raw packet
+     */
+    public synchronized <T extends ParsedPacket> void register(int pgn,
+                                                               Class<T> cls,
+                                                               Function<Packet, T> factory) {
+        IntMap<Decoder> newDecoders = new IntMap<>(decoders.size() + 1);
+        IntMap<Decoder> oldDecoders = decoders;
+        for (int key : oldDecoders.keys()) {
+            newDecoders.put(key, oldDecoders.get(key));
+        }
+        newDecoders.put(pgn, new Decoder(factory));
+        decoders = newDecoders;
+
+        Map<Class<?>, Integer> newPgns = new HashMap<>(registeredPgns);
+        newPgns.put(cls, pgn);
+        registeredPgns = newPgns;
+        pgns.remove(cls);
+    }
+}
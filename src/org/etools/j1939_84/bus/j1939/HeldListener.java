@@ -0,0 +1,100 @@
+/**
+ * Copyright 2021 Equipment & Tool Institute
+ */
+package org.etools.j1939_84.bus.j1939;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.etools.j1939_84.controllers.QuestionListener;
+import org.etools.j1939_84.controllers.ResultsListener;
+import org.etools.j1939_84.model.Outcome;
+import org.etools.j1939_84.model.VehicleInformation;
+import org.etools.j1939_84.model.VehicleInformationListener;
+
+/**
+ * Holds the report output written to it, in order, until it is replayed to
+ * another {@link ResultsListener}. Requests made on other threads, or ahead of
+ * when their output belongs in the report, write to one of these.
+ *
+ * Callbacks that wait for the user, a question or the vehicle information,
+ * are not held. They are passed straight to the interactive listener, so the
+ * request is not left waiting for an answer that cannot come until it is
+ * done.
+ */
+class HeldListener implements ResultsListener {
+    private final List<Consumer<ResultsListener>> calls = new ArrayList<>();
+
+    private final ResultsListener interactive;
+
+    /**
+     * @param interactive
+     *                        the listener for the callbacks that wait for the
+     *                        user
+     */
+    HeldListener(ResultsListener interactive) {
+        this.interactive = interactive;
+    }
+
+    @Override
+    public synchronized void addOutcome(int partNumber, int stepNumber, Outcome outcome, String message) {
+        calls.add(l -> l.addOutcome(partNumber, stepNumber, outcome, message));
+    }
+
+    @Override
+    public synchronized void onComplete(boolean success) {
+        calls.add(l -> l.onComplete(success));
+    }
+
+    @Override
+    public synchronized void onMessage(String message, String title, MessageType type) {
+        calls.add(l -> l.onMessage(message, title, type));
+    }
+
+    @Override
+    public synchronized void onProgress(int currentStep, int totalSteps, String message) {
+        calls.add(l -> l.onProgress(currentStep, totalSteps, message));
+    }
+
+    @Override
+    public synchronized void onProgress(String message) {
+        calls.add(l -> l.onProgress(message));
+    }
+
+    @Override
+    public synchronized void onResult(List<String> results) {
+        calls.add(l -> l.onResult(results));
+    }
+
+    @Override
+    public synchronized void onResult(String result) {
+        calls.add(l -> l.onResult(result));
+    }
+
+    @Override
+    public synchronized void onUrgentMessage(String message, String title, MessageType type) {
+        calls.add(l -> l.onUrgentMessage(message, title, type));
+    }
+
+    @Override
+    public void onUrgentMessage(String message, String title, MessageType type, QuestionListener listener) {
+        interactive.onUrgentMessage(message, title, type, listener);
+    }
+
+    @Override
+    public void onVehicleInformationNeeded(VehicleInformationListener listener) {
+        interactive.onVehicleInformationNeeded(listener);
+    }
+
+    @Override
+    public synchronized void onVehicleInformationReceived(VehicleInformation vehicleInformation) {
+        calls.add(l -> l.onVehicleInformationReceived(vehicleInformation));
+    }
+
+    /** Writes what is held to the listener, and holds nothing after. */
+    synchronized void replay(ResultsListener listener) {
+        calls.forEach(c -> c.accept(listener));
+        calls.clear();
+    }
+}
@@ -0,0 +1,226 @@
+/**
+ * Copyright 2021 Equipment & Tool Institute
+ */
+package org.etools.j1939_84.bus.j1939;
+
+import java.util.Arrays;
+
+/**
+ * The intervals between the packets of one PGN from one source, gathered as
+ * each packet arrives without keeping the packets or the intervals.
+ *
+ * The count, minimum, maximum and mean are exact. The 5th, 50th and 95th
+ * percentiles, which show the jitter, are the nearest of the intervals for
+ * up to 32 intervals. After that they are estimated with the P² algorithm
+ * (Jain and Chlamtac), which keeps five markers for each one, starting from
+ * those intervals.
+ */
+public class IntervalStatistics {
+
+    /**
+     * Estimates a percentile with five markers whose heights are moved toward
+     * where they should be as each value arrives.
+     */
+    private static class Percentile {
+
+        /** How far each marker's desired position moves with each value */
+        private final double[] increments;
+
+        /** The desired positions of the markers */
+        private final double[] desired = new double[5];
+
+        /** The actual positions of the markers */
+        private final int[] positions = new int[5];
+
+        /** The heights of the markers; the middle one is the estimate */
+        private final double[] heights = new double[5];
+
+        private Percentile(double p) {
+            increments = new double[] { 0, p / 2, p, (1 + p) / 2, 1 };
+        }
+
+        private void add(double x) {
+            // find the cell of x, moving the end markers if it's outside
+            int k;
+            if (x < heights[0]) {
+                heights[0] = x;
+                k = 0;
+            } else if (x >= heights[4]) {
+                heights[4] = x;
+                k = 3;
+            } else {
+                k = 0;
+                while (x >= heights[k + 1]) {
+                    k++;
+                }
+            }
+            for (int i = k + 1; i < positions.length; i++) {
+                positions[i]++;
+            }
+            for (int i = 0; i < desired.length; i++) {
+                desired[i] += increments[i];
+            }
+
+            // move the middle markers that are off by one or more
+            for (int i = 1; i <= 3; i++) {
+                double d = desired[i] - positions[i];
+                if ((d >= 1 && positions[i + 1] - positions[i] > 1)
+                        || (d <= -1 && positions[i - 1] - positions[i] < -1)) {
+                    int step = d > 0 ? 1 : -1;
+                    double height = parabolic(i, step);
+                    if (heights[i - 1] < height && height < heights[i + 1]) {
+                        heights[i] = height;
+                    } else {
+                        heights[i] = linear(i, step);
+                    }
+                    positions[i] += step;
+                }
+            }
+        }
+
+        private double get() {
+            return heights[2];
+        }
+
+        /** Places the markers on the sorted values received so far */
+        private void init(long[] sorted) {
+            int last = sorted.length - 1;
+            for (int i = 0; i < positions.length; i++) {
+                desired[i] = increments[i] * last;
+                int position = (int) Math.round(desired[i]);
+                // the markers must stay in order, at least one apart
+                position = Math.max(position, i == 0 ? 0 : positions[i - 1] + 1);
+                position = Math.min(position, last - (positions.length - 1 - i));
+                positions[i] = position;
+                heights[i] = sorted[position];
+            }
+        }
+
+        private double linear(int i, int step) {
+            return heights[i] + step * (heights[i + step] - heights[i]) / (positions[i + step] - positions[i]);
+        }
+
+        private double parabolic(int i, int step) {
+            double below = positions[i] - positions[i - 1];
+            double above = positions[i + 1] - positions[i];
+            return heights[i] + step / (double) (positions[i + 1] - positions[i - 1])
+                    * ((below + step) * (heights[i + 1] - heights[i]) / above
+                            + (above - step) * (heights[i] - heights[i - 1]) / below);
+        }
+    }
+
+    /** The number of intervals kept for exact percentiles */
+    private static final int EXACT = 32;
+
+    /** The first intervals, kept until there are more than {@link #EXACT} */
+    private final long[] first = new long[EXACT];
+
+    private final Percentile p5 = new Percentile(0.05);
+
+    private final Percentile p50 = new Percentile(0.50);
+
+    private final Percentile p95 = new Percentile(0.95);
+
+    private long count;
+
+    private long last = Long.MIN_VALUE;
+
+    private long max = -1;
+
+    private double mean;
+
+    private long min = -1;
+
+    /**
+     * Adds the time a packet arrived, which ends the interval since the last
+     * one.
+     *
+     * @param timestamp
+     *                      the time of the packet in nanoseconds
+     */
+    public void add(long timestamp) {
+        if (last != Long.MIN_VALUE) {
+            long interval = timestamp - last;
+            count++;
+            if (min < 0 || interval < min) {
+                min = interval;
+            }
+            if (interval > max) {
+                max = interval;
+            }
+            mean += (interval - mean) / count;
+            if (count <= EXACT) {
+                first[(int) count - 1] = interval;
+            } else {
+                if (count == EXACT + 1) {
+                    long[] sorted = first.clone();
+                    Arrays.sort(sorted);
+                    p5.init(sorted);
+                    p50.init(sorted);
+                    p95.init(sorted);
+                }
+                p5.add(interval);
+                p50.add(interval);
+                p95.add(interval);
+            }
+        }
+        last = timestamp;
+    }
+
+    private double get(Percentile percentile, double p) {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        if (count > EXACT) {
+            return percentile.get();
+        }
+        // the nearest of the intervals kept
+        long[] sorted = Arrays.copyOf(first, (int) count);
+        Arrays.sort(sorted);
+        return sorted[(int) Math.round(p * (count - 1))];
+    }
+
+    /** @return the number of intervals */
+    public long getCount() {
+        return count;
+    }
+
+    /** @return the longest interval in nanoseconds, or -1 if there are none */
+    public long getMax() {
+        return max;
+    }
+
+    /** @return the mean interval in nanoseconds, or NaN if there are none */
+    public double getMean() {
+        return count == 0 ? Double.NaN : mean;
+    }
+
+    /** @return the shortest interval in nanoseconds, or -1 if there are none */
+    public long getMin() {
+        return min;
+    }
+
+    /**
+     * @return the estimated 5th percentile of the intervals in nanoseconds,
+     *         or NaN if there are none
+     */
+    public double getP5() {
+        return get(p5, 0.05);
+    }
+
+    /**
+     * @return the estimated median of the intervals in nanoseconds, or NaN if
+     *         there are none
+     */
+    public double getP50() {
+        return get(p50, 0.50);
+    }
+
+    /**
+     * @return the estimated 95th percentile of the intervals in nanoseconds,
+     *         or NaN if there are none
+     */
+    public double getP95() {
+        return get(p95, 0.95);
+    }
+}
@@ -4,24 +4,30 @@
 package org.etools.j1939_84.bus.j1939;
 
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static java.util.logging.Level.SEVERE;
 import static org.etools.j1939_84.J1939_84.getLogger;
 import static org.etools.j1939_84.bus.j1939.packets.AcknowledgmentPacket.Response.BUSY;
 
-import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import org.etools.j1939_84.bus.Bus;
@@ -30,41 +36,13 @@ import org.etools.j1939_84.bus.EchoBus;
 import org.etools.j1939_84.bus.Either;
 import org.etools.j1939_84.bus.Packet;
 import org.etools.j1939_84.bus.Packet.PacketException;
+import org.etools.j1939_84.bus.PacketFilter;
 import org.etools.j1939_84.bus.j1939.packets.AcknowledgmentPacket;
 import org.etools.j1939_84.bus.j1939.packets.AcknowledgmentPacket.Response;
-import org.etools.j1939_84.bus.j1939.packets.AddressClaimPacket;
-import org.etools.j1939_84.bus.j1939.packets.ComponentIdentificationPacket;
-import org.etools.j1939_84.bus.j1939.packets.DM11ClearActiveDTCsPacket;
-import org.etools.j1939_84.bus.j1939.packets.DM12MILOnEmissionDTCPacket;
-import org.etools.j1939_84.bus.j1939.packets.DM19CalibrationInformationPacket;
-import org.etools.j1939_84.bus.j1939.packets.DM1ActiveDTCsPacket;
-import org.etools.j1939_84.bus.j1939.packets.DM20MonitorPerformanceRatioPacket;
-import org.etools.j1939_84.bus.j1939.packets.DM21DiagnosticReadinessPacket;
-import org.etools.j1939_84.bus.j1939.packets.DM22IndividualClearPacket;
-import org.etools.j1939_84.bus.j1939.packets.DM23PreviouslyMILOnEmissionDTCPacket;
-import org.etools.j1939_84.bus.j1939.packets.DM24SPNSupportPacket;
-import org.etools.j1939_84.bus.j1939.packets.DM25ExpandedFreezeFrame;
-import org.etools.j1939_84.bus.j1939.packets.DM26TripDiagnosticReadinessPacket;
-import org.etools.j1939_84.bus.j1939.packets.DM27AllPendingDTCsPacket;
-import org.etools.j1939_84.bus.j1939.packets.DM28PermanentEmissionDTCPacket;
-import org.etools.j1939_84.bus.j1939.packets.DM29DtcCounts;
-import org.etools.j1939_84.bus.j1939.packets.DM2PreviouslyActiveDTC;
 import org.etools.j1939_84.bus.j1939.packets.DM30ScaledTestResultsPacket;
-import org.etools.j1939_84.bus.j1939.packets.DM31DtcToLampAssociation;
-import org.etools.j1939_84.bus.j1939.packets.DM33EmissionIncreasingAECDActiveTime;
-import org.etools.j1939_84.bus.j1939.packets.DM34NTEStatus;
-import org.etools.j1939_84.bus.j1939.packets.DM3DiagnosticDataClearPacket;
-import org.etools.j1939_84.bus.j1939.packets.DM56EngineFamilyPacket;
-import org.etools.j1939_84.bus.j1939.packets.DM5DiagnosticReadinessPacket;
-import org.etools.j1939_84.bus.j1939.packets.DM6PendingEmissionDTCPacket;
 import org.etools.j1939_84.bus.j1939.packets.DM7CommandTestsPacket;
-import org.etools.j1939_84.bus.j1939.packets.EngineHoursPacket;
-import org.etools.j1939_84.bus.j1939.packets.EngineSpeedPacket;
 import org.etools.j1939_84.bus.j1939.packets.GenericPacket;
-import org.etools.j1939_84.bus.j1939.packets.HighResVehicleDistancePacket;
 import org.etools.j1939_84.bus.j1939.packets.ParsedPacket;
-import org.etools.j1939_84.bus.j1939.packets.TotalVehicleDistancePacket;
-import org.etools.j1939_84.bus.j1939.packets.VehicleIdentificationPacket;
 import org.etools.j1939_84.controllers.ResultsListener;
 import org.etools.j1939_84.model.RequestResult;
 import org.etools.j1939_84.modules.DateTimeModule;
@@ -105,13 +83,31 @@ public class J1939 {
      */
     private static final long GLOBAL_WARN_TIMEOUT = 200;// milliseconds
 
+    /**
+     * The time to wait for unexpected responses to a global request, after all
+     * of the expected modules have responded.
+     */
+    private static final long GLOBAL_GRACE_PERIOD = 100; // milliseconds
+
+    /**
+     * The time to keep retrying a DS request that is answered with a busy NACK.
+     */
+    private static final long DS_BUSY_RETRY_TIME = 1200; // milliseconds FIXME verify
+
     private static final String LATE_RESPONSE = "TIMING: Late response - ";
 
     private static final String TIMEOUT_MESSAGE = "Timeout - No Response";
 
     private final Bus bus;
 
-    private int warnings;
+    /** The modules expected to respond to global requests. */
+    private volatile Supplier<Collection<Integer>> expectedResponders = List::of;
+
+    /** The time to wait after the expected modules have responded, in nanoseconds */
+    private volatile long globalGracePeriod = MILLISECONDS.toNanos(GLOBAL_GRACE_PERIOD);
+
+    /** Requests to different modules may run at the same time. */
+    private final AtomicInteger warnings = new AtomicInteger();
 
     public J1939() {
         this(new EchoBus(0xA5));
@@ -128,19 +124,15 @@ public class J1939 {
     }
 
     /**
-     * Reads the static field PGN from the given class. Returns null if the PGN
-     * can't be read.
+     * Returns the PGN of the given class, from the {@link DecoderRegistry}.
+     * Returns -1 if the PGN can't be found.
      *
      * @param  cls
      *                 the class of interest
      * @return     PGN number based on ParsedPacket class
      */
-    static protected <T extends ParsedPacket> int getPgn(Class<T> cls) {
-        try {
-            return cls.getField("PGN").getInt(null);
-        } catch (Exception e) {
-            return -1;
-        }
+    public static <T extends ParsedPacket> int getPgn(Class<T> cls) {
+        return DecoderRegistry.getInstance().getPgn(cls);
     }
 
     /** Helper to detect if this response represents busy. */
@@ -150,8 +142,7 @@ public class J1939 {
 
     /** Used for development to detect DMs that are manually parsed. */
     static public boolean isManual(int pgn) {
-        ParsedPacket processRaw = new J1939().processRaw(pgn, Packet.create(pgn, 0x0, new byte[8]));
-        return processRaw.getClass() != GenericPacket.class;
+        return DecoderRegistry.getInstance().isRegistered(pgn);
     }
 
     /**
@@ -238,9 +229,43 @@ public class J1939 {
         return DateTimeModule.getInstance();
     }
 
+    /**
+     * @return the modules expected to respond to global requests
+     */
+    public Collection<Integer> getExpectedResponders() {
+        return expectedResponders.get();
+    }
+
+    /**
+     * Sets the modules expected to respond to global requests. The default is
+     * none, so a global request waits its full timeout.
+     */
+    public void setExpectedResponders(Supplier<Collection<Integer>> expectedResponders) {
+        this.expectedResponders = expectedResponders;
+    }
+
+    /**
+     * Sets how long a global request waits for unexpected responses after all
+     * of the expected modules have responded.
+     */
+    public void setGlobalGracePeriod(long time, TimeUnit unit) {
+        globalGracePeriod = unit.toNanos(time);
+    }
+
     /** Count of warnings detected in J1939 and J1939TP. */
     public int getWarnings() {
-        return warnings;
+        return warnings.get();
+    }
+
+    /**
+     * Header only filter for the responses to a request for the given PGN:
+     * the PGN or an acknowledgement addressed to us or to all. The bus uses
+     * it to route packets to the request; {@link #globalFilter(int)} still
+     * checks the payload of acknowledgements.
+     */
+    private PacketFilter responseFilter(int pgn) {
+        // A TP message to global will have a destination of 0
+        return PacketFilter.pgns(pgn, AcknowledgmentPacket.PGN).destinations(getBusAddress(), GLOBAL_ADDR, 0);
     }
 
     private Predicate<Packet> globalFilter(int pgn) {
@@ -262,132 +287,72 @@ public class J1939 {
      *                    the {@link Packet} to process
      * @return        a subclass of {@link ParsedPacket}
      */
-    @SuppressWarnings("unchecked")
     private <T extends GenericPacket> Either<T, AcknowledgmentPacket> process(Packet packet) {
-        ParsedPacket pp = processRaw(packet.getPgn(), packet);
-        if (pp instanceof AcknowledgmentPacket) {
-            return new Either<>(null, (AcknowledgmentPacket) pp);
-        } else {
-            return new Either<>((T) pp, null);
-        }
+        return lazy(packet).toEither();
     }
 
-    private ParsedPacket processRaw(int pgn, Packet packet) {
-        switch (pgn) {
-
-            case DM1ActiveDTCsPacket.PGN:
-                return new DM1ActiveDTCsPacket(packet);
-
-            case DM2PreviouslyActiveDTC.PGN:
-                return new DM2PreviouslyActiveDTC(packet);
-
-            case DM3DiagnosticDataClearPacket.PGN:
-                return new DM3DiagnosticDataClearPacket(packet);
-
-            case DM5DiagnosticReadinessPacket.PGN:
-                return new DM5DiagnosticReadinessPacket(packet);
-
-            case DM6PendingEmissionDTCPacket.PGN:
-                return new DM6PendingEmissionDTCPacket(packet);
-
-            case DM7CommandTestsPacket.PGN:
-                return new DM7CommandTestsPacket(packet);
-
-            case DM11ClearActiveDTCsPacket.PGN:
-                return new DM11ClearActiveDTCsPacket(packet);
-
-            case DM12MILOnEmissionDTCPacket.PGN:
-                return new DM12MILOnEmissionDTCPacket(packet);
-
-            case DM19CalibrationInformationPacket.PGN:
-                return new DM19CalibrationInformationPacket(packet);
-
-            case DM20MonitorPerformanceRatioPacket.PGN:
-                return new DM20MonitorPerformanceRatioPacket(packet);
-
-            case DM21DiagnosticReadinessPacket.PGN:
-                return new DM21DiagnosticReadinessPacket(packet);
-
-            case DM22IndividualClearPacket.PGN:
-                return new DM22IndividualClearPacket(packet);
-
-            case DM23PreviouslyMILOnEmissionDTCPacket.PGN:
-                return new DM23PreviouslyMILOnEmissionDTCPacket(packet);
-
-            case DM24SPNSupportPacket.PGN:
-                return new DM24SPNSupportPacket(packet);
-
-            case DM25ExpandedFreezeFrame.PGN:
-                return new DM25ExpandedFreezeFrame(packet);
-
-            case DM26TripDiagnosticReadinessPacket.PGN:
-                return new DM26TripDiagnosticReadinessPacket(packet);
-
-            case DM27AllPendingDTCsPacket.PGN:
-                return new DM27AllPendingDTCsPacket(packet);
-
-            case DM28PermanentEmissionDTCPacket.PGN:
-                return new DM28PermanentEmissionDTCPacket(packet);
-
-            case DM29DtcCounts.PGN:
-                return new DM29DtcCounts(packet);
-
-            case DM30ScaledTestResultsPacket.PGN:
-                return new DM30ScaledTestResultsPacket(packet);
-
-            case DM31DtcToLampAssociation.PGN:
-                return new DM31DtcToLampAssociation(packet);
-
-            case DM33EmissionIncreasingAECDActiveTime.PGN:
-                return new DM33EmissionIncreasingAECDActiveTime(packet);
-
-            case DM34NTEStatus.PGN:
-                return new DM34NTEStatus(packet);
-
-            case DM56EngineFamilyPacket.PGN:
-                return new DM56EngineFamilyPacket(packet);
-
-            case AcknowledgmentPacket.PGN:
-                return new AcknowledgmentPacket(packet);
-
-            case AddressClaimPacket.PGN:
-                return new AddressClaimPacket(packet);
-
-            case ComponentIdentificationPacket.PGN:
-                return new ComponentIdentificationPacket(packet);
-
-            case EngineSpeedPacket.PGN:
-                return new EngineSpeedPacket(packet);
-
-            case EngineHoursPacket.PGN:
-                return new EngineHoursPacket(packet);
-
-            case HighResVehicleDistancePacket.PGN:
-                return new HighResVehicleDistancePacket(packet);
-
-            case TotalVehicleDistancePacket.PGN:
-                return new TotalVehicleDistancePacket(packet);
+    /**
+     * Wraps the {@link Packet} so it is only decoded if it is used
+     */
+    private LazyPacket lazy(Packet packet) {
+        return new LazyPacket(packet, DecoderRegistry.getInstance()::decode);
+    }
 
-            case VehicleIdentificationPacket.PGN:
-                return new VehicleIdentificationPacket(packet);
+    public Stream<GenericPacket> readGenericPacket(Predicate<LazyPacket> predicate) {
+        return readGenericPacket(PacketFilter.ALL, predicate);
+    }
 
-            default:
-                return new GenericPacket(packet);
-        }
+    /**
+     * Reads the packets that match the filter until the predicate fails.
+     *
+     * @param  filter
+     *                       the packets of interest
+     * @param  predicate
+     *                       the bus is read while this is true
+     * @return           {@link Stream} of {@link GenericPacket}s
+     */
+    public Stream<GenericPacket> readGenericPacket(PacketFilter filter, Predicate<LazyPacket> predicate) {
+        return readLazy(filter, predicate).flatMap(p -> p.getGenericPacket().stream());
     }
 
-    public Stream<GenericPacket> readGenericPacket(Predicate<Either<GenericPacket, AcknowledgmentPacket>> predicate) {
+    /**
+     * Reads the packets that match the filter until the predicate fails,
+     * without decoding them. A packet is only decoded if its
+     * {@link ParsedPacket} is used, so filter on the header or anything else
+     * before using it.
+     *
+     * @param  filter
+     *                       the packets of interest
+     * @param  predicate
+     *                       the bus is read while this is true
+     * @return           {@link Stream} of {@link LazyPacket}s
+     */
+    public Stream<LazyPacket> readLazy(PacketFilter filter, Predicate<LazyPacket> predicate) {
         try {
-            return read()
-                         .takeWhile(predicate)
-                         .filter(e -> e.left.isPresent())
-                         .flatMap(e -> e.left.stream());
+            return readLazy(365, TimeUnit.DAYS, filter).takeWhile(predicate);
         } catch (BusException e) {
             getLogger().log(Level.SEVERE, "Error while reading bus", e);
         }
         return Stream.empty();
     }
 
+    /**
+     * Reads only the packets that match the filter, without decoding them.
+     *
+     * @param  timeout
+     *                          the maximum time to wait for a message
+     * @param  unit
+     *                          the {@link TimeUnit} for the timeout
+     * @param  filter
+     *                          the packets of interest
+     * @return              {@link Stream} of {@link LazyPacket}s
+     * @throws BusException
+     *                          if there is a problem reading the bus
+     */
+    public Stream<LazyPacket> readLazy(long timeout, TimeUnit unit, PacketFilter filter) throws BusException {
+        return read(timeout, unit, filter).map(this::lazy);
+    }
+
     /**
      * Reads the bus indefinitely
      *
@@ -426,7 +391,7 @@ public class J1939 {
         }
 
         int pgn = getPgn(T);
-        try (Stream<Packet> stream = read(timeout, unit)) {
+        try (Stream<Packet> stream = read(timeout, unit, PacketFilter.pgns(pgn).sources(addr))) {
             return stream
                          .filter(sourceFilter(addr).and(pgnFilter(pgn)))
                          .findFirst()
@@ -455,10 +420,12 @@ public class J1939 {
                                                                                   long timeout,
                                                                                   TimeUnit unit) {
         try {
-            Stream<Packet> stream = read(timeout, unit);
             int pgn = getPgn(T);
+            Stream<Packet> stream;
             if (pgn >= 0) {
-                stream = stream.filter(pgnFilter(pgn));
+                stream = read(timeout, unit, PacketFilter.pgns(pgn)).filter(pgnFilter(pgn));
+            } else {
+                stream = read(timeout, unit);
             }
 
             return stream.map(this::process);
@@ -468,10 +435,83 @@ public class J1939 {
         return Stream.empty();
     }
 
+    /**
+     * Watches the bus for the packets that match the PGN in the given class,
+     * until the collector has received the expected broadcasts or the timeout.
+     * See {@link BroadcastCollector} for when the read ends.
+     *
+     * @param  <T>
+     *                       the Type of Packet to expect back
+     * @param  T
+     *                       the class of interest
+     * @param  timeout
+     *                       the maximum time to wait for a message
+     * @param  unit
+     *                       the {@link TimeUnit} for the timeout
+     * @param  collector
+     *                       the broadcasts expected
+     * @return           the resulting packets in a Stream
+     */
+    public <T extends GenericPacket> Stream<Either<T, AcknowledgmentPacket>> read(Class<T> T,
+                                                                                  long timeout,
+                                                                                  TimeUnit unit,
+                                                                                  BroadcastCollector collector) {
+        long start = System.nanoTime();
+        long end = start + unit.toNanos(timeout);
+        if (!collector.hasExpected()) {
+            collector.setDeadline(end);
+            return read(T, timeout, unit);
+        }
+
+        long period = collector.getPeriodNanos();
+        // well past the 110% the period is checked to, so a late broadcast is
+        // still read and fails the check instead of going unmeasured
+        long idle = 2 * period;
+        long first = Math.min(end, start + idle);
+        collector.setDeadline(first);
+        try {
+            int pgn = getPgn(T);
+            Stream<Packet> stream = pgn >= 0 ? read(first - start, NANOSECONDS, PacketFilter.pgns(pgn))
+                    : read(first - start, NANOSECONDS);
+            return stream
+                         .filter(p -> pgn < 0 || p.getPgn() == pgn)
+                         .peek(p -> {
+                             if (collector.add(p)) {
+                                 long now = System.nanoTime();
+                                 long deadline = collector.isComplete() ? Math.max(start + period, now) : now + idle;
+                                 deadline = Math.min(deadline, end);
+                                 collector.setDeadline(deadline);
+                                 resetTimeout(stream, deadline - now);
+                             }
+                         })
+                         .map(this::process);
+        } catch (BusException e) {
+            severe("Error reading packets", e);
+        }
+        return Stream.empty();
+    }
+
     public Stream<Packet> read(long timeout, TimeUnit unit) throws BusException {
         return bus.read(timeout, unit);
     }
 
+    /**
+     * Reads only the packets that match the filter.
+     *
+     * @param  timeout
+     *                          the maximum time to wait for a message
+     * @param  unit
+     *                          the {@link TimeUnit} for the timeout
+     * @param  filter
+     *                          the packets of interest
+     * @return              {@link Stream} of {@link Packet}s
+     * @throws BusException
+     *                          if there is a problem reading the bus
+     */
+    public Stream<Packet> read(long timeout, TimeUnit unit, PacketFilter filter) throws BusException {
+        return bus.read(timeout, unit, filter);
+    }
+
     public <T extends GenericPacket> BusResult<T> requestDS(String title,
                                                             Class<T> clas,
                                                             int address,
@@ -490,11 +530,25 @@ public class J1939 {
             listener.onResult(getDateTimeModule().getTime() + " " + title);
         }
 
-        // FIXME verify and make a constant.
-        long end = getDateTimeModule().getTimeAsLong() + 1200;
+        long end = getDateTimeModule().getTimeAsLong() + DS_BUSY_RETRY_TIME;
+        return retryDS(pgn, request, listener, end, requestDSOnce(pgn, request, listener));
+    }
+
+    /**
+     * Repeats a DS request while the module answers with a busy NACK.
+     *
+     * @param  end
+     *                    the time to give up retrying
+     * @param  result
+     *                    the result of the first request
+     */
+    private <T extends GenericPacket> BusResult<T> retryDS(int pgn,
+                                                           Packet request,
+                                                           ResultsListener listener,
+                                                           long end,
+                                                           Optional<Either<T, AcknowledgmentPacket>> result) {
         boolean retry = false;
-        for (int noResponse = 0; getDateTimeModule().getTimeAsLong() < end; noResponse++) {
-            Optional<Either<T, AcknowledgmentPacket>> result = requestDSOnce(pgn, request, listener);
+        for (int noResponse = 0;; noResponse++) {
             if (result.isPresent()) {
                 if (result.get().right.map(a -> a.getResponse() == BUSY).orElse(false)) {
                     // busy. wait 200 ms and try again
@@ -507,8 +561,11 @@ public class J1939 {
             } else {
                 return new BusResult<>(retry);
             }
+            if (getDateTimeModule().getTimeAsLong() >= end) {
+                return new BusResult<>(retry);
+            }
+            result = requestDSOnce(pgn, request, listener);
         }
-        return new BusResult<>(retry);
     }
 
     /**
@@ -523,19 +580,21 @@ public class J1939 {
         }
 
         try {
-            Stream<Either<T, AcknowledgmentPacket>> stream = read(DS_TIMEOUT, MILLISECONDS)
+            Stream<Either<T, AcknowledgmentPacket>> stream = read(DS_TIMEOUT,
+                                                                  MILLISECONDS,
+                                                                  responseFilter(pgn).sources(request.getDestination()))
                                                                                            .filter(dsFilter(pgn,
                                                                                                             request.getDestination(),
                                                                                                             getBusAddress()))
                                                                                            .map(this::process);
             Packet sent = bus.send(request);
-            LocalDateTime lateTime;
+            long lateTime;
             if (sent != null) {
                 listener.onResult(sent.toTimeString());
-                lateTime = sent.getTimestamp().plus(GLOBAL_WARN_TIMEOUT, ChronoUnit.MILLIS);
+                lateTime = sent.getTimestampNanos() + MILLISECONDS.toNanos(GLOBAL_WARN_TIMEOUT);
             } else {
                 logWarning(listener, FAILED_TO_SEND + request);
-                lateTime = null;
+                lateTime = Long.MAX_VALUE;
             }
             Optional<Either<T, AcknowledgmentPacket>> result = stream.findFirst();
             result.ifPresentOrElse(p -> {
@@ -543,7 +602,7 @@ public class J1939 {
                 listener.onResult(pp.getPacket().toTimeString());
                 listener.onResult(pp.toString());
 
-                if (lateTime != null && pp.getPacket().getFragments().get(0).getTimestamp().isAfter(lateTime)) {
+                if (pp.getPacket().getFragments().get(0).getTimestampNanos() > lateTime) {
                     logTiming(listener, LATE_RESPONSE + " " + pp.getPacket().getFragments().get(0).toTimeString());
                 }
             },
@@ -556,12 +615,209 @@ public class J1939 {
         }
     }
 
+    /**
+     * Runs the queries in a plan and writes the report of every query, in the
+     * order of the plan. See {@link #request(QueryPlan)}.
+     *
+     * @param plan
+     *                     the queries to run, which hold the results after
+     * @param listener
+     *                     the listener for the report
+     */
+    public void request(QueryPlan plan, ResultsListener listener) {
+        request(plan);
+        plan.getQueries().forEach(query -> query.report(listener));
+    }
+
+    /**
+     * Runs the queries in a plan. The requests are sent back to back and the
+     * responses are read over one subscription to the bus, so the time waiting
+     * for each response overlaps instead of adding up.
+     *
+     * Each query then has the same result, and the same report, as if it had
+     * been requested on its own. The queries answered with a busy NACK are
+     * resent together after 200 ms, until they are answered or their retry
+     * time is up, as {@link #requestDS(String, int, Packet, ResultsListener)}
+     * would for each. The report of each query is held until it is written
+     * with {@link QueryPlan.Query#report(ResultsListener)}, so it can be
+     * written where the query's result is used.
+     *
+     * @param plan
+     *                 the queries to run, which hold the results after
+     */
+    public void request(QueryPlan plan) {
+        List<QueryPlan.Query<?>> queries = plan.getQueries();
+        if (queries.isEmpty()) {
+            return;
+        }
+
+        Collection<Integer> expected = expectedResponders.get();
+        for (QueryPlan.Query<?> query : queries) {
+            query.output.onResult("");
+            if (query.getTitle() != null) {
+                query.output.onResult(getDateTimeModule().getTime() + " " + query.getTitle());
+            }
+            query.request = createRequestPacket(query.getPgn(), query.getDestination());
+            query.retryEnd = getDateTimeModule().getTimeAsLong() + DS_BUSY_RETRY_TIME;
+        }
+
+        List<QueryPlan.Query<?>> sending = queries;
+        while (!sending.isEmpty()) {
+            requestOnce(sending, expected);
+            List<QueryPlan.Query<?>> busy = new ArrayList<>();
+            for (QueryPlan.Query<?> query : sending) {
+                if (report(query) && !query.isGlobal()) {
+                    busy.add(query);
+                }
+            }
+            sending = busy;
+            if (!sending.isEmpty()) {
+                // busy. wait 200 ms and try again
+                getDateTimeModule().pauseFor(200);
+                long now = getDateTimeModule().getTimeAsLong();
+                sending = sending.stream().filter(q -> now < q.retryEnd).collect(Collectors.toList());
+            }
+        }
+
+        for (QueryPlan.Query<?> query : queries) {
+            setResult(query, expected);
+        }
+    }
+
+    /**
+     * Sends the requests of the queries back to back and collects the
+     * responses to each over one read of the bus.
+     */
+    private void requestOnce(List<QueryPlan.Query<?>> queries, Collection<Integer> expected) {
+        int[] pgns = IntStream.concat(queries.stream().mapToInt(QueryPlan.Query::getPgn),
+                                      IntStream.of(AcknowledgmentPacket.PGN))
+                              .distinct()
+                              .toArray();
+        try {
+            // long enough to send every request, then cut to the last deadline
+            Stream<Packet> stream = read(GLOBAL_TIMEOUT * (queries.size() + 1),
+                                         MILLISECONDS,
+                                         PacketFilter.pgns(pgns).destinations(getBusAddress(), GLOBAL_ADDR, 0));
+            Map<QueryPlan.Query<?>, Set<Integer>> waitingFor = new HashMap<>();
+            for (QueryPlan.Query<?> query : queries) {
+                query.responses.clear();
+                query.sent = null;
+                try {
+                    query.sent = bus.send(query.request);
+                } catch (BusException e) {
+                    severe("Error requesting packet", e);
+                }
+                long timeout = query.isGlobal() ? GLOBAL_TIMEOUT : DS_TIMEOUT;
+                query.deadline = query.sent == null ? 0 : System.nanoTime() + MILLISECONDS.toNanos(timeout);
+                if (query.isGlobal()) {
+                    waitingFor.put(query, new HashSet<>(expected));
+                }
+            }
+            resetTimeout(stream, Math.max(0, lastDeadline(queries) - System.nanoTime()));
+
+            Iterator<Packet> iterator = stream.iterator();
+            while (iterator.hasNext()) {
+                Packet packet = iterator.next();
+                long now = System.nanoTime();
+                for (QueryPlan.Query<?> query : queries) {
+                    if (now > query.deadline) {
+                        continue;
+                    }
+                    if (!query.isGlobal()) {
+                        if (dsFilter(query.getPgn(), query.getDestination(), getBusAddress()).test(packet)) {
+                            query.responses.add(packet);
+                            // only the first response
+                            query.deadline = 0;
+                        }
+                    } else if (globalFilter(query.getPgn()).test(packet)) {
+                        query.responses.add(packet);
+                        Set<Integer> waiting = waitingFor.get(query);
+                        if (waiting.remove(packet.getSource()) && waiting.isEmpty()) {
+                            query.deadline = Math.min(query.deadline, now + globalGracePeriod);
+                        }
+                    }
+                }
+                resetTimeout(stream, Math.max(0, lastDeadline(queries) - now));
+            }
+        } catch (BusException e) {
+            severe("Error requesting packets", e);
+        }
+    }
+
+    private static long lastDeadline(List<QueryPlan.Query<?>> queries) {
+        return queries.stream().mapToLong(q -> q.deadline).max().orElse(0);
+    }
+
+    /**
+     * Reports the request of a query and the responses to it as a request on
+     * its own would.
+     *
+     * @return true if the query was answered with a busy NACK
+     */
+    private <T extends GenericPacket> boolean report(QueryPlan.Query<T> query) {
+        ResultsListener listener = query.output;
+        long lateTime;
+        if (query.sent != null) {
+            listener.onResult(query.sent.toTimeString());
+            lateTime = query.sent.getTimestampNanos() + MILLISECONDS.toNanos(GLOBAL_WARN_TIMEOUT);
+        } else {
+            logWarning(listener, FAILED_TO_SEND + query.request);
+            lateTime = Long.MAX_VALUE;
+        }
+
+        List<Either<T, AcknowledgmentPacket>> results = new ArrayList<>();
+        List<Packet> late = new ArrayList<>();
+        for (Packet rawPacket : query.responses) {
+            try {
+                Either<T, AcknowledgmentPacket> pp = process(rawPacket);
+                listener.onResult(rawPacket.toTimeString());
+                listener.onResult(pp.resolve().toString());
+                results.add(pp);
+            } catch (PacketException e) {
+                // This is not a complete packet. Should be logged as a failure
+                // elsewhere.
+                continue;
+            }
+            if (rawPacket.getFragments().size() > 0
+                    && rawPacket.getFragments().get(0).getTimestampNanos() > lateTime) {
+                late.add(rawPacket);
+            }
+        }
+        late.forEach(p -> logTiming(listener, LATE_RESPONSE + " " + p.getFragments().get(0).toTimeString()));
+        if (results.isEmpty()) {
+            listener.onResult(getDateTimeModule().getTime() + " " + TIMEOUT_MESSAGE);
+        }
+        query.attempts++;
+        query.results = results;
+        return results.stream().findFirst().map(J1939::isBusy).orElse(false);
+    }
+
+    /**
+     * Sets the result of a query once it is no longer retried. A global query
+     * answered with busy NACKs is retried as
+     * {@link #requestGlobal(String, int, Packet, ResultsListener)} would.
+     */
+    private <T extends GenericPacket> void setResult(QueryPlan.Query<T> query, Collection<Integer> expected) {
+        boolean retry = query.attempts > 1;
+        if (query.isGlobal()) {
+            query.setResult(retryGlobal(query.getPgn(), query.request, query.output, expected, query.results));
+        } else {
+            Optional<Either<T, AcknowledgmentPacket>> result = query.results.stream().findFirst();
+            if (result.map(J1939::isBusy).orElse(false)) {
+                // still busy when the retry time was up
+                query.setResult(new BusResult<T>(true));
+            } else {
+                query.setResult(new BusResult<>(retry, result));
+            }
+        }
+    }
+
     public List<AcknowledgmentPacket> requestForAcks(ResultsListener listener, String title, int pgn) {
         listener.onResult("");
         listener.onResult(getDateTimeModule().getTime() + " " + title);
         Packet requestPacket = createRequestPacket(pgn, GLOBAL_ADDR);
-        return requestGlobalOnce(pgn, requestPacket, listener)
-                                                              .stream()
+        return requestGlobalOnce(pgn, requestPacket, listener, expectedResponders.get())
+                                                                                       .stream()
                                                               .flatMap(e -> e.right.stream())
                                                               .collect(Collectors.toList());
     }
@@ -588,15 +844,50 @@ public class J1939 {
                                                                     int pgn,
                                                                     Packet requestPacket,
                                                                     ResultsListener listener) {
-        boolean retry = false;
+        return requestGlobal(title, pgn, requestPacket, listener, expectedResponders.get());
+    }
 
+    /**
+     * Request from global. Once every expected responder has sent a response
+     * or an acknowledgement, responses are only collected for the grace
+     * period, instead of for the full global timeout.
+     *
+     * @param expectedResponders
+     *                               the addresses of the modules expected to
+     *                               respond. If empty, responses are collected
+     *                               for the full global timeout.
+     */
+    public <T extends GenericPacket> RequestResult<T> requestGlobal(String title,
+                                                                    int pgn,
+                                                                    Packet requestPacket,
+                                                                    ResultsListener listener,
+                                                                    Collection<Integer> expectedResponders) {
         listener.onResult("");
         if (title != null) {
             listener.onResult(getDateTimeModule().getTime() + " " + title);
         }
 
-        Collection<Either<T, AcknowledgmentPacket>> results = requestGlobalOnce(pgn, requestPacket, listener);
+        List<Either<T, AcknowledgmentPacket>> results = requestGlobalOnce(pgn,
+                                                                         requestPacket,
+                                                                         listener,
+                                                                         expectedResponders);
+        return retryGlobal(pgn, requestPacket, listener, expectedResponders, results);
+    }
 
+    /**
+     * Repeats a global request once if any module answered with a busy NACK,
+     * then makes DS requests to the modules that are still busy.
+     *
+     * @param  first
+     *                   the results of the first request
+     */
+    private <T extends GenericPacket> RequestResult<T> retryGlobal(int pgn,
+                                                                   Packet requestPacket,
+                                                                   ResultsListener listener,
+                                                                   Collection<Integer> expectedResponders,
+                                                                   List<Either<T, AcknowledgmentPacket>> first) {
+        boolean retry = false;
+        Collection<Either<T, AcknowledgmentPacket>> results = first;
         if (results.stream().anyMatch(J1939::isBusy)) {
             retry = true;
 
@@ -604,7 +895,10 @@ public class J1939 {
             Map<Integer, Either<T, AcknowledgmentPacket>> map = results.stream()
                                                                        .collect(Collectors.toMap(r1 -> ((ParsedPacket) r1.resolve()).getSourceAddress(),
                                                                                                  r1 -> r1));
-            List<Either<T, AcknowledgmentPacket>> retryResults = requestGlobalOnce(pgn, requestPacket, listener);
+            List<Either<T, AcknowledgmentPacket>> retryResults = requestGlobalOnce(pgn,
+                                                                                   requestPacket,
+                                                                                   listener,
+                                                                                   expectedResponders);
             map.putAll(retryResults.stream()
                                    // don't overwrite with busy responses, but do add them if
                                    // not already in map
@@ -651,38 +945,58 @@ public class J1939 {
 
     }
 
+    /**
+     * Sets the time left on a read of the bus.
+     */
+    private void resetTimeout(Stream<Packet> stream, long nanos) {
+        bus.resetTimeout(stream, (int) NANOSECONDS.toMillis(nanos), MILLISECONDS);
+    }
+
     /**
      * Request from global only once.
      */
     private <T extends GenericPacket> List<Either<T, AcknowledgmentPacket>> requestGlobalOnce(int pgn,
                                                                                               Packet request,
-                                                                                              ResultsListener listener) {
+                                                                                              ResultsListener listener,
+                                                                                              Collection<Integer> expectedResponders) {
         if (request.getDestination() != GLOBAL_ADDR) {
             throw new IllegalArgumentException("Request not to global.");
         }
 
         List<Either<T, AcknowledgmentPacket>> result;
         try {
-            Stream<Packet> stream = read(GLOBAL_TIMEOUT, MILLISECONDS);
+            long end = System.nanoTime() + MILLISECONDS.toNanos(GLOBAL_TIMEOUT);
+            Stream<Packet> stream = read(GLOBAL_TIMEOUT, MILLISECONDS, responseFilter(pgn));
+            Set<Integer> waitingFor = new HashSet<>(expectedResponders);
             Packet sent = bus.send(request);
-            LocalDateTime lateTime;
+            long lateTime;
             if (sent != null) {
                 listener.onResult(sent.toTimeString());
-                lateTime = sent.getTimestamp().plus(GLOBAL_WARN_TIMEOUT, ChronoUnit.MILLIS);
+                lateTime = sent.getTimestampNanos() + MILLISECONDS.toNanos(GLOBAL_WARN_TIMEOUT);
             } else {
                 logWarning(listener, FAILED_TO_SEND + request);
-                lateTime = null;
+                lateTime = Long.MAX_VALUE;
             }
             List<Packet> lateBam = new ArrayList<>();
             result = stream
                            .filter(globalFilter(pgn))
+                           .peek(p -> {
+                               // once everyone expected has answered, only wait for the grace period
+                               if (waitingFor.remove(p.getSource()) && waitingFor.isEmpty()) {
+                                   long remaining = end - System.nanoTime();
+                                   long grace = Math.min(globalGracePeriod, remaining);
+                                   if (grace > 0) {
+                                       resetTimeout(stream, grace);
+                                   }
+                               }
+                           })
                            .peek(p -> {
                                /*
                                 * If the first fragment arrived after lateBam, then it
                                 * is late.
                                 */
-                               if (lateTime != null && p.getFragments().size() > 0
-                                       && p.getFragments().get(0).getTimestamp().isAfter(lateTime)) {
+                               if (p.getFragments().size() > 0
+                                       && p.getFragments().get(0).getTimestampNanos() > lateTime) {
                                    lateBam.add(p);
                                }
                            })
@@ -738,7 +1052,8 @@ public class J1939 {
             BusResult<DM30ScaledTestResultsPacket> result;
             for (int i = 0; true; i++) {
                 Stream<Either<DM30ScaledTestResultsPacket, AcknowledgmentPacket>> stream = read(DS_TIMEOUT,
-                                                                                                MILLISECONDS)
+                                                                                                MILLISECONDS,
+                                                                                                responseFilter(DM30ScaledTestResultsPacket.PGN).sources(address))
                                                                                                              .filter(dsFilter(DM30ScaledTestResultsPacket.PGN,
                                                                                                                               request.getDestination(),
                                                                                                                               getBusAddress()))
@@ -777,7 +1092,7 @@ public class J1939 {
     }
 
     private void logTiming(ResultsListener listener, String message) {
-        warnings++;
+        warnings.incrementAndGet();
         listener.onResult(message);
         getLogger().warning(message);
     }
@@ -0,0 +1,387 @@
+/**
+ * Copyright 2021 Equipment & Tool Institute
+ */
+package org.etools.j1939_84.bus.j1939;
+
+import static org.etools.j1939_84.J1939_84.getLogger;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.zip.CRC32;
+
+import org.etools.j1939_84.bus.j1939.packets.Slot;
+import org.etools.j1939_84.bus.j1939.packets.model.PgnDefinition;
+import org.etools.j1939_84.bus.j1939.packets.model.SpnDefinition;
+import org.etools.j1939_84.resources.Resources;
+import org.etools.j1939_84.utils.IntMap;
+
+/**
+ * A binary copy of the J1939DA PGN, SPN and SLOT tables and the
+ * {@link Lookup} maps, which loads with one read instead of parsing the CSV
+ * files.
+ *
+ * The index is generated from the CSV files when the project is built, by
+ * running {@link #main(String[])}. It holds a checksum of the CSV files it was
+ * generated from; if the CSV files have changed since, or the index is
+ * missing, {@link #getInstance()} returns null and the CSV files are parsed
+ * as before.
+ */
+public class J1939DaIndex {
+
+    /** The name of the index, in the resources */
+    static final String FILE_NAME = "j1939da.idx";
+
+    /** The {@link Lookup} maps held in the index */
+    static final List<String> LOOKUP_FILES = List.of("addresses.csv",
+                                                     "fmis.csv",
+                                                     "manufacturers.csv",
+                                                     "parts.csv",
+                                                     "outcomeForDuplicateSpns.csv",
+                                                     "outcomeForNonObd.csv",
+                                                     "part01Steps.csv",
+                                                     "part02Steps.csv",
+                                                     "part03Steps.csv",
+                                                     "part04Steps.csv",
+                                                     "part05Steps.csv",
+                                                     "part06Steps.csv",
+                                                     "part07Steps.csv",
+                                                     "part08Steps.csv",
+                                                     "part09Steps.csv",
+                                                     "part10Steps.csv",
+                                                     "part11Steps.csv",
+                                                     "part12Steps.csv");
+
+    /** The J1939DA files the index is generated from */
+    static final List<String> J1939DA_FILES = List.of("j1939da-extract.csv",
+                                                      "j1939da-addendum.csv",
+                                                      "j1939da-slots.csv",
+                                                      "j1939da-slots-addendum.csv");
+
+    private static final int MAGIC = 0x4A314441; // J1DA
+
+    private static final int VERSION = 1;
+
+    /** Loads the index from the resources the first time it is used. */
+    private static class Holder {
+        private static final J1939DaIndex instance = loadResource();
+    }
+
+    /**
+     * @return the index, or null if it is missing or doesn't match the CSV
+     *         files
+     */
+    static J1939DaIndex getInstance() {
+        return Holder.instance;
+    }
+
+    /**
+     * Generates the index from the CSV files.
+     *
+     * @param args
+     *                 the directory to write the index to
+     */
+    public static void main(String[] args) throws IOException {
+        // load everything before the file is opened, which truncates it
+        J1939DaRepository repository = new J1939DaRepository(false);
+        repository.getPgnDefinitions();
+        repository.getSlots();
+        Map<String, Map<Integer, String>> lookups = loadLookupsFromCsv();
+        long checksum = checksum();
+
+        Path file = Path.of(args[0]).resolve(FILE_NAME);
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file))) {
+            write(out, repository, lookups, checksum);
+        }
+        System.out.println("Wrote " + file + " (" + Files.size(file) + " bytes)");
+    }
+
+    /**
+     * @return the checksum of the CSV files the index is generated from
+     */
+    static long checksum() throws IOException {
+        CRC32 crc = new CRC32();
+        for (String name : J1939DA_FILES) {
+            checksum(crc, name);
+        }
+        for (String name : LOOKUP_FILES) {
+            checksum(crc, name);
+        }
+        return crc.getValue();
+    }
+
+    private static void checksum(CRC32 crc, String name) throws IOException {
+        try (InputStream in = Resources.class.getResourceAsStream(name)) {
+            if (in != null) {
+                crc.update(in.readAllBytes());
+            }
+        }
+    }
+
+    static Map<String, Map<Integer, String>> loadLookupsFromCsv() {
+        Map<String, Map<Integer, String>> lookups = new LinkedHashMap<>();
+        for (String name : LOOKUP_FILES) {
+            lookups.put(name, Lookup.loadMapFromCsv(name));
+        }
+        return lookups;
+    }
+
+    private static J1939DaIndex loadResource() {
+        try (InputStream in = Resources.class.getResourceAsStream(FILE_NAME)) {
+            if (in == null) {
+                getLogger().log(Level.INFO, "No J1939DA index, loading the CSV files");
+                return null;
+            }
+            J1939DaIndex index = read(in, checksum());
+            if (index == null) {
+                getLogger().log(Level.INFO, "J1939DA index is out of date, loading the CSV files");
+            }
+            return index;
+        } catch (Exception e) {
+            getLogger().log(Level.WARNING, "Unable to read the J1939DA index, loading the CSV files", e);
+            return null;
+        }
+    }
+
+    /**
+     * Reads an index.
+     *
+     * @param  in
+     *                      the index
+     * @param  checksum
+     *                      the checksum of the CSV files, see
+     *                      {@link #checksum()}
+     * @return          the index, or null if it is not an index of this
+     *                  version or it was generated from other CSV files
+     */
+    static J1939DaIndex read(InputStream in, long checksum) throws IOException {
+        // one read, then decode from memory
+        DataInputStream data = new DataInputStream(new ByteArrayInputStream(in.readAllBytes()));
+        if (data.readInt() != MAGIC || data.readInt() != VERSION || data.readLong() != checksum) {
+            return null;
+        }
+
+        int count = data.readInt();
+        IntMap<Slot> slots = new IntMap<>(count);
+        for (int i = 0; i < count; i++) {
+            Slot slot = new Slot(data.readInt(),
+                                 readString(data),
+                                 readString(data),
+                                 readDouble(data),
+                                 readDouble(data),
+                                 readString(data),
+                                 data.readInt());
+            slots.put(slot.getId(), slot);
+        }
+
+        SpnDefinition[] pool = new SpnDefinition[data.readInt()];
+        for (int i = 0; i < pool.length; i++) {
+            pool[i] = new SpnDefinition(data.readInt(),
+                                        readString(data),
+                                        data.readInt(),
+                                        data.readInt(),
+                                        data.readInt());
+        }
+
+        count = data.readInt();
+        IntMap<SpnDefinition> spns = new IntMap<>(count);
+        for (int i = 0; i < count; i++) {
+            spns.put(data.readInt(), pool[data.readInt()]);
+        }
+
+        count = data.readInt();
+        IntMap<PgnDefinition> pgns = new IntMap<>(count);
+        for (int i = 0; i < count; i++) {
+            int id = data.readInt();
+            String label = readString(data);
+            String acronym = readString(data);
+            boolean isOnRequest = data.readBoolean();
+            boolean isVariableBroadcast = data.readBoolean();
+            int broadcastPeriod = data.readInt();
+            int spnCount = data.readInt();
+            List<SpnDefinition> spnDefinitions = new ArrayList<>(spnCount);
+            for (int j = 0; j < spnCount; j++) {
+                spnDefinitions.add(pool[data.readInt()]);
+            }
+            pgns.put(id,
+                     new PgnDefinition(id,
+                                       label,
+                                       acronym,
+                                       isOnRequest,
+                                       isVariableBroadcast,
+                                       broadcastPeriod,
+                                       spnDefinitions));
+        }
+
+        count = data.readInt();
+        Map<String, Map<Integer, String>> lookups = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            String name = data.readUTF();
+            int size = data.readInt();
+            Map<Integer, String> map = new HashMap<>(size * 2);
+            for (int j = 0; j < size; j++) {
+                map.put(data.readInt(), data.readUTF());
+            }
+            lookups.put(name, map);
+        }
+
+        return new J1939DaIndex(slots, spns, pgns, lookups);
+    }
+
+    private static Double readDouble(DataInputStream data) throws IOException {
+        return data.readBoolean() ? data.readDouble() : null;
+    }
+
+    private static String readString(DataInputStream data) throws IOException {
+        return data.readBoolean() ? data.readUTF() : null;
+    }
+
+    /**
+     * Writes an index.
+     *
+     * @param out
+     *                       where to write the index
+     * @param repository
+     *                       the J1939DA tables, loaded from the CSV files
+     * @param lookups
+     *                       the {@link Lookup} maps, by file name
+     * @param checksum
+     *                       the checksum of the CSV files, see
+     *                       {@link #checksum()}
+     */
+    static void write(OutputStream out,
+                      J1939DaRepository repository,
+                      Map<String, Map<Integer, String>> lookups,
+                      long checksum) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeLong(checksum);
+
+        Map<Integer, Slot> slots = repository.getSlots();
+        data.writeInt(slots.size());
+        for (Slot slot : slots.values()) {
+            data.writeInt(slot.getId());
+            writeString(data, slot.getName());
+            writeString(data, slot.getType());
+            writeDouble(data, slot.getScaling());
+            writeDouble(data, slot.getOffset());
+            writeString(data, slot.getUnit());
+            data.writeInt(slot.getLength());
+        }
+
+        // A PGN may hold its own definition of an SPN, so every distinct
+        // definition is written once and referred to by its index.
+        Map<Integer, SpnDefinition> spns = repository.getSpnDefinitions();
+        Map<Integer, PgnDefinition> pgns = repository.getPgnDefinitions();
+        Map<SpnDefinition, Integer> pool = new IdentityHashMap<>();
+        spns.values().forEach(s -> pool.putIfAbsent(s, pool.size()));
+        pgns.values().forEach(p -> p.getSpnDefinitions().forEach(s -> pool.putIfAbsent(s, pool.size())));
+        SpnDefinition[] poolArray = new SpnDefinition[pool.size()];
+        pool.forEach((s, i) -> poolArray[i] = s);
+        data.writeInt(poolArray.length);
+        for (SpnDefinition spn : poolArray) {
+            data.writeInt(spn.getSpnId());
+            writeString(data, spn.getLabel());
+            data.writeInt(spn.getStartByte());
+            data.writeInt(spn.getStartBit());
+            data.writeInt(spn.getSlotNumber());
+        }
+
+        data.writeInt(spns.size());
+        for (var entry : spns.entrySet()) {
+            data.writeInt(entry.getKey());
+            data.writeInt(pool.get(entry.getValue()));
+        }
+
+        data.writeInt(pgns.size());
+        for (PgnDefinition pgn : pgns.values()) {
+            data.writeInt(pgn.getId());
+            writeString(data, pgn.getLabel());
+            writeString(data, pgn.getAcronym());
+            data.writeBoolean(pgn.isOnRequest());
+            data.writeBoolean(pgn.isVariableBroadcast());
+            data.writeInt(pgn.getBroadcastPeriod());
+            data.writeInt(pgn.getSpnDefinitions().size());
+            for (SpnDefinition spn : pgn.getSpnDefinitions()) {
+                data.writeInt(pool.get(spn));
+            }
+        }
+
+        data.writeInt(lookups.size());
+        for (var entry : lookups.entrySet()) {
+            data.writeUTF(entry.getKey());
+            data.writeInt(entry.getValue().size());
+            for (var value : entry.getValue().entrySet()) {
+                data.writeInt(value.getKey());
+                data.writeUTF(value.getValue());
+            }
+        }
+        data.flush();
+    }
+
+    private static void writeDouble(DataOutputStream data, Double value) throws IOException {
+        data.writeBoolean(value != null);
+        if (value != null) {
+            data.writeDouble(value);
+        }
+    }
+
+    private static void writeString(DataOutputStream data, String value) throws IOException {
+        data.writeBoolean(value != null);
+        if (value != null) {
+            data.writeUTF(value);
+        }
+    }
+
+    private final Map<String, Map<Integer, String>> lookups;
+
+    private final IntMap<PgnDefinition> pgnDefinitions;
+
+    private final IntMap<Slot> slots;
+
+    private final IntMap<SpnDefinition> spnDefinitions;
+
+    private J1939DaIndex(IntMap<Slot> slots,
+                         IntMap<SpnDefinition> spnDefinitions,
+                         IntMap<PgnDefinition> pgnDefinitions,
+                         Map<String, Map<Integer, String>> lookups) {
+        this.slots = slots;
+        this.spnDefinitions = spnDefinitions;
+        this.pgnDefinitions = pgnDefinitions;
+        this.lookups = lookups;
+    }
+
+    /**
+     * @return the {@link Lookup} map loaded from the file, or null if it isn't
+     *         in the index
+     */
+    Map<Integer, String> getLookup(String fileName) {
+        return lookups.get(fileName);
+    }
+
+    IntMap<PgnDefinition> getPgnDefinitions() {
+        return pgnDefinitions;
+    }
+
+    IntMap<Slot> getSlots() {
+        return slots;
+    }
+
+    IntMap<SpnDefinition> getSpnDefinitions() {
+        return spnDefinitions;
+    }
+}
@@ -10,8 +10,6 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -20,6 +18,7 @@ import java.util.logging.Level;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
@@ -27,6 +26,7 @@ import org.etools.j1939_84.bus.j1939.packets.Slot;
 import org.etools.j1939_84.bus.j1939.packets.model.PgnDefinition;
 import org.etools.j1939_84.bus.j1939.packets.model.SpnDefinition;
 import org.etools.j1939_84.resources.Resources;
+import org.etools.j1939_84.utils.IntMap;
 
 import com.opencsv.CSVReader;
 import com.opencsv.CSVReaderBuilder;
@@ -43,14 +43,17 @@ public class J1939DaRepository {
 
     private static final J1939DaRepository instance = new J1939DaRepository();
 
-    private Map<Integer, Slot> slots;
+    /** Loaded on first use; volatile so the loaded map is safely published */
+    private volatile IntMap<Slot> slots;
 
-    private Map<Integer, PgnDefinition> pgnLut;
+    /**
+     * Loaded on first use, after {@link #spnLut} and {@link #spnToPgnMap};
+     * volatile so all three are safely published
+     */
+    private volatile IntMap<PgnDefinition> pgnLut;
 
     public Slot findSLOT(int id, int spn) {
-        if (slots == null) {
-            slots = loadSlots();
-        }
+        IntMap<Slot> slots = loadSlotsOnce();
 
         Slot slot = slots.get(id);
         if (slot == null) {
@@ -65,11 +68,25 @@ public class J1939DaRepository {
         return slot;
     }
 
-    private Map<Integer, SpnDefinition> spnLut;
+    private IntMap<SpnDefinition> spnLut;
 
-    private Map<Integer, Set<Integer>> spnToPgnMap = null;
+    /** The sorted ids of the PGNs that carry each SPN */
+    private IntMap<int[]> spnToPgnMap;
+
+    /** Load from the {@link J1939DaIndex}, if it is current */
+    private final boolean useIndex;
 
     private J1939DaRepository() {
+        this(true);
+    }
+
+    /**
+     * @param useIndex
+     *                     false to always load the CSV files, as when
+     *                     generating the {@link J1939DaIndex}
+     */
+    J1939DaRepository(boolean useIndex) {
+        this.useIndex = useIndex;
     }
 
     public static J1939DaRepository getInstance() {
@@ -80,98 +97,147 @@ public class J1939DaRepository {
         return getInstance().findSLOT(slotId, spn);
     }
 
+    private IntMap<PgnDefinition> loadLookUpTables() {
+        IntMap<PgnDefinition> pgns = pgnLut;
+        if (pgns == null) {
+            synchronized (this) {
+                pgns = pgnLut;
+                if (pgns == null) {
+                    J1939DaIndex index = useIndex ? J1939DaIndex.getInstance() : null;
+                    if (index != null) {
+                        spnLut = index.getSpnDefinitions();
+                        pgns = index.getPgnDefinitions();
+                    } else {
+                        spnLut = new IntMap<>();
+                        pgns = loadLookUpTablesFromCsv(spnLut);
+                    }
+
+                    IntMap<int[]> spnToPgns = new IntMap<>(spnLut.size());
+                    for (PgnDefinition pgnDefinition : pgns.values()) {
+                        for (SpnDefinition spnDefinition : pgnDefinition.getSpnDefinitions()) {
+                            int[] ids = spnToPgns.get(spnDefinition.getSpnId());
+                            if (ids == null) {
+                                ids = new int[] { pgnDefinition.getId() };
+                            } else if (Arrays.binarySearch(ids, pgnDefinition.getId()) < 0) {
+                                ids = Arrays.copyOf(ids, ids.length + 1);
+                                ids[ids.length - 1] = pgnDefinition.getId();
+                                Arrays.sort(ids);
+                            }
+                            spnToPgns.put(spnDefinition.getSpnId(), ids);
+                        }
+                    }
+                    spnToPgnMap = spnToPgns;
+                    pgnLut = pgns;
+                }
+            }
+        }
+        return pgns;
+    }
+
+    private IntMap<Slot> loadSlotsOnce() {
+        IntMap<Slot> result = slots;
+        if (result == null) {
+            synchronized (this) {
+                result = slots;
+                if (result == null) {
+                    slots = result = loadSlots();
+                }
+            }
+        }
+        return result;
+    }
+
     @SuppressFBWarnings(value = {
             "RCN_REDUNDANT_NULLCHECK_WOULD_HAVE_BEEN_A_NPE",
             "REC_CATCH_EXCEPTION" }, justification = "Several places in the calls down the stack can return null")
-    private synchronized void loadLookUpTables() {
-        if (pgnLut == null) {
-            // parse the selected columns from J1939DA. The source data is
-            // unaltered, so some processing is required to convert byte.bit
-            // specifications into ints.
-            InputStream is = new SequenceInputStream(Resources.class.getResourceAsStream("j1939da-extract.csv"),
-                                                     Resources.class.getResourceAsStream("j1939da-addendum.csv"));
-            InputStreamReader isReader = new InputStreamReader(is, StandardCharsets.ISO_8859_1);
-            try (CSVReader reader = new CSVReaderBuilder(isReader).withSkipLines(2).build()) {
-                // collect spns under the pgn
-                Collection<Object[]> table = StreamSupport.stream(reader.spliterator(), false)
-                                                          // allow for blank lines
-                                                          .filter(line -> line.length > 1)
-                                                          // map line to [pgn,spn] where pgn may be null
-                                                          .map(line -> {
-                                                              try {
-                                                                  String position = line[4];
-                                                                  int startByte;
-                                                                  int startBit;
-                                                                  position = position.toLowerCase();
-                                                                  if (position.isBlank()) {
-                                                                      // must be a non-pgn spn
-                                                                      startByte = -1;
-                                                                      startBit = -1;
-                                                                  } else if (position.matches("[a-z]")) {
-                                                                      startByte = position.charAt(0) - 'a' + 1;
-                                                                      startBit = 1;
-                                                                  } else if (position.matches("\\d+((,|-| to ).*)?")) {
-                                                                      startByte = Integer.parseInt(position.split("[^\\d]")[0]);
-                                                                      startBit = 1;
-                                                                  } else if (position.matches("\\d+\\.\\d+((,|-| to ).*)?")) {
-                                                                      String[] a = position.split("[^\\d]");
-                                                                      startByte = Integer.parseInt(a[0]);
-                                                                      startBit = Integer.parseInt(a[1]);
-                                                                  } else if ("a (starts at byte 10)".equals(position)) {
-                                                                      startByte = 10;
-                                                                      startBit = 1;
-                                                                  } else {
-                                                                      throw new ParseError("Unable to parse position: "
-                                                                              + position);
-                                                                  }
-
-                                                                  SpnDefinition spnDef = null;
-                                                                  String spnIdStr = line[5];
-                                                                  if (!spnIdStr.isBlank()) {
-                                                                      String label = shortenLabel(line[6]);
-                                                                      int spnId = Integer.parseInt(spnIdStr);
-                                                                      spnDef = new SpnDefinition(spnId,
-                                                                                                 label,
-                                                                                                 startByte,
-                                                                                                 startBit,
-                                                                                                 line[7].isBlank()
-                                                                                                         ? -1
-                                                                                                         : Integer.parseInt(line[7]));
-                                                                  }
-                                                                  String pgnIdStr = line[0];
-                                                                  PgnDefinition pgnDef = null;
-                                                                  // we don't care about the PGN that have no
-                                                                  // SPNs.
-                                                                  if (spnDef != null && !pgnIdStr.isBlank()) {
-                                                                      int transmissionRate = parseTransmissionRate(line[3]);
-                                                                      String label = shortenLabel(line[1]);
-                                                                      pgnDef = new PgnDefinition(Integer.parseInt(pgnIdStr),
-                                                                                                 label,
-                                                                                                 line[2],
-                                                                                                 transmissionRate == 0,
-                                                                                                 transmissionRate < 0,
-                                                                                                 Math.abs(transmissionRate),
-                                                                                                 Collections.singletonList(spnDef));
-                                                                  }
-                                                                  return new Object[] { pgnDef, spnDef };
-                                                              } catch (ParseError e) {
-                                                                  System.err.format("%d %s %n\t%s%n",
-                                                                                    reader.getLinesRead(),
-                                                                                    e.getMessage(),
-                                                                                    Arrays.asList(line));
-                                                                  return null;
+    private IntMap<PgnDefinition> loadLookUpTablesFromCsv(IntMap<SpnDefinition> spns) {
+        // parse the selected columns from J1939DA. The source data is
+        // unaltered, so some processing is required to convert byte.bit
+        // specifications into ints.
+        InputStream is = new SequenceInputStream(Resources.class.getResourceAsStream("j1939da-extract.csv"),
+                                                 Resources.class.getResourceAsStream("j1939da-addendum.csv"));
+        InputStreamReader isReader = new InputStreamReader(is, StandardCharsets.ISO_8859_1);
+        try (CSVReader reader = new CSVReaderBuilder(isReader).withSkipLines(2).build()) {
+            // collect spns under the pgn
+            Collection<Object[]> table = StreamSupport.stream(reader.spliterator(), false)
+                                                      // allow for blank lines
+                                                      .filter(line -> line.length > 1)
+                                                      // map line to [pgn,spn] where pgn may be null
+                                                      .map(line -> {
+                                                          try {
+                                                              String position = line[4];
+                                                              int startByte;
+                                                              int startBit;
+                                                              position = position.toLowerCase();
+                                                              if (position.isBlank()) {
+                                                                  // must be a non-pgn spn
+                                                                  startByte = -1;
+                                                                  startBit = -1;
+                                                              } else if (position.matches("[a-z]")) {
+                                                                  startByte = position.charAt(0) - 'a' + 1;
+                                                                  startBit = 1;
+                                                              } else if (position.matches("\\d+((,|-| to ).*)?")) {
+                                                                  startByte = Integer.parseInt(position.split("[^\\d]")[0]);
+                                                                  startBit = 1;
+                                                              } else if (position.matches("\\d+\\.\\d+((,|-| to ).*)?")) {
+                                                                  String[] a = position.split("[^\\d]");
+                                                                  startByte = Integer.parseInt(a[0]);
+                                                                  startBit = Integer.parseInt(a[1]);
+                                                              } else if ("a (starts at byte 10)".equals(position)) {
+                                                                  startByte = 10;
+                                                                  startBit = 1;
+                                                              } else {
+                                                                  throw new ParseError("Unable to parse position: "
+                                                                          + position);
                                                               }
-                                                          })
-                                                          .filter(Objects::nonNull)
-                                                          .collect(Collectors.toList());
-                spnLut = table.stream()
+
+                                                              SpnDefinition spnDef = null;
+                                                              String spnIdStr = line[5];
+                                                              if (!spnIdStr.isBlank()) {
+                                                                  String label = shortenLabel(line[6]);
+                                                                  int spnId = Integer.parseInt(spnIdStr);
+                                                                  spnDef = new SpnDefinition(spnId,
+                                                                                             label,
+                                                                                             startByte,
+                                                                                             startBit,
+                                                                                             line[7].isBlank()
+                                                                                                     ? -1
+                                                                                                     : Integer.parseInt(line[7]));
+                                                              }
+                                                              String pgnIdStr = line[0];
+                                                              PgnDefinition pgnDef = null;
+                                                              // we don't care about the PGN that have no
+                                                              // SPNs.
+                                                              if (spnDef != null && !pgnIdStr.isBlank()) {
+                                                                  int transmissionRate = parseTransmissionRate(line[3]);
+                                                                  String label = shortenLabel(line[1]);
+                                                                  pgnDef = new PgnDefinition(Integer.parseInt(pgnIdStr),
+                                                                                             label,
+                                                                                             line[2],
+                                                                                             transmissionRate == 0,
+                                                                                             transmissionRate < 0,
+                                                                                             Math.abs(transmissionRate),
+                                                                                             Collections.singletonList(spnDef));
+                                                              }
+                                                              return new Object[] { pgnDef, spnDef };
+                                                          } catch (ParseError e) {
+                                                              System.err.format("%d %s %n\t%s%n",
+                                                                                reader.getLinesRead(),
+                                                                                e.getMessage(),
+                                                                                Arrays.asList(line));
+                                                              return null;
+                                                          }
+                                                      })
+                                                      .filter(Objects::nonNull)
+                                                      .collect(Collectors.toList());
+            var spnMap = table.stream()
                               .map(row -> ((SpnDefinition) row[1]))
                               .filter(Objects::nonNull)
                               // prefer the spn with a star byte over the one without
                               .sorted(Comparator.comparing(SpnDefinition::getStartByte))
                               .collect(Collectors.toMap(SpnDefinition::getSpnId, s -> s, (a, b) -> b));
 
-                pgnLut = table.stream()
+            var pgnMap = table.stream()
                               .flatMap(row -> row[0] == null ? Stream.empty() : Stream.of((PgnDefinition) row[0]))
                               .collect(Collectors.toMap(PgnDefinition::getId,
                                                         pgnDef -> pgnDef,
@@ -188,26 +254,18 @@ public class J1939DaRepository {
                                                                                                    .stream())
                                                                                           .map(SpnDefinition::getSpnId)
                                                                                           .distinct()
-                                                                                          .map(id -> spnLut.get(id))
+                                                                                          .map(spnMap::get)
                                                                                           .sorted(Comparator
                                                                                                             .comparing(s -> s.getStartByte()
                                                                                                                     * 8
                                                                                                                     + s
                                                                                                                        .getStartBit()))
                                                                                           .collect(Collectors.toList()))));
-
-                spnToPgnMap = new HashMap<>();
-                for (PgnDefinition pgnDefinition : pgnLut.values()) {
-                    for (SpnDefinition spnDefinition : pgnDefinition.getSpnDefinitions()) {
-                        Set<Integer> pgns = spnToPgnMap.getOrDefault(spnDefinition.getSpnId(), new HashSet<>());
-                        pgns.add(pgnDefinition.getId());
-                        spnToPgnMap.put(spnDefinition.getSpnId(), pgns);
-                    }
-                }
-            } catch (Exception e) {
-                logError("Error loading J1939DA data.", e);
-                throw new RuntimeException("Unable to load J1939DA", e);
-            }
+            spnMap.forEach(spns::put);
+            return IntMap.copyOf(pgnMap);
+        } catch (Exception e) {
+            logError("Error loading J1939DA data.", e);
+            throw new RuntimeException("Unable to load J1939DA", e);
         }
     }
 
@@ -217,8 +275,13 @@ public class J1939DaRepository {
      * @return Map of SLOT ID to Slot
      */
     @SuppressFBWarnings(value = "RCN_REDUNDANT_NULLCHECK_WOULD_HAVE_BEEN_A_NPE", justification = "Several places in the calls down the stack can return null")
-    private Map<Integer, Slot> loadSlots() {
-        Map<Integer, Slot> slots = new HashMap<>();
+    private IntMap<Slot> loadSlots() {
+        J1939DaIndex index = useIndex ? J1939DaIndex.getInstance() : null;
+        if (index != null) {
+            return index.getSlots();
+        }
+
+        IntMap<Slot> slots = new IntMap<>();
         String[] values;
 
         InputStream is = new SequenceInputStream(Resources.class.getResourceAsStream("j1939da-slots.csv"),
@@ -409,8 +472,7 @@ public class J1939DaRepository {
     }
 
     public PgnDefinition findPgnDefinition(int pgn) {
-        loadLookUpTables();
-        PgnDefinition pgnDefinition = pgnLut.get(pgn);
+        PgnDefinition pgnDefinition = loadLookUpTables().get(pgn);
         if (pgnDefinition == null) {
             getLogger().log(Level.INFO, "Unable to find PgnDefinition for " + pgn);
             return new PgnDefinition(pgn, "Unknown", "UNK", false, false, 0, List.of());
@@ -442,18 +504,36 @@ public class J1939DaRepository {
     }
 
     public Map<Integer, PgnDefinition> getPgnDefinitions() {
-        loadLookUpTables();
-        return Collections.unmodifiableMap(pgnLut);
+        return loadLookUpTables().asMap();
     }
 
+    /**
+     * @return the ids of the PGNs that carry the SPN, or null if there are
+     *         none
+     */
     public Set<Integer> getPgnForSpn(int spn) {
         loadLookUpTables();
-        return spnToPgnMap.get(spn);
+        int[] pgns = spnToPgnMap.get(spn);
+        return pgns == null ? null : Arrays.stream(pgns).boxed().collect(Collectors.toUnmodifiableSet());
+    }
+
+    /**
+     * @return the sorted ids of the PGNs that carry the SPN, or an empty
+     *         stream if there are none
+     */
+    public IntStream getPgnIdsForSpn(int spn) {
+        loadLookUpTables();
+        int[] pgns = spnToPgnMap.get(spn);
+        return pgns == null ? IntStream.empty() : Arrays.stream(pgns);
+    }
+
+    Map<Integer, Slot> getSlots() {
+        return loadSlotsOnce().asMap();
     }
 
     public Map<Integer, SpnDefinition> getSpnDefinitions() {
         loadLookUpTables();
-        return Collections.unmodifiableMap(spnLut);
+        return spnLut.asMap();
     }
 
 }
@@ -5,12 +5,16 @@ import java.util.Arrays;
 import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 import java.util.function.Predicate;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -20,7 +24,7 @@ import org.etools.j1939_84.bus.Bus;
 import org.etools.j1939_84.bus.BusException;
 import org.etools.j1939_84.bus.EchoBus;
 import org.etools.j1939_84.bus.Packet;
-import org.etools.j1939_84.bus.Packet.PacketException;
+import org.etools.j1939_84.bus.PacketFilter;
 
 public class J1939TP implements Bus {
 
@@ -32,6 +36,14 @@ public class J1939TP implements Bus {
     final static public int CM_EndOfMessageACK = 19;
     final static public int CM_RTS = 16;
     final static public int DT = 0xEB00;
+    final static public int ETP_CM = 0xC800;
+    final static public int ETP_CM_CTS = 21;
+    final static public int ETP_CM_DPO = 22;
+    final static public int ETP_CM_EOMA = 23;
+    final static public int ETP_CM_RTS = 20;
+    final static public int ETP_DT = 0xC700;
+    /** The largest message TP can carry, larger messages are sent with ETP. */
+    final static public int MAX_TP_SIZE = 1785;
     final static public int T1 = 750;
     final static public int T2 = 1250;
     final static public int T3 = 1250;
@@ -58,23 +70,41 @@ public class J1939TP implements Bus {
         table7 = Collections.unmodifiableMap(err);
     }
 
-    /** bus representing CAN bus */
-    private final Bus bus;
     /**
-     * Support up to 255 concurrent TP sessions plus main kickoff thread, but we
-     * only expect there to normally be 5, so shut down idle threads after 1 s.
+     * A CTS is sent a total of three times without receiving data before the
+     * session is aborted.
      */
-    private final ExecutorService exec = new ThreadPoolExecutor(5 + 1,
-                                                                255 + 1,
-                                                                1L,
-                                                                TimeUnit.SECONDS,
-                                                                new LinkedBlockingQueue<>());
+    static private final int MAX_REQUESTS = 3;
+    /** The part of a transmit gap that is spent yielding instead of parked. */
+    static private final long SPIN_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    /** The initial size of an ETP receive buffer, it grows as data arrives. */
+    static private final int INITIAL_ETP_BUFFER = 64 * 1024;
+    /** The resolution of the session timers. */
+    static private final int TICK_MS = 5;
+
+    /** The time between BAM DT in nanoseconds */
+    private volatile long bamInterval = TimeUnit.MILLISECONDS.toNanos(50);
+    /** bus representing CAN bus */
+    private final Bus bus;
+    /** The one thread that reads the bus and runs all of the sessions. */
+    private final ExecutorService exec = Executors.newSingleThreadExecutor();
     /** Application side bus. */
     private final EchoBus inbound;
+    /** The time between DT in a CTS window in nanoseconds */
+    private volatile long packetInterval = 0;
+    /** The time between DT in a CTS window for specific destinations */
+    private final Map<Integer, Long> packetIntervals = new ConcurrentHashMap<>();
+    /**
+     * Open receive sessions by source and destination. Only used on the
+     * session thread.
+     */
+    private final Map<Integer, Session> sessions = new HashMap<>();
     /**
      * The inbound stream that RTS and BAM announcements will be detected on.
      */
     private final Stream<Packet> stream;
+    /** T1 and T2 for the open sessions. Only used on the session thread. */
+    private final TimerWheel<Session> timers = new TimerWheel<>(TICK_MS, TimeUnit.MILLISECONDS, 512, this::timeout);
 
     public J1939TP(Bus bus) throws BusException {
         this(bus, bus.getAddress());
@@ -85,18 +115,26 @@ public class J1939TP implements Bus {
         stream = bus.read(9999, TimeUnit.DAYS);
         inbound = new EchoBus(address);
         // start processing
-        exec.execute(() -> stream.forEach(p -> receive(p)));
+        exec.execute(this::processFrames);
     }
 
     static private String getAbortError(int code) {
         return table7.getOrDefault(code, "Unknown");
     }
 
-    /** We do not care about interruptions. */
-    static private void sleep(int duration) {
-        try {
-            Thread.sleep(duration);
-        } catch (InterruptedException e) {
+    /**
+     * Waits until a System.nanoTime() deadline. Sleeping can overshoot by a
+     * scheduler quantum, which is 1 ms or more on Windows, so the last
+     * {@link #SPIN_NANOS} is spent yielding.
+     */
+    static private void waitUntil(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            if (remaining > SPIN_NANOS) {
+                LockSupport.parkNanos(remaining - SPIN_NANOS);
+            } else {
+                Thread.yield();
+            }
         }
     }
 
@@ -116,6 +154,11 @@ public class J1939TP implements Bus {
         return inbound.duplicate(stream, time, unit);
     }
 
+    @Override
+    public Stream<Packet> duplicate(Stream<Packet> stream, int time, TimeUnit unit, PacketFilter filter) {
+        return inbound.duplicate(stream, time, unit, filter);
+    }
+
     @Override
     public int getAddress() {
         return inbound.getAddress();
@@ -131,15 +174,26 @@ public class J1939TP implements Bus {
         return inbound.read(timeout, unit);
     }
 
+    @Override
+    public Stream<Packet> read(long timeout, TimeUnit unit, PacketFilter filter) throws BusException {
+        return inbound.read(timeout, unit, filter);
+    }
+
     @Override
     public void resetTimeout(Stream<Packet> stream, int time, TimeUnit unit) {
-        bus.resetTimeout(stream, time, unit);
+        inbound.resetTimeout(stream, time, unit);
     }
 
     @Override
     public Packet send(Packet packet) throws BusException {
         if (packet.getLength() <= 8) {
             return bus.send(packet);
+        } else if (packet.getLength() > MAX_TP_SIZE) {
+            if (packet.getPgn() >= 0xF000) {
+                throw new BusException("ETP can not be broadcast: " + packet.getLength() + " bytes PGN "
+                        + packet.getPgn());
+            }
+            return sendExtended(packet.getDestination(), packet);
         } else if (packet.getPgn() >= 0xF000) {
             return sendBam(packet);
         } else {
@@ -147,6 +201,33 @@ public class J1939TP implements Bus {
         }
     }
 
+    /**
+     * Single frame packets are handed to the underlying bus, so they may be
+     * pipelined. TP messages are sent before returning.
+     */
+    @Override
+    public CompletableFuture<Packet> sendAsync(Packet packet) {
+        if (packet.getLength() <= 8) {
+            return bus.sendAsync(packet);
+        }
+        return Bus.super.sendAsync(packet);
+    }
+
+    /** Waits for the echo of a packet sent with sendAsync. */
+    private static Packet awaitEcho(CompletableFuture<Packet> echo) throws BusException {
+        try {
+            return echo.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof BusException) {
+                throw (BusException) e.getCause();
+            }
+            throw new BusException("Failed to send.", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusException("Failed to send.", e);
+        }
+    }
+
     /** Record an error, which is more than just a warning. */
     private void error(String msg, Throwable e) {
         logger.log(Level.SEVERE, msg, e);
@@ -159,6 +240,16 @@ public class J1939TP implements Bus {
         }
     }
 
+    /** The session key for a TP or ETP connection. */
+    private static int key(boolean extended, int source, int destination) {
+        return (extended ? 0x10000 : 0) | source << 8 | destination;
+    }
+
+    /**
+     * Called on the session thread. Completed packets and all packets that are
+     * not part of a TP session are passed on to the inbound bus in the order
+     * they were received.
+     */
     private void receive(Packet packet) {
         // ignore the packet if it is from this
         try {
@@ -168,42 +259,36 @@ public class J1939TP implements Bus {
                         switch (packet.get(0)) {
                             case CM_RTS: { // Request to send
                                 if (packet.getDestination() == getAddress()) {
-                                    exec.execute(() -> {
-                                        try {
-                                            receiveDestinationSpecific(packet);
-                                        } catch (BusException e) {
-                                            error("Failed to receive destination specific TP:" + packet, e);
-                                        }
-                                    });
+                                    receiveRts(packet);
                                 }
                                 return;
                             }
-                            case CM_BAM: {
-                                /*
-                                 * Duplicate the current stream. Opening a new stream starts
-                                 * from "now" and may miss packets already queued up in
-                                 * stream. This is not needed for DA, because DA has a CTS.
-                                 * Timeout is reset inside receiveBam to account for time
-                                 * spent starting this thread.
-                                 */
-                                Stream<Packet> bamStream = bus.duplicate(stream, T2, TimeUnit.MILLISECONDS);
-                                exec.execute(() -> {
-                                    try {
-                                        receiveBam(packet, bamStream);
-                                    } catch (Throwable t) {
-                                        error("Failed to process packet:" + packet, t);
-                                    } finally {
-                                        bamStream.close();
-                                    }
-                                });
+                            case CM_BAM:
+                                receiveBam(packet);
                                 return;
-                            }
                             case CM_ConnAbort:
-                                // handled in receive calls
+                                receiveAbort(packet);
+                                return;
+                        }
+                        break;
+                    case ETP_CM: // ETP connection management
+                        switch (packet.get(0)) {
+                            case ETP_CM_RTS:
+                                if (packet.getDestination() == getAddress()) {
+                                    receiveRts(packet);
+                                }
+                                return;
+                            case ETP_CM_DPO:
+                                receiveDpo(packet);
+                                return;
+                            case CM_ConnAbort:
+                                receiveAbort(packet);
                                 return;
                         }
                         break;
                     case DT: // data
+                    case ETP_DT:
+                        receiveData(packet);
                         return;
                 }
                 // everything else, pass through
@@ -214,161 +299,290 @@ public class J1939TP implements Bus {
         }
     }
 
-    private void receiveBam(Packet bam, Stream<Packet> stream) {
+    private void receiveAbort(Packet abort) {
+        Session session = sessions.get(key(abort.getPgn() == ETP_CM, abort.getSource(), abort.getDestination()));
+        if (session != null) {
+            if (session.isBroadcast()) {
+                warn("BAM canceled or aborted: " + session.announcement + " -> " + abort);
+            } else {
+                warn(getAbortError(abort.get(1)), abort);
+                warn("TP canceled", abort);
+            }
+            fail(session);
+        }
+    }
+
+    private void receiveBam(Packet bam) {
         fine("rx BAM", bam);
+        Session session = open(bam);
+        timers.schedule(session, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(T2));
+    }
+
+    private void receiveData(Packet dt) {
+        Session session = sessions.get(key(dt.getPgn() == ETP_DT, dt.getSource(), dt.getDestination()));
+        if (session == null) {
+            return;
+        }
+        int sequence = dt.get(0);
+        // ETP sequence numbers are relative to the last DPO
+        int packetNumber = session.dataPacketOffset + sequence;
+        if (sequence < 1 || packetNumber > session.numberOfPackets
+                || (session.extended && packetNumber > session.windowEnd)) {
+            fine("ignored DT", dt);
+            return;
+        }
+        fine("rx DT", dt);
+        if (!session.received.get(packetNumber)) {
+            session.received.set(packetNumber);
+            session.receivedCount++;
+        }
+        session.store(packetNumber, dt);
+        session.packet.setTimestampNanos(dt.getTimestampNanos());
+        session.progress = true;
+
+        if (session.receivedCount == session.numberOfPackets) {
+            complete(session);
+        } else if (!session.isBroadcast() && session.received.nextClearBit(session.windowStart) > session.windowEnd) {
+            // the window is complete, ask for the next one
+            sendCts(session);
+        } else {
+            // After every TP.DT, reset timeout to T1 from now.
+            timers.schedule(session, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(T1));
+        }
+    }
+
+    private void receiveDpo(Packet dpo) {
+        Session session = sessions.get(key(true, dpo.getSource(), dpo.getDestination()));
+        if (session == null) {
+            return;
+        }
+        fine("rx DPO", dpo);
+        int offset = dpo.get24(2);
+        if (offset + 1 != session.windowStart || dpo.get(1) > session.windowEnd - offset) {
+            warn("ETP.CM_DPO does not match the CTS: %s", dpo);
+        }
+        session.dataPacketOffset = offset;
+        timers.schedule(session, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(T1));
+    }
+
+    private void receiveRts(Packet rts) {
+        fine("rx RTS", rts);
+        sendCts(open(rts));
+    }
 
-        int numberOfPackets = bam.get(3);
-
-        byte[] data = new byte[bam.get16(1)];
-        BitSet received = new BitSet(numberOfPackets + 1);
-        int dataId = DT | bam.getDestination();
-        int controlId = CM | bam.getId(0xFF);
-
-        int pgn = bam.get24(5);
-        int source = bam.getSource();
-        int packetId = pgn < 0xF000 ? pgn | bam.getDestination() : pgn;
-        Packet packet = Packet.create(packetId, source, (int[]) null);
-        packet.setFragments(new ArrayList<>());
-        packet.getFragments().add(bam);
-        packet.setTimestamp(bam.getTimestamp());
-        synchronized (packet) {
-            inbound.send(packet);
-
-            bus.resetTimeout(stream, T2, TimeUnit.MILLISECONDS);
-            if (stream
-                      .filter(p -> {
-                          int id = p.getId(0xFFFF);
-                          return p.getSource() == source && (id == dataId || id == controlId);
-                      })
-                      .peek(p -> bus.resetTimeout(stream, T1, TimeUnit.MILLISECONDS))
-                      .map(p -> {
-                          if (p.getId(0xFFFF) == controlId) {
-                              packet.fail();
-                              warn("BAM canceled or aborted: " + bam + " -> " + p);
-                              return true;
-                          }
-                          fine("rx DT", p);
-                          packet.getFragments().add(p);
-                          received.set(p.get(0));
-                          int offset = (p.get(0) - 1) * 7;
-                          System.arraycopy(p.getBytes(), 1, data, offset, Math.min(offset + 7, data.length) - offset);
-                          packet.setTimestamp(p.getTimestamp());
-                          return received.cardinality() == numberOfPackets;
-                      })
-                      .filter(b -> b)
-                      .findFirst()
-                      .orElse(false)
-                    && received.cardinality() == numberOfPackets) {
-                packet.setData(data);
+    /** Opens a session for a BAM or RTS and publishes its packet. */
+    private Session open(Packet announcement) {
+        boolean extended = announcement.getPgn() == ETP_CM;
+        int key = key(extended, announcement.getSource(), announcement.getDestination());
+        Session previous = sessions.get(key);
+        if (previous != null) {
+            // only one session per connection, a new announcement replaces it
+            if (previous.isBroadcast()) {
+                warn("BAM canceled or aborted: " + previous.announcement + " -> " + announcement);
             } else {
-                warn("BAM missing DT %d != %d", received.cardinality(), numberOfPackets);
-                packet.fail();
+                warn("TP canceled", announcement);
             }
+            fail(previous);
+        }
+
+        int pgn = announcement.get24(5);
+        int id = pgn < 0xF000 ? pgn | announcement.getDestination() : pgn;
+        Packet packet = Packet.create(id, announcement.getSource(), (int[]) null);
+        // only the announcement is kept, the data is in the session buffer
+        packet.setFragments(Collections.singletonList(announcement));
+        packet.setTimestampNanos(announcement.getTimestampNanos());
+
+        Session session = new Session(key, extended, announcement, packet);
+        sessions.put(key, session);
+        // published now, so the packet is ordered by its announcement
+        inbound.send(packet);
+        return session;
+    }
+
+    private void complete(Session session) {
+        close(session);
+        if (session.extended) {
+            int size = session.size;
+            Packet eoma = createControlPacket(session, ETP_CM_EOMA, size, size >> 8, size >> 16, size >> 24);
+            fine("tx EOMA", eoma);
+            sendControl(eoma);
+        } else if (!session.isBroadcast()) {
+            Packet rts = session.announcement;
+            Packet eom = createControlPacket(session, CM_EndOfMessageACK, rts.get(1), rts.get(2), rts.get(3), 0xFF);
+            fine("tx EOM", eom);
+            sendControl(eom);
         }
+        // signal done collecting packet data, the buffer is the exact size by now
+        session.packet.setDataWithoutCopy(session.data);
     }
 
-    public void receiveDestinationSpecific(Packet rts) throws BusException {
-        fine("rx RTS", rts);
-        int numberOfPackets = rts.get(3);
-        int maxResponsePackets = rts.get(4);
-
-        byte[] data = new byte[rts.get16(1)];
-        BitSet received = new BitSet(numberOfPackets + 1);
-        int receivedNone = 0;
-        int lastCardinality = -1;
-        int cardinality;
-
-        int pgn = rts.get24(5);
-        int source = rts.getSource();
-        int id = pgn < 0xF000 ? pgn | rts.getDestination() : pgn;
-        Packet packet = Packet.create(id, source, (int[]) null);
-        packet.setFragments(new ArrayList<>());
-        packet.getFragments().add(rts);
-        synchronized (packet) {
-            inbound.send(packet);
-            while ((cardinality = received.cardinality()) < numberOfPackets) {
-                if (cardinality == lastCardinality) {
-                    if (receivedNone++ > 3) {
-                        throw new BusException("Failed to receive DT");
+    /**
+     * Creates a CM for a session, from this to the sender, ending with the PGN
+     * from the announcement.
+     */
+    private Packet createControlPacket(Session session, int control, int b1, int b2, int b3, int b4) {
+        Packet announcement = session.announcement;
+        return Packet.create((session.extended ? ETP_CM : CM) | announcement.getSource(),
+                             getAddress(),
+                             control,
+                             b1,
+                             b2,
+                             b3,
+                             b4,
+                             announcement.get(5),
+                             announcement.get(6),
+                             announcement.get(7));
+    }
+
+    private void fail(Session session) {
+        close(session);
+        session.packet.fail();
+    }
+
+    private void close(Session session) {
+        sessions.remove(session.key);
+        timers.cancel(session);
+    }
+
+    /** Requests the next run of missing DT. */
+    private void sendCts(Session session) {
+        int nextPacket = session.received.nextClearBit(1);
+        int packetCount = session.received.nextSetBit(nextPacket) - nextPacket;
+        if (packetCount < 0) {
+            packetCount = session.numberOfPackets - nextPacket + 1;
+        }
+        // TP limits the window in the RTS, ETP sequence numbers limit it to 255
+        int maxResponsePackets = session.extended ? 255 : session.announcement.get(4);
+        if (packetCount > maxResponsePackets) {
+            packetCount = maxResponsePackets;
+        }
+        session.windowStart = nextPacket;
+        session.windowEnd = nextPacket + packetCount - 1;
+        session.progress = false;
+
+        Packet cts;
+        if (session.extended) {
+            cts = createControlPacket(session, ETP_CM_CTS, packetCount, nextPacket, nextPacket >> 8, nextPacket >> 16);
+        } else {
+            cts = createControlPacket(session, CM_CTS, packetCount, nextPacket, 0xFF, 0xFF);
+        }
+        fine("tx CTS", cts);
+        sendControl(cts);
+        timers.schedule(session, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(T2));
+    }
+
+    /** Sends without waiting for the echo, the session thread never blocks. */
+    private void sendControl(Packet packet) {
+        bus.sendAsync(packet).whenComplete((p, t) -> {
+            if (t != null) {
+                error("Failed to send: " + packet, t);
+            }
+        });
+    }
+
+    /** Called on the session thread when a T1 or T2 timer expires. */
+    private void timeout(Session session) {
+        try {
+            if (session.isBroadcast()) {
+                warn("BAM missing DT %d != %d", session.receivedCount, session.numberOfPackets);
+                fail(session);
+            } else if (session.progress) {
+                // the DT stopped part way through the window, request the rest
+                session.retries = 0;
+                sendCts(session);
+            } else if (++session.retries < MAX_REQUESTS) {
+                sendCts(session);
+            } else {
+                warn("TP.DT not received: %s", session.announcement);
+                Packet abort = createControlPacket(session, CM_ConnAbort, 3, 0xFF, 0xFF, 0xFF);
+                fine("tx Abort", abort);
+                sendControl(abort);
+                fail(session);
+            }
+        } catch (Throwable t) {
+            error("Failed to process timeout:" + session.announcement, t);
+        }
+    }
+
+    /**
+     * The session thread. Every TP session is reassembled here from the one
+     * stream, so the thread count does not grow with the number of open
+     * sessions. While a session timer is pending, the frames are read from a
+     * duplicate of the stream that ends at the next tick, so the timers run
+     * even when the bus is quiet.
+     */
+    private void processFrames() {
+        Iterator<Packet> frames = stream.iterator();
+        try {
+            while (true) {
+                long wait = timers.nanosToNextTick(System.nanoTime());
+                if (wait == Long.MAX_VALUE) {
+                    if (!frames.hasNext()) {
+                        return;
                     }
-                } else {
-                    lastCardinality = cardinality;
-                    receivedNone = 0;
+                    receive(frames.next());
+                    continue;
                 }
-                int nextPacket = received.nextClearBit(1);
-                int packetCount = received.nextSetBit(nextPacket) - nextPacket;
-                if (packetCount < 0) {
-                    packetCount = numberOfPackets - nextPacket + 1;
-                }
-                if (packetCount > maxResponsePackets) {
-                    packetCount = maxResponsePackets;
+                int read = 0;
+                if (wait > 0) {
+                    Stream<Packet> tick = bus.duplicate(stream, (int) wait, TimeUnit.NANOSECONDS);
+                    for (Iterator<Packet> i = tick.iterator(); i.hasNext(); read++) {
+                        receive(i.next());
+                    }
                 }
-                Stream<Packet> dataStream = bus.read(T2, TimeUnit.MILLISECONDS);
-                Stream<Packet> stream = dataStream
-                                                  .filter(p -> p.getSource() == source)
-                                                  .peek(p -> {
-                                                      if (p.getId(0xFFFF) == (CM | rts.getId(0xFF))) {
-                                                          if (p.get(0) == CM_ConnAbort) {
-                                                              warn(getAbortError(p.get(1)), p);
-                                                          }
-                                                          warn("TP canceled", p);
-                                                          packet.fail();
-                                                          throw new PacketException("TP canceled");
-                                                      }
-                                                  })
-                                                  // only consider DT packet that are part of this
-                                                  // connection
-                                                  .filter(p -> p.getId(0xFFFF) == (DT | rts.getId(0xFF)))
-                                                  // After every TP.DT, reset timeout to T1 from now.
-                                                  .peek(p -> bus.resetTimeout(dataStream, T1, TimeUnit.MILLISECONDS))
-                                                  .limit(packetCount);
-                Packet cts = Packet.create(CM | source,
-                                           getAddress(),
-                                           CM_CTS,
-                                           packetCount,
-                                           nextPacket,
-                                           0xFF,
-                                           0xFF,
-                                           rts.get(5),
-                                           rts.get(6),
-                                           rts.get(7));
-                fine("tx CTS", cts);
-
-                bus.send(cts);
-                try {
-                    stream.forEach(p -> {
-                        packet.getFragments().add(p);
-                        fine("rx DT", rts);
-                        received.set(p.get(0));
-                        packet.setTimestamp(p.getTimestamp());
-                        int offset = (p.get(0) - 1) * 7;
-                        System.arraycopy(p.getBytes(), 1, data, offset, Math.min(offset + 7, data.length) - offset);
-                    });
-                } catch (PacketException e) {
-                    // TP failed.
-                    return;
+                // move the stream past the frames read from the duplicate
+                for (; read > 0; read--) {
+                    if (!frames.hasNext()) {
+                        return;
+                    }
+                    frames.next();
                 }
+                timers.advance(System.nanoTime());
             }
-            Packet eom = Packet.create(CM | source,
-                                       getAddress(),
-                                       CM_EndOfMessageACK,
-                                       rts.get(1),
-                                       rts.get(2),
-                                       rts.get(3),
-                                       0xFF,
-                                       rts.get(5),
-                                       rts.get(6),
-                                       rts.get(7));
-            fine("tx EOM", eom);
-            bus.send(eom);
-            // signal done collecting packet data
-            packet.setData(data);
+        } catch (IllegalStateException e) {
+            // the stream was closed
+        } finally {
+            new ArrayList<>(sessions.values()).forEach(this::fail);
+        }
+    }
+
+    /**
+     * Fills the frame buffer with a DT and creates the packet for it. The
+     * buffer is copied by {@link Packet#create(int, int, byte...)}, so one
+     * buffer is reused for every DT of a message.
+     */
+    private Packet createDataPacket(int id, Packet packet, int packetNumber, int sequence, byte[] buf, byte padding) {
+        int offset = (packetNumber - 1) * 7;
+        int length = Math.max(0, Math.min(packet.getLength() - offset, 7));
+        buf[0] = (byte) sequence;
+        packet.copyTo(offset, buf, 1, length);
+        Arrays.fill(buf, 1 + length, buf.length, padding);
+        return Packet.create(id, getAddress(), buf);
+    }
+
+    private long getPacketInterval(int destinationAddress) {
+        return packetIntervals.getOrDefault(destinationAddress, packetInterval);
+    }
+
+    /** The number of DT needed for a message. */
+    private static int packetCount(Packet packet) {
+        return (packet.getLength() + 6) / 7;
+    }
+
+    private void logTransmitTime(Packet packet, long start) {
+        if (logger.isLoggable(Level.INFO)) {
+            logger.info(String.format("TP tx %d bytes PGN %06X to %02X in %d ms",
+                                      packet.getLength(),
+                                      packet.getPgn(),
+                                      packet.getDestination(),
+                                      TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
         }
     }
 
     private Packet sendBam(Packet packet) throws BusException {
+        long start = System.nanoTime();
         int pgn = packet.getPgn();
-        int packetsToSend = packet.getLength() / 7 + 1;
+        int packetsToSend = packetCount(packet);
         int sourceAddress = getAddress();
         Packet bam = Packet.create(CM | 0xFF,
                                    sourceAddress,
@@ -383,36 +597,33 @@ public class J1939TP implements Bus {
         fine("tx BAM", bam);
 
         Packet response = bus.send(bam);
-        // send data
-        int id = DT | 0xFF;
-        for (int i = 0; i < packetsToSend; i++) {
-            byte[] buf = new byte[8];
-
-            int end = Math.min(packet.getLength() - i * 7, 7);
-            System.arraycopy(packet.getBytes(),
-                             i * 7,
-                             buf,
-                             1,
-                             end);
-            Arrays.fill(buf, end + 1, buf.length, (byte) 0xFF);
-            buf[0] = (byte) (i + 1);
-            sleep(50);
-            Packet dp = Packet.create(id, sourceAddress, buf);
+        // send data, the gap is measured from the start of the last send
+        long interval = bamInterval;
+        long sent = System.nanoTime();
+        byte[] buf = new byte[8];
+        CompletableFuture<Packet> echo = null;
+        for (int i = 1; i <= packetsToSend; i++) {
+            waitUntil(sent + interval);
+            sent = System.nanoTime();
+            Packet dp = createDataPacket(DT | 0xFF, packet, i, i, buf, (byte) 0xFF);
 
             fine("tx DT.DP", dp);
-            bus.send(dp);
+            echo = echo == null ? bus.sendAsync(dp) : echo.thenCombine(bus.sendAsync(dp), (a, b) -> b);
         }
+        awaitEcho(echo);
+        logTransmitTime(packet, start);
         return response;
     }
 
     public Packet sendDestinationSpecific(int destinationAddress, Packet packet) throws BusException {
+        long start = System.nanoTime();
         int pgn = packet.getPgn();
         Predicate<Packet> controlMessageFilter = p -> //
         p.getSource() == destinationAddress
                 && p.getId(0xFFFF) == (CM | packet.getSource());
 
         // send RTS
-        int totalPacketsToSend = packet.getLength() / 7 + 1;
+        int totalPacketsToSend = packetCount(packet);
         Packet rts = Packet.create(CM | destinationAddress,
                                    getAddress(),
                                    CM_RTS,
@@ -425,25 +636,31 @@ public class J1939TP implements Bus {
                                    0xFF & (pgn >> 16));
         fine("tx RTS", rts);
 
-        Stream<Packet> ctsStream = bus.read(T3, TimeUnit.MILLISECONDS)
+        PacketFilter controlMessages = PacketFilter.pgns(CM)
+                                                   .sources(destinationAddress)
+                                                   .destinations(packet.getSource());
+        Stream<Packet> ctsStream = bus.read(T3, TimeUnit.MILLISECONDS, controlMessages)
                                       .filter(controlMessageFilter);
         Packet response = bus.send(rts);
 
+        long interval = getPacketInterval(destinationAddress);
+        byte[] buf = new byte[8];
         // wait for CTS
         Optional<Packet> ctsOptional = ctsStream.findFirst();
         while (ctsOptional.map(p -> p.get(0) == CM_CTS).orElse(false)) {
             Packet cts = ctsOptional.get();
             fine("rx CTS", cts);
 
-            int packetsToSend = Math.min(cts.get(1), totalPacketsToSend);
-            if (packetsToSend == 0) {
+            if (cts.get(1) == 0) {
                 if ((cts.get64() & 0x0000FFFFFFFFFFFFL) != 0x0000FFFFFFFFFFFFL) {
                     warn("TP.CM_CTS \"hold the connection open\" should be: %04X  %s",
                          0x0000FFFFFFFFFFFFL,
                          cts.toString());
                 }
                 // wait for CTS
-                ctsOptional = bus.read(T4, TimeUnit.MILLISECONDS).filter(controlMessageFilter).findFirst();
+                ctsOptional = bus.read(T4, TimeUnit.MILLISECONDS, controlMessages)
+                                 .filter(controlMessageFilter)
+                                 .findFirst();
             } else {
                 int offset = cts.get(2);
                 if (cts.get16(3) != 0xFFFF) {
@@ -452,22 +669,31 @@ public class J1939TP implements Bus {
                 if (cts.get24(5) != pgn) {
                     warn("TP.CM_CTS bytes 6-8 should be the PGN: %04X  %s", cts.get24(5), cts.toString());
                 }
-                // send data
+                // only the window that was asked for, and never past the end
+                int packetsToSend = Math.min(cts.get(1), totalPacketsToSend - offset + 1);
+                if (offset < 1 || packetsToSend < 1) {
+                    warn("TP.CM_CTS requested packets that do not exist: %s", cts.toString());
+                    throw sendAbort(CM, destinationAddress, pgn, cts);
+                }
+                // open before sending, so that a prompt CTS or EOM is not missed
+                Stream<Packet> nextStream = bus.read(T3, TimeUnit.MILLISECONDS, controlMessages);
+                // send data; the whole window is in flight before waiting for the echoes
+                CompletableFuture<Packet> echo = null;
+                long sent = 0;
                 for (int i = 0; i < packetsToSend; i++) {
-                    byte[] buf = new byte[8];
-                    System.arraycopy(packet.getBytes(),
-                                     (i + offset - 1) * 7,
-                                     buf,
-                                     1,
-                                     Math.min(packet.getLength() - i * 7, 7));
-                    buf[0] = (byte) (i + 1);
-                    Packet dp = Packet.create(DT | destinationAddress, getAddress(), buf);
+                    if (i > 0 && interval > 0) {
+                        waitUntil(sent + interval);
+                    }
+                    sent = System.nanoTime();
+                    Packet dp = createDataPacket(DT | destinationAddress, packet, offset + i, offset + i, buf, (byte) 0);
 
                     fine("tx DP", dp);
-                    response = bus.send(dp);
+                    echo = echo == null ? bus.sendAsync(dp) : echo.thenCombine(bus.sendAsync(dp), (a, b) -> b);
                 }
+                response = awaitEcho(echo);
                 // wait for CTS or EOM
-                ctsOptional = bus.read(T3, TimeUnit.MILLISECONDS).filter(controlMessageFilter).findFirst();
+                bus.resetTimeout(nextStream, T3, TimeUnit.MILLISECONDS);
+                ctsOptional = nextStream.filter(controlMessageFilter).findFirst();
             }
         }
         ctsOptional.ifPresent(eom -> fine("rx EOM", eom));
@@ -480,14 +706,228 @@ public class J1939TP implements Bus {
             warn((ctsOptional.isPresent() ? "CTS" : "EOM") + " not received.");
             throw ctsOptional.map(p -> (BusException) new EomBusException())
                              .orElse(new CtsBusException());
+        } else {
+            logTransmitTime(packet, start);
         }
         return response;
     }
 
+    /**
+     * Sends an ETP message, for messages larger than TP can carry. ETP is only
+     * destination specific. Each CTS is answered with a DPO that sets the
+     * offset for the DT sequence numbers, followed by the DT of the window.
+     */
+    public Packet sendExtended(int destinationAddress, Packet packet) throws BusException {
+        long start = System.nanoTime();
+        int pgn = packet.getPgn();
+        int size = packet.getLength();
+        Predicate<Packet> controlMessageFilter = p -> //
+        p.getSource() == destinationAddress
+                && p.getId(0xFFFF) == (ETP_CM | packet.getSource());
+
+        // send RTS
+        int totalPacketsToSend = packetCount(packet);
+        Packet rts = Packet.create(ETP_CM | destinationAddress,
+                                   getAddress(),
+                                   ETP_CM_RTS,
+                                   size,
+                                   size >> 8,
+                                   size >> 16,
+                                   size >> 24,
+                                   0xFF & pgn,
+                                   0xFF & (pgn >> 8),
+                                   0xFF & (pgn >> 16));
+        fine("tx RTS", rts);
+
+        PacketFilter controlMessages = PacketFilter.pgns(ETP_CM)
+                                                   .sources(destinationAddress)
+                                                   .destinations(packet.getSource());
+        Stream<Packet> ctsStream = bus.read(T3, TimeUnit.MILLISECONDS, controlMessages)
+                                      .filter(controlMessageFilter);
+        Packet response = bus.send(rts);
+
+        long interval = getPacketInterval(destinationAddress);
+        byte[] buf = new byte[8];
+        // wait for CTS
+        Optional<Packet> ctsOptional = ctsStream.findFirst();
+        while (ctsOptional.map(p -> p.get(0) == ETP_CM_CTS).orElse(false)) {
+            Packet cts = ctsOptional.get();
+            fine("rx CTS", cts);
+
+            if (cts.get(1) == 0) {
+                // hold the connection open, wait for CTS
+                ctsOptional = bus.read(T4, TimeUnit.MILLISECONDS, controlMessages)
+                                 .filter(controlMessageFilter)
+                                 .findFirst();
+            } else {
+                int nextPacket = cts.get24(2);
+                if (cts.get24(5) != pgn) {
+                    warn("ETP.CM_CTS bytes 6-8 should be the PGN: %04X  %s", cts.get24(5), cts.toString());
+                }
+                int packetsToSend = Math.min(cts.get(1), totalPacketsToSend - nextPacket + 1);
+                if (nextPacket < 1 || packetsToSend < 1) {
+                    warn("ETP.CM_CTS requested packets that do not exist: %s", cts.toString());
+                    throw sendAbort(ETP_CM, destinationAddress, pgn, cts);
+                }
+                int offset = nextPacket - 1;
+                Packet dpo = Packet.create(ETP_CM | destinationAddress,
+                                           getAddress(),
+                                           ETP_CM_DPO,
+                                           packetsToSend,
+                                           offset,
+                                           offset >> 8,
+                                           offset >> 16,
+                                           0xFF & pgn,
+                                           0xFF & (pgn >> 8),
+                                           0xFF & (pgn >> 16));
+                fine("tx DPO", dpo);
+                // open before sending, so that a prompt CTS or EOMA is not missed
+                Stream<Packet> nextStream = bus.read(T3, TimeUnit.MILLISECONDS, controlMessages);
+                // send data; the whole window is in flight before waiting for the echoes
+                CompletableFuture<Packet> echo = bus.sendAsync(dpo);
+                long sent = 0;
+                for (int i = 1; i <= packetsToSend; i++) {
+                    if (i > 1 && interval > 0) {
+                        waitUntil(sent + interval);
+                    }
+                    sent = System.nanoTime();
+                    Packet dp = createDataPacket(ETP_DT | destinationAddress, packet, offset + i, i, buf, (byte) 0xFF);
+
+                    fine("tx DP", dp);
+                    echo = echo.thenCombine(bus.sendAsync(dp), (a, b) -> b);
+                }
+                response = awaitEcho(echo);
+                // wait for CTS or EOMA
+                bus.resetTimeout(nextStream, T3, TimeUnit.MILLISECONDS);
+                ctsOptional = nextStream.filter(controlMessageFilter).findFirst();
+            }
+        }
+        ctsOptional.ifPresent(eoma -> fine("rx EOMA", eoma));
+
+        if (ctsOptional.map(p -> p.get(0) == CM_ConnAbort).orElse(false)) {
+            // FAIL
+            warn("Abort received: " + getAbortError(ctsOptional.get().get(1)));
+        } else if (ctsOptional.map(p -> p.get(0) != ETP_CM_EOMA).orElse(true)) {
+            // verify EOMA
+            warn((ctsOptional.isPresent() ? "CTS" : "EOM") + " not received.");
+            throw ctsOptional.map(p -> (BusException) new EomBusException())
+                             .orElse(new CtsBusException());
+        } else {
+            logTransmitTime(packet, start);
+        }
+        return response;
+    }
+
+    /**
+     * Aborts a transmit in response to a bad CTS, with "Bad sequence number".
+     *
+     * @return the exception to throw
+     */
+    private BusException sendAbort(int cm, int destinationAddress, int pgn, Packet cts) throws BusException {
+        Packet abort = Packet.create(cm | destinationAddress,
+                                     getAddress(),
+                                     CM_ConnAbort,
+                                     7,
+                                     0xFF,
+                                     0xFF,
+                                     0xFF,
+                                     0xFF & pgn,
+                                     0xFF & (pgn >> 8),
+                                     0xFF & (pgn >> 16));
+        fine("tx Abort", abort);
+        bus.send(abort);
+        return new BusException("Invalid CTS: " + cts);
+    }
+
+    /**
+     * Sets the time between the DT of a BAM. J1939-21 requires 50 to 200 ms,
+     * later revisions allow as little as 10 ms.
+     */
+    public void setBamInterval(long time, TimeUnit unit) {
+        bamInterval = unit.toNanos(time);
+    }
+
+    /**
+     * Sets the time between the DT sent in response to a CTS. The default is
+     * 0, sending the window back to back.
+     */
+    public void setPacketInterval(long time, TimeUnit unit) {
+        packetInterval = unit.toNanos(time);
+    }
+
+    /**
+     * Sets the time between the DT sent in response to a CTS from one
+     * destination, for modules that can not keep up with back to back frames.
+     */
+    public void setPacketInterval(int destinationAddress, long time, TimeUnit unit) {
+        packetIntervals.put(destinationAddress, unit.toNanos(time));
+    }
+
     public void warn(String msg, Object... a) {
         logger.warning(String.format(msg, a));
     }
 
+    /**
+     * A TP or ETP connection being received, from its BAM or RTS to its last
+     * DT.
+     */
+    static private class Session extends TimerWheel.Timer {
+        final Packet announcement;
+        final boolean extended;
+        final int key;
+        final int numberOfPackets;
+        final Packet packet;
+        /** DT packet numbers received */
+        final BitSet received;
+        /** The message size from the announcement */
+        final int size;
+        /** Grows as ETP data arrives, TP data is allocated up front */
+        byte[] data;
+        /** The offset of ETP sequence numbers from the last DPO */
+        int dataPacketOffset;
+        int receivedCount;
+        /** CTS sent without receiving a DT */
+        int retries;
+        /** A DT has been received since the last CTS */
+        boolean progress;
+        /** The DT packet numbers requested by the last CTS */
+        int windowEnd;
+        int windowStart;
+
+        Session(int key, boolean extended, Packet announcement, Packet packet) {
+            this.key = key;
+            this.extended = extended;
+            this.announcement = announcement;
+            this.packet = packet;
+            if (extended) {
+                size = (int) Math.min(announcement.get32(1), Integer.MAX_VALUE - 8);
+                numberOfPackets = (size + 6) / 7;
+                data = new byte[Math.min(size, INITIAL_ETP_BUFFER)];
+            } else {
+                size = announcement.get16(1);
+                numberOfPackets = announcement.get(3);
+                data = new byte[size];
+            }
+            received = new BitSet(Math.min(numberOfPackets + 1, INITIAL_ETP_BUFFER));
+        }
+
+        boolean isBroadcast() {
+            return announcement.get(0) == CM_BAM;
+        }
+
+        /** Copies the data from a DT into the message. */
+        void store(int packetNumber, Packet dt) {
+            long offset = (packetNumber - 1) * 7L;
+            if (offset < size) {
+                int end = (int) Math.min(offset + 7, size);
+                if (end > data.length) {
+                    data = Arrays.copyOf(data, (int) Math.min(size, Math.max(2L * data.length, end)));
+                }
+                dt.copyTo(1, data, (int) offset, end - (int) offset);
+            }
+        }
+    }
+
     static public class CtsBusException extends BusException {
         private static final long serialVersionUID = 425016130552597972L;
 
@@ -0,0 +1,101 @@
+/**
+ * Copyright 2021 Equipment & Tool Institute
+ */
+package org.etools.j1939_84.bus.j1939;
+
+import java.util.Optional;
+import java.util.function.Function;
+
+import org.etools.j1939_84.bus.Either;
+import org.etools.j1939_84.bus.Packet;
+import org.etools.j1939_84.bus.j1939.packets.AcknowledgmentPacket;
+import org.etools.j1939_84.bus.j1939.packets.GenericPacket;
+import org.etools.j1939_84.bus.j1939.packets.ParsedPacket;
+
+/**
+ * A {@link Packet} read from the bus that is only decoded when it is needed.
+ *
+ * The header (PGN, source and destination) can be checked without decoding,
+ * so a stream can filter out the packets it doesn't want before any
+ * {@link ParsedPacket} is built. The {@link ParsedPacket} is built the first
+ * time it is asked for and kept for the next time. Like the streams it comes
+ * from, a LazyPacket is meant to be used by one thread.
+ */
+public class LazyPacket {
+
+    /**
+     * @return a LazyPacket that has already been decoded
+     */
+    public static LazyPacket of(ParsedPacket parsedPacket) {
+        return new LazyPacket(parsedPacket.getPacket(), parsedPacket);
+    }
+
+    private final Function<Packet, ParsedPacket> decoder;
+
+    private final Packet packet;
+
+    private ParsedPacket parsedPacket;
+
+    LazyPacket(Packet packet, Function<Packet, ParsedPacket> decoder) {
+        this.packet = packet;
+        this.decoder = decoder;
+    }
+
+    private LazyPacket(Packet packet, ParsedPacket parsedPacket) {
+        this.packet = packet;
+        this.parsedPacket = parsedPacket;
+        decoder = null;
+    }
+
+    public int getDestination() {
+        return packet.getDestination();
+    }
+
+    /**
+     * @return the packet as a {@link GenericPacket}, or empty if it is an
+     *         {@link AcknowledgmentPacket}
+     */
+    public Optional<GenericPacket> getGenericPacket() {
+        return this.<GenericPacket>toEither().left;
+    }
+
+    /** @return the raw packet, which is never decoded */
+    public Packet getPacket() {
+        return packet;
+    }
+
+    /** @return the decoded packet, which is decoded on the first call */
+    public ParsedPacket getParsedPacket() {
+        if (parsedPacket == null) {
+            parsedPacket = decoder.apply(packet);
+        }
+        return parsedPacket;
+    }
+
+    public int getPgn() {
+        return packet.getPgn();
+    }
+
+    public int getSource() {
+        return packet.getSource();
+    }
+
+    /**
+     * @return the decoded packet, on the right if it is an
+     *         {@link AcknowledgmentPacket}
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends GenericPacket> Either<T, AcknowledgmentPacket> toEither() {
+        ParsedPacket pp = getParsedPacket();
+        if (pp instanceof AcknowledgmentPacket) {
+            return new Either<>(null, (AcknowledgmentPacket) pp);
+        } else {
+            return new Either<>((T) pp, null);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return packet.toString();
+    }
+}
@@ -174,6 +174,20 @@ public class Lookup {
         }
     }
 
+    /**
+     * Returns the map for the given file from the {@link J1939DaIndex}, or
+     * reads the file if the index isn't available.
+     *
+     * @param  fileName
+     *                      the name of the file to read
+     * @return          a Map of Integers to Strings
+     */
+    private static Map<Integer, String> loadMap(String fileName) {
+        J1939DaIndex index = J1939DaIndex.getInstance();
+        Map<Integer, String> map = index == null ? null : index.getLookup(fileName);
+        return map != null ? map : loadMapFromCsv(fileName);
+    }
+
     /**
      * Reads the given file and returns a map populated the values. It's assumed
      * the file is a Comma Separated Values file with the first column being an
@@ -183,7 +197,7 @@ public class Lookup {
      *                      the name of the file to read
      * @return          a Map of Integers to Strings
      */
-    private static Map<Integer, String> loadMap(String fileName) {
+    static Map<Integer, String> loadMapFromCsv(String fileName) {
         Map<Integer, String> map = new HashMap<>();
         String[] values;
 
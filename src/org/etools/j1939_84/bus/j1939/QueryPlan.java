@@ -0,0 +1,178 @@
+/**
+ * Copyright 2021 Equipment & Tool Institute
+ */
+package org.etools.j1939_84.bus.j1939;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.etools.j1939_84.bus.Either;
+import org.etools.j1939_84.bus.Packet;
+import org.etools.j1939_84.bus.j1939.packets.AcknowledgmentPacket;
+import org.etools.j1939_84.bus.j1939.packets.GenericPacket;
+import org.etools.j1939_84.controllers.ResultsListener;
+import org.etools.j1939_84.model.RequestResult;
+
+/**
+ * A batch of requests for PGNs, global or destination specific, that are sent
+ * back to back and answered over one read of the bus. See
+ * {@link J1939#request(QueryPlan)}.
+ *
+ * Responses are matched to the queries by PGN and source address, so a plan
+ * can not hold two queries for the same PGN to the same destination.
+ */
+public class QueryPlan {
+
+    /**
+     * One request in a plan and, once the plan has been run, its result.
+     *
+     * @param <T>
+     *                the type of packet requested
+     */
+    public static class Query<T extends GenericPacket> {
+
+        private final int destination;
+
+        private final int pgn;
+
+        private final String title;
+
+        /** The raw responses, in the order received */
+        final List<Packet> responses = new ArrayList<>();
+
+        /** System.nanoTime() when the query stops collecting responses */
+        long deadline;
+
+        /** The request packet */
+        Packet request;
+
+        /** The request as sent, or null if it could not be sent */
+        Packet sent;
+
+        /** The time, from the DateTimeModule, to stop retrying a busy NACK */
+        long retryEnd;
+
+        /** The number of times the request was sent */
+        int attempts;
+
+        /** The responses to the last request sent */
+        List<Either<T, AcknowledgmentPacket>> results = Collections.emptyList();
+
+        /**
+         * The report of the request and its responses, until it is written. A
+         * query never asks the user anything.
+         */
+        final HeldListener output = new HeldListener(ResultsListener.NOOP);
+
+        private BusResult<T> busResult;
+
+        private RequestResult<T> requestResult;
+
+        private Query(String title, int pgn, int destination) {
+            this.title = title;
+            this.pgn = pgn;
+            this.destination = destination;
+        }
+
+        /**
+         * @return the result of a destination specific query, or the first
+         *         response to a global query
+         */
+        public BusResult<T> getBusResult() {
+            return busResult != null ? busResult : requestResult.busResult();
+        }
+
+        public int getDestination() {
+            return destination;
+        }
+
+        public int getPgn() {
+            return pgn;
+        }
+
+        /**
+         * @return the result of a global query, or the response to a
+         *         destination specific query
+         */
+        public RequestResult<T> getRequestResult() {
+            return requestResult != null ? requestResult : busResult.requestResult();
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        /**
+         * Writes the report of the request and its responses, as a request on
+         * its own would have written it. It is only written once.
+         *
+         * @param listener
+         *                     the listener for the report
+         */
+        public void report(ResultsListener listener) {
+            output.replay(listener);
+        }
+
+        boolean isGlobal() {
+            return destination == J1939.GLOBAL_ADDR;
+        }
+
+        void setResult(BusResult<T> busResult) {
+            this.busResult = busResult;
+        }
+
+        void setResult(RequestResult<T> requestResult) {
+            this.requestResult = requestResult;
+        }
+    }
+
+    private final List<Query<?>> queries = new ArrayList<>();
+
+    /**
+     * Adds a request to the plan.
+     *
+     * @param  title
+     *                         the title reported before the request, or null
+     * @param  pgn
+     *                         the PGN to request
+     * @param  destination
+     *                         the address of the module, or the global address
+     * @return             the query, which holds the result after the plan is
+     *                     run
+     * @throws IllegalArgumentException
+     *                                      if the plan already has a query
+     *                                      for the PGN to the destination
+     */
+    public <T extends GenericPacket> Query<T> add(String title, int pgn, int destination) {
+        for (Query<?> query : queries) {
+            if (query.pgn == pgn && query.destination == destination) {
+                throw new IllegalArgumentException("PGN " + pgn + " is already requested from " + destination);
+            }
+        }
+        Query<T> query = new Query<>(title, pgn, destination);
+        queries.add(query);
+        return query;
+    }
+
+    /**
+     * Adds a request for the PGN of a packet class to the plan.
+     *
+     * @param  title
+     *                         the title reported before the request, or null
+     * @param  clazz
+     *                         the class of the packet to request
+     * @param  destination
+     *                         the address of the module, or the global address
+     * @return             the query, which holds the result after the plan is
+     *                     run
+     */
+    public <T extends GenericPacket> Query<T> add(String title, Class<T> clazz, int destination) {
+        return add(title, J1939.getPgn(clazz), destination);
+    }
+
+    /** @return the queries, in the order they were added */
+    public List<Query<?>> getQueries() {
+        return Collections.unmodifiableList(queries);
+    }
+}
@@ -0,0 +1,107 @@
+/**
+ * Copyright 2021 Equipment & Tool Institute
+ */
+package org.etools.j1939_84.bus.j1939;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.ToIntFunction;
+
+import org.etools.j1939_84.controllers.ResultsListener;
+
+/**
+ * Runs destination specific requests to several modules at once.
+ *
+ * Only one request is outstanding for each destination address, the requests
+ * for a destination are made one after another in the order given. Requests
+ * to different destinations are made at the same time, so the time waiting
+ * for a response from one module is not added to every other module.
+ *
+ * Responses are routed by the requests themselves, which read the bus
+ * filtered by the source and PGN they expect. The report a request writes to
+ * its {@link ResultsListener}, results, outcomes, progress and messages alike,
+ * is held until every request before it has been handled, then written to the
+ * real listener in the same order, so the results read exactly as if the
+ * requests had been made one at a time. Questions for the user are passed to
+ * the real listener right away.
+ *
+ * @author Joe Batt (joe@soliddesign.net)
+ */
+public class RequestScheduler {
+
+    /** Shared by all schedulers, idle threads exit after a minute. */
+    private static final ExecutorService exec = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "DS Request");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Makes the requests and hands each response back on the calling thread,
+     * in the order of the requests.
+     *
+     * @param requests
+     *                        the requests, in the order the results are reported
+     * @param destination
+     *                        the destination address of a request
+     * @param request
+     *                        makes a request, called on a worker thread with a
+     *                        listener that holds the results
+     * @param listener
+     *                        the listener the held results are written to
+     * @param onResponse
+     *                        called on the calling thread with each request and its
+     *                        response, after the held results are written
+     */
+    public <S, T> void request(List<S> requests,
+                               ToIntFunction<S> destination,
+                               BiFunction<S, ResultsListener, T> request,
+                               ResultsListener listener,
+                               BiConsumer<S, T> onResponse) {
+        List<HeldListener> heldListeners = new ArrayList<>(requests.size());
+        List<CompletableFuture<T>> responses = new ArrayList<>(requests.size());
+        Map<Integer, List<Integer>> byDestination = new LinkedHashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            heldListeners.add(new HeldListener(listener));
+            responses.add(new CompletableFuture<>());
+            byDestination.computeIfAbsent(destination.applyAsInt(requests.get(i)), k -> new ArrayList<>()).add(i);
+        }
+
+        // one task for each destination, working through its requests in order
+        for (List<Integer> indexes : byDestination.values()) {
+            exec.execute(() -> {
+                for (int i : indexes) {
+                    try {
+                        responses.get(i).complete(request.apply(requests.get(i), heldListeners.get(i)));
+                    } catch (Throwable t) {
+                        responses.get(i).completeExceptionally(t);
+                    }
+                }
+            });
+        }
+
+        for (int i = 0; i < requests.size(); i++) {
+            T response;
+            try {
+                response = responses.get(i).join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                } else if (e.getCause() instanceof Error) {
+                    throw (Error) e.getCause();
+                }
+                throw e;
+            }
+            heldListeners.get(i).replay(listener);
+            onResponse.accept(requests.get(i), response);
+        }
+    }
+}
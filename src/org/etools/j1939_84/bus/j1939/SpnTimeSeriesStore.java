@@ -0,0 +1,295 @@
+/**
+ * Copyright 2021 Equipment & Tool Institute
+ */
+package org.etools.j1939_84.bus.j1939;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.OptionalDouble;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.etools.j1939_84.bus.Packet;
+import org.etools.j1939_84.bus.j1939.packets.GenericPacket;
+import org.etools.j1939_84.bus.j1939.packets.Slot;
+import org.etools.j1939_84.bus.j1939.packets.model.Spn;
+import org.etools.j1939_84.utils.IntMap;
+
+/**
+ * The SPN values read from the bus, kept by source address, PGN and SPN as
+ * they arrive, so the packets don't need to be kept and scanned again.
+ *
+ * Each source and PGN keeps the {@link IntervalStatistics} of its packets and
+ * the latest value and status of each SPN of the PGN, in primitive arrays,
+ * one column per SPN, so the memory used does not grow with the packets read.
+ * The first few packets of each are kept as they were, for the report.
+ *
+ * The store is filled on the thread reading the bus and queried once the read
+ * is done.
+ */
+public class SpnTimeSeriesStore {
+
+    /** The packets of one PGN from one source */
+    private static class Series {
+
+        private final IntervalStatistics intervals = new IntervalStatistics();
+
+        private final List<Packet> samples = new ArrayList<>();
+
+        private final int[] spnIds;
+
+        /** The status of each SPN in the latest packet */
+        private final byte[] statuses;
+
+        /** The value of each SPN in the latest packet, NaN if it had none */
+        private final double[] values;
+
+        private int count;
+
+        private long latestTimestamp;
+
+        private Series(List<Spn> spns) {
+            spnIds = new int[spns.size()];
+            statuses = new byte[spnIds.length];
+            values = new double[spnIds.length];
+            for (int i = 0; i < spnIds.length; i++) {
+                spnIds[i] = spns.get(i).getId();
+            }
+        }
+
+        private void add(Packet packet, List<Spn> spns, int sampleCount) {
+            long timestamp = packet.getTimestampNanos();
+            intervals.add(timestamp);
+            latestTimestamp = timestamp;
+
+            int columns = Math.min(spnIds.length, spns.size());
+            for (int i = 0; i < columns; i++) {
+                Spn spn = spns.get(i);
+                Double value = spn.getValue();
+                statuses[i] = (byte) spn.getStatus().ordinal();
+                values[i] = value == null ? Double.NaN : value;
+            }
+            // a shorter packet has no data for the rest
+            for (int i = columns; i < spnIds.length; i++) {
+                statuses[i] = (byte) Slot.Status.NOT_AVAILABLE.ordinal();
+                values[i] = Double.NaN;
+            }
+
+            if (samples.size() < sampleCount) {
+                samples.add(packet);
+            }
+            count++;
+        }
+
+        private int indexOf(int spnId) {
+            for (int i = 0; i < spnIds.length; i++) {
+                if (spnIds[i] == spnId) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    private static final Slot.Status[] STATUSES = Slot.Status.values();
+
+    private static int key(int source, int pgn) {
+        return pgn << 8 | source;
+    }
+
+    private static Set<Integer> sorted(int[] ints) {
+        Set<Integer> result = new TreeSet<>();
+        for (int i : ints) {
+            result.add(i);
+        }
+        return Collections.unmodifiableSet(result);
+    }
+
+    /** For each SPN, the sources which have sent it as Not Available */
+    private final IntMap<BitSet> notAvailable = new IntMap<>();
+
+    /** For each SPN, the sources which have sent it with data */
+    private final IntMap<BitSet> providers = new IntMap<>();
+
+    private final int sampleCount;
+
+    /** The series of each source and PGN */
+    private final IntMap<Series> series = new IntMap<>();
+
+    /**
+     * @param sampleCount
+     *                        the number of packets to keep as they were for
+     *                        each source and PGN
+     */
+    public SpnTimeSeriesStore(int sampleCount) {
+        this.sampleCount = sampleCount;
+    }
+
+    /**
+     * Adds the values of the SPNs in a packet read from the bus.
+     */
+    public synchronized void add(GenericPacket packet) {
+        int source = packet.getSourceAddress();
+        Packet rawPacket = packet.getPacket();
+        List<Spn> spns = packet.getSpns();
+        series.computeIfAbsent(key(source, rawPacket.getPgn()), k -> new Series(spns))
+              .add(rawPacket, spns, sampleCount);
+
+        for (Spn spn : spns) {
+            IntMap<BitSet> sources = spn.isNotAvailable() ? notAvailable : providers;
+            sources.computeIfAbsent(spn.getId(), k -> new BitSet(256)).set(source);
+        }
+    }
+
+    /**
+     * @return the number of packets of the PGN received from the source
+     */
+    public synchronized int getCount(int source, int pgn) {
+        Series s = series.get(key(source, pgn));
+        return s == null ? 0 : s.count;
+    }
+
+    /**
+     * @return the time of the last packet of the PGN from the source, in
+     *         nanoseconds since the epoch, or -1 if none were received
+     */
+    public synchronized long getLatestTimestamp(int source, int pgn) {
+        Series s = series.get(key(source, pgn));
+        return s == null || s.count == 0 ? -1 : s.latestTimestamp;
+    }
+
+    /**
+     * @return the status of the SPN in the last packet of the PGN from the
+     *         source, or null if none were received
+     */
+    public synchronized Slot.Status getLatestStatus(int source, int pgn, int spn) {
+        Series s = series.get(key(source, pgn));
+        int column = s == null ? -1 : s.indexOf(spn);
+        return column < 0 ? null : STATUSES[s.statuses[column]];
+    }
+
+    /**
+     * @return the value of the SPN in the last packet of the PGN from the
+     *         source, if it had one
+     */
+    public synchronized OptionalDouble getLatestValue(int source, int pgn, int spn) {
+        Series s = series.get(key(source, pgn));
+        int column = s == null ? -1 : s.indexOf(spn);
+        if (column < 0) {
+            return OptionalDouble.empty();
+        }
+        double value = s.values[column];
+        return Double.isNaN(value) ? OptionalDouble.empty() : OptionalDouble.of(value);
+    }
+
+    /**
+     * @return the intervals between the packets of the PGN from the source,
+     *         which are empty if none were received
+     */
+    public synchronized IntervalStatistics getIntervals(int source, int pgn) {
+        Series s = series.get(key(source, pgn));
+        return s == null ? new IntervalStatistics() : s.intervals;
+    }
+
+    /**
+     * @return the longest time between two packets of the PGN from the source,
+     *         in nanoseconds, or -1 if fewer than two were received
+     */
+    public synchronized long getMaxInterval(int source, int pgn) {
+        Series s = series.get(key(source, pgn));
+        return s == null ? -1 : s.intervals.getMax();
+    }
+
+    /**
+     * @return the shortest time between two packets of the PGN from the source,
+     *         in nanoseconds, or -1 if fewer than two were received
+     */
+    public synchronized long getMinInterval(int source, int pgn) {
+        Series s = series.get(key(source, pgn));
+        return s == null ? -1 : s.intervals.getMin();
+    }
+
+    /**
+     * @return the SPNs the source has sent as Not Available, in order
+     */
+    public synchronized Set<Integer> getNotAvailableSpns(int source) {
+        return getSpns(notAvailable, source);
+    }
+
+    /**
+     * @return the PGNs received, in order
+     */
+    public synchronized Set<Integer> getPgns() {
+        int[] keys = series.keys();
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = keys[i] >>> 8;
+        }
+        return sorted(keys);
+    }
+
+    /**
+     * @return the PGNs received from the source, in order
+     */
+    public synchronized Set<Integer> getPgns(int source) {
+        return sorted(Arrays.stream(series.keys())
+                            .filter(k -> (k & 0xFF) == source)
+                            .map(k -> k >>> 8)
+                            .toArray());
+    }
+
+    /**
+     * @return the SPNs any source has sent with data, in order
+     */
+    public synchronized Set<Integer> getProvidedSpns() {
+        return sorted(providers.keys());
+    }
+
+    /**
+     * @return the SPNs the source has sent with data, in order
+     */
+    public synchronized Set<Integer> getProvidedSpns(int source) {
+        return getSpns(providers, source);
+    }
+
+    /**
+     * @return the sources which have sent the SPN with data, in order
+     */
+    public synchronized Set<Integer> getProviders(int spn) {
+        BitSet sources = providers.get(spn);
+        return sources == null ? Set.of() : sorted(sources.stream().toArray());
+    }
+
+    /**
+     * @return the first packets of the PGN received from the source, up to
+     *         the sample count
+     */
+    public synchronized List<Packet> getSamples(int source, int pgn) {
+        Series s = series.get(key(source, pgn));
+        return s == null ? List.of() : List.copyOf(s.samples);
+    }
+
+    /**
+     * @return the sources which have sent the PGN, in order
+     */
+    public synchronized Set<Integer> getSources(int pgn) {
+        return sorted(Arrays.stream(series.keys())
+                            .filter(k -> k >>> 8 == pgn)
+                            .map(k -> k & 0xFF)
+                            .toArray());
+    }
+
+    /**
+     * @return true if the source has sent the SPN as Not Available
+     */
+    public synchronized boolean isNotAvailableSeen(int source, int spn) {
+        BitSet sources = notAvailable.get(spn);
+        return sources != null && sources.get(source);
+    }
+
+    private Set<Integer> getSpns(IntMap<BitSet> spns, int source) {
+        return sorted(Arrays.stream(spns.keys()).filter(spn -> spns.get(spn).get(source)).toArray());
+    }
+}
@@ -0,0 +1,180 @@
+/**
+ * Copyright 2021 Equipment & Tool Institute
+ */
+package org.etools.j1939_84.bus.j1939;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A hashed timer wheel for timeouts that are pushed out on every frame, like
+ * the J1939-21 T1 and T2 timers.
+ *
+ * Moving a deadline later only updates the timer, the timer stays in its slot
+ * and is moved when that slot comes up. So a timer that is pushed out by every
+ * DT costs a field write, not a remove and insert.
+ *
+ * Not thread safe, the wheel is owned by the thread that calls
+ * {@link #advance(long)}.
+ */
+class TimerWheel<T extends TimerWheel.Timer> {
+
+    /** A timeout that can be scheduled on a {@link TimerWheel}. */
+    static class Timer {
+        /** System.nanoTime() when the timer expires */
+        long deadline;
+
+        /** The tick of the slot that holds this timer, or -1 if not scheduled */
+        long tick = -1;
+    }
+
+    /** Called on the wheel thread when a timer expires. */
+    interface Expiry<T> {
+        void expired(T timer);
+    }
+
+    private final long tickNanos;
+
+    private final List<T>[] slots;
+
+    private final int mask;
+
+    private final Expiry<T> expiry;
+
+    /** The last tick that has been processed */
+    private long currentTick;
+
+    private int size;
+
+    /**
+     * @param tick
+     *                   the resolution of the wheel
+     * @param unit
+     *                   the unit of tick
+     * @param slots
+     *                   the number of slots, a power of two
+     * @param expiry
+     *                   called when a timer expires
+     */
+    @SuppressWarnings("unchecked")
+    TimerWheel(long tick, TimeUnit unit, int slots, Expiry<T> expiry) {
+        if (Integer.bitCount(slots) != 1) {
+            throw new IllegalArgumentException("slots must be a power of two: " + slots);
+        }
+        tickNanos = unit.toNanos(tick);
+        this.slots = new List[slots];
+        for (int i = 0; i < slots; i++) {
+            this.slots[i] = new ArrayList<>();
+        }
+        mask = slots - 1;
+        this.expiry = expiry;
+        currentTick = System.nanoTime() / tickNanos;
+    }
+
+    /**
+     * Processes all the slots up to now, calling the expiry for each timer
+     * whose deadline has passed.
+     *
+     * @param now
+     *                the current System.nanoTime()
+     */
+    void advance(long now) {
+        long nowTick = now / tickNanos;
+        if (size == 0) {
+            currentTick = nowTick;
+            return;
+        }
+        while (currentTick < nowTick) {
+            long tick = ++currentTick;
+            List<T> slot = slots[(int) (tick & mask)];
+            if (slot.isEmpty()) {
+                continue;
+            }
+            // the expiry may schedule timers into this slot, so work from a copy
+            @SuppressWarnings("unchecked")
+            T[] timers = (T[]) slot.toArray(new Timer[0]);
+            slot.clear();
+            for (T timer : timers) {
+                if (timer.tick != tick) {
+                    // stale entry for a timer that was cancelled or moved earlier
+                    continue;
+                }
+                if (timer.deadline > now) {
+                    // pushed out since it was slotted
+                    timer.tick = -1;
+                    size--;
+                    insert(timer);
+                } else {
+                    timer.tick = -1;
+                    size--;
+                    expiry.expired(timer);
+                }
+            }
+        }
+    }
+
+    /** Stops a timer. */
+    void cancel(T timer) {
+        if (timer.tick >= 0) {
+            // the entry in the slot is dropped when the slot comes up
+            timer.tick = -1;
+            size--;
+        }
+    }
+
+    /**
+     * @return the nanoseconds until the next tick, or Long.MAX_VALUE if there
+     *         are no timers
+     */
+    long nanosToNextTick(long now) {
+        if (size == 0) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(0, (currentTick + 1) * tickNanos - now);
+    }
+
+    /**
+     * Sets a timer to expire at a deadline, rescheduling it if it was already
+     * scheduled.
+     *
+     * @param timer
+     *                     the timer
+     * @param deadline
+     *                     the System.nanoTime() to expire at
+     */
+    void schedule(T timer, long deadline) {
+        timer.deadline = deadline;
+        if (timer.tick >= 0) {
+            if (timer.tick <= tickOf(deadline)) {
+                // moved later, so leave it in place until its slot comes up
+                return;
+            }
+            // moved earlier, the old entry becomes stale
+            timer.tick = -1;
+            size--;
+        }
+        insert(timer);
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void insert(T timer) {
+        long tick = tickOf(timer.deadline);
+        timer.tick = tick;
+        slots[(int) (tick & mask)].add(timer);
+        size++;
+    }
+
+    /**
+     * @return the tick of the slot for a deadline, never more than one lap
+     *         ahead so that far deadlines are revisited and moved
+     */
+    private long tickOf(long deadline) {
+        // round up, so a timer never fires early
+        long tick = (deadline + tickNanos - 1) / tickNanos;
+        return Math.max(currentTick + 1, Math.min(tick, currentTick + mask));
+    }
+}
@@ -7,6 +7,7 @@ import static org.etools.j1939_84.J1939_84.NL;
 import static org.etools.j1939_84.J1939_84.getLogger;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.logging.Level;
@@ -16,19 +17,18 @@ import org.etools.j1939_84.bus.Packet;
 import org.etools.j1939_84.bus.j1939.J1939DaRepository;
 import org.etools.j1939_84.bus.j1939.packets.model.PgnDefinition;
 import org.etools.j1939_84.bus.j1939.packets.model.Spn;
-import org.etools.j1939_84.bus.j1939.packets.model.SpnDataParser;
-import org.etools.j1939_84.bus.j1939.packets.model.SpnDefinition;
+import org.etools.j1939_84.bus.j1939.packets.model.SpnExtractionPlan;
 
 public class GenericPacket extends ParsedPacket {
 
-    private final SpnDataParser parser;
     private final PgnDefinition pgnDefinition;
+    private Spn[] spnArray;
     private List<Spn> spns;
+    private long[] values;
 
     public GenericPacket(Packet packet) {
         super(packet);
         pgnDefinition = getJ1939DaRepository().findPgnDefinition(packet.getPgn());
-        parser = new SpnDataParser();
     }
 
     private static J1939DaRepository getJ1939DaRepository() {
@@ -73,31 +73,37 @@ public class GenericPacket extends ParsedPacket {
     }
 
     public Optional<Spn> getSpn(int spn) {
-        return getSpns().stream().filter(s -> s.getId() == spn).findAny();
+        SpnExtractionPlan plan = getPgnDefinition().getExtractionPlan();
+        int index = plan.indexOf(spn);
+        return index < 0 ? Optional.empty() : Optional.of(getSpn(plan, index));
+    }
+
+    /** Builds the {@link Spn} at the index of the plan the first time it is used */
+    private Spn getSpn(SpnExtractionPlan plan, int index) {
+        if (values == null) {
+            values = plan.extract(getPacket());
+            spnArray = new Spn[values.length];
+        }
+        Spn spn = spnArray[index];
+        if (spn == null) {
+            spn = plan.toSpn(index, getPacket(), values);
+            spnArray[index] = spn;
+        }
+        return spn;
     }
 
     public Stream<Double> getSpnValue(int spn) {
-        return getSpns().stream()
-                        .filter(s -> s.getId() == spn)
-                        .filter(Spn::hasValue)
-                        .map(Spn::getValue)
-                        .findAny()
-                        .stream();
+        return getSpn(spn).filter(Spn::hasValue).map(Spn::getValue).stream();
     }
 
     public List<Spn> getSpns() {
         if (spns == null) {
-            spns = new ArrayList<>();
-
-            List<SpnDefinition> spnDefinitions = getPgnDefinition().getSpnDefinitions();
-            byte[] bytes = getPacket().getBytes();
-            for (SpnDefinition definition : spnDefinitions) {
-                Slot slot = getJ1939DaRepository().findSLOT(definition.getSlotNumber(), definition.getSpnId());
-                if (slot.getLength() != 0) {
-                    byte[] data = parser.parse(bytes, definition, slot.getLength());
-                    spns.add(new Spn(definition.getSpnId(), definition.getLabel(), slot, data));
-                }
+            SpnExtractionPlan plan = getPgnDefinition().getExtractionPlan();
+            List<Spn> result = new ArrayList<>(plan.size());
+            for (int i = 0; i < plan.size(); i++) {
+                result.add(getSpn(plan, i));
             }
+            spns = Collections.unmodifiableList(result);
         }
         return spns;
     }
@@ -13,11 +13,92 @@ import java.util.Locale;
  */
 public class Slot {
 
+    /**
+     * The decoded value of an SPN and what it means, from
+     * {@link Slot#decode(byte[])}.
+     */
+    public static final class Decoded {
+
+        private static final Decoded ERROR = new Decoded(Status.ERROR, Double.NaN);
+
+        private static final Decoded FB = new Decoded(Status.FB, Double.NaN);
+
+        private static final Decoded NOT_AVAILABLE = new Decoded(Status.NOT_AVAILABLE, Double.NaN);
+
+        private static final Decoded NO_VALUE = new Decoded(Status.VALID, Double.NaN);
+
+        private final Status status;
+
+        private final double value;
+
+        private Decoded(Status status, double value) {
+            this.status = status;
+            this.value = value;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        /**
+         * @return the scaled value, or NaN if there isn't one
+         */
+        public double getValue() {
+            return value;
+        }
+
+        /**
+         * @return true if there is a value. That is, the data is not ASCII,
+         *         NOT_AVAILABLE, ERROR or FB; bit fields always have a value.
+         */
+        public boolean hasValue() {
+            return !Double.isNaN(value);
+        }
+    }
+
+    /** What the data of an SPN means */
+    public enum Status {
+        /** The data is a value, or ASCII */
+        VALID,
+        /** The data is NOT_AVAILABLE, or there is no data */
+        NOT_AVAILABLE,
+        /** The data is ERROR */
+        ERROR,
+        /** The data is 0xFB, a parameter specific indicator */
+        FB
+    }
+
+    /** The type of the SLOT, worked out once from its type name */
+    private enum Kind {
+        ASCII, BIT_FIELD, NUMBER;
+
+        private static Kind of(String type) {
+            String upperCase = type == null ? "" : type.toUpperCase(Locale.ROOT);
+            if (upperCase.contains("ASCII")) {
+                return ASCII;
+            } else if (upperCase.startsWith("BIT")) {
+                return BIT_FIELD;
+            } else {
+                return NUMBER;
+            }
+        }
+    }
+
+    private final int byteLength;
+    /** The bits of the highest byte, where NA, ERROR and FB are indicated */
+    private final long errorBits;
+    private final long fbBits;
+    private final long highByteMask;
     private final int id;
+    private final Kind kind;
     private final int length; // bits
+    /** The bits of the value */
+    private final long mask;
     private final String name;
     private final Double offset;
+    private final double offsetValue;
     private final Double scaling;
+    private final double scalingValue;
     private final String type;
     private final String unit;
 
@@ -29,6 +110,15 @@ public class Slot {
         this.offset = offset;
         this.unit = unit;
         this.length = length;
+
+        kind = Kind.of(type);
+        scalingValue = scaling == null ? 1.0 : scaling;
+        offsetValue = offset == null ? 0.0 : offset;
+        byteLength = length / 8 + (length % 8 != 0 ? 1 : 0);
+        mask = ~0L >>> (64 - length);
+        highByteMask = ((long) 0xFF) << (length - 8);
+        errorBits = ((long) 0xFE) << (length - 8);
+        fbBits = ((long) 0xFB) << (length - 8);
     }
 
     /**
@@ -44,7 +134,7 @@ public class Slot {
             return "Not Available";
         }
 
-        if (isAscii()) {
+        if (kind == Kind.ASCII) {
             String result = new String(data, StandardCharsets.UTF_8);
             if (type.contains("variable, ")) {
                 if (type.contains("*")) {
@@ -58,27 +148,24 @@ public class Slot {
 
         long value = toValue(data);
 
-        if (isBitField()) {
-            return String.format("%" + length + "s", Long.toBinaryString(value)).replace(' ', '0');
-        }
-
-        if (isNotAvailable(data)) {
-            return "Not Available";
+        if (kind == Kind.BIT_FIELD) {
+            return toBinaryString(value);
         }
 
-        if (isError(data)) {
-            return "Error";
-        }
-
-        if (isFB(data)) {
-            return String.format("0x%X", value);
-        }
-
-        String printedValue = String.format("%f", scale(value));
-        if (unit != null) {
-            return printedValue + " " + unit;
-        } else {
-            return printedValue;
+        switch (decode(value).getStatus()) {
+            case NOT_AVAILABLE:
+                return "Not Available";
+            case ERROR:
+                return "Error";
+            case FB:
+                return String.format("0x%X", value);
+            default:
+                String printedValue = String.format("%f", scale(value));
+                if (unit != null) {
+                    return printedValue + " " + unit;
+                } else {
+                    return printedValue;
+                }
         }
     }
 
@@ -91,42 +178,84 @@ public class Slot {
      * @return      the scaled value or null
      */
     public Double asValue(byte[] data) {
-        if (isAscii() || data.length == 0) {
-            return null;
-        }
-
-        long value = toValue(data);
-
-        if (isBitField()) {
-            return Long.valueOf(value).doubleValue();
-        }
-
-        if (isNotAvailable(data) || isError(data) || isFB(data)) {
-            return null;
-        }
-
-        return scale(value);
+        Decoded decoded = decode(data);
+        return decoded.hasValue() ? decoded.getValue() : null;
     }
 
     public byte[] asBytes(double value) {
-        if (isAscii()) {
+        if (kind == Kind.ASCII) {
             return new byte[0];
         }
         double unscaled = unscale(value);
         return toBytes(unscaled);
     }
 
+    /**
+     * Decodes the data once, for both its value and its status.
+     *
+     * @param  data
+     *                  the byte array containing the data from the packet
+     * @return      the value and status
+     */
+    public Decoded decode(byte[] data) {
+        if (kind == Kind.ASCII) {
+            return Decoded.NO_VALUE;
+        } else if (data.length == 0) {
+            return length == 1 ? Decoded.NO_VALUE : Decoded.NOT_AVAILABLE;
+        }
+        return decode(toValue(data));
+    }
+
+    /**
+     * Decodes a raw value, as read from a packet.
+     *
+     * @param  value
+     *                   the unscaled value
+     * @return       the value and status
+     */
+    public Decoded decode(long value) {
+        if (kind == Kind.ASCII) {
+            return Decoded.NO_VALUE;
+        }
+        value &= mask;
+        if (kind == Kind.BIT_FIELD) {
+            Status status = Status.VALID;
+            if (length != 1) {
+                if (value == mask) {
+                    status = Status.NOT_AVAILABLE;
+                } else if (value == mask - 1) {
+                    status = Status.ERROR;
+                } else if ((value & highByteMask) == fbBits) {
+                    status = Status.FB;
+                }
+            }
+            return new Decoded(status, value);
+        }
+
+        if (length != 1) {
+            long highByte = value & highByteMask;
+            if (highByte == highByteMask) {
+                return Decoded.NOT_AVAILABLE;
+            } else if (highByte == errorBits) {
+                return Decoded.ERROR;
+            } else if (highByte == fbBits) {
+                return Decoded.FB;
+            }
+        }
+        return new Decoded(Status.VALID, scale(value));
+    }
+
     private long flipBytes(byte[] data) {
         long value = 0;
-        for (int i = 0; i < getByteLength(); i++) {
+        for (int i = 0; i < byteLength; i++) {
             value += ((long) (data[i] & 0xFF)) << i * 8;
         }
         return value;
     }
 
     private byte[] flipBytes(long value) {
-        byte[] bytes = new byte[getByteLength()];
-        for (int i = 0; i < getByteLength(); i++) {
+        byte[] bytes = new byte[byteLength];
+        for (int i = 0; i < byteLength; i++) {
             bytes[i] += (byte) (value >> (i * 8)) & 0xFF;
         }
         return bytes;
@@ -160,67 +289,16 @@ public class Slot {
         return unit;
     }
 
-    private boolean isAscii() {
-        return type.toUpperCase(Locale.ROOT).contains("ASCII");
-    }
-
-    private boolean isBitField() {
-        return type.toUpperCase(Locale.ROOT).startsWith("BIT");
-    }
-
     public boolean isError(byte[] data) {
-        if (length == 1 || isAscii() || data.length == 0) {
-            return false;
-        }
-
-        long value = toValue(data);
-        if (isBitField()) {
-            long mask = mask();
-            return (value & mask) == (mask - 1);
-        }
-
-        long mask = ((long) 0xFF) << (length - 8);
-        long error = ((long) 0xFE) << (length - 8);
-        long maskedValue = value & mask;
-        return maskedValue == error;
+        return decode(data).getStatus() == Status.ERROR;
     }
 
     public boolean isFB(byte[] data) {
-        if (length == 1 || isAscii() || data.length == 0) {
-            return false;
-        }
-
-        long value = toValue(data);
-
-        long mask = ((long) 0xFF) << (length - 8);
-        long fb = ((long) 0xFB) << (length - 8);
-        long maskedValue = value & mask;
-        return maskedValue == fb;
+        return decode(data).getStatus() == Status.FB;
     }
 
     public boolean isNotAvailable(byte[] data) {
-        if (length == 1 || isAscii()) {
-            return false;
-        }
-
-        if (data.length == 0) {
-            return true;
-        }
-
-        long value = toValue(data);
-        if (isBitField()) {
-            long mask = mask();
-            long maskedValue = value & mask;
-            return maskedValue == mask;
-        }
-
-        long mask = ((long) 0xFF) << (length - 8);
-        long maskedValue = value & mask;
-        return maskedValue == mask;
-    }
-
-    private long mask() {
-        return ~0L >>> (64 - length);
+        return decode(data).getStatus() == Status.NOT_AVAILABLE;
     }
 
     /**
@@ -231,49 +309,38 @@ public class Slot {
      * @return       double
      */
     public double scale(double value) {
-        double result = value;
-        if (getScaling() != null) {
-            result *= getScaling();
-        }
-        if (getOffset() != null) {
-            result += getOffset();
-        }
-        return result;
+        return value * scalingValue + offsetValue;
     }
 
     private double unscale(double value) {
-        double result = value;
-        if (getOffset() != null) {
-            result -= getOffset();
-        }
+        return (value - offsetValue) / scalingValue;
+    }
 
-        if (getScaling() != null) {
-            result /= getScaling();
+    private String toBinaryString(long value) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[length - 1 - i] = (value & (1L << i)) == 0 ? '0' : '1';
         }
-        return result;
+        return new String(chars);
     }
 
     private long toValue(byte[] data) {
         if (length <= 8) {
-            return data[0] & 0xFF & mask();
+            return data[0] & 0xFF & mask;
         }
-        return flipBytes(data) & mask();
+        return flipBytes(data) & mask;
     }
 
     public int getByteLength() {
-        int byteLength = length / 8;
-        if (length % 8 != 0) {
-            byteLength++;
-        }
         return byteLength;
     }
 
     private byte[] toBytes(double value) {
         long data = Double.valueOf(value).longValue();
         if (length <= 8) {
-            return new byte[] { (byte) (data & mask()) };
+            return new byte[] { (byte) (data & mask) };
         }
-        return flipBytes(data & mask());
+        return flipBytes(data & mask);
     }
 
 }
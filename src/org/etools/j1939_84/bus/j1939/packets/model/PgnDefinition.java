@@ -15,6 +15,7 @@ public class PgnDefinition {
     private final boolean isVariableBroadcast;
     private final String label;
     private final List<SpnDefinition> spnDefinitions;
+    private SpnExtractionPlan extractionPlan;
 
     public PgnDefinition(int id,
                          String label,
@@ -45,6 +46,20 @@ public class PgnDefinition {
         return broadcastPeriod;
     }
 
+    /**
+     * @return the plan for reading the SPNs from a packet, which is built on
+     *         first use. The plan is immutable, so if two threads both build
+     *         it, either copy can be kept.
+     */
+    public SpnExtractionPlan getExtractionPlan() {
+        SpnExtractionPlan plan = extractionPlan;
+        if (plan == null) {
+            plan = new SpnExtractionPlan(spnDefinitions);
+            extractionPlan = plan;
+        }
+        return plan;
+    }
+
     public int getId() {
         return id;
     }
@@ -16,6 +16,7 @@ public class Spn implements Comparable<Spn> {
     private final int id;
     private final String label;
     private final Slot slot;
+    private Slot.Decoded decoded;
 
     public Spn(int id, String label, Slot slot, byte[] data) {
         this.id = id;
@@ -48,7 +49,25 @@ public class Spn implements Comparable<Spn> {
      * @return Double or null
      */
     public Double getValue() {
-        return slot.asValue(data);
+        Slot.Decoded value = decode();
+        return value.hasValue() ? value.getValue() : null;
+    }
+
+    /**
+     * Returns whether the data is a value, NOT_AVAILABLE, ERROR or FB
+     *
+     * @return the status
+     */
+    public Slot.Status getStatus() {
+        return decode().getStatus();
+    }
+
+    /** Decodes the data the first time it is needed */
+    private Slot.Decoded decode() {
+        if (decoded == null) {
+            decoded = slot.decode(data);
+        }
+        return decoded;
     }
 
     public boolean hasValue() {
@@ -61,7 +80,7 @@ public class Spn implements Comparable<Spn> {
      * @return boolean
      */
     public boolean isError() {
-        return slot.isError(data);
+        return getStatus() == Slot.Status.ERROR;
     }
 
     /**
@@ -70,7 +89,7 @@ public class Spn implements Comparable<Spn> {
      * @return boolean
      */
     public boolean isNotAvailable() {
-        return slot.isNotAvailable(data);
+        return getStatus() == Slot.Status.NOT_AVAILABLE;
     }
 
     @Override
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2021. Equipment & Tool Institute
+ */
+package org.etools.j1939_84.bus.j1939.packets.model;
+
+import java.util.List;
+
+import org.etools.j1939_84.bus.Packet;
+import org.etools.j1939_84.bus.j1939.J1939DaRepository;
+import org.etools.j1939_84.bus.j1939.packets.Slot;
+import org.etools.j1939_84.utils.IntMap;
+
+/**
+ * How to take each SPN of a PGN out of a packet, worked out once for the PGN:
+ * the SLOT, the byte offset, the bit shift and the mask of every SPN.
+ *
+ * {@link #extract(Packet)} reads the raw value of every SPN from one copy of
+ * the packet data into one long array.
+ * {@link #toSpn(int, Packet, long[])} then builds the {@link Spn} for the
+ * ones that are used. The values are the same as {@link SpnDataParser} gives;
+ * SPNs longer than 63 bits, like ASCII strings, are still parsed by it.
+ *
+ * A plan is immutable, so it can be shared by all the packets of a PGN.
+ */
+public class SpnExtractionPlan {
+
+    /** The raw value of an SPN that isn't in the packet */
+    public static final long MISSING = -1;
+
+    /** The raw value of an SPN that is left to the {@link SpnDataParser} */
+    private static final long PARSE = -2;
+
+    private static final SpnDataParser parser = new SpnDataParser();
+
+    private final int[] byteLengths;
+
+    private final SpnDefinition[] definitions;
+
+    private final IntMap<Integer> indexes;
+
+    private final long[] masks;
+
+    private final int[] shifts;
+
+    private final Slot[] slots;
+
+    private final int[] startBytes;
+
+    /**
+     * @param spnDefinitions
+     *                           the SPNs of the PGN, in order; those with a
+     *                           zero length SLOT are left out
+     */
+    public SpnExtractionPlan(List<SpnDefinition> spnDefinitions) {
+        J1939DaRepository j1939DaRepository = J1939DaRepository.getInstance();
+        int count = 0;
+        Slot[] allSlots = new Slot[spnDefinitions.size()];
+        for (int i = 0; i < allSlots.length; i++) {
+            SpnDefinition definition = spnDefinitions.get(i);
+            allSlots[i] = j1939DaRepository.findSLOT(definition.getSlotNumber(), definition.getSpnId());
+            if (allSlots[i].getLength() != 0) {
+                count++;
+            }
+        }
+
+        definitions = new SpnDefinition[count];
+        slots = new Slot[count];
+        startBytes = new int[count];
+        shifts = new int[count];
+        byteLengths = new int[count];
+        masks = new long[count];
+        indexes = new IntMap<>(count);
+
+        int j = 0;
+        for (int i = 0; i < allSlots.length; i++) {
+            int bitLength = allSlots[i].getLength();
+            if (bitLength == 0) {
+                continue;
+            }
+            SpnDefinition definition = spnDefinitions.get(i);
+            definitions[j] = definition;
+            slots[j] = allSlots[i];
+            startBytes[j] = definition.getStartByte() - 1;
+            shifts[j] = definition.getStartBit() - 1;
+            if (bitLength > 0 && bitLength < 64) {
+                byteLengths[j] = (bitLength + 7) / 8;
+                masks[j] = ~0L >>> (64 - bitLength);
+            } else {
+                // variable or too long for a long
+                byteLengths[j] = -1;
+            }
+            if (!indexes.containsKey(definition.getSpnId())) {
+                indexes.put(definition.getSpnId(), j);
+            }
+            j++;
+        }
+    }
+
+    /**
+     * Reads the raw value of every SPN in the plan.
+     *
+     * @param  packet
+     *                    the packet
+     * @return        the raw value of each SPN, in plan order, or
+     *                {@link #MISSING} for the SPNs that aren't in the packet
+     */
+    public long[] extract(Packet packet) {
+        byte[] data = packet.getBytes();
+        long[] values = new long[definitions.length];
+        for (int i = 0; i < values.length; i++) {
+            int start = startBytes[i];
+            int length = byteLengths[i];
+            if (length < 0) {
+                values[i] = PARSE;
+            } else if (start < 0 || shifts[i] < 0 || start + length > data.length) {
+                values[i] = MISSING;
+            } else {
+                // each byte is shifted on its own, as SpnDataParser does
+                int shift = shifts[i];
+                long value = 0;
+                for (int b = 0; b < length; b++) {
+                    value |= (long) ((data[start + b] >> shift) & 0xFF) << (b * 8);
+                }
+                values[i] = value & masks[i];
+            }
+        }
+        return values;
+    }
+
+    /**
+     * @return the index of the SPN in the plan, or -1 if the PGN doesn't have
+     *         it
+     */
+    public int indexOf(int spnId) {
+        return indexes.getOrDefault(spnId, -1);
+    }
+
+    public int size() {
+        return definitions.length;
+    }
+
+    /**
+     * Builds the {@link Spn} at the index.
+     *
+     * @param  index
+     *                    the index of the SPN in the plan
+     * @param  packet
+     *                    the packet
+     * @param  values
+     *                    the values from {@link #extract(Packet)}
+     * @return        the SPN
+     */
+    public Spn toSpn(int index, Packet packet, long[] values) {
+        SpnDefinition definition = definitions[index];
+        long value = values[index];
+        byte[] bytes;
+        if (value == PARSE) {
+            bytes = parser.parse(packet.getBytes(), definition, slots[index].getLength());
+        } else if (value == MISSING) {
+            bytes = new byte[0];
+        } else {
+            bytes = new byte[byteLengths[index]];
+            for (int b = 0; b < bytes.length; b++) {
+                bytes[b] = (byte) (value >>> (b * 8));
+            }
+        }
+        return new Spn(definition.getSpnId(), definition.getLabel(), slots[index], bytes);
+    }
+}
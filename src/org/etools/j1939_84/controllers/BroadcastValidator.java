@@ -4,33 +4,40 @@
 
 package org.etools.j1939_84.controllers;
 
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.etools.j1939_84.bus.j1939.Lookup.getAddressName;
 import static org.etools.j1939_84.model.Outcome.FAIL;
 import static org.etools.j1939_84.model.Outcome.INFO;
 
-import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import org.etools.j1939_84.bus.Packet;
+import org.etools.j1939_84.bus.j1939.BroadcastCollector;
+import org.etools.j1939_84.bus.j1939.IntervalStatistics;
 import org.etools.j1939_84.bus.j1939.J1939DaRepository;
+import org.etools.j1939_84.bus.j1939.SpnTimeSeriesStore;
 import org.etools.j1939_84.bus.j1939.packets.GenericPacket;
 import org.etools.j1939_84.bus.j1939.packets.SupportedSPN;
 import org.etools.j1939_84.bus.j1939.packets.model.PgnDefinition;
 import org.etools.j1939_84.bus.j1939.packets.model.Spn;
 import org.etools.j1939_84.bus.j1939.packets.model.SpnDefinition;
+import org.etools.j1939_84.model.OBDModuleInformation;
 import org.etools.j1939_84.model.Outcome;
 
 public class BroadcastValidator {
 
+    /** The number of packets needed to check a broadcast period */
+    private static final int PERIOD_SAMPLES = 3;
+
     private final DataRepository dataRepository;
     private final J1939DaRepository j1939DaRepository;
 
@@ -66,6 +73,84 @@ public class BroadcastValidator {
                            .collect(Collectors.toSet());
     }
 
+    private static boolean isBroadcastAndSupported(PgnDefinition pgnDefinition, List<Integer> supportedSPNs) {
+        boolean isSupported = pgnDefinition.getSpnDefinitions()
+                                           .stream()
+                                           .map(SpnDefinition::getSpnId)
+                                           .anyMatch(supportedSPNs::contains);
+        boolean isOnRequest = pgnDefinition.getBroadcastPeriod() <= 0;
+        return !isOnRequest && isSupported;
+    }
+
+    private static String formatMillis(double nanos) {
+        return String.format("%.1f ms", nanos / 1_000_000);
+    }
+
+    private static void reportBroadcastPeriod(PgnDefinition pgnDefinition,
+                                              int pgn,
+                                              int moduleAddress,
+                                              List<Packet> samplePackets,
+                                              IntervalStatistics intervals,
+                                              ResultsListener listener,
+                                              int partNumber,
+                                              int stepNumber) {
+        String moduleName = getAddressName(moduleAddress);
+
+        listener.onResult("");
+        listener.onResult("PGN " + pgn + " from " + moduleName);
+        samplePackets.forEach(p -> listener.onResult(p.toTimeString()));
+
+        if (intervals.getCount() < PERIOD_SAMPLES - 1) {
+            addOutcome(listener,
+                       partNumber,
+                       stepNumber,
+                       INFO,
+                       "Unable to determine period for PGN " + pgn + " from " + moduleName);
+        } else {
+            listener.onResult(intervals.getCount() + " intervals: min " + formatMillis(intervals.getMin())
+                    + ", mean " + formatMillis(intervals.getMean())
+                    + ", max " + formatMillis(intervals.getMax())
+                    + "; 5% " + formatMillis(intervals.getP5())
+                    + ", 50% " + formatMillis(intervals.getP50())
+                    + ", 95% " + formatMillis(intervals.getP95()));
+
+            long broadcastPeriod = pgnDefinition.getBroadcastPeriod();
+            double maxBroadcastPeriod = broadcastPeriod * 1.1;
+            double minBroadcastPeriod = broadcastPeriod * 0.9;
+
+            // whole ms, as the periods were always compared; every interval
+            // must be within the limits
+            long min = NANOSECONDS.toMillis(intervals.getMin());
+            long max = NANOSECONDS.toMillis(intervals.getMax());
+
+            // b. Fail if any parameter is not broadcast within -10% of the fixed, specified broadcast
+            // period.
+            if (!pgnDefinition.isVariableBroadcast() && min < minBroadcastPeriod) {
+                addOutcome(listener,
+                           partNumber,
+                           stepNumber,
+                           FAIL,
+                           "Broadcast period of PGN " + pgn + " (" + min + " ms) by ECU " + moduleName
+                                   + " is less than 90% specified broadcast period of " + broadcastPeriod
+                                   + " ms.");
+            }
+
+            // b. Fail if any parameter is not broadcast within +10% of the
+            // fixed, specified broadcast period.
+            // c. Fail if any parameter in a variable period broadcast
+            // message exceeds 110% of its recommended broadcast period.
+            if (max > maxBroadcastPeriod) {
+                addOutcome(listener,
+                           partNumber,
+                           stepNumber,
+                           FAIL,
+                           "Broadcast period of PGN " + pgn + " (" + max + " ms) by ECU " + moduleName
+                                   + " is beyond 110% specified broadcast period of " + broadcastPeriod
+                                   + " ms.");
+            }
+        }
+    }
+
     /**
      * Map of PGN to (Map of Source Address to List of Packets)
      */
@@ -84,6 +169,40 @@ public class BroadcastValidator {
         return foundPackets;
     }
 
+    /**
+     * Creates a collector for the broadcasts of the SPNs the OBD modules
+     * support in the data stream. Enough samples of every broadcast PGN that
+     * carries one of those SPNs are needed from the module to check the
+     * broadcast period of each PGN.
+     */
+    public BroadcastCollector createBroadcastCollector() {
+        BroadcastCollector collector = new BroadcastCollector(getMaximumBroadcastPeriod(), SECONDS, PERIOD_SAMPLES);
+        for (OBDModuleInformation module : dataRepository.getObdModules()) {
+            Set<Integer> pgns = new TreeSet<>();
+            for (SupportedSPN supportedSPN : module.getFilteredDataStreamSPNs()) {
+                j1939DaRepository.getPgnIdsForSpn(supportedSPN.getSpn())
+                                 .mapToObj(j1939DaRepository::findPgnDefinition)
+                                 .filter(Objects::nonNull)
+                                 .filter(d -> d.getBroadcastPeriod() > 0)
+                                 .map(PgnDefinition::getId)
+                                 .forEach(pgns::add);
+            }
+            for (int pgn : pgns) {
+                collector.expect(module.getSourceAddress(), List.of(pgn));
+            }
+        }
+        return collector;
+    }
+
+    /**
+     * Creates a store for the SPN values read while collecting broadcasts,
+     * which keeps enough packets of each PGN from each module to report the
+     * broadcast period.
+     */
+    public SpnTimeSeriesStore createTimeSeriesStore() {
+        return new SpnTimeSeriesStore(PERIOD_SAMPLES);
+    }
+
     /**
      * Look through the obdModules to find the the PGNs they might broadcast
      * which has the long period
@@ -95,10 +214,9 @@ public class BroadcastValidator {
                                         .stream()
                                         .flatMap(m -> m.getFilteredDataStreamSPNs().stream())
                                         .map(SupportedSPN::getSpn)
-                                        .map(j1939DaRepository::getPgnForSpn)
-                                        .filter(Objects::nonNull)
-                                        .flatMap(Collection::stream)
-                                        .map(j1939DaRepository::findPgnDefinition)
+                                        .mapToInt(Integer::intValue)
+                                        .flatMap(j1939DaRepository::getPgnIdsForSpn)
+                                        .mapToObj(j1939DaRepository::findPgnDefinition)
                                         .filter(Objects::nonNull)
                                         .mapToInt(PgnDefinition::getBroadcastPeriod)
                                         .filter(period -> period > 0)
@@ -129,7 +247,7 @@ public class BroadcastValidator {
 
     /**
      * Determines if the given packets were broadcast at their specified rates.
-     * Adds failures/warnings to the report if they are not within spec
+     * See {@link #reportBroadcastPeriod(SpnTimeSeriesStore, List, ResultsListener, int, int)}.
      */
     public void reportBroadcastPeriod(Map<Integer, Map<Integer, List<GenericPacket>>> packetMap,
                                       List<Integer> supportedSPNs,
@@ -141,85 +259,63 @@ public class BroadcastValidator {
         // verify frequency of broadcast.
         packetMap.keySet().stream().sorted().forEach(pgn -> {
             PgnDefinition pgnDefinition = j1939DaRepository.findPgnDefinition(pgn);
-            boolean isSupported = pgnDefinition.getSpnDefinitions()
-                                               .stream()
-                                               .map(SpnDefinition::getSpnId)
-                                               .anyMatch(supportedSPNs::contains);
-            boolean isOnRequest = pgnDefinition.getBroadcastPeriod() <= 0;
-
-            if (!isOnRequest && isSupported) {
+            if (isBroadcastAndSupported(pgnDefinition, supportedSPNs)) {
                 Map<Integer, List<GenericPacket>> pgnPackets = packetMap.get(pgn);
 
                 pgnPackets.keySet().stream().sorted().forEach(moduleAddress -> {
-                    String moduleName = getAddressName(moduleAddress);
-                    List<GenericPacket> samplePackets = pgnPackets.get(moduleAddress);
-
-                    if (samplePackets.size() < 3) {
-                        listener.onResult("");
-                        listener.onResult("PGN " + pgn + " from " + moduleName);
-                        samplePackets.forEach(p -> listener.onResult(p.getPacket().toTimeString()));
-                        addOutcome(listener,
-                                   partNumber,
-                                   stepNumber,
-                                   INFO,
-                                   "Unable to determine period for PGN " + pgn + " from " + moduleName);
-                    } else {
-                        Packet packet0 = samplePackets.get(0).getPacket();
-                        Packet packet1 = samplePackets.get(1).getPacket();
-                        Packet packet2 = samplePackets.get(2).getPacket();
-
-                        listener.onResult("");
-                        listener.onResult("PGN " + pgn + " from " + moduleName);
-                        listener.onResult(packet0.toTimeString());
-                        listener.onResult(packet1.toTimeString());
-                        listener.onResult(packet2.toTimeString());
-
-                        LocalDateTime t0 = packet0.getTimestamp();
-                        LocalDateTime t1 = packet1.getTimestamp();
-                        long diff1 = ChronoUnit.MILLIS.between(t0, t1);
-
-                        LocalDateTime t2 = packet2.getTimestamp();
-                        long diff2 = ChronoUnit.MILLIS.between(t1, t2);
-
-                        long broadcastPeriod = pgnDefinition.getBroadcastPeriod();
-                        double maxBroadcastPeriod = broadcastPeriod * 1.1;
-                        double minBroadcastPeriod = broadcastPeriod * 0.9;
-
-                        // b. Fail if any parameter is not broadcast within -10% of the fixed, specified broadcast
-                        // period.
-                        if (!pgnDefinition.isVariableBroadcast()
-                                && (diff1 < minBroadcastPeriod || diff2 < minBroadcastPeriod)) {
-                            long diff = Math.min(diff1, diff2);
-                            addOutcome(listener,
-                                       partNumber,
-                                       stepNumber,
-                                       FAIL,
-                                       "Broadcast period of PGN " + pgn + " (" + diff + " ms) by ECU " + moduleName
-                                               + " is less than 90% specified broadcast period of " + broadcastPeriod
-                                               + " ms.");
-                        }
-
-                        // b. Fail if any parameter is not broadcast within +10% of the
-                        // fixed, specified broadcast period.
-                        // c. Fail if any parameter in a variable period broadcast
-                        // message exceeds 110% of its recommended broadcast period.
-                        if (diff1 > maxBroadcastPeriod || diff2 > maxBroadcastPeriod) {
-                            long diff = Math.max(diff1, diff2);
-                            addOutcome(listener,
-                                       partNumber,
-                                       stepNumber,
-                                       FAIL,
-                                       "Broadcast period of PGN " + pgn + " (" + diff + " ms) by ECU " + moduleName
-                                               + " is beyond 110% specified broadcast period of " + broadcastPeriod
-                                               + " ms.");
-                        }
-                    }
+                    List<Packet> packets = pgnPackets.get(moduleAddress)
+                                                     .stream()
+                                                     .map(GenericPacket::getPacket)
+                                                     .collect(Collectors.toList());
+                    IntervalStatistics intervals = new IntervalStatistics();
+                    packets.forEach(p -> intervals.add(p.getTimestampNanos()));
+                    reportBroadcastPeriod(pgnDefinition,
+                                          pgn,
+                                          moduleAddress,
+                                          packets.subList(0, Math.min(packets.size(), PERIOD_SAMPLES)),
+                                          intervals,
+                                          listener,
+                                          partNumber,
+                                          stepNumber);
                 });
             }
         });
 
     }
 
+    /**
+     * Determines if the packets in the store were broadcast at their
+     * specified rates, from the intervals the store gathered as they arrived.
+     *
+     * The intervals are compared in whole ms, and it fails if any of them is
+     * below 90% of the period or above 110%. The percentiles of the intervals
+     * are only reported.
+     */
+    public void reportBroadcastPeriod(SpnTimeSeriesStore store,
+                                      List<Integer> supportedSPNs,
+                                      ResultsListener listener,
+                                      int partNumber,
+                                      int stepNumber) {
+
+        // b. Gather/timestamp each parameter at least three times to be able to
+        // verify frequency of broadcast.
+        for (int pgn : store.getPgns()) {
+            PgnDefinition pgnDefinition = j1939DaRepository.findPgnDefinition(pgn);
+            if (isBroadcastAndSupported(pgnDefinition, supportedSPNs)) {
+                for (int moduleAddress : store.getSources(pgn)) {
+                    reportBroadcastPeriod(pgnDefinition,
+                                          pgn,
+                                          moduleAddress,
+                                          store.getSamples(moduleAddress, pgn),
+                                          store.getIntervals(moduleAddress, pgn),
+                                          listener,
+                                          partNumber,
+                                          stepNumber);
+                }
+            }
+        }
+    }
+
     /**
      * Reports if the given PGN was not received or if any supported SPNs were
      * received as Not Available
@@ -288,10 +384,65 @@ public class BroadcastValidator {
                                                           int partNumber,
                                                           int stepNumber,
                                                           String section) {
+        Set<Integer> foundPGNs = foundPackets.stream().map(p -> p.getPacket().getPgn()).collect(Collectors.toSet());
+        return collectAndReportNotAvailableSPNs(moduleSourceAddress,
+                                                foundPGNs,
+                                                collectNotAvailableSPNs(supportedSPNs, foundPackets.stream()),
+                                                supportedSPNs,
+                                                requiredPgns,
+                                                listener,
+                                                partNumber,
+                                                stepNumber,
+                                                section);
+    }
+
+    /**
+     * Reports the PGNs there are supported by the module but not received and
+     * the SPNs that were received by broadcast as Not Available
+     *
+     * @param  moduleSourceAddress
+     *                                 the module source address
+     * @param  store
+     *                                 the SPN values received by broadcast
+     * @param  supportedSPNs
+     *                                 the list of SPNs that are still of concern
+     * @return                     the List of SPNs which were not found
+     */
+    public List<Integer> collectAndReportNotAvailableSPNs(int moduleSourceAddress,
+                                                          SpnTimeSeriesStore store,
+                                                          List<Integer> supportedSPNs,
+                                                          List<Integer> requiredPgns,
+                                                          ResultsListener listener,
+                                                          int partNumber,
+                                                          int stepNumber,
+                                                          String section) {
+        Set<Integer> notAvailableSPNs = store.getNotAvailableSpns(moduleSourceAddress)
+                                             .stream()
+                                             .filter(supportedSPNs::contains)
+                                             .collect(Collectors.toSet());
+        return collectAndReportNotAvailableSPNs(moduleSourceAddress,
+                                                store.getPgns(moduleSourceAddress),
+                                                notAvailableSPNs,
+                                                supportedSPNs,
+                                                requiredPgns,
+                                                listener,
+                                                partNumber,
+                                                stepNumber,
+                                                section);
+    }
+
+    private List<Integer> collectAndReportNotAvailableSPNs(int moduleSourceAddress,
+                                                           Set<Integer> foundPGNs,
+                                                           Set<Integer> notAvailableSPNs,
+                                                           List<Integer> supportedSPNs,
+                                                           List<Integer> requiredPgns,
+                                                           ResultsListener listener,
+                                                           int partNumber,
+                                                           int stepNumber,
+                                                           String section) {
 
         List<Integer> missingSpns = new ArrayList<>();
 
-        Set<Integer> foundPGNs = foundPackets.stream().map(p -> p.getPacket().getPgn()).collect(Collectors.toSet());
         requiredPgns.removeAll(foundPGNs);
         if (!requiredPgns.isEmpty()) {
             // Expected PGNs were not received.
@@ -312,7 +463,7 @@ public class BroadcastValidator {
         }
 
         // Find any Supported SPNs which has a value of Not Available
-        missingSpns.addAll(collectNotAvailableSPNs(supportedSPNs, foundPackets.stream()));
+        missingSpns.addAll(notAvailableSPNs);
 
         return missingSpns;
     }
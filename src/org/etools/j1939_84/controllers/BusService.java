@@ -4,6 +4,7 @@
 
 package org.etools.j1939_84.controllers;
 
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static org.etools.j1939_84.J1939_84.NL;
 
 import java.util.Collection;
@@ -15,6 +16,7 @@ import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import org.etools.j1939_84.bus.Packet;
+import org.etools.j1939_84.bus.j1939.BroadcastCollector;
 import org.etools.j1939_84.bus.j1939.J1939;
 import org.etools.j1939_84.bus.j1939.J1939DaRepository;
 import org.etools.j1939_84.bus.j1939.Lookup;
@@ -56,11 +58,9 @@ public class BusService {
      */
     public List<Integer> collectNonOnRequestPGNs(List<Integer> spns) {
         return spns.stream()
-                   .map(j1939DaRepository::getPgnForSpn)
-                   .filter(Objects::nonNull)
-                   .flatMap(Collection::stream)
+                   .flatMapToInt(j1939DaRepository::getPgnIdsForSpn)
                    .distinct()
-                   .map(j1939DaRepository::findPgnDefinition)
+                   .mapToObj(j1939DaRepository::findPgnDefinition)
                    .filter(Objects::nonNull)
                    .filter(pgnDef -> !pgnDef.isOnRequest())
                    .map(PgnDefinition::getId)
@@ -160,6 +160,31 @@ public class BusService {
      * @return         the Steam of GenericPackets that were received
      */
     public Stream<GenericPacket> readBus(int seconds, String step, Predicate<GenericPacket> filter) {
+        Stream<GenericPacket> stream = j1939.read(GenericPacket.class, seconds, TimeUnit.SECONDS)
+                                            .flatMap(e -> e.left.stream())
+                                            .filter(filter);
+        reportProgress(seconds, step, null);
+        return stream;
+    }
+
+    /**
+     * Reads the bus until the expected broadcasts have been received, or for
+     * the given number of seconds, returning a Stream of Packets found
+     *
+     * @param  seconds
+     *                       the maximum number of seconds to read the bus
+     * @param  collector
+     *                       the broadcasts expected
+     * @return           the Stream of GenericPackets that were received
+     */
+    public Stream<GenericPacket> readBus(int seconds, String step, BroadcastCollector collector) {
+        Stream<GenericPacket> stream = j1939.read(GenericPacket.class, seconds, TimeUnit.SECONDS, collector)
+                                            .flatMap(e -> e.left.stream());
+        reportProgress(seconds, step, collector);
+        return stream;
+    }
+
+    private void reportProgress(int seconds, String step, BroadcastCollector collector) {
         String message = NL + "Step " + step + " - Reading bus for %1$d seconds" + NL;
         listener.onResult(String.format(message, seconds));
         long stopTime = dateTimeModule.getTimeAsLong() + seconds * 1000L;
@@ -168,6 +193,11 @@ public class BusService {
             while (secondsToGo > 0) {
                 try {
                     secondsToGo = (stopTime - dateTimeModule.getTimeAsLong()) / 1000;
+                    if (collector != null && collector.getDeadline() != Long.MAX_VALUE) {
+                        // the read may end early
+                        long left = NANOSECONDS.toSeconds(collector.getDeadline() - System.nanoTime());
+                        secondsToGo = Math.max(0, Math.min(secondsToGo, left));
+                    }
                     Controller.checkEnding();
                     listener.onProgress(String.format(message, secondsToGo));
                     dateTimeModule.pauseFor(1000);
@@ -176,10 +206,6 @@ public class BusService {
                 }
             }
         }).start();
-
-        return j1939.read(GenericPacket.class, seconds, TimeUnit.SECONDS)
-                    .flatMap(e -> e.left.stream())
-                    .filter(filter);
     }
 
     /**
@@ -231,6 +231,10 @@ public abstract class Controller {
      */
     private void setJ1939(J1939 j1939) {
         this.j1939 = j1939;
+        if (j1939 != null && dataRepository != null) {
+            // the OBD modules are expected to answer global requests
+            j1939.setExpectedResponders(dataRepository::getObdModuleAddresses);
+        }
         getVehicleInformationModule().setJ1939(this.j1939);
         getEngineSpeedModule().setJ1939(this.j1939);
         getDiagnosticMessageModule().setJ1939(this.j1939);
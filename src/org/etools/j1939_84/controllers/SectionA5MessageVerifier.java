@@ -8,10 +8,15 @@ import static org.etools.j1939_84.bus.j1939.packets.LampStatus.OFF;
 import static org.etools.j1939_84.model.Outcome.FAIL;
 
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 import org.etools.j1939_84.bus.j1939.BusResult;
 import org.etools.j1939_84.bus.j1939.J1939;
 import org.etools.j1939_84.bus.j1939.Lookup;
+import org.etools.j1939_84.bus.j1939.QueryPlan;
 import org.etools.j1939_84.bus.j1939.packets.CompositeSystem;
 import org.etools.j1939_84.bus.j1939.packets.DM12MILOnEmissionDTCPacket;
 import org.etools.j1939_84.bus.j1939.packets.DM20MonitorPerformanceRatioPacket;
@@ -46,6 +51,9 @@ public class SectionA5MessageVerifier {
     private final int partNumber;
     private final int stepNumber;
 
+    /** The queries run by {@link #requestData}, by PGN and destination */
+    private final Map<Integer, QueryPlan.Query<?>> prefetched = new HashMap<>();
+
     SectionA5MessageVerifier(int partNumber, int stepNumber) {
         this(DataRepository.getInstance(),
              new DiagnosticMessageModule(),
@@ -71,76 +79,121 @@ public class SectionA5MessageVerifier {
         vehInfoModule.setJ1939(j1939);
     }
 
+    /**
+     * Requests all of the data the checks of a module will need at once, so
+     * the module answers them together instead of one request at a time. Each
+     * check uses the response requested here, if there is one, and makes its
+     * own request otherwise. Either way the request and its responses are
+     * reported by the check, where they would be had it made the request.
+     */
+    void requestData(int address, boolean verifyIsErased) {
+        prefetched.clear();
+        QueryPlan plan = new QueryPlan();
+        addQuery(diagMsgModule.addDMQuery(plan, "DM6", DM6PendingEmissionDTCPacket.class, address));
+        addQuery(diagMsgModule.addDMQuery(plan, "DM12", DM12MILOnEmissionDTCPacket.class, address));
+        addQuery(diagMsgModule.addDMQuery(plan, "DM23", DM23PreviouslyMILOnEmissionDTCPacket.class, address));
+        addQuery(diagMsgModule.addDMQuery(plan, "DM29", DM29DtcCounts.class, address));
+        addQuery(diagMsgModule.addDMQuery(plan, "DM5", DM5DiagnosticReadinessPacket.class, address));
+        addQuery(diagMsgModule.addDMQuery(plan, "DM25", DM25ExpandedFreezeFrame.class, address));
+        addQuery(diagMsgModule.addDMQuery(plan, "DM31", DM31DtcToLampAssociation.class, address));
+        addQuery(diagMsgModule.addDMQuery(plan, "DM21", DM21DiagnosticReadinessPacket.class, address));
+        addQuery(diagMsgModule.addDMQuery(plan, "DM26", DM26TripDiagnosticReadinessPacket.class, address));
+        if (!verifyIsErased) {
+            if (getLatest(DM20MonitorPerformanceRatioPacket.class, address) != null) {
+                addQuery(diagMsgModule.addDMQuery(plan, "DM20", DM20MonitorPerformanceRatioPacket.class, address));
+            }
+            if (hasPermanentDTCs(address)) {
+                addQuery(diagMsgModule.addDMQuery(plan, "DM28", DM28PermanentEmissionDTCPacket.class, address));
+            }
+            if (getLatest(DM33EmissionIncreasingAECDActiveTime.class, address) != null) {
+                addQuery(diagMsgModule.addDMQuery(plan, "DM33", DM33EmissionIncreasingAECDActiveTime.class, address));
+            }
+            if (hasEngineHours(address)) {
+                addQuery(vehInfoModule.addEngineHoursQuery(plan, address));
+            }
+            if (hasEngineIdleHours(address)) {
+                addQuery(vehInfoModule.addIdleOperationQuery(plan, address));
+            }
+        }
+        diagMsgModule.request(plan);
+    }
+
     boolean checkDM5(ResultsListener listener, String section, int address, boolean verifyIsErased) {
         // 1.e. DM5 shall report zero for number of active and previously active DTCs.
         // 4.a. DM5 shall report test not complete (1) for all supported monitors except comprehensive components.
-        return diagMsgModule.requestDM5(listener, address)
-                            .toPacketStream()
-                            .filter(p -> {
-                                boolean isAllTestsIncomplete = p.getMonitoredSystems()
-                                                                .stream()
-                                                                .filter(s -> s.getId() != CompositeSystem.COMPREHENSIVE_COMPONENT)
-                                                                .map(MonitoredSystem::getStatus)
-                                                                .filter(MonitoredSystemStatus::isEnabled)
-                                                                .noneMatch(MonitoredSystemStatus::isComplete);
-
-                                boolean isNoCodes = (p.getActiveCodeCount() == 0
-                                        && p.getPreviouslyActiveCodeCount() == 0
-                                        || (p.getActiveCodeCount() == (byte) 0xFF)
-                                                && p.getPreviouslyActiveCodeCount() == (byte) 0xFF);
-                                boolean isErased = isNoCodes && isAllTestsIncomplete;
-
-                                var prev = getLatest(DM5DiagnosticReadinessPacket.class, p.getSourceAddress());
-                                boolean wasAllTestsIncomplete = prev.getMonitoredSystems()
-                                                                    .stream()
-                                                                    .filter(s -> s.getId() != CompositeSystem.COMPREHENSIVE_COMPONENT)
-                                                                    .map(MonitoredSystem::getStatus)
-                                                                    .filter(MonitoredSystemStatus::isEnabled)
-                                                                    .noneMatch(MonitoredSystemStatus::isComplete);
-
-                                boolean wasNoCodes = (prev.getActiveCodeCount() == 0
-                                        && prev.getPreviouslyActiveCodeCount() == 0)
-                                        || (prev.getActiveCodeCount() == (byte) 0xFF
-                                                && prev.getPreviouslyActiveCodeCount() == (byte) 0xFF);
-                                boolean wasErased = wasNoCodes && wasAllTestsIncomplete;
-
-                                return shouldBeReported(verifyIsErased, wasErased, isErased);
-                            })
-                            .peek(p -> {
-                                addFailure(listener, section, verifyIsErased, p);
-                            })
-                            .findAny()
-                            .isEmpty();
+        return response(listener,
+                        DM5DiagnosticReadinessPacket.class,
+                        address,
+                        () -> diagMsgModule.requestDM5(listener, address).toPacketStream())
+                .filter(p -> {
+                    boolean isAllTestsIncomplete = p.getMonitoredSystems()
+                                                    .stream()
+                                                    .filter(s -> s.getId() != CompositeSystem.COMPREHENSIVE_COMPONENT)
+                                                    .map(MonitoredSystem::getStatus)
+                                                    .filter(MonitoredSystemStatus::isEnabled)
+                                                    .noneMatch(MonitoredSystemStatus::isComplete);
+
+                    boolean isNoCodes = (p.getActiveCodeCount() == 0
+                            && p.getPreviouslyActiveCodeCount() == 0
+                            || (p.getActiveCodeCount() == (byte) 0xFF)
+                                    && p.getPreviouslyActiveCodeCount() == (byte) 0xFF);
+                    boolean isErased = isNoCodes && isAllTestsIncomplete;
+
+                    var prev = getLatest(DM5DiagnosticReadinessPacket.class, p.getSourceAddress());
+                    boolean wasAllTestsIncomplete = prev.getMonitoredSystems()
+                                                        .stream()
+                                                        .filter(s -> s.getId() != CompositeSystem.COMPREHENSIVE_COMPONENT)
+                                                        .map(MonitoredSystem::getStatus)
+                                                        .filter(MonitoredSystemStatus::isEnabled)
+                                                        .noneMatch(MonitoredSystemStatus::isComplete);
+
+                    boolean wasNoCodes = (prev.getActiveCodeCount() == 0
+                            && prev.getPreviouslyActiveCodeCount() == 0)
+                            || (prev.getActiveCodeCount() == (byte) 0xFF
+                                    && prev.getPreviouslyActiveCodeCount() == (byte) 0xFF);
+                    boolean wasErased = wasNoCodes && wasAllTestsIncomplete;
+
+                    return shouldBeReported(verifyIsErased, wasErased, isErased);
+                })
+                .peek(p -> {
+                    addFailure(listener, section, verifyIsErased, p);
+                })
+                .findAny()
+                .isEmpty();
     }
 
     boolean checkDM6(ResultsListener listener, String section, int address, boolean verifyIsErased) {
         // 1.a. DM6 pending shall report no DTCs and MIL off and not flashing
-        return diagMsgModule.requestDM6(listener, address)
-                            .toPacketStream()
-                            .filter(p -> {
-                                var prev = getLatest(DM6PendingEmissionDTCPacket.class, p.getSourceAddress());
-                                return filterDTCPacket(verifyIsErased, p, prev);
-                            })
-                            .peek(p -> {
-                                addFailure(listener, section, verifyIsErased, p);
-                            })
-                            .findAny()
-                            .isEmpty();
+        return response(listener,
+                        DM6PendingEmissionDTCPacket.class,
+                        address,
+                        () -> diagMsgModule.requestDM6(listener, address).toPacketStream())
+                .filter(p -> {
+                    var prev = getLatest(DM6PendingEmissionDTCPacket.class, p.getSourceAddress());
+                    return filterDTCPacket(verifyIsErased, p, prev);
+                })
+                .peek(p -> {
+                    addFailure(listener, section, verifyIsErased, p);
+                })
+                .findAny()
+                .isEmpty();
     }
 
     boolean checkDM12(ResultsListener listener, String section, int address, boolean verifyIsErased) {
         // 1.b. DM12 active shall report no DTCs and MIL off and not flashing
-        return diagMsgModule.requestDM12(listener, address)
-                            .toPacketStream()
-                            .filter(p -> {
-                                var prev = getLatest(DM12MILOnEmissionDTCPacket.class, p.getSourceAddress());
-                                return filterDTCPacket(verifyIsErased, p, prev);
-                            })
-                            .peek(p -> {
-                                addFailure(listener, section, verifyIsErased, p);
-                            })
-                            .findAny()
-                            .isEmpty();
+        return response(listener,
+                        DM12MILOnEmissionDTCPacket.class,
+                        address,
+                        () -> diagMsgModule.requestDM12(listener, address).toPacketStream())
+                .filter(p -> {
+                    var prev = getLatest(DM12MILOnEmissionDTCPacket.class, p.getSourceAddress());
+                    return filterDTCPacket(verifyIsErased, p, prev);
+                })
+                .peek(p -> {
+                    addFailure(listener, section, verifyIsErased, p);
+                })
+                .findAny()
+                .isEmpty();
     }
 
     boolean checkDM20(ResultsListener listener, String section, int address) {
@@ -152,187 +205,202 @@ public class SectionA5MessageVerifier {
             return true;
         }
 
-        return diagMsgModule.requestDM20(listener, address)
-                            .toPacketStream()
-                            .filter(p -> {
-                                if (p.getIgnitionCycles() < repoPacket.getIgnitionCycles()) {
-                                    return true;
-                                }
-
-                                if (p.getOBDConditionsCount() < repoPacket.getOBDConditionsCount()) {
-                                    return true;
-                                }
-
-                                for (var ratio : p.getRatios()) {
-                                    var optional = repoPacket.getRatio(ratio.getId());
-                                    if (optional.isPresent()) {
-                                        var repoRatio = optional.get();
-                                        if (ratio.getNumerator() < repoRatio.getNumerator()) {
-                                            return true;
-                                        }
-                                        if (ratio.getDenominator() < repoRatio.getDenominator()) {
-                                            return true;
-                                        }
-                                    } else {
-                                        return true;
-                                    }
-                                }
-
-                                return false;
-                            })
-                            .peek(p -> {
-                                addFailure(listener, section, false, p);
-                            })
-                            .findAny()
-                            .isEmpty();
+        return response(listener,
+                        DM20MonitorPerformanceRatioPacket.class,
+                        address,
+                        () -> diagMsgModule.requestDM20(listener, address).toPacketStream())
+                .filter(p -> {
+                    if (p.getIgnitionCycles() < repoPacket.getIgnitionCycles()) {
+                        return true;
+                    }
+
+                    if (p.getOBDConditionsCount() < repoPacket.getOBDConditionsCount()) {
+                        return true;
+                    }
+
+                    for (var ratio : p.getRatios()) {
+                        var optional = repoPacket.getRatio(ratio.getId());
+                        if (optional.isPresent()) {
+                            var repoRatio = optional.get();
+                            if (ratio.getNumerator() < repoRatio.getNumerator()) {
+                                return true;
+                            }
+                            if (ratio.getDenominator() < repoRatio.getDenominator()) {
+                                return true;
+                            }
+                        } else {
+                            return true;
+                        }
+                    }
+
+                    return false;
+                })
+                .peek(p -> {
+                    addFailure(listener, section, false, p);
+                })
+                .findAny()
+                .isEmpty();
     }
 
     boolean checkDM21(ResultsListener listener, String section, int address, boolean verifyIsErased) {
         // 3.b. DM21 diagnostic readiness 2 shall report 0 for distance with MIL on and minutes run with MIL on.
         // 5.b. DM21 diagnostic readiness 2 shall report 0 for distance since code clear and minutes run since code
         // clear.
-        return diagMsgModule.requestDM21(listener, address)
-                            .toPacketStream()
-                            .filter(p -> {
-                                boolean isErased = p.getKmWhileMILIsActivated() == 0
-                                        && p.getMinutesWhileMILIsActivated() == 0
-                                        && p.getKmSinceDTCsCleared() == 0
-                                        && p.getMinutesSinceDTCsCleared() == 0;
-
-                                var prev = getLatest(DM21DiagnosticReadinessPacket.class, p.getSourceAddress());
-                                boolean wasErased = prev.getKmWhileMILIsActivated() == 0
-                                        && prev.getMinutesWhileMILIsActivated() == 0
-                                        && prev.getKmSinceDTCsCleared() == 0
-                                        && prev.getMinutesSinceDTCsCleared() == 0;
-
-                                return shouldBeReported(verifyIsErased, wasErased, isErased);
-                            })
-                            .peek(p -> {
-                                addFailure(listener, section, verifyIsErased, p);
-                            })
-                            .findAny()
-                            .isEmpty();
+        return response(listener,
+                        DM21DiagnosticReadinessPacket.class,
+                        address,
+                        () -> diagMsgModule.requestDM21(listener, address).toPacketStream())
+                .filter(p -> {
+                    boolean isErased = p.getKmWhileMILIsActivated() == 0
+                            && p.getMinutesWhileMILIsActivated() == 0
+                            && p.getKmSinceDTCsCleared() == 0
+                            && p.getMinutesSinceDTCsCleared() == 0;
+
+                    var prev = getLatest(DM21DiagnosticReadinessPacket.class, p.getSourceAddress());
+                    boolean wasErased = prev.getKmWhileMILIsActivated() == 0
+                            && prev.getMinutesWhileMILIsActivated() == 0
+                            && prev.getKmSinceDTCsCleared() == 0
+                            && prev.getMinutesSinceDTCsCleared() == 0;
+
+                    return shouldBeReported(verifyIsErased, wasErased, isErased);
+                })
+                .peek(p -> {
+                    addFailure(listener, section, verifyIsErased, p);
+                })
+                .findAny()
+                .isEmpty();
     }
 
     boolean checkDM23(ResultsListener listener, String section, int address, boolean verifyIsErased) {
         // 1.c. DM23 previously active shall report no DTCs and MIL off and not flashing
-        return diagMsgModule.requestDM23(listener, address)
-                            .toPacketStream()
-                            .filter(p -> {
-                                var prev = getLatest(DM23PreviouslyMILOnEmissionDTCPacket.class, p.getSourceAddress());
-                                return filterDTCPacket(verifyIsErased, p, prev);
-                            })
-                            .peek(p -> {
-                                addFailure(listener, section, verifyIsErased, p);
-                            })
-                            .findAny()
-                            .isEmpty();
+        return response(listener,
+                        DM23PreviouslyMILOnEmissionDTCPacket.class,
+                        address,
+                        () -> diagMsgModule.requestDM23(listener, address).toPacketStream())
+                .filter(p -> {
+                    var prev = getLatest(DM23PreviouslyMILOnEmissionDTCPacket.class, p.getSourceAddress());
+                    return filterDTCPacket(verifyIsErased, p, prev);
+                })
+                .peek(p -> {
+                    addFailure(listener, section, verifyIsErased, p);
+                })
+                .findAny()
+                .isEmpty();
     }
 
     boolean checkDM25(ResultsListener listener, String section, int address, boolean verifyIsErased) {
         // 2.a. DM25 expanded freeze frame shall report no data and DTC causing freeze frame
         // with bytes 1-5 = 0 and bytes 6-8 = 255.
-        return diagMsgModule.requestDM25(listener, address)
-                            .toPacketStream()
-                            .filter(p -> {
-                                boolean isErased = p.getFreezeFrames().isEmpty();
-
-                                var prev = getLatest(DM25ExpandedFreezeFrame.class, p.getSourceAddress());
-                                boolean wasErased = prev.getFreezeFrames().isEmpty();
-
-                                return shouldBeReported(verifyIsErased, wasErased, isErased);
-                            })
-                            .peek(p -> {
-                                addFailure(listener, section, verifyIsErased, p);
-                            })
-                            .findAny()
-                            .isEmpty();
+        return response(listener,
+                        DM25ExpandedFreezeFrame.class,
+                        address,
+                        () -> diagMsgModule.requestDM25(listener, address).toPacketStream())
+                .filter(p -> {
+                    boolean isErased = p.getFreezeFrames().isEmpty();
+
+                    var prev = getLatest(DM25ExpandedFreezeFrame.class, p.getSourceAddress());
+                    boolean wasErased = prev.getFreezeFrames().isEmpty();
+
+                    return shouldBeReported(verifyIsErased, wasErased, isErased);
+                })
+                .peek(p -> {
+                    addFailure(listener, section, verifyIsErased, p);
+                })
+                .findAny()
+                .isEmpty();
     }
 
     boolean checkDM26(ResultsListener listener, String section, int address, boolean verifyIsErased) {
         // 5.a. DM26 diagnostic readiness 3 shall report 0 for number of warm-ups since code clear.
-        return diagMsgModule.requestDM26(listener, address)
-                            .toPacketStream()
-                            .filter(p -> {
-                                boolean isErased = p.getWarmUpsSinceClear() == 0;
-
-                                var prev = getLatest(DM26TripDiagnosticReadinessPacket.class, p.getSourceAddress());
-                                boolean wasErased = prev.getWarmUpsSinceClear() == 0;
-
-                                return shouldBeReported(verifyIsErased, wasErased, isErased);
-                            })
-                            .peek(p -> {
-                                addFailure(listener, section, verifyIsErased, p);
-                            })
-                            .findAny()
-                            .isEmpty();
+        return response(listener,
+                        DM26TripDiagnosticReadinessPacket.class,
+                        address,
+                        () -> diagMsgModule.requestDM26(listener, address).toPacketStream())
+                .filter(p -> {
+                    boolean isErased = p.getWarmUpsSinceClear() == 0;
+
+                    var prev = getLatest(DM26TripDiagnosticReadinessPacket.class, p.getSourceAddress());
+                    boolean wasErased = prev.getWarmUpsSinceClear() == 0;
+
+                    return shouldBeReported(verifyIsErased, wasErased, isErased);
+                })
+                .peek(p -> {
+                    addFailure(listener, section, verifyIsErased, p);
+                })
+                .findAny()
+                .isEmpty();
     }
 
     boolean checkDM28(ResultsListener listener, String section, int address) {
         // 8.a. DM28 permanent DTCs shall not be erased/still report any permanent DTC
         // that was present before code clear.
-        var repoPacket = getLatest(DM28PermanentEmissionDTCPacket.class, address);
-        if (repoPacket == null || !repoPacket.hasDTCs()) {
+        if (!hasPermanentDTCs(address)) {
             return true;
         }
 
-        return diagMsgModule.requestDM28(listener, address)
-                            .toPacketStream()
-                            .filter(p -> {
-                                return !p.hasDTCs();
-                            })
-                            .peek(p -> {
-                                addFailure(listener, section, false, p);
-                            })
-                            .findAny()
-                            .isEmpty();
+        return response(listener,
+                        DM28PermanentEmissionDTCPacket.class,
+                        address,
+                        () -> diagMsgModule.requestDM28(listener, address).toPacketStream())
+                .filter(p -> {
+                    return !p.hasDTCs();
+                })
+                .peek(p -> {
+                    addFailure(listener, section, false, p);
+                })
+                .findAny()
+                .isEmpty();
     }
 
     boolean checkDM29(ResultsListener listener, String section, int address, boolean verifyIsErased) {
         // 1.d. DM29 shall report zero for number of pending, active, and previously active DTCs
-        return diagMsgModule.requestDM29(listener, address)
-                            .toPacketStream()
-                            .filter(p -> {
-                                var prev = getLatest(DM29DtcCounts.class, p.getSourceAddress());
-                                boolean prevState = prev.getEmissionRelatedPendingDTCCount() == 0
-                                        && prev.getEmissionRelatedMILOnDTCCount() == 0
-                                        && prev.getEmissionRelatedPreviouslyMILOnDTCCount() == 0;
-
-                                boolean currentState = p.getEmissionRelatedPendingDTCCount() == 0
-                                        && p.getEmissionRelatedMILOnDTCCount() == 0
-                                        && p.getEmissionRelatedPreviouslyMILOnDTCCount() == 0;
-
-                                return shouldBeReported(verifyIsErased, prevState, currentState);
-                            })
-                            .peek(p -> {
-                                addFailure(listener, section, verifyIsErased, p);
-                            })
-                            .findAny()
-                            .isEmpty();
+        return response(listener,
+                        DM29DtcCounts.class,
+                        address,
+                        () -> diagMsgModule.requestDM29(listener, address).toPacketStream())
+                .filter(p -> {
+                    var prev = getLatest(DM29DtcCounts.class, p.getSourceAddress());
+                    boolean prevState = prev.getEmissionRelatedPendingDTCCount() == 0
+                            && prev.getEmissionRelatedMILOnDTCCount() == 0
+                            && prev.getEmissionRelatedPreviouslyMILOnDTCCount() == 0;
+
+                    boolean currentState = p.getEmissionRelatedPendingDTCCount() == 0
+                            && p.getEmissionRelatedMILOnDTCCount() == 0
+                            && p.getEmissionRelatedPreviouslyMILOnDTCCount() == 0;
+
+                    return shouldBeReported(verifyIsErased, prevState, currentState);
+                })
+                .peek(p -> {
+                    addFailure(listener, section, verifyIsErased, p);
+                })
+                .findAny()
+                .isEmpty();
     }
 
     boolean checkDM31(ResultsListener listener, String section, int address, boolean verifyIsErased) {
         // 3.a. DM31 lamp status shall report no DTCs causing MIL on (if supported).
-        return diagMsgModule.requestDM31(listener, address)
-                            .toPacketStream()
-                            .filter(p -> {
-
-                                boolean isErased = p.getDtcLampStatuses()
-                                                    .stream()
-                                                    .allMatch(s -> s.getMalfunctionIndicatorLampStatus() == OFF);
-
-                                var prev = getLatest(DM31DtcToLampAssociation.class, p.getSourceAddress());
-                                boolean wasErased = prev.getDtcLampStatuses()
-                                                        .stream()
-                                                        .allMatch(s -> s.getMalfunctionIndicatorLampStatus() == OFF);
-
-                                return shouldBeReported(verifyIsErased, wasErased, isErased);
-                            })
-                            .peek(p -> {
-                                addFailure(listener, section, verifyIsErased, p);
-                            })
-                            .findAny()
-                            .isEmpty();
+        return response(listener,
+                        DM31DtcToLampAssociation.class,
+                        address,
+                        () -> diagMsgModule.requestDM31(listener, address).toPacketStream())
+                .filter(p -> {
+
+                    boolean isErased = p.getDtcLampStatuses()
+                                        .stream()
+                                        .allMatch(s -> s.getMalfunctionIndicatorLampStatus() == OFF);
+
+                    var prev = getLatest(DM31DtcToLampAssociation.class, p.getSourceAddress());
+                    boolean wasErased = prev.getDtcLampStatuses()
+                                            .stream()
+                                            .allMatch(s -> s.getMalfunctionIndicatorLampStatus() == OFF);
+
+                    return shouldBeReported(verifyIsErased, wasErased, isErased);
+                })
+                .peek(p -> {
+                    addFailure(listener, section, verifyIsErased, p);
+                })
+                .findAny()
+                .isEmpty();
     }
 
     boolean checkDM33(ResultsListener listener, String section, int address) {
@@ -342,26 +410,28 @@ public class SectionA5MessageVerifier {
             return true;
         }
 
-        return diagMsgModule.requestDM33(listener, address)
-                            .toPacketStream()
-                            .filter(p -> {
-                                for (EngineHoursTimer repoTimer : repoPacket.getEiAecdEngineHoursTimers()) {
-                                    var pTimer = p.getTimer(repoTimer.getEiAecdNumber());
-                                    if (repoTimer.getEiAecdTimer1() > pTimer.getEiAecdTimer1()) {
-                                        return true;
-                                    }
-
-                                    if (repoTimer.getEiAecdTimer2() > pTimer.getEiAecdTimer2()) {
-                                        return true;
-                                    }
-                                }
-                                return false;
-                            })
-                            .peek(p -> {
-                                addFailure(listener, section, false, p);
-                            })
-                            .findAny()
-                            .isEmpty();
+        return response(listener,
+                        DM33EmissionIncreasingAECDActiveTime.class,
+                        address,
+                        () -> diagMsgModule.requestDM33(listener, address).toPacketStream())
+                .filter(p -> {
+                    for (EngineHoursTimer repoTimer : repoPacket.getEiAecdEngineHoursTimers()) {
+                        var pTimer = p.getTimer(repoTimer.getEiAecdNumber());
+                        if (repoTimer.getEiAecdTimer1() > pTimer.getEiAecdTimer1()) {
+                            return true;
+                        }
+
+                        if (repoTimer.getEiAecdTimer2() > pTimer.getEiAecdTimer2()) {
+                            return true;
+                        }
+                    }
+                    return false;
+                })
+                .peek(p -> {
+                    addFailure(listener, section, false, p);
+                })
+                .findAny()
+                .isEmpty();
     }
 
     boolean checkTestResults(ResultsListener listener, String section, int address, boolean verifyIsErased) {
@@ -391,47 +461,91 @@ public class SectionA5MessageVerifier {
     boolean checkEngineRunTime(ResultsListener listener, String section, int address) {
         // 9.b. Cumulative engine runtime [PGN 65253 (SPN 247))] shall not be reset/cleared for any non-zero values
         // present before code clear.
-        var packet = getLatest(EngineHoursPacket.class, address);
-        if (packet == null || packet.getEngineHours() == 0) {
+        if (!hasEngineHours(address)) {
             return true;
         }
+        var packet = getLatest(EngineHoursPacket.class, address);
 
-        return vehInfoModule.requestEngineHours(listener, address)
-                            .toPacketStream()
-                            .filter(p -> {
-                                return p.getEngineHours() < packet.getEngineHours();
-                            })
-                            .peek(p -> {
-                                addFailure(listener, section, false, p);
-                            })
-                            .findAny()
-                            .isEmpty();
+        return response(listener,
+                        EngineHoursPacket.class,
+                        address,
+                        () -> vehInfoModule.requestEngineHours(listener, address).toPacketStream())
+                .filter(p -> {
+                    return p.getEngineHours() < packet.getEngineHours();
+                })
+                .peek(p -> {
+                    addFailure(listener, section, false, p);
+                })
+                .findAny()
+                .isEmpty();
     }
 
     boolean checkEngineIdleTime(ResultsListener listener, String section, int address) {
         // 9.b. Cumulative engine idle time [(PGN 65244 (SPN 235)] shall not be reset/cleared for any non-zero values
         // present before code clear.
-        var packet = getLatest(IdleOperationPacket.class, address);
-        if (packet == null || packet.getEngineIdleHours() == 0) {
+        if (!hasEngineIdleHours(address)) {
             return true;
         }
+        var packet = getLatest(IdleOperationPacket.class, address);
 
-        return vehInfoModule.requestIdleOperation(listener, address)
-                            .toPacketStream()
-                            .filter(p -> {
-                                return p.getEngineIdleHours() < packet.getEngineIdleHours();
-                            })
-                            .peek(p -> {
-                                addFailure(listener, section, false, p);
-                            })
-                            .findAny()
-                            .isEmpty();
+        return response(listener,
+                        IdleOperationPacket.class,
+                        address,
+                        () -> vehInfoModule.requestIdleOperation(listener, address).toPacketStream())
+                .filter(p -> {
+                    return p.getEngineIdleHours() < packet.getEngineIdleHours();
+                })
+                .peek(p -> {
+                    addFailure(listener, section, false, p);
+                })
+                .findAny()
+                .isEmpty();
     }
 
     private <T extends GenericPacket> T getLatest(Class<T> clazz, int address) {
         return dataRepository.getObdModule(address).getLatest(clazz);
     }
 
+    private boolean hasPermanentDTCs(int address) {
+        var packet = getLatest(DM28PermanentEmissionDTCPacket.class, address);
+        return packet != null && packet.hasDTCs();
+    }
+
+    private boolean hasEngineHours(int address) {
+        var packet = getLatest(EngineHoursPacket.class, address);
+        return packet != null && packet.getEngineHours() != 0;
+    }
+
+    private boolean hasEngineIdleHours(int address) {
+        var packet = getLatest(IdleOperationPacket.class, address);
+        return packet != null && packet.getEngineIdleHours() != 0;
+    }
+
+    private static int key(int pgn, int address) {
+        return pgn << 8 | address;
+    }
+
+    private void addQuery(QueryPlan.Query<?> query) {
+        prefetched.put(key(query.getPgn(), query.getDestination()), query);
+    }
+
+    /**
+     * Returns the response requested by {@link #requestData}, after writing
+     * its report, or makes the request if it was not.
+     */
+    @SuppressWarnings("unchecked")
+    private <T extends GenericPacket> Stream<T> response(ResultsListener listener,
+                                                         Class<T> clazz,
+                                                         int address,
+                                                         Supplier<Stream<T>> request) {
+        var query = (QueryPlan.Query<T>) prefetched.remove(key(J1939.getPgn(clazz), address));
+        if (query == null) {
+            return request.get();
+        }
+        query.report(listener);
+        return query.getRequestResult().toPacketStream();
+    }
+
     private void addFailure(ResultsListener listener, String section, boolean verifyIsErased, GenericPacket p) {
         addFailure(listener, section, verifyIsErased, p.getModuleName(), p.getName());
     }
@@ -81,6 +81,10 @@ public class SectionA5Verifier {
                                  int address,
                                  boolean asErased) {
 
+        // requestData() already sends every request for the module together.
+        // The modules are still checked one at a time, as the verifier holds
+        // the responses of only one module.
+        verifier.requestData(address, asErased);
         verifier.checkDM6(listener, section, address, asErased);
         verifier.checkDM12(listener, section, address, asErased);
         verifier.checkDM23(listener, section, address, asErased);
@@ -106,6 +110,7 @@ public class SectionA5Verifier {
                                          boolean verifyIsErased) {
         Set<Boolean> results = new HashSet<>();
 
+        verifier.requestData(address, verifyIsErased);
         results.add(verifier.checkDM6(listener, section, address, verifyIsErased));
         results.add(verifier.checkDM12(listener, section, address, verifyIsErased));
         results.add(verifier.checkDM23(listener, section, address, verifyIsErased));
@@ -21,6 +21,7 @@ import java.util.stream.Collectors;
 
 import org.etools.j1939_84.bus.j1939.J1939DaRepository;
 import org.etools.j1939_84.bus.j1939.Lookup;
+import org.etools.j1939_84.bus.j1939.SpnTimeSeriesStore;
 import org.etools.j1939_84.bus.j1939.packets.GenericPacket;
 import org.etools.j1939_84.bus.j1939.packets.SupportedSPN;
 import org.etools.j1939_84.bus.j1939.packets.model.PgnDefinition;
@@ -161,15 +162,15 @@ public class TableA1Validator {
                          .sorted()
                          .distinct()
                          .forEach(spn -> {
-                             Set<Integer> pgns = j1939DaRepository.getPgnForSpn(spn);
-                             if (pgns == null) {
+                             int[] pgns = j1939DaRepository.getPgnIdsForSpn(spn).limit(2).toArray();
+                             if (pgns.length == 0) {
                                  listener.onResult("Unable to find PGN for SPN " + spn);
-                             } else if (pgns.size() > 1) {
+                             } else if (pgns.length > 1) {
                                  reportOmittedSPN(listener, moduleName, spn);
                                  moduleInformation.addOmittedDataStreamSPN(spn);
                                  dataRepository.putObdModule(moduleInformation);
                              } else {
-                                 int pgn = new ArrayList<>(pgns).get(0);
+                                 int pgn = pgns[0];
                                  List<Integer> spns = pgnMap.getOrDefault(pgn, new ArrayList<>());
                                  spns.add(spn);
                                  pgnMap.put(pgn, spns);
@@ -258,6 +259,24 @@ public class TableA1Validator {
                                                   "N.5 SPN " + entry.getKey() + " provided by more than one ECU"));
     }
 
+    /**
+     * Writes a Failure/Warning if any SPN in the store was provided by more
+     * than one module
+     */
+    public void reportDuplicateSPNs(SpnTimeSeriesStore store,
+                                    ResultsListener listener,
+                                    String section) {
+        // f. Fail/warn per Table A-1 if two or more ECUs provide an SPN listed in Table A-1
+        for (int spnId : store.getProvidedSpns()) {
+            if (store.getProviders(spnId).size() > 1) {
+                Outcome outcome = Lookup.getOutcomeForDuplicateSpn(spnId);
+                if (outcome != PASS) {
+                    addOutcome(listener, section, outcome, "N.5 SPN " + spnId + " provided by more than one ECU");
+                }
+            }
+        }
+    }
+
     public void reportExpectedMessages(ResultsListener listener) {
         listener.onResult("Expecting the following messages:");
         dataRepository.getObdModuleAddresses()
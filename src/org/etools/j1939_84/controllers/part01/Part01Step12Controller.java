@@ -13,6 +13,7 @@ import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 
 import org.etools.j1939_84.bus.j1939.Lookup;
+import org.etools.j1939_84.bus.j1939.RequestScheduler;
 import org.etools.j1939_84.bus.j1939.packets.DM30ScaledTestResultsPacket;
 import org.etools.j1939_84.bus.j1939.packets.ScaledTestResult;
 import org.etools.j1939_84.bus.j1939.packets.SupportedSPN;
@@ -46,6 +47,8 @@ public class Part01Step12Controller extends StepController {
     private static final int STEP_NUMBER = 12;
     private static final int TOTAL_STEPS = 0;
 
+    private final RequestScheduler requestScheduler = new RequestScheduler();
+
     private final TableA7Validator tableA7Validator;
 
     Part01Step12Controller(DataRepository dataRepository) {
@@ -90,57 +93,70 @@ public class Part01Step12Controller extends StepController {
         // A.K.A Get all the obdModuleAddresses then send DM7 to each address we have and get supported SPNs
         List<ScaledTestResult> vehicleTestResults = new ArrayList<>();
 
-        // Record the DM30 for each module
+        List<TestResultRequest> requests = new ArrayList<>();
         for (OBDModuleInformation obdModule : getDataRepository().getObdModules()) {
-            List<ScaledTestResult> moduleTestResults = new ArrayList<>();
-            int sourceAddress = obdModule.getSourceAddress();
-            String moduleName = obdModule.getModuleName();
-
             obdModule.getTestResultSPNs()
                      .stream()
                      .mapToInt(SupportedSPN::getSpn)
-                     .forEachOrdered(spnId -> {
-                         var dm30Packets = getDiagnosticMessageModule().requestTestResults(getListener(),
-                                                                                           sourceAddress,
-                                                                                           247,
-                                                                                           spnId,
-                                                                                           31);
-                         if (dm30Packets.isEmpty()) {
-                             addFailure("6.1.12.1.a - No test result for Supported SPN " + spnId + " from "
-                                     + moduleName);
-                         } else {
-                             var testResults = dm30Packets
-                                                          .stream()
-                                                          .peek(p -> verifyDM30PacketSupported(p, spnId))
-                                                          .flatMap(p -> p.getTestResults().stream())
-                                                          .collect(Collectors.toList());
-
-                             // 6.1.12.1.d. Warn if any ECU reports more than one set of test results for the same
-                             // SPN+FMI.
-                             tableA7Validator.findDuplicates(testResults)
-                                             .forEach(dup -> {
-                                                 addWarning("6.1.12.2.a (A7.2.b) - " + moduleName
-                                                         + " returned duplicate test results for SPN " + dup.getSpn()
-                                                         + " FMI " + dup.getFmi());
-                                             });
-
-                             moduleTestResults.addAll(testResults);
-                         }
-                         getListener().onResult("");
-                     });
-
-            if (!moduleTestResults.isEmpty()) {
-                getListener().onResult(moduleName + " Test Results:");
-                getListener().onResult(moduleTestResults.stream()
-                                                        .map(ScaledTestResult::toString)
-                                                        .collect(Collectors.toList()));
-
-                obdModule.setScaledTestResults(moduleTestResults);
-                getDataRepository().putObdModule(obdModule);
-                vehicleTestResults.addAll(moduleTestResults);
+                     .forEachOrdered(spnId -> requests.add(new TestResultRequest(obdModule, spnId)));
+            if (!requests.isEmpty() && requests.get(requests.size() - 1).obdModule == obdModule) {
+                requests.get(requests.size() - 1).last = true;
             }
         }
 
+        // Record the DM30 for each module
+        // The modules are asked at the same time, the results are reported in module order
+        List<ScaledTestResult> moduleTestResults = new ArrayList<>();
+        requestScheduler.request(requests,
+                                 r -> r.obdModule.getSourceAddress(),
+                                 (r, listener) -> getDiagnosticMessageModule().requestTestResults(listener,
+                                                                                                  r.obdModule.getSourceAddress(),
+                                                                                                  247,
+                                                                                                  r.spnId,
+                                                                                                  31),
+                                 getListener(),
+                                 (r, dm30Packets) -> {
+                                     OBDModuleInformation obdModule = r.obdModule;
+                                     int spnId = r.spnId;
+                                     String moduleName = obdModule.getModuleName();
+                                     if (dm30Packets.isEmpty()) {
+                                         addFailure("6.1.12.1.a - No test result for Supported SPN " + spnId
+                                                 + " from " + moduleName);
+                                     } else {
+                                         var testResults = dm30Packets
+                                                                      .stream()
+                                                                      .peek(p -> verifyDM30PacketSupported(p, spnId))
+                                                                      .flatMap(p -> p.getTestResults().stream())
+                                                                      .collect(Collectors.toList());
+
+                                         // 6.1.12.1.d. Warn if any ECU reports more than one set of test results
+                                         // for the same SPN+FMI.
+                                         tableA7Validator.findDuplicates(testResults)
+                                                         .forEach(dup -> {
+                                                             addWarning("6.1.12.2.a (A7.2.b) - " + moduleName
+                                                                     + " returned duplicate test results for SPN "
+                                                                     + dup.getSpn() + " FMI " + dup.getFmi());
+                                                         });
+
+                                         moduleTestResults.addAll(testResults);
+                                     }
+                                     getListener().onResult("");
+
+                                     if (r.last) {
+                                         if (!moduleTestResults.isEmpty()) {
+                                             getListener().onResult(moduleName + " Test Results:");
+                                             getListener().onResult(moduleTestResults.stream()
+                                                                                     .map(ScaledTestResult::toString)
+                                                                                     .collect(Collectors.toList()));
+
+                                             obdModule.setScaledTestResults(new ArrayList<>(moduleTestResults));
+                                             getDataRepository().putObdModule(obdModule);
+                                             vehicleTestResults.addAll(moduleTestResults);
+                                         }
+                                         moduleTestResults.clear();
+                                     }
+                                 });
+
         // Create list of ECU address+SPN+FMI supported test results.
         // 6.1.12.2.a. Fail/warn per section A.7 Criteria for Test Results Evaluation.
         if (getFuelType().isCompressionIgnition()) {
@@ -189,4 +205,17 @@ public class Part01Step12Controller extends StepController {
         }
     }
 
+    /** A DM7 for one test result SPN of a module. */
+    private static class TestResultRequest {
+        final OBDModuleInformation obdModule;
+        final int spnId;
+        /** The last request for the module */
+        boolean last;
+
+        TestResultRequest(OBDModuleInformation obdModule, int spnId) {
+            this.obdModule = obdModule;
+            this.spnId = spnId;
+        }
+    }
+
 }
@@ -7,7 +7,6 @@ import static org.etools.j1939_84.controllers.ResultsListener.MessageType.ERROR;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
@@ -16,9 +15,9 @@ import java.util.stream.Stream;
 
 import org.etools.j1939_84.bus.j1939.J1939DaRepository;
 import org.etools.j1939_84.bus.j1939.Lookup;
+import org.etools.j1939_84.bus.j1939.SpnTimeSeriesStore;
 import org.etools.j1939_84.bus.j1939.packets.GenericPacket;
 import org.etools.j1939_84.bus.j1939.packets.SupportedSPN;
-import org.etools.j1939_84.bus.j1939.packets.model.Spn;
 import org.etools.j1939_84.bus.j1939.packets.model.SpnDefinition;
 import org.etools.j1939_84.controllers.BroadcastValidator;
 import org.etools.j1939_84.controllers.BusService;
@@ -146,56 +145,58 @@ public class Part01Step26Controller extends StepController {
 
         // 6.1.26.1.a. Gather broadcast data for all SPNs that are supported for data
         // stream in the OBD ECU DM24 responses.
-        // we need 3 samples plus time for a BAM, to 4 * maxPeriod
+        // we need 3 samples plus time for a BAM, to 4 * maxPeriod, ending early once all are received
         Stream<GenericPacket> packetStream = busService.readBus(broadcastValidator.getMaximumBroadcastPeriod() * 4,
-                                                                "6.1.26.1.a");
+                                                                "6.1.26.1.a",
+                                                                broadcastValidator.createBroadcastCollector());
 
-        List<GenericPacket> packets = packetStream
-                                                  .peek(p -> {
-                                                      try {
-                                                          Controller.checkEnding();
-                                                      } catch (InterruptedException e) {
-                                                          packetStream.close();
-                                                      }
-                                                  })
-                                                  .peek(p ->
-                                                  // 6.1.26.2.a. Fail if unsupported (received as not available (as
-                                                  // described in SAE J1939-71))
-                                                  // for any broadcast SPN indicated as supported by the OBD ECU in DM24
-                                                  // with the Source Address matching the received message) in DM24.
-                                                  tableA1Validator.reportNotAvailableSPNs(p,
-                                                                                          getListener(),
-                                                                                          "6.1.26.2.a"))
-                                                  .peek(p ->
-                                                  // 6.1.26.2.d. Fail/warn if any broadcast data is not valid for KOEO
-                                                  // conditions
-                                                  // as per Table A-1, Min Data Stream Support.
-                                                  tableA1Validator.reportImplausibleSPNValues(p,
-                                                                                              getListener(),
-                                                                                              false,
-                                                                                              "6.1.26.2.d"))
-                                                  .peek(p ->
-                                                  // 6.1.26.2.e. Fail/warn per Table A-1, if an expected SPN from the
-                                                  // DM24 support
-                                                  // list from an OBD ECU is provided by a non-OBD ECU. (provided
-                                                  // extraneously)
-                                                  tableA1Validator.reportNonObdModuleProvidedSPNs(p,
-                                                                                                  getListener(),
-                                                                                                  "6.1.26.2.e"))
-                                                  .peek(p ->
-                                                  // 6.1.26.3.a. Identify SPNs provided in the data stream that are
-                                                  // listed
-                                                  // in Table A-1, but are not supported by any OBD ECU in its DM24
-                                                  // response.
-                                                  // 6.1.26.4.a. Fail/warn per Table A-1 column, “Action if SPN provided
-                                                  // but not included in DM24”.
-                                                  tableA1Validator.reportProvidedButNotSupportedSPNs(p,
-                                                                                                     getListener(),
-                                                                                                     "6.1.26.4.a"))
-                                                  .peek(p -> tableA1Validator.reportPacketIfNotReported(p,
-                                                                                                        getListener(),
-                                                                                                        false))
-                                                  .collect(Collectors.toList());
+        SpnTimeSeriesStore store = broadcastValidator.createTimeSeriesStore();
+        packetStream
+                    .peek(p -> {
+                        try {
+                            Controller.checkEnding();
+                        } catch (InterruptedException e) {
+                            packetStream.close();
+                        }
+                    })
+                    .peek(p ->
+                    // 6.1.26.2.a. Fail if unsupported (received as not available (as
+                    // described in SAE J1939-71))
+                    // for any broadcast SPN indicated as supported by the OBD ECU in DM24
+                    // with the Source Address matching the received message) in DM24.
+                    tableA1Validator.reportNotAvailableSPNs(p,
+                                                            getListener(),
+                                                            "6.1.26.2.a"))
+                    .peek(p ->
+                    // 6.1.26.2.d. Fail/warn if any broadcast data is not valid for KOEO
+                    // conditions
+                    // as per Table A-1, Min Data Stream Support.
+                    tableA1Validator.reportImplausibleSPNValues(p,
+                                                                getListener(),
+                                                                false,
+                                                                "6.1.26.2.d"))
+                    .peek(p ->
+                    // 6.1.26.2.e. Fail/warn per Table A-1, if an expected SPN from the
+                    // DM24 support
+                    // list from an OBD ECU is provided by a non-OBD ECU. (provided
+                    // extraneously)
+                    tableA1Validator.reportNonObdModuleProvidedSPNs(p,
+                                                                    getListener(),
+                                                                    "6.1.26.2.e"))
+                    .peek(p ->
+                    // 6.1.26.3.a. Identify SPNs provided in the data stream that are
+                    // listed
+                    // in Table A-1, but are not supported by any OBD ECU in its DM24
+                    // response.
+                    // 6.1.26.4.a. Fail/warn per Table A-1 column, “Action if SPN provided
+                    // but not included in DM24”.
+                    tableA1Validator.reportProvidedButNotSupportedSPNs(p,
+                                                                       getListener(),
+                                                                       "6.1.26.4.a"))
+                    .peek(p -> tableA1Validator.reportPacketIfNotReported(p,
+                                                                          getListener(),
+                                                                          false))
+                    .forEach(store::add);
 
         // Notify the user if there's another ECU on the bus using our address
         if (getJ1939().getBus().imposterDetected()) {
@@ -205,13 +206,10 @@ public class Part01Step26Controller extends StepController {
         }
 
         // 6.1.26.2.f. Fail/warn per Table A-1 if two or more ECUs provide an SPN listed in Table A-1
-        tableA1Validator.reportDuplicateSPNs(packets, getListener(), "6.1.26.2.f");
+        tableA1Validator.reportDuplicateSPNs(store, getListener(), "6.1.26.2.f");
 
         // Check the Broadcast Period of the received packets1
-        // Map of PGN to (Map of Source Address to List of Packets)
-        Map<Integer, Map<Integer, List<GenericPacket>>> foundPackets = broadcastValidator.buildPGNPacketsMap(packets);
-
-        broadcastValidator.reportBroadcastPeriod(foundPackets,
+        broadcastValidator.reportBroadcastPeriod(store,
                                                  supportedSPNs,
                                                  getListener(),
                                                  getPartNumber(),
@@ -219,6 +217,10 @@ public class Part01Step26Controller extends StepController {
 
         List<GenericPacket> onRequestPackets = new ArrayList<>();
         // Find and report any Supported SPNs which should have been received but weren't
+        // The modules are requested one at a time, not with a RequestScheduler,
+        // because a DS request that is not fully answered is followed by a
+        // global request for the same PGN, which would also collect the DS
+        // responses of the other modules if their requests were in flight.
         for (OBDModuleInformation obdModule : getDataRepository().getObdModules()) {
             int moduleAddress = obdModule.getSourceAddress();
 
@@ -228,16 +230,11 @@ public class Part01Step26Controller extends StepController {
                                                     .map(SupportedSPN::getSpn)
                                                     .collect(Collectors.toList());
 
-            // Find SPNs sent as Not Available and those that should have been sent
-            List<GenericPacket> modulePackets = packets.stream()
-                                                       .filter(p -> p.getSourceAddress() == moduleAddress)
-                                                       .collect(Collectors.toList());
-
             // Find the PGN Definitions for the PGNs we expect to receive
             List<Integer> requiredPgns = new ArrayList<>(busService.collectNonOnRequestPGNs(supportedSPNs));
 
             List<Integer> missingSPNs = broadcastValidator.collectAndReportNotAvailableSPNs(moduleAddress,
-                                                                                            modulePackets,
+                                                                                            store,
                                                                                             dataStreamSPNs,
                                                                                             requiredPgns,
                                                                                             getListener(),
@@ -249,12 +246,7 @@ public class Part01Step26Controller extends StepController {
             List<Integer> requestPGNs = busService.getPGNsForDSRequest(missingSPNs, dataStreamSPNs);
 
             // Remove the SPNs that were already received
-            Set<Integer> receivedSPNs = packets.stream()
-                                               .filter(p -> p.getSourceAddress() == moduleAddress)
-                                               .flatMap(p -> p.getSpns().stream())
-                                               .filter(s -> !s.isNotAvailable())
-                                               .map(Spn::getId)
-                                               .collect(Collectors.toSet());
+            Set<Integer> receivedSPNs = store.getProvidedSpns(moduleAddress);
             dataStreamSPNs.removeAll(receivedSPNs);
 
             for (int pgn : requestPGNs) {
@@ -6,12 +6,12 @@ package org.etools.j1939_84.controllers.part02;
 import static org.etools.j1939_84.bus.j1939.packets.AcknowledgmentPacket.Response.NACK;
 import static org.etools.j1939_84.modules.DiagnosticMessageModule.getCompositeSystems;
 
-import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import org.etools.j1939_84.bus.j1939.Lookup;
@@ -140,14 +140,14 @@ public class Part02Step08Controller extends StepController {
             var dsOptional = dsPackets.stream().filter(p -> p.getSourceAddress() == address).findFirst();
             if (globalOptional.isPresent() && dsOptional.isPresent()) {
                 var globalPacket = globalOptional.get();
-                var globalReceivedTime = globalPacket.getPacket().getTimestamp();
+                var globalReceivedTime = globalPacket.getPacket().getTimestampNanos();
                 var globalWarmupTime = globalPacket.getTimeSinceEngineStart();
 
                 var dsPacket = dsOptional.get();
-                var dsReceivedTime = dsPacket.getPacket().getTimestamp();
+                var dsReceivedTime = dsPacket.getPacket().getTimestampNanos();
                 var dsWarmupTime = dsPacket.getTimeSinceEngineStart();
 
-                long deltaReceivedSeconds = ChronoUnit.SECONDS.between(dsReceivedTime, globalReceivedTime);
+                long deltaReceivedSeconds = TimeUnit.NANOSECONDS.toSeconds(globalReceivedTime - dsReceivedTime);
                 long deltaWarmupTime = Double.valueOf(globalWarmupTime - dsWarmupTime).longValue();
 
                 long difference = Math.abs(deltaWarmupTime - deltaReceivedSeconds);
@@ -5,7 +5,6 @@ package org.etools.j1939_84.controllers.part02;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
@@ -14,9 +13,9 @@ import java.util.stream.Stream;
 
 import org.etools.j1939_84.bus.j1939.J1939DaRepository;
 import org.etools.j1939_84.bus.j1939.Lookup;
+import org.etools.j1939_84.bus.j1939.SpnTimeSeriesStore;
 import org.etools.j1939_84.bus.j1939.packets.GenericPacket;
 import org.etools.j1939_84.bus.j1939.packets.SupportedSPN;
-import org.etools.j1939_84.bus.j1939.packets.model.Spn;
 import org.etools.j1939_84.bus.j1939.packets.model.SpnDefinition;
 import org.etools.j1939_84.controllers.BroadcastValidator;
 import org.etools.j1939_84.controllers.BusService;
@@ -104,58 +103,57 @@ public class Part02Step17Controller extends StepController {
         tableA1Validator.reportExpectedMessages(getListener());
 
         // 6.2.17.1.a. Gather broadcast data for all SPNs that are supported for data stream in the OBD ECU responses.
-        // x4 to ensure all necessary messages have been received
+        // x4 to ensure all necessary messages have been received, ending early once they have
         Stream<GenericPacket> packetStream = busService.readBus(broadcastValidator.getMaximumBroadcastPeriod() * 4,
-                                                                "6.2.17.1.a");
-        var packets = packetStream
-                                  .peek(p -> {
-                                      try {
-                                          Controller.checkEnding();
-                                      } catch (InterruptedException e) {
-                                          packetStream.close();
-                                      }
-                                  })
-                                  .peek(p -> {
-                                      // 6.2.17.2.a. Fail if unsupported (received as not available (as
-                                      // described in SAE J1939-71))
-                                      // for any broadcast SPN indicated as supported by the OBD ECU in DM24
-                                      // with the Source Address matching the received message) in DM24.
-                                      tableA1Validator.reportNotAvailableSPNs(p, getListener(), "6.2.17.2.a");
-                                  })
-                                  .peek(p -> {
-                                      // 6.2.17.2.b. Fail/warn if any broadcast data is not valid for KOER
-                                      // conditions
-                                      // as per Table A-1, Minimum Data Stream Support.
-                                      tableA1Validator.reportImplausibleSPNValues(p, getListener(), true, "6.2.17.2.b");
-                                  })
-                                  .peek(p -> {
-                                      // 6.2.17.2.c. Fail/warn per Table A-1 if an expected SPN from the
-                                      // DM24 support list is provided by a non-OBD ECU.
-                                      tableA1Validator.reportNonObdModuleProvidedSPNs(p, getListener(), "6.2.17.2.c");
-                                  })
-                                  .peek(p -> {
+                                                                "6.2.17.1.a",
+                                                                broadcastValidator.createBroadcastCollector());
+        SpnTimeSeriesStore store = broadcastValidator.createTimeSeriesStore();
+        packetStream
+                    .peek(p -> {
+                        try {
+                            Controller.checkEnding();
+                        } catch (InterruptedException e) {
+                            packetStream.close();
+                        }
+                    })
+                    .peek(p -> {
+                        // 6.2.17.2.a. Fail if unsupported (received as not available (as
+                        // described in SAE J1939-71))
+                        // for any broadcast SPN indicated as supported by the OBD ECU in DM24
+                        // with the Source Address matching the received message) in DM24.
+                        tableA1Validator.reportNotAvailableSPNs(p, getListener(), "6.2.17.2.a");
+                    })
+                    .peek(p -> {
+                        // 6.2.17.2.b. Fail/warn if any broadcast data is not valid for KOER
+                        // conditions
+                        // as per Table A-1, Minimum Data Stream Support.
+                        tableA1Validator.reportImplausibleSPNValues(p, getListener(), true, "6.2.17.2.b");
+                    })
+                    .peek(p -> {
+                        // 6.2.17.2.c. Fail/warn per Table A-1 if an expected SPN from the
+                        // DM24 support list is provided by a non-OBD ECU.
+                        tableA1Validator.reportNonObdModuleProvidedSPNs(p, getListener(), "6.2.17.2.c");
+                    })
+                    .peek(p -> {
 
-                                      // 6.2.17.3.a. Identify SPNs provided in the data stream that are listed
-                                      // in Table A-1 but not supported by any OBD ECU in its DM24 response.
-                                      // 6.2.17.4.a. Fail/warn per Table A-1 column, “Action if SPN provided
-                                      // but not included in DM24”.
-                                      tableA1Validator.reportProvidedButNotSupportedSPNs(p,
-                                                                                         getListener(),
-                                                                                         "6.2.17.4.a");
-                                  })
-                                  .peek(p -> {
-                                      tableA1Validator.reportPacketIfNotReported(p, getListener(), false);
-                                  })
-                                  .collect(Collectors.toList());
+                        // 6.2.17.3.a. Identify SPNs provided in the data stream that are listed
+                        // in Table A-1 but not supported by any OBD ECU in its DM24 response.
+                        // 6.2.17.4.a. Fail/warn per Table A-1 column, “Action if SPN provided
+                        // but not included in DM24”.
+                        tableA1Validator.reportProvidedButNotSupportedSPNs(p,
+                                                                           getListener(),
+                                                                           "6.2.17.4.a");
+                    })
+                    .peek(p -> {
+                        tableA1Validator.reportPacketIfNotReported(p, getListener(), false);
+                    })
+                    .forEach(store::add);
 
         // 6.2.17.2.d. Fail/warn per Table A-1, if two or more ECUs provide an SPN listed.
-        tableA1Validator.reportDuplicateSPNs(packets, getListener(), "6.2.17.2.d");
+        tableA1Validator.reportDuplicateSPNs(store, getListener(), "6.2.17.2.d");
 
         // Check the Broadcast Period of the received packets1
-        // Map of PGN to (Map of Source Address to List of Packets)
-        Map<Integer, Map<Integer, List<GenericPacket>>> foundPackets = broadcastValidator.buildPGNPacketsMap(packets);
-
-        broadcastValidator.reportBroadcastPeriod(foundPackets,
+        broadcastValidator.reportBroadcastPeriod(store,
                                                  supportedSPNs,
                                                  getListener(),
                                                  getPartNumber(),
@@ -171,15 +169,11 @@ public class Part02Step17Controller extends StepController {
                                                     .map(SupportedSPN::getSpn)
                                                     .collect(Collectors.toList());
 
-            List<GenericPacket> modulePackets = packets.stream()
-                                                       .filter(p -> p.getSourceAddress() == moduleAddress)
-                                                       .collect(Collectors.toList());
-
             // Find the PGN Definitions for the PGNs we expect to receive
             List<Integer> requiredPgns = new ArrayList<>(busService.collectNonOnRequestPGNs(supportedSPNs));
 
             List<Integer> missingSPNs = broadcastValidator.collectAndReportNotAvailableSPNs(moduleAddress,
-                                                                                            modulePackets,
+                                                                                            store,
                                                                                             dataStreamSPNs,
                                                                                             requiredPgns,
                                                                                             getListener(),
@@ -193,12 +187,7 @@ public class Part02Step17Controller extends StepController {
             List<Integer> requestPGNs = busService.getPGNsForDSRequest(missingSPNs, dataStreamSPNs);
 
             // Remove the SPNs that were already received
-            Set<Integer> receivedSPNs = packets.stream()
-                                               .filter(p -> p.getSourceAddress() == moduleAddress)
-                                               .flatMap(p -> p.getSpns().stream())
-                                               .filter(s -> !s.isNotAvailable())
-                                               .map(Spn::getId)
-                                               .collect(Collectors.toSet());
+            Set<Integer> receivedSPNs = store.getProvidedSpns(moduleAddress);
             dataStreamSPNs.removeAll(receivedSPNs);
 
             for (int pgn : requestPGNs) {
@@ -17,11 +17,10 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
 
-import org.etools.j1939_84.bus.Either;
-import org.etools.j1939_84.bus.j1939.packets.AcknowledgmentPacket;
+import org.etools.j1939_84.bus.PacketFilter;
+import org.etools.j1939_84.bus.j1939.LazyPacket;
 import org.etools.j1939_84.bus.j1939.packets.DM20MonitorPerformanceRatioPacket;
 import org.etools.j1939_84.bus.j1939.packets.DM28PermanentEmissionDTCPacket;
-import org.etools.j1939_84.bus.j1939.packets.GenericPacket;
 import org.etools.j1939_84.bus.j1939.packets.ParsedPacket;
 import org.etools.j1939_84.bus.j1939.packets.PerformanceRatio;
 import org.etools.j1939_84.controllers.DataRepository;
@@ -50,7 +49,7 @@ public class Part11Step07Controller extends StepController {
 
     private final AtomicBoolean isComplete = new AtomicBoolean(false);
     private final Set<String> reportedFailures = new HashSet<>();
-    private final Predicate<Either<GenericPacket, AcknowledgmentPacket>> stopPredicate = e -> !isComplete.get();
+    private final Predicate<LazyPacket> stopPredicate = e -> !isComplete.get();
     private int requestCount = 0;
 
     public Part11Step07Controller() {
@@ -138,8 +137,10 @@ public class Part11Step07Controller extends StepController {
         // 6.11.7.2.c. Fail if any broadcast data is missing according to Table A1,
         // or otherwise meets failure criteria during engine idle speed periods.
         executor.submit(() -> {
-            getJ1939().readGenericPacket(stopPredicate)
+            // only decode the packets received at idle
+            getJ1939().readLazy(PacketFilter.ALL, stopPredicate)
                       .filter(p -> getEngineSpeedModule().isEngineAtIdle())
+                      .flatMap(p -> p.getGenericPacket().stream())
                       .forEach(p -> {
                           validator.reportImplausibleSPNValues(p, getListener(), true, "6.11.7.3.a");
                       });
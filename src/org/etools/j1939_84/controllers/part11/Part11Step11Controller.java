@@ -5,9 +5,9 @@ package org.etools.j1939_84.controllers.part11;
 
 import static org.etools.j1939_84.modules.DiagnosticMessageModule.getCompositeSystems;
 
-import java.time.temporal.ChronoUnit;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import org.etools.j1939_84.bus.j1939.packets.DM26TripDiagnosticReadinessPacket;
@@ -118,9 +118,9 @@ public class Part11Step11Controller extends StepController {
             return false;
         }
 
-        var currentTime = currentPacket.getPacket().getTimestamp();
-        var previousTime = previousPacket.getPacket().getTimestamp();
-        var deltaTime = previousTime.until(currentTime, ChronoUnit.SECONDS);
+        var currentTime = currentPacket.getPacket().getTimestampNanos();
+        var previousTime = previousPacket.getPacket().getTimestampNanos();
+        var deltaTime = TimeUnit.NANOSECONDS.toSeconds(currentTime - previousTime);
 
         var tempTSES = getDeltaEngineStart(currentPacket);
         var deltaTSES = 0;
@@ -17,8 +17,10 @@ import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
+import org.etools.j1939_84.bus.j1939.BroadcastCollector;
 import org.etools.j1939_84.bus.j1939.BusResult;
 import org.etools.j1939_84.bus.j1939.Lookup;
+import org.etools.j1939_84.bus.j1939.QueryPlan;
 import org.etools.j1939_84.bus.j1939.packets.AcknowledgmentPacket;
 import org.etools.j1939_84.bus.j1939.packets.CompositeMonitoredSystem;
 import org.etools.j1939_84.bus.j1939.packets.CompositeSystem;
@@ -46,6 +48,7 @@ import org.etools.j1939_84.bus.j1939.packets.DM56EngineFamilyPacket;
 import org.etools.j1939_84.bus.j1939.packets.DM5DiagnosticReadinessPacket;
 import org.etools.j1939_84.bus.j1939.packets.DM6PendingEmissionDTCPacket;
 import org.etools.j1939_84.bus.j1939.packets.DiagnosticReadinessPacket;
+import org.etools.j1939_84.bus.j1939.packets.GenericPacket;
 import org.etools.j1939_84.bus.j1939.packets.MonitoredSystem;
 import org.etools.j1939_84.bus.j1939.packets.ParsedPacket;
 import org.etools.j1939_84.controllers.ResultsListener;
@@ -82,13 +85,55 @@ public class DiagnosticMessageModule extends FunctionalModule {
         return getCompositeSystems(systems, isDM5);
     }
 
+    /**
+     * Adds a request for a DM to a plan, titled as it would be if it was
+     * requested on its own. The plan is run with
+     * {@link #request(QueryPlan)}.
+     *
+     * @param  plan
+     *                     the plan to add to
+     * @param  dmName
+     *                     the name of the DM, like DM5
+     * @param  clazz
+     *                     the class of the DM packet
+     * @param  address
+     *                     the address of the module, or the global address
+     * @return         the query, which holds the result after the plan is run
+     */
+    public <T extends GenericPacket> QueryPlan.Query<T> addDMQuery(QueryPlan plan,
+                                                                  String dmName,
+                                                                  Class<T> clazz,
+                                                                  int address) {
+        return addQuery(plan, dmName, clazz, address);
+    }
+
+    /**
+     * Sends all of the requests in the plan back to back and collects the
+     * responses together, instead of waiting for each request in turn. The
+     * report of each query is written by
+     * {@link QueryPlan.Query#report(ResultsListener)}.
+     */
+    public void request(QueryPlan plan) {
+        getJ1939().request(plan);
+    }
+
     public List<DM1ActiveDTCsPacket> readDM1(ResultsListener listener) {
         listener.onResult("");
         String title = " Reading the bus for published DM1 messages";
         listener.onResult(getTime() + title);
 
+        // DM1 is broadcast every second, so once each OBD module has sent one,
+        // a second is long enough to hear from every other module too
+        BroadcastCollector collector = new BroadcastCollector(1, TimeUnit.SECONDS, 1);
+        for (int address : getJ1939().getExpectedResponders()) {
+            collector.expect(address, List.of(DM1ActiveDTCsPacket.PGN));
+        }
+
         Collection<DM1ActiveDTCsPacket> allPackets = getJ1939()
-                                                               .read(DM1ActiveDTCsPacket.class, 3, TimeUnit.SECONDS)
+                                                               .read(DM1ActiveDTCsPacket.class,
+                                                                     3,
+                                                                     TimeUnit.SECONDS,
+                                                                     collector)
                                                                .flatMap(r -> r.left.stream())
                                                                .collect(Collectors.toMap(ParsedPacket::getSourceAddress,
                                                                                          p -> p,
@@ -96,7 +141,7 @@ public class DiagnosticMessageModule extends FunctionalModule {
                                                                .values();
 
         List<DM1ActiveDTCsPacket> packets = allPackets.stream()
-                                                      .sorted(Comparator.comparing(o -> o.getPacket().getTimestamp()))
+                                                      .sorted(Comparator.comparingLong(o -> o.getPacket().getTimestampNanos()))
                                                       .collect(Collectors.toList());
 
         packets.forEach(dm1 -> listener.onResult(NL + dm1.getPacket().toTimeString() + NL + dm1.toString()));
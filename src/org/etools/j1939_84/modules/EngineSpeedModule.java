@@ -3,14 +3,13 @@
  */
 package org.etools.j1939_84.modules;
 
-import static java.time.temporal.ChronoUnit.MILLIS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static org.etools.j1939_84.bus.j1939.J1939.ENGINE_ADDR;
 import static org.etools.j1939_84.model.KeyState.KEY_OFF;
 import static org.etools.j1939_84.model.KeyState.KEY_ON_ENGINE_OFF;
 import static org.etools.j1939_84.model.KeyState.KEY_ON_ENGINE_RUNNING;
 import static org.etools.j1939_84.model.KeyState.UNKNOWN;
 
-import java.time.LocalDateTime;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
@@ -18,8 +17,8 @@ import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
 
-import org.etools.j1939_84.bus.Either;
-import org.etools.j1939_84.bus.j1939.packets.AcknowledgmentPacket;
+import org.etools.j1939_84.bus.PacketFilter;
+import org.etools.j1939_84.bus.j1939.LazyPacket;
 import org.etools.j1939_84.bus.j1939.packets.EngineSpeedPacket;
 import org.etools.j1939_84.bus.j1939.packets.GenericPacket;
 import org.etools.j1939_84.model.KeyState;
@@ -39,7 +38,7 @@ public class EngineSpeedModule extends FunctionalModule {
     private final AtomicReference<Double> idleEngineSpeed = new AtomicReference<>(600.0);
     private final AtomicReference<Double> pedalPosition = new AtomicReference<>(0.0);
 
-    private LocalDateTime lastTimestamp = null;
+    private long lastTimestamp = Long.MIN_VALUE;
 
     private final AtomicReference<Double> averagedEngineSpeed = new AtomicReference<>(0.0);
     private final AtomicReference<Double> currentEngineSpeed = new AtomicReference<>(0.0);
@@ -108,8 +107,8 @@ public class EngineSpeedModule extends FunctionalModule {
     }
 
     public void startMonitoringEngineSpeed(ExecutorService executor,
-                                           Predicate<Either<GenericPacket, AcknowledgmentPacket>> stopPredicate) {
-        lastTimestamp = null;
+                                           Predicate<LazyPacket> stopPredicate) {
+        lastTimestamp = Long.MIN_VALUE;
         timeAtSpeed.set(0);
         timeAtIdle.set(0);
         idleEngineSpeed.set(600.0);
@@ -124,7 +123,7 @@ public class EngineSpeedModule extends FunctionalModule {
         }
 
         executor.submit(() -> {
-            getJ1939().readGenericPacket(stopPredicate)
+            getJ1939().readGenericPacket(PacketFilter.pgns(61444, 65251, 61443).sources(ENGINE_ADDR), stopPredicate)
                       .filter(p -> p.getSourceAddress() == ENGINE_ADDR)
                       .forEach(p -> {
                           int pgn = p.getPacket().getPgn();
@@ -175,10 +174,10 @@ public class EngineSpeedModule extends FunctionalModule {
     }
 
     private long calculateMillisBetweenPackets(GenericPacket packet) {
-        LocalDateTime currentTimestamp = packet.getPacket().getTimestamp();
+        long currentTimestamp = packet.getPacket().getTimestampNanos();
         long diffTime = 0;
-        if (lastTimestamp != null) {
-            diffTime = lastTimestamp.until(currentTimestamp, MILLIS);
+        if (lastTimestamp != Long.MIN_VALUE) {
+            diffTime = NANOSECONDS.toMillis(currentTimestamp - lastTimestamp);
         }
         lastTimestamp = currentTimestamp;
         return diffTime;
@@ -5,6 +5,7 @@ package org.etools.j1939_84.modules;
 
 import org.etools.j1939_84.bus.j1939.J1939;
 import org.etools.j1939_84.bus.j1939.Lookup;
+import org.etools.j1939_84.bus.j1939.QueryPlan;
 import org.etools.j1939_84.bus.j1939.packets.GenericPacket;
 import org.etools.j1939_84.controllers.ResultsListener;
 import org.etools.j1939_84.model.RequestResult;
@@ -43,11 +44,38 @@ public abstract class FunctionalModule {
                                                                           int address,
                                                                           ResultsListener listener) {
         if (address == J1939.GLOBAL_ADDR) {
-            String title = "Global " + dmName + " Request";
-            return getJ1939().requestGlobal(title, clazz, listener);
+            return getJ1939().requestGlobal(requestTitle(dmName, address), clazz, listener);
         } else {
-            String title = "Destination Specific " + dmName + " Request to " + Lookup.getAddressName(address);
-            return getJ1939().requestDS(title, clazz, address, listener).requestResult();
+            return getJ1939().requestDS(requestTitle(dmName, address), clazz, address, listener).requestResult();
+        }
+    }
+
+    /**
+     * Adds a request to a plan, titled as it would be if it was requested on
+     * its own.
+     *
+     * @param  plan
+     *                     the plan to add to
+     * @param  name
+     *                     the name of what is requested, like DM5
+     * @param  clazz
+     *                     the class of the packet requested
+     * @param  address
+     *                     the address of the module, or the global address
+     * @return         the query, which holds the result after the plan is run
+     */
+    protected <T extends GenericPacket> QueryPlan.Query<T> addQuery(QueryPlan plan,
+                                                                   String name,
+                                                                   Class<T> clazz,
+                                                                   int address) {
+        return plan.add(requestTitle(name, address), clazz, address);
+    }
+
+    private static String requestTitle(String name, int address) {
+        if (address == J1939.GLOBAL_ADDR) {
+            return "Global " + name + " Request";
+        } else {
+            return "Destination Specific " + name + " Request to " + Lookup.getAddressName(address);
         }
     }
 
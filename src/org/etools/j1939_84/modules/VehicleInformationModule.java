@@ -21,6 +21,7 @@ import java.util.stream.Collectors;
 
 import org.etools.j1939_84.bus.BusException;
 import org.etools.j1939_84.bus.j1939.BusResult;
+import org.etools.j1939_84.bus.j1939.QueryPlan;
 import org.etools.j1939_84.bus.j1939.packets.AddressClaimPacket;
 import org.etools.j1939_84.bus.j1939.packets.ComponentIdentificationPacket;
 import org.etools.j1939_84.bus.j1939.packets.DM19CalibrationInformationPacket;
@@ -273,6 +274,22 @@ public class VehicleInformationModule extends FunctionalModule {
         return getJ1939().requestGlobal("Global VIN Request", VehicleIdentificationPacket.class, listener).getPackets();
     }
 
+    /**
+     * Adds a DS request for the engine hours to a plan. The plan is run with
+     * {@link DiagnosticMessageModule#request(QueryPlan)}.
+     */
+    public QueryPlan.Query<EngineHoursPacket> addEngineHoursQuery(QueryPlan plan, int address) {
+        return addQuery(plan, "Engine Hours", EngineHoursPacket.class, address);
+    }
+
+    /**
+     * Adds a DS request for the idle operation to a plan. The plan is run with
+     * {@link DiagnosticMessageModule#request(QueryPlan)}.
+     */
+    public QueryPlan.Query<IdleOperationPacket> addIdleOperationQuery(QueryPlan plan, int address) {
+        return addQuery(plan, "Idle Operation", IdleOperationPacket.class, address);
+    }
+
     public BusResult<EngineHoursPacket> requestEngineHours(ResultsListener listener, int address) {
         return getJ1939().requestDS("Destination Specific Engine Hours Request to " + getAddressName(address),
                                     EngineHoursPacket.class,
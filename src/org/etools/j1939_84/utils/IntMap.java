@@ -0,0 +1,272 @@
+/*
+ * Copyright (c) 2021. Equipment & Tool Institute
+ */
+
+package org.etools.j1939_84.utils;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.IntFunction;
+
+/**
+ * A map from int keys, like PGNs and SPNs, to values, without boxing the keys.
+ * Lookups hash straight into an array with open addressing, so there is no
+ * Integer or Map.Entry allocated on either a put or a get.
+ *
+ * Entries can't be removed. Like {@link java.util.HashMap} it is not
+ * synchronized; a map that is filled in and then only read can be shared once
+ * it has been safely published.
+ *
+ * @param <V>
+ *                the type of the values
+ */
+public class IntMap<V> {
+
+    /** A read-only {@link Map} view, for callers that want a Map. */
+    private class MapView extends AbstractMap<Integer, V> {
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof Integer && IntMap.this.containsKey((Integer) key);
+        }
+
+        @Override
+        public Set<Entry<Integer, V>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<Integer, V>> iterator() {
+                    return new Iterator<>() {
+                        private final int[] tableKeys = keys;
+
+                        private final Object[] table = values;
+
+                        private int next = advance(0);
+
+                        private int advance(int from) {
+                            while (from < table.length && table[from] == null) {
+                                from++;
+                            }
+                            return from;
+                        }
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < table.length;
+                        }
+
+                        @Override
+                        @SuppressWarnings("unchecked")
+                        public Entry<Integer, V> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            Entry<Integer, V> entry = new SimpleImmutableEntry<>(tableKeys[next], (V) table[next]);
+                            next = advance(next + 1);
+                            return entry;
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+            };
+        }
+
+        @Override
+        public V get(Object key) {
+            return key instanceof Integer ? IntMap.this.get((Integer) key) : null;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    private static final float LOAD_FACTOR = 0.5f;
+
+    /**
+     * @return an IntMap with the same entries as the map
+     */
+    public static <V> IntMap<V> copyOf(Map<Integer, ? extends V> map) {
+        IntMap<V> result = new IntMap<>(map.size());
+        map.forEach(result::put);
+        return result;
+    }
+
+    /** Spreads the keys, which are often sequential, across the table. */
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private int[] keys;
+
+    private Map<Integer, V> mapView;
+
+    private int size;
+
+    private Object[] values;
+
+    public IntMap() {
+        this(16);
+    }
+
+    /**
+     * @param expectedSize
+     *                         the number of entries expected, so the table
+     *                         doesn't need to grow
+     */
+    public IntMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(2, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        keys = new int[capacity];
+        values = new Object[capacity];
+    }
+
+    /**
+     * Returns the value for the key, computing and adding it first if there
+     * isn't one.
+     */
+    public V computeIfAbsent(int key, IntFunction<? extends V> function) {
+        V value = get(key);
+        if (value == null) {
+            value = function.apply(key);
+            if (value != null) {
+                put(key, value);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * @return a read-only {@link Map} backed by this map, so later changes to
+     *         this map show in it
+     */
+    public Map<Integer, V> asMap() {
+        if (mapView == null) {
+            mapView = new MapView();
+        }
+        return mapView;
+    }
+
+    public boolean containsKey(int key) {
+        return get(key) != null;
+    }
+
+    /** @return the value for the key, or null if there isn't one */
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        int mask = keys.length - 1;
+        for (int i = hash(key) & mask;; i = (i + 1) & mask) {
+            Object value = values[i];
+            if (value == null) {
+                return null;
+            } else if (keys[i] == key) {
+                return (V) value;
+            }
+        }
+    }
+
+    public V getOrDefault(int key, V defaultValue) {
+        V value = get(key);
+        return value == null ? defaultValue : value;
+    }
+
+    /** @return the keys, in no particular order */
+    public int[] keys() {
+        int[] result = new int[size];
+        int j = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                result[j++] = keys[i];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Adds or replaces the value for the key.
+     *
+     * @param  value
+     *                   the value, which can't be null
+     * @return       the value replaced, or null if there wasn't one
+     */
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        if (value == null) {
+            throw new NullPointerException("Null values are not supported.");
+        }
+        int mask = keys.length - 1;
+        for (int i = hash(key) & mask;; i = (i + 1) & mask) {
+            Object old = values[i];
+            if (old == null) {
+                keys[i] = key;
+                values[i] = value;
+                if (++size > keys.length * LOAD_FACTOR) {
+                    grow();
+                }
+                return null;
+            } else if (keys[i] == key) {
+                values[i] = value;
+                return (V) old;
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** @return the values, in no particular order */
+    @SuppressWarnings("unchecked")
+    public List<V> values() {
+        List<V> result = new ArrayList<>(size);
+        for (Object value : values) {
+            if (value != null) {
+                result.add((V) value);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("{");
+        int[] sortedKeys = keys();
+        Arrays.sort(sortedKeys);
+        for (int key : sortedKeys) {
+            if (sb.length() > 1) {
+                sb.append(", ");
+            }
+            sb.append(key).append('=').append(get(key));
+        }
+        return sb.append('}').toString();
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new int[oldKeys.length * 2];
+        values = new Object[oldValues.length * 2];
+        int mask = keys.length - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldValues[j] != null) {
+                int i = hash(oldKeys[j]) & mask;
+                while (values[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+    }
+}